@@ -0,0 +1,154 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import org.attoparser.IMarkupHandler;
+import org.attoparser.IMarkupParser;
+import org.attoparser.MarkupParser;
+import org.attoparser.compactdom.CompactDOMBuilderMarkupHandler;
+import org.attoparser.dom.DOMBuilderMarkupHandler;
+
+
+/*
+ * Measures the heap retained by the DOM trees that each DOM-building handler chain creates for every document
+ * corpus, reporting bytes per document and the size of each tree relative to the first chain (DOM).
+ *
+ * This is not a JMH benchmark: retained size is measured as the difference in used heap (after forcing
+ * garbage collection) before and after building and keeping in memory as many copies of the tree as needed
+ * for the measurement not to be dominated by noise. Executing it with a fixed heap and a non-concurrent
+ * collector gives the most stable figures:
+ *
+ *     java -Xms2g -Xmx2g -XX:+UseSerialGC -cp target/benchmarks.jar org.attoparser.benchmark.DOMFootprint
+ *
+ * Corpus names can be specified as arguments in order to measure only some of them.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public final class DOMFootprint {
+
+    private static final HandlerChain[] CHAINS = new HandlerChain[] { HandlerChain.DOM, HandlerChain.COMPACT_DOM };
+
+    // Small documents are built several times, so that at least this amount of markup is retained
+    private static final int MIN_RETAINED_CHARS = 8 * 1024 * 1024;
+
+    // Keeps built trees reachable until measured
+    private static volatile Object[] retained;
+
+
+
+
+    public static void main(final String[] args) throws Exception {
+
+        final DocumentCorpus[] corpora;
+        if (args.length == 0) {
+            corpora = DocumentCorpus.values();
+        } else {
+            corpora = new DocumentCorpus[args.length];
+            for (int i = 0; i < args.length; i++) {
+                corpora[i] = DocumentCorpus.valueOf(args[i]);
+            }
+        }
+
+        final StringBuilder header = new StringBuilder(String.format("%-16s %12s", "corpus", "chars"));
+        for (final HandlerChain chain : CHAINS) {
+            header.append(String.format(" %14s %8s", chain + " (B)", "ratio"));
+        }
+        System.out.println(header);
+
+        for (final DocumentCorpus corpus : corpora) {
+
+            final String document = corpus.createDocument();
+            final IMarkupParser parser = new MarkupParser(corpus.createParseConfiguration());
+            final int copies = Math.max(1, MIN_RETAINED_CHARS / document.length());
+
+            final StringBuilder line = new StringBuilder(String.format("%-16s %12d", corpus, document.length()));
+            long baseline = -1L;
+            for (final HandlerChain chain : CHAINS) {
+                final long bytes = measure(parser, corpus, chain, document, copies) / copies;
+                if (baseline < 0L) {
+                    baseline = bytes;
+                }
+                line.append(String.format(" %14d %8.3f", bytes, (double) bytes / baseline));
+            }
+            System.out.println(line);
+
+        }
+
+    }
+
+
+
+
+    private static long measure(
+            final IMarkupParser parser, final DocumentCorpus corpus, final HandlerChain chain,
+            final String document, final int copies) throws Exception {
+
+        // First build is not measured, so that classes, parser buffers, etc. are already in place
+        build(parser, corpus, chain, document);
+
+        final Object[] trees = new Object[copies];
+        final long before = usedHeap();
+        for (int i = 0; i < copies; i++) {
+            trees[i] = build(parser, corpus, chain, document);
+        }
+        retained = trees;
+        final long after = usedHeap();
+        retained = null;
+
+        return after - before;
+
+    }
+
+
+    private static Object build(
+            final IMarkupParser parser, final DocumentCorpus corpus, final HandlerChain chain,
+            final String document) throws Exception {
+        final IMarkupHandler handler = chain.createHandler(corpus);
+        parser.parse(document, handler);
+        if (handler instanceof DOMBuilderMarkupHandler) {
+            return ((DOMBuilderMarkupHandler) handler).getDocument();
+        }
+        if (handler instanceof CompactDOMBuilderMarkupHandler) {
+            return ((CompactDOMBuilderMarkupHandler) handler).getDocument();
+        }
+        throw new IllegalArgumentException("Handler chain " + chain + " does not build a DOM");
+    }
+
+
+    private static long usedHeap() throws InterruptedException {
+        final Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        // Several collections are forced, as unreachable trees are not always released by the first ones
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(50L);
+            final long current = runtime.totalMemory() - runtime.freeMemory();
+            used = Math.min(used, current);
+        }
+        return used;
+    }
+
+
+    private DOMFootprint() {
+        super();
+    }
+
+}
@@ -0,0 +1,174 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.attoparser.MarkupParser;
+import org.attoparser.ParseException;
+import org.attoparser.compactdom.CompactDOMBuilderMarkupHandler;
+import org.attoparser.compactdom.CompactDocument;
+import org.attoparser.dom.DOMBuilderMarkupHandler;
+import org.attoparser.dom.Document;
+import org.attoparser.dom.Element;
+import org.attoparser.dom.INestableNode;
+import org.attoparser.dom.INode;
+import org.attoparser.dom.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/*
+ * Benchmarks for navigating already built DOM trees of large documents: a complete depth-first traversal that
+ * visits every node, iterates the attributes of every element and reads the length of every text, plus a
+ * traversal that only looks up a single attribute by name in every element (the usual access pattern of
+ * code searching a DOM for something).
+ *
+ * Compact DOM trees (CompactDocument) are traversed in the same way, for comparison.
+ *
+ * Memory retained by the same trees is measured by DOMFootprint.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class DOMIterationBenchmark {
+
+
+    @Param({ "LARGE_HTML", "DEEP_XML", "ATTRIBUTE_HEAVY", "TAG_DENSE" })
+    public DocumentCorpus corpus;
+
+
+    private Document document;
+    private CompactDocument compactDocument;
+
+
+
+
+    @Setup(Level.Trial)
+    public void setup() throws ParseException {
+
+        final MarkupParser parser = new MarkupParser(this.corpus.createParseConfiguration());
+        final String documentString = this.corpus.createDocument();
+
+        final DOMBuilderMarkupHandler handler = new DOMBuilderMarkupHandler();
+        parser.parse(documentString, handler);
+        this.document = handler.getDocument();
+
+        final CompactDOMBuilderMarkupHandler compactHandler = new CompactDOMBuilderMarkupHandler();
+        parser.parse(documentString, compactHandler);
+        this.compactDocument = compactHandler.getDocument();
+
+    }
+
+
+
+
+    @Benchmark
+    public long traverse() {
+        return traverse(this.document);
+    }
+
+
+    @Benchmark
+    public long lookupAttribute() {
+        return lookupAttribute(this.document);
+    }
+
+
+    @Benchmark
+    public long traverseCompact() {
+        final CompactDocument doc = this.compactDocument;
+        long result = 0L;
+        // Nodes are numbered in document order, so this is a depth-first traversal
+        for (int node = 0, n = doc.getNodeCount(); node < n; node++) {
+            result += doc.getType(node);
+            if (doc.isElement(node)) {
+                for (int i = 0, attributeCount = doc.getAttributeCount(node); i < attributeCount; i++) {
+                    result += doc.getAttributeName(node, i).length();
+                    result += doc.getAttributeValue(node, i).length();
+                }
+            } else if (doc.getType(node) == CompactDocument.TYPE_TEXT) {
+                result += doc.getValueLength(node);
+            }
+        }
+        return result;
+    }
+
+
+
+
+    private static long traverse(final INestableNode node) {
+        long result = 0L;
+        final List<INode> children = node.getChildren();
+        for (int i = 0, n = children.size(); i < n; i++) {
+            final INode child = children.get(i);
+            result++;
+            if (child instanceof Element) {
+                final Element element = (Element) child;
+                if (element.hasAttributes()) {
+                    for (final Map.Entry<String,String> attribute : element.getAttributeMap().entrySet()) {
+                        result += attribute.getKey().length();
+                        result += attribute.getValue().length();
+                    }
+                }
+                result += traverse(element);
+            } else if (child instanceof Text) {
+                result += ((Text) child).getContent().length();
+            }
+        }
+        return result;
+    }
+
+
+    private static long lookupAttribute(final INestableNode node) {
+        long result = 0L;
+        for (final INode child : node.getChildren()) {
+            if (child instanceof Element) {
+                final Element element = (Element) child;
+                final String value = element.getAttributeValue("class");
+                if (value != null) {
+                    result += value.length();
+                }
+                result += lookupAttribute(element);
+            }
+        }
+        return result;
+    }
+
+
+}
@@ -0,0 +1,275 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import java.util.Random;
+
+import org.attoparser.config.ParseConfiguration;
+
+
+/*
+ * Shapes of the documents used as benchmark corpora.
+ *
+ * Documents are generated in memory (with a fixed random seed, so that every run parses exactly the same
+ * markup) instead of being shipped as resources, because some of them are several megabytes in size.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public enum DocumentCorpus {
+
+    /*
+     * Small (~2 KB) template, similar to the fragments a template engine parses thousands of times per second.
+     */
+    SMALL_TEMPLATE(true, "div.content") {
+        @Override
+        String generate(final Random random) {
+            return smallTemplate(random);
+        }
+    },
+
+    /*
+     * Large (~10 MB) HTML page, text-heavy and with a mix of most common HTML structures.
+     */
+    LARGE_HTML(true, "div.content") {
+        @Override
+        String generate(final Random random) {
+            final StringBuilder strBuilder = new StringBuilder(LARGE_HTML_SIZE + 4096);
+            strBuilder.append("<!DOCTYPE html>\n<html>\n<head>\n<title>Large page</title>\n</head>\n<body>\n");
+            while (strBuilder.length() < LARGE_HTML_SIZE) {
+                appendArticle(strBuilder, random);
+            }
+            strBuilder.append("</body>\n</html>\n");
+            return strBuilder.toString();
+        }
+    },
+
+    /*
+     * Well-formed XML with very deep element nesting (depth is in the thousands), parsed in XML mode.
+     */
+    DEEP_XML(false, "item") {
+        @Override
+        String generate(final Random random) {
+            final StringBuilder strBuilder = new StringBuilder(1024 * 1024);
+            strBuilder.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<feed>\n");
+            for (int block = 0; block < 20; block++) {
+                for (int depth = 0; depth < DEEP_XML_DEPTH; depth++) {
+                    strBuilder.append("<item level=\"").append(depth).append("\">");
+                    if (depth % 10 == 0) {
+                        strBuilder.append('\n').append(randomWords(random, 3));
+                    }
+                }
+                for (int depth = 0; depth < DEEP_XML_DEPTH; depth++) {
+                    strBuilder.append("</item>");
+                }
+                strBuilder.append('\n');
+            }
+            strBuilder.append("</feed>\n");
+            return strBuilder.toString();
+        }
+    },
+
+    /*
+     * Markup in which most of the size is in attributes (data-*, Angular, Vue and Thymeleaf-style attributes).
+     */
+    ATTRIBUTE_HEAVY(true, "div.content") {
+        @Override
+        String generate(final Random random) {
+            final StringBuilder strBuilder = new StringBuilder(1024 * 1024 + 4096);
+            strBuilder.append("<!DOCTYPE html>\n<html>\n<body>\n<div class=\"content\">\n");
+            while (strBuilder.length() < MEDIUM_DOCUMENT_SIZE) {
+                strBuilder.append("<div");
+                final int attributeCount = 8 + random.nextInt(12);
+                for (int i = 0; i < attributeCount; i++) {
+                    strBuilder.append(' ').append(ATTRIBUTE_NAMES[random.nextInt(ATTRIBUTE_NAMES.length)]);
+                    strBuilder.append(i).append("=\"").append(randomWords(random, 1 + random.nextInt(3))).append('"');
+                }
+                strBuilder.append(" hidden>");
+                strBuilder.append("<input type=\"text\" name=\"field").append(random.nextInt(1000));
+                strBuilder.append("\" th:value=\"${user.name}\" v-model='user.name' data-index=").append(random.nextInt(50));
+                strBuilder.append(" disabled />");
+                strBuilder.append("</div>\n");
+            }
+            strBuilder.append("</div>\n</body>\n</html>\n");
+            return strBuilder.toString();
+        }
+    },
+
+    /*
+     * Markup made almost only of tags (short elements, comments and '<' chars in text, with very little text
+     * between them), in which most of the parsing time is spent finding and classifying structures.
+     */
+    TAG_DENSE(true, "div.content") {
+        @Override
+        String generate(final Random random) {
+            final StringBuilder strBuilder = new StringBuilder(1024 * 1024 + 4096);
+            strBuilder.append("<!DOCTYPE html>\n<html>\n<body>\n<div class=\"content\">\n");
+            while (strBuilder.length() < MEDIUM_DOCUMENT_SIZE) {
+                strBuilder.append("<ul><li><a href=\"#").append(random.nextInt(100)).append("\">");
+                strBuilder.append(random.nextInt(10)).append("</a></li><li><b>x</b><i>y</i><br/></li></ul>");
+                strBuilder.append("<span><em>a</em> < <strong>b</strong></span><!-- c -->");
+                strBuilder.append("<p><img src=\"i.png\"><br><?pi x?></p>\n");
+            }
+            strBuilder.append("</div>\n</body>\n</html>\n");
+            return strBuilder.toString();
+        }
+    },
+
+    /*
+     * Pages with many large inline <script> and <style> blocks, which are parsed as non-parseable (CDATA) content.
+     */
+    SCRIPT_HEAVY(true, "div.content") {
+        @Override
+        String generate(final Random random) {
+            final StringBuilder strBuilder = new StringBuilder(1024 * 1024 + 4096);
+            strBuilder.append("<!DOCTYPE html>\n<html>\n<head>\n");
+            while (strBuilder.length() < MEDIUM_DOCUMENT_SIZE / 2) {
+                appendScript(strBuilder, random);
+                strBuilder.append("<style>\n.c").append(random.nextInt(100));
+                strBuilder.append(" > p { margin: 0 auto; color: #333; }\n</style>\n");
+            }
+            strBuilder.append("</head>\n<body>\n<div class=\"content\">\n");
+            while (strBuilder.length() < MEDIUM_DOCUMENT_SIZE) {
+                strBuilder.append("<p>").append(randomWords(random, 10)).append("</p>\n");
+                appendScript(strBuilder, random);
+            }
+            strBuilder.append("</div>\n</body>\n</html>\n");
+            return strBuilder.toString();
+        }
+    };
+
+
+
+    private static final long SEED = 20141126L;
+
+    private static final int LARGE_HTML_SIZE = 10 * 1024 * 1024;
+    private static final int MEDIUM_DOCUMENT_SIZE = 1024 * 1024;
+    private static final int DEEP_XML_DEPTH = 2000;
+
+    private static final String[] WORDS =
+            new String[] {
+                    "lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipiscing", "elit", "sed", "do",
+                    "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua", "&amp;",
+                    "button", "btn btn-primary", "true", "false", "a < b", "x > y" };
+
+    private static final String[] ATTRIBUTE_NAMES =
+            new String[] {
+                    "class", "id", "title", "data-id", "data-role", "data-toggle", "aria-label", "ng-if",
+                    "ng-class", "v-if", ":class", "@click", "th:text", "th:classappend", "style" };
+
+
+    private final boolean html;
+    private final String selector;
+
+
+
+    DocumentCorpus(final boolean html, final String selector) {
+        this.html = html;
+        this.selector = selector;
+    }
+
+
+    abstract String generate(final Random random);
+
+
+    public String createDocument() {
+        return generate(new Random(SEED));
+    }
+
+
+    public ParseConfiguration createParseConfiguration() {
+        return (this.html ? ParseConfiguration.htmlConfiguration() : ParseConfiguration.xmlConfiguration());
+    }
+
+
+    public String getSelector() {
+        return this.selector;
+    }
+
+
+
+
+    private static String smallTemplate(final Random random) {
+        final StringBuilder strBuilder = new StringBuilder(2048);
+        strBuilder.append("<div class=\"content\" th:fragment=\"main\">\n");
+        strBuilder.append("  <h2 th:text=\"${title}\">").append(randomWords(random, 3)).append("</h2>\n");
+        strBuilder.append("  <ul class=\"list\">\n");
+        for (int i = 0; i < 10; i++) {
+            strBuilder.append("    <li th:each=\"item : ${items}\" class=\"item item-").append(i).append("\">");
+            strBuilder.append("<a href=\"/items/").append(i).append("\" th:href=\"@{/items/{id}(id=${item.id})}\">");
+            strBuilder.append(randomWords(random, 2)).append("</a></li>\n");
+        }
+        strBuilder.append("  </ul>\n");
+        strBuilder.append("  <!-- ").append(randomWords(random, 5)).append(" -->\n");
+        strBuilder.append("  <p>").append(randomWords(random, 40)).append("<br>").append(randomWords(random, 20));
+        strBuilder.append("</p>\n");
+        strBuilder.append("  <form action=\"/save\" method=\"post\"><input type=\"text\" name=\"q\" value=\"\">");
+        strBuilder.append("<button class=\"btn btn-primary\" type=\"submit\">Save</button></form>\n");
+        strBuilder.append("</div>\n");
+        return strBuilder.toString();
+    }
+
+
+    private static void appendArticle(final StringBuilder strBuilder, final Random random) {
+        strBuilder.append("<div class=\"content\" id=\"a").append(random.nextInt(100000)).append("\">\n");
+        strBuilder.append("  <h2>").append(randomWords(random, 4)).append("</h2>\n");
+        for (int i = 0; i < 3; i++) {
+            strBuilder.append("  <p>").append(randomWords(random, 60));
+            strBuilder.append(" <a href=\"/page/").append(random.nextInt(1000)).append("\">");
+            strBuilder.append(randomWords(random, 2)).append("</a> ");
+            strBuilder.append(randomWords(random, 30)).append("</p>\n");
+        }
+        strBuilder.append("  <table>\n");
+        for (int i = 0; i < 3; i++) {
+            strBuilder.append("    <tr><td>").append(randomWords(random, 2)).append("<td>");
+            strBuilder.append(random.nextInt(1000)).append("</tr>\n");
+        }
+        strBuilder.append("  </table>\n");
+        strBuilder.append("  <!-- ").append(randomWords(random, 3)).append(" -->\n");
+        strBuilder.append("  <ul><li>").append(randomWords(random, 3)).append("<li>");
+        strBuilder.append(randomWords(random, 3)).append("</ul>\n");
+        strBuilder.append("</div>\n");
+    }
+
+
+    private static void appendScript(final StringBuilder strBuilder, final Random random) {
+        strBuilder.append("<script type=\"text/javascript\">\n");
+        final int lines = 10 + random.nextInt(30);
+        for (int i = 0; i < lines; i++) {
+            strBuilder.append("  for (var i = 0; i < n && i > -1; i++) { if (a[i] <= '<p>') { ");
+            strBuilder.append("document.write(\"<div class='x'>\" + a[i] + \"</div>\"); } }\n");
+        }
+        strBuilder.append("</script>\n");
+    }
+
+
+    private static String randomWords(final Random random, final int count) {
+        final StringBuilder strBuilder = new StringBuilder(count * 8);
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                strBuilder.append(' ');
+            }
+            strBuilder.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return strBuilder.toString();
+    }
+
+
+}
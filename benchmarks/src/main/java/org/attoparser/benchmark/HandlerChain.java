@@ -0,0 +1,119 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import java.io.Writer;
+
+import org.attoparser.IMarkupHandler;
+import org.attoparser.compactdom.CompactDOMBuilderMarkupHandler;
+import org.attoparser.discard.DiscardMarkupHandler;
+import org.attoparser.dom.DOMBuilderMarkupHandler;
+import org.attoparser.output.OutputMarkupHandler;
+import org.attoparser.select.BlockSelectorMarkupHandler;
+
+
+/*
+ * Handler chains the parser is benchmarked against. A new handler is created for every parsing operation
+ * (handlers are stateful), so its creation cost is part of each measurement, just as it is in real usage.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public enum HandlerChain {
+
+    DISCARD {
+        @Override
+        public IMarkupHandler createHandler(final DocumentCorpus corpus) {
+            return new DiscardMarkupHandler();
+        }
+    },
+
+    OUTPUT {
+        @Override
+        public IMarkupHandler createHandler(final DocumentCorpus corpus) {
+            return new OutputMarkupHandler(new NullWriter());
+        }
+    },
+
+    DOM {
+        @Override
+        public IMarkupHandler createHandler(final DocumentCorpus corpus) {
+            return new DOMBuilderMarkupHandler();
+        }
+    },
+
+    COMPACT_DOM {
+        @Override
+        public IMarkupHandler createHandler(final DocumentCorpus corpus) {
+            return new CompactDOMBuilderMarkupHandler();
+        }
+    },
+
+    BLOCK_SELECTOR {
+        @Override
+        public IMarkupHandler createHandler(final DocumentCorpus corpus) {
+            return new BlockSelectorMarkupHandler(new OutputMarkupHandler(new NullWriter()), corpus.getSelector());
+        }
+    };
+
+
+    public abstract IMarkupHandler createHandler(final DocumentCorpus corpus);
+
+
+
+
+    /*
+     * Writer that discards everything, so that output handlers measure markup processing and not the
+     * growth of a StringWriter.
+     */
+    static final class NullWriter extends Writer {
+
+        NullWriter() {
+            super();
+        }
+
+        @Override
+        public void write(final int c) {
+            // Nothing to be done
+        }
+
+        @Override
+        public void write(final char[] cbuf, final int off, final int len) {
+            // Nothing to be done
+        }
+
+        @Override
+        public void write(final String str, final int off, final int len) {
+            // Nothing to be done
+        }
+
+        @Override
+        public void flush() {
+            // Nothing to be done
+        }
+
+        @Override
+        public void close() {
+            // Nothing to be done
+        }
+
+    }
+
+}
@@ -0,0 +1,213 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.attoparser.IMarkupHandler;
+import org.attoparser.IMarkupHandlerFactory;
+import org.attoparser.MarkupBatchParser;
+import org.attoparser.MarkupBatchResult;
+import org.attoparser.MarkupParseSession;
+import org.attoparser.MarkupParser;
+import org.attoparser.ParseException;
+import org.attoparser.buffer.StripedBufferPool;
+import org.attoparser.buffer.ThreadLocalBufferPool;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*
+ * Throughput benchmarks for MarkupBatchParser, parsing a batch of documents (each of them generated with a
+ * different seed) with different executors and amounts of worker threads.
+ *
+ * The "sequential" benchmark parses the same batch in the benchmark thread with a single parse session, and
+ * is the baseline for computing the speedup obtained at each amount of threads. Scores are batches per
+ * second, so documents per second are obtained by multiplying them by the batch size.
+ *
+ * The VIRTUAL executor requires Java 21 or newer, and ignores the amount of threads (the JVM decides how
+ * many carrier threads are used, normally one per core).
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MarkupBatchParserBenchmark {
+
+
+    public enum BatchExecutor {
+
+        FIXED {
+            @Override
+            ExecutorService create(final int threads) {
+                return Executors.newFixedThreadPool(threads);
+            }
+        },
+
+        FORK_JOIN {
+            @Override
+            ExecutorService create(final int threads) {
+                return new ForkJoinPool(threads);
+            }
+        },
+
+        VIRTUAL {
+            @Override
+            ExecutorService create(final int threads) {
+                // Looked up reflectively, as benchmarks are compiled for Java 8
+                try {
+                    return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (final Exception e) {
+                    throw new IllegalStateException("Virtual threads require Java 21 or newer", e);
+                }
+            }
+        };
+
+        abstract ExecutorService create(final int threads);
+
+    }
+
+
+    /*
+     * Executor and parser used by the batch benchmark, kept in a separate state so that the sequential baseline
+     * is not repeated for every executor and amount of threads.
+     */
+    @State(Scope.Benchmark)
+    public static class BatchState {
+
+        @Param({ "FIXED", "FORK_JOIN" })
+        public BatchExecutor executorType;
+
+        @Param({ "1", "2", "4", "8" })
+        public int threads;
+
+        ExecutorService executor;
+        MarkupBatchParser batchParser;
+
+        @Setup(Level.Trial)
+        public void setup(final MarkupBatchParserBenchmark benchmark) {
+            this.executor = this.executorType.create(this.threads);
+            // Virtual threads are never reused, so thread-local buffers would never be reused either
+            final MarkupParser parser =
+                    new MarkupParser(
+                            benchmark.corpus.createParseConfiguration(),
+                            (this.executorType == BatchExecutor.VIRTUAL?
+                                    new StripedBufferPool(MarkupParser.DEFAULT_BUFFER_SIZE, MarkupParser.DEFAULT_POOL_SIZE) :
+                                    new ThreadLocalBufferPool(MarkupParser.DEFAULT_BUFFER_SIZE)));
+            this.batchParser = new MarkupBatchParser(parser, this.executor);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws InterruptedException {
+            this.executor.shutdown();
+            this.executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+
+    }
+
+
+    @Param({ "SMALL_TEMPLATE", "ATTRIBUTE_HEAVY" })
+    public DocumentCorpus corpus;
+
+    @Param({ "DISCARD", "DOM" })
+    public HandlerChain handlerChain;
+
+    @Param({ "256" })
+    public int batchSize;
+
+
+    private MarkupParseSession sequentialSession;
+    private IMarkupHandlerFactory<IMarkupHandler> handlerFactory;
+    private List<String> documents;
+
+
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+
+        this.sequentialSession = new MarkupParser(this.corpus.createParseConfiguration()).createSession();
+
+        final DocumentCorpus documentCorpus = this.corpus;
+        final HandlerChain chain = this.handlerChain;
+        this.handlerFactory =
+                new IMarkupHandlerFactory<IMarkupHandler>() {
+                    public IMarkupHandler createHandler(final int index) {
+                        return chain.createHandler(documentCorpus);
+                    }
+                };
+
+        this.documents = new ArrayList<String>(this.batchSize);
+        for (int i = 0; i < this.batchSize; i++) {
+            this.documents.add(this.corpus.generate(new Random(i)));
+        }
+
+    }
+
+
+
+
+    @Benchmark
+    public void sequential(final Blackhole blackhole) throws ParseException {
+        for (int i = 0; i < this.batchSize; i++) {
+            final IMarkupHandler handler = this.handlerFactory.createHandler(i);
+            this.sequentialSession.parse(this.documents.get(i), handler);
+            blackhole.consume(handler);
+        }
+    }
+
+
+    @Benchmark
+    public void batch(final BatchState state, final Blackhole blackhole) throws InterruptedException {
+        final List<MarkupBatchResult<IMarkupHandler>> results =
+                state.batchParser.parse(this.documents, this.handlerFactory);
+        for (final MarkupBatchResult<IMarkupHandler> result : results) {
+            if (!result.isSuccessful()) {
+                throw new IllegalStateException("Document " + result.getIndex() + " failed", result.getException());
+            }
+            blackhole.consume(result.getHandler());
+        }
+    }
+
+
+}
@@ -0,0 +1,127 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import java.io.StringReader;
+import java.util.concurrent.TimeUnit;
+
+import org.attoparser.IMarkupHandler;
+import org.attoparser.IMarkupParser;
+import org.attoparser.MarkupParser;
+import org.attoparser.ParseException;
+import org.attoparser.compactdom.CompactDOMBuilderMarkupHandler;
+import org.attoparser.dom.DOMBuilderMarkupHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/*
+ * Benchmarks for MarkupParser, parsing every document corpus through each of the three input types
+ * (String, char[] and Reader) and each of the handler chains.
+ *
+ * Allocation figures (gc.alloc.rate.norm, i.e. bytes allocated per parsing operation) are reported when the
+ * benchmarks are executed with the GC profiler enabled, which MarkupParserBenchmarkRunner always does.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 2, timeUnit = TimeUnit.SECONDS)
+@Fork(value = 1, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+@State(Scope.Benchmark)
+public class MarkupParserBenchmark {
+
+
+    @Param({ "SMALL_TEMPLATE", "LARGE_HTML", "DEEP_XML", "ATTRIBUTE_HEAVY", "TAG_DENSE", "SCRIPT_HEAVY" })
+    public DocumentCorpus corpus;
+
+    @Param({ "DISCARD", "OUTPUT", "DOM", "COMPACT_DOM", "BLOCK_SELECTOR" })
+    public HandlerChain handlerChain;
+
+
+    private IMarkupParser parser;
+    private String documentString;
+    private char[] documentChars;
+
+
+
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.parser = new MarkupParser(this.corpus.createParseConfiguration());
+        this.documentString = this.corpus.createDocument();
+        this.documentChars = this.documentString.toCharArray();
+    }
+
+
+
+
+    @Benchmark
+    public void parseString(final Blackhole blackhole) throws ParseException {
+        final IMarkupHandler handler = this.handlerChain.createHandler(this.corpus);
+        this.parser.parse(this.documentString, handler);
+        consume(handler, blackhole);
+    }
+
+
+    @Benchmark
+    public void parseCharArray(final Blackhole blackhole) throws ParseException {
+        final IMarkupHandler handler = this.handlerChain.createHandler(this.corpus);
+        this.parser.parse(this.documentChars, handler);
+        consume(handler, blackhole);
+    }
+
+
+    @Benchmark
+    public void parseReader(final Blackhole blackhole) throws ParseException {
+        final IMarkupHandler handler = this.handlerChain.createHandler(this.corpus);
+        this.parser.parse(new StringReader(this.documentString), handler);
+        consume(handler, blackhole);
+    }
+
+
+
+
+    private static void consume(final IMarkupHandler handler, final Blackhole blackhole) {
+        // DOMs are the only results that could be optimized away, the rest of chains have no output
+        if (handler instanceof DOMBuilderMarkupHandler) {
+            blackhole.consume(((DOMBuilderMarkupHandler) handler).getDocument());
+        } else if (handler instanceof CompactDOMBuilderMarkupHandler) {
+            blackhole.consume(((CompactDOMBuilderMarkupHandler) handler).getDocument());
+        } else {
+            blackhole.consume(handler);
+        }
+    }
+
+
+}
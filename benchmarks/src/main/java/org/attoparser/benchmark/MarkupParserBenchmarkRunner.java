@@ -0,0 +1,63 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/*
+ * Entry point for executing the attoparser benchmarks with the GC profiler always enabled, so that both
+ * throughput and normalized allocation rate (gc.alloc.rate.norm) are reported for every benchmark.
+ *
+ * Any standard JMH command line options (e.g. a benchmark name regexp, "-p corpus=LARGE_HTML" or
+ * "-rf json") can be specified as arguments.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public final class MarkupParserBenchmarkRunner {
+
+
+    public static void main(final String[] args) throws Exception {
+
+        final CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+
+        final OptionsBuilder optionsBuilder = new OptionsBuilder();
+        optionsBuilder.parent(commandLineOptions);
+        optionsBuilder.addProfiler(GCProfiler.class);
+        if (commandLineOptions.getIncludes().isEmpty()) {
+            optionsBuilder.include(MarkupParserBenchmark.class.getSimpleName());
+        }
+
+        final Options options = optionsBuilder.build();
+        new Runner(options).run();
+
+    }
+
+
+    private MarkupParserBenchmarkRunner() {
+        super();
+    }
+
+}
@@ -51,7 +51,7 @@
             extends AbstractMarkupHandler {
 
 
-    private final IMarkupHandler next;
+    private IMarkupHandler next;
 
 
     /**
@@ -83,6 +83,14 @@ protected final IMarkupHandler getNext() {
     }
 
 
+    /*
+     * Only meant to be used by parse sessions, which reuse their internal handlers for several documents.
+     */
+    final void setNext(final IMarkupHandler next) {
+        this.next = next;
+    }
+
+
 
 
     public void setParseConfiguration(final ParseConfiguration parseConfiguration) {
@@ -0,0 +1,380 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import org.attoparser.util.TextUtil;
+
+/**
+ * <p>
+ *   Cursor for iterating, on demand, the attributes in an attribute sequence, like the ones in open and
+ *   standalone elements.
+ * </p>
+ * <p>
+ *   This allows handlers to only parse the attributes of the elements they are interested in. For example, a
+ *   handler only interested in the <tt>href</tt> attribute of <tt>&lt;a&gt;</tt> elements can declare that it
+ *   does not consume attribute events (see {@link IInterestAwareMarkupHandler}) and then, when receiving the
+ *   start event for an <tt>&lt;a&gt;</tt> element, do:
+ * </p>
+ * <pre><code>
+ *   cursor.reset(buffer, this.status);
+ *   if (cursor.find("href", false)) {
+ *       final String href = new String(buffer, cursor.getValueContentOffset(), cursor.getValueContentLen());
+ *       ...
+ *   }
+ * </code></pre>
+ * <p>
+ *   The attribute sequence is tokenized the first time the cursor is moved after being reset, reporting
+ *   offsets, lengths, lines and columns exactly as {@link IAttributeSequenceHandler#handleAttribute(char[], int, int, int, int, int, int, int, int, int, int, int, int, int, int)}
+ *   would. As these offsets refer to the buffer of the element event being handled, a cursor should only be
+ *   used during that event.
+ * </p>
+ * <p>
+ *   Cursors can be reused for as many attribute sequences as needed, but they are not thread-safe.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class AttributeCursor {
+
+    private static final int DEFAULT_ATTRIBUTES_SIZE = 8;
+
+    // Each attribute takes this number of positions in the attributes array, in this order
+    private static final int NAME_OFFSET = 0;
+    private static final int NAME_LEN = 1;
+    private static final int NAME_LINE = 2;
+    private static final int NAME_COL = 3;
+    private static final int OPERATOR_OFFSET = 4;
+    private static final int OPERATOR_LEN = 5;
+    private static final int OPERATOR_LINE = 6;
+    private static final int OPERATOR_COL = 7;
+    private static final int VALUE_CONTENT_OFFSET = 8;
+    private static final int VALUE_CONTENT_LEN = 9;
+    private static final int VALUE_OUTER_OFFSET = 10;
+    private static final int VALUE_OUTER_LEN = 11;
+    private static final int VALUE_LINE = 12;
+    private static final int VALUE_COL = 13;
+    private static final int ATTRIBUTE_SIZE = 14;
+
+    private final AttributeCollector collector = new AttributeCollector();
+
+    private char[] buffer = null;
+    private int offset = 0;
+    private int len = 0;
+    private int line = -1;
+    private int col = -1;
+
+    private boolean parsed = true;
+    private int current = -1;
+
+
+
+    /**
+     * <p>
+     *   Creates a new cursor, not positioned on any attribute sequence.
+     * </p>
+     */
+    public AttributeCursor() {
+        super();
+    }
+
+
+
+    /**
+     * <p>
+     *   Positions this cursor before the first attribute of the specified attribute sequence.
+     * </p>
+     *
+     * @param buffer the buffer containing the attribute sequence.
+     * @param offset the offset of the attribute sequence.
+     * @param len the length of the attribute sequence.
+     * @param line the line in the document at which the attribute sequence starts (or -1 if not tracked).
+     * @param col the column in the document at which the attribute sequence starts (or -1 if not tracked).
+     */
+    public void reset(final char[] buffer, final int offset, final int len, final int line, final int col) {
+        if (buffer == null) {
+            throw new IllegalArgumentException("Buffer cannot be null");
+        }
+        if (offset < 0 || len < 0 || offset + len > buffer.length) {
+            throw new IllegalArgumentException(
+                    "Invalid attribute sequence (offset: " + offset + ", length: " + len + ")");
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.len = len;
+        this.line = line;
+        this.col = col;
+        this.parsed = false;
+        this.current = -1;
+    }
+
+
+    /**
+     * <p>
+     *   Positions this cursor before the first attribute of the open or standalone element currently being
+     *   reported by the parser (see {@link ParseStatus#getAttributeSequenceOffset()}).
+     * </p>
+     * <p>
+     *   Only the <em>start</em> and <em>end</em> events of parsed open and standalone elements can be handled
+     *   this way. Other events reported meanwhile (such as those for elements being auto-closed or auto-opened
+     *   before the element) are reported with a different buffer, and will make this method fail.
+     * </p>
+     *
+     * @param buffer the buffer reported with the element event being handled.
+     * @param status the parse status, as received by the handler.
+     */
+    public void reset(final char[] buffer, final ParseStatus status) {
+        if (status == null) {
+            throw new IllegalArgumentException("Parse status cannot be null");
+        }
+        if (status.attributeSequenceLen < 0) {
+            throw new IllegalStateException(
+                    "Cannot obtain attribute sequence: no open or standalone element is being reported");
+        }
+        if (status.attributeSequenceBuffer != buffer) {
+            throw new IllegalStateException(
+                    "Cannot obtain attribute sequence: the specified buffer is not the one the element " +
+                    "being reported was parsed from");
+        }
+        reset(buffer,
+                status.attributeSequenceOffset, status.attributeSequenceLen,
+                status.attributeSequenceLine, status.attributeSequenceCol);
+    }
+
+
+
+    /**
+     * <p>
+     *   Moves this cursor to the next attribute in the sequence.
+     * </p>
+     *
+     * @return true if the cursor is now positioned on an attribute, false if there are no more attributes.
+     * @throws ParseException if the attribute sequence cannot be parsed.
+     */
+    public boolean next() throws ParseException {
+        parse();
+        if (this.current < this.collector.count) {
+            this.current++;
+        }
+        return this.current < this.collector.count;
+    }
+
+
+    /**
+     * <p>
+     *   Moves this cursor to the first attribute in the sequence with the specified name.
+     * </p>
+     *
+     * @param name the name of the attribute.
+     * @param caseSensitive whether attribute names should be compared in a case-sensitive way.
+     * @return true if the attribute was found (and the cursor is positioned on it), false if not (in which
+     *         case the cursor is positioned after the last attribute).
+     * @throws ParseException if the attribute sequence cannot be parsed.
+     */
+    public boolean find(final String name, final boolean caseSensitive) throws ParseException {
+        if (name == null) {
+            throw new IllegalArgumentException("Name cannot be null");
+        }
+        parse();
+        final int[] attributes = this.collector.attributes;
+        for (int i = 0; i < this.collector.count; i++) {
+            final int base = i * ATTRIBUTE_SIZE;
+            if (TextUtil.equals(
+                    caseSensitive, name, 0, name.length(),
+                    this.buffer, attributes[base + NAME_OFFSET], attributes[base + NAME_LEN])) {
+                this.current = i;
+                return true;
+            }
+        }
+        this.current = this.collector.count;
+        return false;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of attributes in the sequence.
+     * </p>
+     *
+     * @return the number of attributes.
+     * @throws ParseException if the attribute sequence cannot be parsed.
+     */
+    public int getAttributeCount() throws ParseException {
+        parse();
+        return this.collector.count;
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns the buffer containing the attribute sequence, to which all offsets refer.
+     * </p>
+     *
+     * @return the buffer.
+     */
+    public char[] getBuffer() {
+        return this.buffer;
+    }
+
+    /*
+     * Properties of the attribute the cursor is positioned on, with the same meaning as the arguments of
+     * IAttributeSequenceHandler.handleAttribute(...). An IllegalStateException is thrown if the cursor is
+     * not positioned on an attribute.
+     */
+
+    public int getNameOffset() {
+        return get(NAME_OFFSET);
+    }
+
+    public int getNameLen() {
+        return get(NAME_LEN);
+    }
+
+    public int getNameLine() {
+        return get(NAME_LINE);
+    }
+
+    public int getNameCol() {
+        return get(NAME_COL);
+    }
+
+    public int getOperatorOffset() {
+        return get(OPERATOR_OFFSET);
+    }
+
+    public int getOperatorLen() {
+        return get(OPERATOR_LEN);
+    }
+
+    public int getOperatorLine() {
+        return get(OPERATOR_LINE);
+    }
+
+    public int getOperatorCol() {
+        return get(OPERATOR_COL);
+    }
+
+    public int getValueContentOffset() {
+        return get(VALUE_CONTENT_OFFSET);
+    }
+
+    public int getValueContentLen() {
+        return get(VALUE_CONTENT_LEN);
+    }
+
+    public int getValueOuterOffset() {
+        return get(VALUE_OUTER_OFFSET);
+    }
+
+    public int getValueOuterLen() {
+        return get(VALUE_OUTER_LEN);
+    }
+
+    public int getValueLine() {
+        return get(VALUE_LINE);
+    }
+
+    public int getValueCol() {
+        return get(VALUE_COL);
+    }
+
+
+
+
+    private int get(final int field) {
+        if (this.current < 0 || this.current >= this.collector.count) {
+            throw new IllegalStateException("Cursor is not positioned on an attribute");
+        }
+        return this.collector.attributes[this.current * ATTRIBUTE_SIZE + field];
+    }
+
+
+    private void parse() throws ParseException {
+        if (this.parsed) {
+            return;
+        }
+        this.collector.count = 0;
+        ParsingAttributeSequenceUtil.parseAttributeSequence(
+                this.buffer, this.offset, this.len, this.line, this.col, this.collector);
+        this.parsed = true;
+    }
+
+
+
+
+    private static final class AttributeCollector implements IAttributeSequenceHandler {
+
+        int[] attributes = new int[DEFAULT_ATTRIBUTES_SIZE * ATTRIBUTE_SIZE];
+        int count = 0;
+
+        AttributeCollector() {
+            super();
+        }
+
+        public void handleAttribute(
+                final char[] buffer,
+                final int nameOffset, final int nameLen,
+                final int nameLine, final int nameCol,
+                final int operatorOffset, final int operatorLen,
+                final int operatorLine, final int operatorCol,
+                final int valueContentOffset, final int valueContentLen,
+                final int valueOuterOffset, final int valueOuterLen,
+                final int valueLine, final int valueCol) {
+
+            final int base = this.count * ATTRIBUTE_SIZE;
+            if (base + ATTRIBUTE_SIZE > this.attributes.length) {
+                final int[] newAttributes = new int[this.attributes.length * 2];
+                System.arraycopy(this.attributes, 0, newAttributes, 0, this.attributes.length);
+                this.attributes = newAttributes;
+            }
+
+            this.attributes[base + NAME_OFFSET] = nameOffset;
+            this.attributes[base + NAME_LEN] = nameLen;
+            this.attributes[base + NAME_LINE] = nameLine;
+            this.attributes[base + NAME_COL] = nameCol;
+            this.attributes[base + OPERATOR_OFFSET] = operatorOffset;
+            this.attributes[base + OPERATOR_LEN] = operatorLen;
+            this.attributes[base + OPERATOR_LINE] = operatorLine;
+            this.attributes[base + OPERATOR_COL] = operatorCol;
+            this.attributes[base + VALUE_CONTENT_OFFSET] = valueContentOffset;
+            this.attributes[base + VALUE_CONTENT_LEN] = valueContentLen;
+            this.attributes[base + VALUE_OUTER_OFFSET] = valueOuterOffset;
+            this.attributes[base + VALUE_OUTER_LEN] = valueOuterLen;
+            this.attributes[base + VALUE_LINE] = valueLine;
+            this.attributes[base + VALUE_COL] = valueCol;
+
+            this.count++;
+
+        }
+
+        public void handleInnerWhiteSpace(
+                final char[] buffer,
+                final int offset, final int len,
+                final int line, final int col) {
+            // Nothing to do here: white space between attributes is not reported by cursors
+        }
+
+    }
+
+
+}
@@ -0,0 +1,228 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+
+/*
+ * Reader implementation used by MarkupParser for parsing byte input streams.
+ *
+ * Unlike java.io.InputStreamReader, this class is not synchronized and decodes bytes directly into the
+ * parser's own char[] buffer. ISO-8859-1 and runs of ASCII bytes in UTF-8 or US-ASCII documents (the vast
+ * majority of bytes in markup) are simply widened to chars, and only the rest is handed to the charset decoder.
+ *
+ * It is created on the bytes already read for detecting the document encoding, so these are not read twice.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class ByteDecodingReader extends Reader {
+
+    private static final int BYTE_BUFFER_SIZE = 8192;
+
+    private static final int MODE_DECODER = 0;
+    private static final int MODE_ASCII_COMPATIBLE = 1;
+    private static final int MODE_SINGLE_BYTE = 2;
+
+    private final InputStream inputStream;
+    private final CharsetDecoder decoder;
+    private final int mode;
+    private final ByteBuffer bytes;
+    private boolean endOfInput = false;
+    private boolean flushed = false;
+
+    // Low surrogate of a supplementary char that did not fit in the output buffer of the previous read
+    private final CharBuffer surrogateBuffer = CharBuffer.allocate(2);
+    private boolean surrogatePending = false;
+
+
+
+    ByteDecodingReader(
+            final InputStream inputStream, final Charset charset,
+            final byte[] initialBytes, final int initialOffset, final int initialLen) {
+
+        super();
+
+        this.inputStream = inputStream;
+        this.decoder = ParsingEncodingUtil.createDecoder(charset);
+
+        final String charsetName = charset.name();
+        if ("ISO-8859-1".equals(charsetName)) {
+            this.mode = MODE_SINGLE_BYTE;
+        } else if ("UTF-8".equals(charsetName) || "US-ASCII".equals(charsetName)) {
+            this.mode = MODE_ASCII_COMPATIBLE;
+        } else {
+            this.mode = MODE_DECODER;
+        }
+
+        this.bytes = ByteBuffer.allocate(Math.max(BYTE_BUFFER_SIZE, initialLen));
+        this.bytes.put(initialBytes, initialOffset, initialLen);
+        this.bytes.flip();
+
+    }
+
+
+
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (this.surrogatePending) {
+            this.surrogatePending = false;
+            cbuf[off] = this.surrogateBuffer.get(1);
+            return 1;
+        }
+
+        int read = 0;
+        while (read == 0) {
+
+            if (!this.bytes.hasRemaining()) {
+                if (this.endOfInput) {
+                    return (this.flushed ? -1 : flush(cbuf, off, len));
+                }
+                fill();
+                continue;
+            }
+
+            read = decode(cbuf, off, len);
+
+            if (read == 0) {
+                // We only have an incomplete multi-byte sequence, so we need to read some more bytes
+                if (this.endOfInput) {
+                    // No more bytes are coming: let the decoder replace the malformed input
+                    read = decodeWithDecoder(cbuf, off, len);
+                } else {
+                    fill();
+                }
+            }
+
+        }
+
+        return read;
+
+    }
+
+
+
+
+    private int decode(final char[] cbuf, final int off, final int len) {
+
+        if (this.mode == MODE_DECODER) {
+            return decodeWithDecoder(cbuf, off, len);
+        }
+
+        final byte[] byteArray = this.bytes.array();
+        final int start = this.bytes.position();
+        final int n = Math.min(len, this.bytes.remaining());
+
+        int i = 0;
+        if (this.mode == MODE_SINGLE_BYTE) {
+            while (i < n) {
+                cbuf[off + i] = (char) (byteArray[start + i] & 0xFF);
+                i++;
+            }
+        } else {
+            byte b;
+            while (i < n && (b = byteArray[start + i]) >= 0) {
+                cbuf[off + i] = (char) b;
+                i++;
+            }
+        }
+
+        this.bytes.position(start + i);
+
+        if (i > 0) {
+            // Either everything was widened or we stopped at a non-ASCII byte: return what we already have
+            return i;
+        }
+
+        // The next byte is not ASCII, so we need the decoder (it will only process until the output is full)
+        return decodeWithDecoder(cbuf, off, len);
+
+    }
+
+
+    private int decodeWithDecoder(final char[] cbuf, final int off, final int len) {
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        final CoderResult result = this.decoder.decode(this.bytes, out, this.endOfInput);
+        final int read = out.position() - off;
+        if (read == 0 && result.isOverflow()) {
+            // Only one char fits but the next one is a surrogate pair: return its first half, keep the second
+            this.surrogateBuffer.clear();
+            this.decoder.decode(this.bytes, this.surrogateBuffer, this.endOfInput);
+            this.surrogatePending = (this.surrogateBuffer.position() > 1);
+            cbuf[off] = this.surrogateBuffer.get(0);
+            return 1;
+        }
+        return read;
+    }
+
+
+    private int flush(final char[] cbuf, final int off, final int len) {
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+        // The decoder needs to be told about the end of input before flushing (it might not have been used yet)
+        this.decoder.decode(this.bytes, out, true);
+        final CoderResult result = this.decoder.flush(out);
+        if (result.isUnderflow()) {
+            this.flushed = true;
+        }
+        final int read = out.position() - off;
+        return (read == 0 && this.flushed ? -1 : read);
+    }
+
+
+    private void fill() throws IOException {
+        this.bytes.compact();
+        try {
+            final int read =
+                    this.inputStream.read(
+                            this.bytes.array(), this.bytes.arrayOffset() + this.bytes.position(), this.bytes.remaining());
+            if (read == -1) {
+                this.endOfInput = true;
+            } else {
+                this.bytes.position(this.bytes.position() + read);
+            }
+        } finally {
+            this.bytes.flip();
+        }
+    }
+
+
+
+
+    @Override
+    public void close() throws IOException {
+        this.inputStream.close();
+    }
+
+
+}
@@ -0,0 +1,409 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>
+ *   Integration of the parser with the <em>JDK Flight Recorder</em> (JFR), so that flight recordings show
+ *   the activity of AttoParser along with the rest of the application.
+ * </p>
+ * <p>
+ *   The following events are available (all of them in the <tt>AttoParser</tt> category):
+ * </p>
+ * <ul>
+ *   <li><tt>org.attoparser.DocumentParse</tt>: parsing of a document, with its size (in chars) and parsing
+ *       mode (HTML or XML).</li>
+ *   <li><tt>org.attoparser.BufferGrowth</tt>: growth of the buffer used for reading a document because a
+ *       structure or text did not fit inside, with its previous and new sizes (in chars).</li>
+ *   <li><tt>org.attoparser.SelectorCompilation</tt>: compilation of a markup selector
+ *       (see {@link org.attoparser.select}), which only happens the first time each selector is used.</li>
+ *   <li><tt>org.attoparser.HtmlElementRepositoryMiss</tt>: a non-standard HTML element name not found in the
+ *       repository of elements shared by all parsers, with the element name.</li>
+ * </ul>
+ * <p>
+ *   All of them are duration events, so they can be filtered in recording settings by means of the standard
+ *   <tt>threshold</tt> setting (e.g. <tt>org.attoparser.DocumentParse#threshold=20 ms</tt>) for recording only
+ *   slow operations. Additionally, a threshold for document parsing events can be specified when enabling
+ *   this integration, so that events for documents parsed faster than it are not even created.
+ * </p>
+ * <p>
+ *   Events are <strong>disabled by default</strong>, and need to be enabled by calling {@link #enable()} or
+ *   {@link #enable(long)}. While disabled, their cost is a single check of a <tt>volatile</tt> field per
+ *   document. Events are defined at runtime by means of reflection (AttoParser itself does not depend on the
+ *   JFR API), so enabling them simply has no effect on JVMs without JFR (or with a JFR version that does not
+ *   support dynamic event definition, i.e. before Java 9).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class FlightRecorderEvents {
+
+    /**
+     * <p>
+     *   Name of the event reported for each document parsed.
+     * </p>
+     */
+    public static final String DOCUMENT_PARSE_EVENT_NAME = "org.attoparser.DocumentParse";
+
+    /**
+     * <p>
+     *   Name of the event reported each time a buffer has to be grown.
+     * </p>
+     */
+    public static final String BUFFER_GROWTH_EVENT_NAME = "org.attoparser.BufferGrowth";
+
+    /**
+     * <p>
+     *   Name of the event reported each time a markup selector is compiled.
+     * </p>
+     */
+    public static final String SELECTOR_COMPILATION_EVENT_NAME = "org.attoparser.SelectorCompilation";
+
+    /**
+     * <p>
+     *   Name of the event reported for each miss in the repository of HTML elements.
+     * </p>
+     */
+    public static final String HTML_ELEMENT_REPOSITORY_MISS_EVENT_NAME = "org.attoparser.HtmlElementRepositoryMiss";
+
+
+    private static final String CATEGORY = "AttoParser";
+
+
+    // Read by the parser before doing anything related to events
+    static volatile boolean enabled = false;
+
+    private static volatile long documentParseThresholdNanos = 0L;
+    private static volatile EventTypes eventTypes = null;
+    private static boolean unavailable = false;
+
+
+
+
+    /**
+     * <p>
+     *   Returns whether events can be recorded in the current JVM (i.e. whether the JFR API is available).
+     * </p>
+     *
+     * @return true if events can be recorded, false if not.
+     */
+    public static boolean isAvailable() {
+        return (getEventTypes() != null);
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether events are currently enabled.
+     * </p>
+     *
+     * @return true if events are enabled, false if not.
+     */
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * <p>
+     *   Enables the reporting of events for every document parsed.
+     * </p>
+     *
+     * @return true if events have been enabled, false if the JFR API is not available in the current JVM.
+     */
+    public static boolean enable() {
+        return enable(0L);
+    }
+
+
+    /**
+     * <p>
+     *   Enables the reporting of events, only reporting document parsing events for documents which parsing
+     *   takes at least the specified amount of time (<em>slow documents</em>).
+     * </p>
+     *
+     * @param documentParseThresholdNanos the minimum parsing time of documents to be reported, in nanoseconds.
+     * @return true if events have been enabled, false if the JFR API is not available in the current JVM.
+     */
+    public static boolean enable(final long documentParseThresholdNanos) {
+        if (documentParseThresholdNanos < 0L) {
+            throw new IllegalArgumentException("Threshold cannot be negative");
+        }
+        if (getEventTypes() == null) {
+            return false;
+        }
+        FlightRecorderEvents.documentParseThresholdNanos = documentParseThresholdNanos;
+        enabled = true;
+        return true;
+    }
+
+
+    /**
+     * <p>
+     *   Disables the reporting of events.
+     * </p>
+     */
+    public static void disable() {
+        enabled = false;
+    }
+
+
+
+
+    /*
+     * Hooks called by the parser. All of them return null (or do nothing) if events are not enabled. Selector
+     * compilation events are reported by org.attoparser.select on its own (see SelectorFlightRecorder there).
+     */
+
+    static Object beginDocumentParse() {
+        final EventTypes types = eventTypes;
+        return (enabled && types != null? types.begin(types.documentParse) : null);
+    }
+
+
+    static void commitDocumentParse(
+            final Object event, final long startTimeNanos, final long size, final boolean html) {
+        final EventTypes types = eventTypes;
+        if (types == null || System.nanoTime() - startTimeNanos < documentParseThresholdNanos) {
+            return;
+        }
+        types.commit(event, Long.valueOf(size), (html? "HTML" : "XML"));
+    }
+
+
+    static Object beginBufferGrowth() {
+        final EventTypes types = eventTypes;
+        return (enabled && types != null? types.begin(types.bufferGrowth) : null);
+    }
+
+
+    static void commitBufferGrowth(final Object event, final int previousSize, final int newSize) {
+        final EventTypes types = eventTypes;
+        if (types != null) {
+            types.commit(event, Integer.valueOf(previousSize), Integer.valueOf(newSize));
+        }
+    }
+
+
+    static Object beginHtmlElementRepositoryMiss() {
+        final EventTypes types = eventTypes;
+        return (enabled && types != null? types.begin(types.htmlElementRepositoryMiss) : null);
+    }
+
+
+    static void commitHtmlElementRepositoryMiss(final Object event, final String name) {
+        final EventTypes types = eventTypes;
+        if (types != null) {
+            types.commit(event, name, null);
+        }
+    }
+
+
+
+
+    private static EventTypes getEventTypes() {
+        EventTypes types = eventTypes;
+        if (types != null) {
+            return types;
+        }
+        synchronized (FlightRecorderEvents.class) {
+            if (eventTypes == null && !unavailable) {
+                try {
+                    eventTypes = new EventTypes();
+                } catch (final Throwable ignored) {
+                    // JFR is not available (or does not allow the definition of events at runtime)
+                    unavailable = true;
+                }
+            }
+            return eventTypes;
+        }
+    }
+
+
+    private static void fail() {
+        // Something went wrong when recording an event, so we will not try again
+        enabled = false;
+    }
+
+
+
+
+    private FlightRecorderEvents() {
+        super();
+    }
+
+
+
+
+    /*
+     * Event types defined by means of jdk.jfr.EventFactory, and the jdk.jfr.Event methods used for creating
+     * and committing their events. Created the first time events are enabled.
+     */
+    private static final class EventTypes {
+
+        private final Method newEventMethod;
+        private final Method beginMethod;
+        private final Method endMethod;
+        private final Method shouldCommitMethod;
+        private final Method setMethod;
+        private final Method commitMethod;
+
+        final Object documentParse;
+        final Object bufferGrowth;
+        final Object htmlElementRepositoryMiss;
+
+
+        EventTypes() throws Exception {
+
+            super();
+
+            final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+            final Constructor<?> annotationElementConstructor =
+                    annotationElementClass.getConstructor(Class.class, Object.class);
+            final Constructor<?> valueDescriptorConstructor =
+                    valueDescriptorClass.getConstructor(Class.class, String.class);
+            final Method createMethod = eventFactoryClass.getMethod("create", List.class, List.class);
+
+            this.newEventMethod = eventFactoryClass.getMethod("newEvent");
+            this.beginMethod = eventClass.getMethod("begin");
+            this.endMethod = eventClass.getMethod("end");
+            this.shouldCommitMethod = eventClass.getMethod("shouldCommit");
+            this.setMethod = eventClass.getMethod("set", int.class, Object.class);
+            this.commitMethod = eventClass.getMethod("commit");
+
+            final EventTypeBuilder builder =
+                    new EventTypeBuilder(annotationElementConstructor, valueDescriptorConstructor, createMethod);
+
+            this.documentParse =
+                    builder.create(
+                            DOCUMENT_PARSE_EVENT_NAME, "Document Parse",
+                            long.class, "size", String.class, "mode");
+            this.bufferGrowth =
+                    builder.create(
+                            BUFFER_GROWTH_EVENT_NAME, "Buffer Growth",
+                            int.class, "previousSize", int.class, "newSize");
+            this.htmlElementRepositoryMiss =
+                    builder.create(
+                            HTML_ELEMENT_REPOSITORY_MISS_EVENT_NAME, "HTML Element Repository Miss",
+                            String.class, "name", null, null);
+
+        }
+
+
+        Object begin(final Object eventType) {
+            try {
+                final Object event = this.newEventMethod.invoke(eventType);
+                this.beginMethod.invoke(event);
+                return event;
+            } catch (final Throwable ignored) {
+                fail();
+                return null;
+            }
+        }
+
+
+        void commit(final Object event, final Object value0, final Object value1) {
+            if (event == null) {
+                return;
+            }
+            try {
+                this.endMethod.invoke(event);
+                if (!((Boolean) this.shouldCommitMethod.invoke(event)).booleanValue()) {
+                    // Disabled in the current recordings, or below the configured threshold
+                    return;
+                }
+                this.setMethod.invoke(event, Integer.valueOf(0), value0);
+                if (value1 != null) {
+                    this.setMethod.invoke(event, Integer.valueOf(1), value1);
+                }
+                this.commitMethod.invoke(event);
+            } catch (final Throwable ignored) {
+                fail();
+            }
+        }
+
+    }
+
+
+
+
+    private static final class EventTypeBuilder {
+
+        private final Constructor<?> annotationElementConstructor;
+        private final Constructor<?> valueDescriptorConstructor;
+        private final Method createMethod;
+
+
+        EventTypeBuilder(
+                final Constructor<?> annotationElementConstructor, final Constructor<?> valueDescriptorConstructor,
+                final Method createMethod) {
+            super();
+            this.annotationElementConstructor = annotationElementConstructor;
+            this.valueDescriptorConstructor = valueDescriptorConstructor;
+            this.createMethod = createMethod;
+        }
+
+
+        Object create(
+                final String name, final String label,
+                final Class<?> field0Type, final String field0Name,
+                final Class<?> field1Type, final String field1Name) throws Exception {
+
+            final List<Object> annotations = new ArrayList<Object>(4);
+            annotations.add(annotation("jdk.jfr.Name", name));
+            annotations.add(annotation("jdk.jfr.Label", label));
+            annotations.add(annotation("jdk.jfr.Category", new String[] { CATEGORY }));
+            annotations.add(annotation("jdk.jfr.Threshold", "0 ns"));
+
+            final List<Object> fields = new ArrayList<Object>(2);
+            fields.add(this.valueDescriptorConstructor.newInstance(field0Type, field0Name));
+            if (field1Type != null) {
+                fields.add(this.valueDescriptorConstructor.newInstance(field1Type, field1Name));
+            }
+
+            return this.createMethod.invoke(null, annotations, fields);
+
+        }
+
+
+        private Object annotation(final String annotationClassName, final Object value) throws Exception {
+            final Class<? extends Annotation> annotationClass =
+                    Class.forName(annotationClassName).asSubclass(Annotation.class);
+            return this.annotationElementConstructor.newInstance(annotationClass, value);
+        }
+
+    }
+
+
+}
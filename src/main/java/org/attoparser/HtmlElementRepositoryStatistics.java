@@ -0,0 +1,131 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+/**
+ * <p>
+ *   Snapshot of the usage statistics of the global repository of HTML elements used by all
+ *   parsers when parsing HTML.
+ * </p>
+ * <p>
+ *   Standard HTML elements are always known to this repository. Any other element names found during
+ *   parsing (custom elements, template engine tags, etc.) are stored in a bounded, lock-free cache whose
+ *   maximum size can be set by means of the <tt>org.attoparser.html.maxUnknownElements</tt> system property
+ *   (default: 1000). These statistics refer to this cache of non-standard elements only.
+ * </p>
+ * <p>
+ *   Objects of this class are immutable. Note that, as counters are updated concurrently by different threads,
+ *   the different values in a snapshot might not have been read at the exact same instant.
+ * </p>
+ * <p>
+ *   Obtained by means of {@link MarkupParser#getHtmlElementRepositoryStatistics()}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class HtmlElementRepositoryStatistics {
+
+    private final int size;
+    private final int maxSize;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+
+
+    HtmlElementRepositoryStatistics(
+            final int size, final int maxSize, final long hits, final long misses, final long evictions) {
+        super();
+        this.size = size;
+        this.maxSize = maxSize;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of non-standard elements currently stored at the repository.
+     * </p>
+     *
+     * @return the current size.
+     */
+    public int getSize() {
+        return this.size;
+    }
+
+    /**
+     * <p>
+     *   Returns the maximum amount of non-standard elements that can be stored at the repository.
+     * </p>
+     *
+     * @return the maximum size.
+     */
+    public int getMaxSize() {
+        return this.maxSize;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of lookups of non-standard element names that were found at the repository.
+     * </p>
+     *
+     * @return the amount of hits.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of lookups of non-standard element names that were not found at the repository,
+     *   and therefore required the creation of a new element.
+     * </p>
+     *
+     * @return the amount of misses.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of elements that were evicted from the repository in order to make room for
+     *   new ones.
+     * </p>
+     *
+     * @return the amount of evictions.
+     */
+    public long getEvictions() {
+        return this.evictions;
+    }
+
+
+    @Override
+    public String toString() {
+        return "[size=" + this.size + ", maxSize=" + this.maxSize + ", hits=" + this.hits +
+                ", misses=" + this.misses + ", evictions=" + this.evictions + "]";
+    }
+
+}
@@ -26,9 +26,9 @@
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import org.attoparser.util.TextUtil;
 
@@ -47,7 +47,16 @@
  */
 final class HtmlElements {
 
-    private static final HtmlElementRepository ELEMENTS = new HtmlElementRepository();
+    /*
+     * Maximum amount of non-standard elements (custom elements, template engine tags, etc.) kept at the
+     * element repository. Can be set by means of a system property.
+     */
+    static final String MAX_UNKNOWN_ELEMENTS_PROPERTY = "org.attoparser.html.maxUnknownElements";
+    static final int DEFAULT_MAX_UNKNOWN_ELEMENTS = 1000;
+
+    private static final HtmlElementRepository ELEMENTS =
+            new HtmlElementRepository(
+                    Math.max(0, Integer.getInteger(MAX_UNKNOWN_ELEMENTS_PROPERTY, DEFAULT_MAX_UNKNOWN_ELEMENTS).intValue()));
 
 
     // Set containing all the standard elements, for possible external reference
@@ -238,6 +247,13 @@ static HtmlElement forName(final char[] elementNameBuffer, final int offset, fin
     }
 
 
+    static HtmlElementRepositoryStatistics getRepositoryStatistics() {
+        return new HtmlElementRepositoryStatistics(
+                ELEMENTS.getSize(), ELEMENTS.getMaxSize(),
+                ELEMENTS.getHits(), ELEMENTS.getMisses(), ELEMENTS.getEvictions());
+    }
+
+
     
 
     
@@ -251,22 +267,56 @@ private HtmlElements() {
     /*
      * This repository class is thread-safe. The reason for this is that it not only contains the
      * standard elements, but will also contain new instances of HtmlElement created during parsing (created
-     * when asking the repository for them when they do not exist yet. As any thread can create a new element,
-     * this has to be lock-protected.
+     * when asking the repository for them when they do not exist yet). As any thread can create a new element,
+     * access to these has to be thread-safe.
+     *
+     * Standard elements live in a read-only sorted list that needs no synchronization at all. Other elements
+     * live in a lock-free, fixed-size open-addressing hash table (keyed on the case-insensitive hash of the
+     * name) whose slots are only ever set using compare-and-set operations, and which never go back to null.
+     * Lookups probe at most MAX_PROBES consecutive slots.
+     *
+     * The amount of non-standard elements is bounded (see MAX_UNKNOWN_ELEMENTS_PROPERTY), so that documents
+     * containing lots of different (or random) element names cannot make this repository grow without limit.
+     * When this maximum is reached or there is no free slot in the probed range, one of the probed elements
+     * is evicted and replaced. Non-standard elements have no behaviour of their own and are never compared by
+     * identity, so the only effect of an eviction is that the evicted name will be given a new HtmlElement
+     * instance the next time it is asked for.
      */
     static final class HtmlElementRepository {
 
+        private static final int MAX_PROBES = 8;
+
         private final List<HtmlElement> standardRepository; // read-only, no sync needed
-        private final List<HtmlElement> repository;  // read-write, sync will be needed
 
-        private final ReadWriteLock lock = new ReentrantReadWriteLock(true);
-        private final Lock readLock = this.lock.readLock();
-        private final Lock writeLock = this.lock.writeLock();
+        private final int maxSize;
+        private final AtomicReferenceArray<HtmlElement> repository; // read-write, lock-free
+        private final int mask;
+
+        private final AtomicInteger size = new AtomicInteger(0);
+        private final AtomicLong hits = new AtomicLong(0L);
+        private final AtomicLong misses = new AtomicLong(0L);
+        private final AtomicLong evictions = new AtomicLong(0L);
 
 
-        HtmlElementRepository() {
+        HtmlElementRepository(final int maxSize) {
+
+            super();
+
+            if (maxSize < 0) {
+                throw new IllegalArgumentException("Maximum size cannot be negative");
+            }
+
             this.standardRepository = new ArrayList<HtmlElement>(150);
-            this.repository = new ArrayList<HtmlElement>(150);
+            this.maxSize = maxSize;
+
+            // Table is kept at most half full, so that probe sequences are short
+            int capacity = MAX_PROBES;
+            while (capacity < maxSize * 2) {
+                capacity <<= 1;
+            }
+            this.repository = new AtomicReferenceArray<HtmlElement>(capacity);
+            this.mask = capacity - 1;
+
         }
 
 
@@ -277,71 +327,105 @@ HtmlElement getElement(final char[] text, final int offset, final int len) {
              * We first try to find it in the repository containing the standard elements, which does not need
              * any synchronization.
              */
-            int index = binarySearch(this.standardRepository, text, offset, len);
+            final int index = binarySearch(this.standardRepository, text, offset, len);
 
             if (index >= 0) {
                 return this.standardRepository.get(index);
             }
 
             /*
-             * We did not find it in the repository of standard elements, so let's try in the read+write one,
-             * which does require synchronization through a readwrite lock.
+             * We did not find it in the repository of standard elements, so let's try in the read+write one.
+             * As slots never go back to null, finding a null slot means the element is not there.
              */
+            final int start = hash(text, offset, len) & this.mask;
 
-            this.readLock.lock();
-            try {
+            for (int i = 0; i < MAX_PROBES; i++) {
+                final HtmlElement element = this.repository.get((start + i) & this.mask);
+                if (element == null) {
+                    return storeElement(text, offset, len, start, i);
+                }
+                if (TextUtil.equals(false, element.name, 0, element.name.length, text, offset, len)) {
+                    this.hits.incrementAndGet();
+                    return element;
+                }
+            }
 
-                index = binarySearch(this.repository, text, offset, len);
+            return storeElement(text, offset, len, start, MAX_PROBES);
 
-                if (index >= 0) {
-                    return this.repository.get(index);
-                }
+        }
 
-            } finally {
-                this.readLock.unlock();
-            }
 
+        private HtmlElement storeElement(
+                final char[] text, final int offset, final int len, final int start, final int firstFree) {
 
-            /*
-             * NOT FOUND. We need to obtain a write lock and store the text
-             */
-            this.writeLock.lock();
-            try {
-                return storeElement(text, offset, len);
-            } finally {
-                this.writeLock.unlock();
+            this.misses.incrementAndGet();
+
+            final HtmlElement element = new HtmlElement(new String(text, offset, len));
+
+            if (FlightRecorderEvents.enabled) {
+                FlightRecorderEvents.commitHtmlElementRepositoryMiss(
+                        FlightRecorderEvents.beginHtmlElementRepositoryMiss(), new String(element.name));
             }
 
-        }
+            if (firstFree < MAX_PROBES && reserveSize()) {
 
+                for (int i = firstFree; i < MAX_PROBES; i++) {
 
-        private HtmlElement storeElement(final char[] text, final int offset, final int len) {
+                    final int slot = (start + i) & this.mask;
+                    if (this.repository.compareAndSet(slot, null, element)) {
+                        return element;
+                    }
 
-            final int index = binarySearch(this.repository, text, offset, len);
-            if (index >= 0) {
-                // It was already added while we were waiting for the lock!
-                return this.repository.get(index);
-            }
+                    final HtmlElement existing = this.repository.get(slot);
+                    if (TextUtil.equals(false, existing.name, 0, existing.name.length, text, offset, len)) {
+                        // It was already added by another thread while we were creating it!
+                        this.size.decrementAndGet();
+                        return existing;
+                    }
 
-            final HtmlElement element = new HtmlElement(new String(text, offset, len).toLowerCase());
+                }
 
-            // binary Search returned (-(insertion point) - 1)
-            this.repository.add(((index + 1) * -1), element);
+                // No free slots left in the probed range, so the reserved size is not needed
+                this.size.decrementAndGet();
+
+            }
+
+            /*
+             * Either the maximum size has been reached or there are no free slots in the probed range: evict one
+             * of the probed elements. The victim does not need to be chosen in any specific way, we just need
+             * different victims for different calls. If the selected slot is empty (which means the maximum
+             * size has been reached) or has been modified meanwhile, the element is simply not stored.
+             */
+            final int victimSlot = (start + ((int) this.misses.get() & (MAX_PROBES - 1))) & this.mask;
+            final HtmlElement victim = this.repository.get(victimSlot);
+            if (victim != null && this.repository.compareAndSet(victimSlot, victim, element)) {
+                this.evictions.incrementAndGet();
+            }
 
             return element;
 
         }
 
 
+        private boolean reserveSize() {
+            int currentSize;
+            do {
+                currentSize = this.size.get();
+                if (currentSize >= this.maxSize) {
+                    return false;
+                }
+            } while (!this.size.compareAndSet(currentSize, currentSize + 1));
+            return true;
+        }
+
+
         private HtmlElement storeStandardElement(final HtmlElement element) {
 
             // This method will only be called from within the HtmlElements class itself, during initialization of
             // standard elements.
 
             this.standardRepository.add(element);
-            this.repository.add(element);
             Collections.sort(this.standardRepository,ElementComparator.INSTANCE);
-            Collections.sort(this.repository,ElementComparator.INSTANCE);
 
             return element;
 
@@ -349,6 +433,53 @@ private HtmlElement storeStandardElement(final HtmlElement element) {
 
 
 
+        int getSize() {
+            return this.size.get();
+        }
+
+        int getMaxSize() {
+            return this.maxSize;
+        }
+
+        long getHits() {
+            return this.hits.get();
+        }
+
+        long getMisses() {
+            return this.misses.get();
+        }
+
+        long getEvictions() {
+            return this.evictions.get();
+        }
+
+
+
+        /*
+         * Case-insensitive hash, consistent with TextUtil.equals(false, ...). Bits are mixed so that the low
+         * bits used for selecting the slot depend on all the chars in the name.
+         */
+        private static int hash(final char[] text, final int offset, final int len) {
+            int h = 0;
+            char c;
+            for (int i = offset, n = offset + len; i < n; i++) {
+                c = text[i];
+                if (c < 128) {
+                    if (c >= 'A' && c <= 'Z') {
+                        c += ('a' - 'A');
+                    }
+                } else {
+                    c = Character.toLowerCase(Character.toUpperCase(c));
+                }
+                h = 31 * h + c;
+            }
+            h ^= (h >>> 16);
+            h *= 0x85ebca6b;
+            h ^= (h >>> 13);
+            return h;
+        }
+
+
         private static int binarySearch(final List<HtmlElement> values,
                                         final char[] text, final int offset, final int len) {
 
@@ -395,4 +526,4 @@ public int compare(final HtmlElement o1, final HtmlElement o2) {
 
 
 
-}
\ No newline at end of file
+}
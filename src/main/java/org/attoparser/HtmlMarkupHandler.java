@@ -38,7 +38,7 @@ final class HtmlMarkupHandler extends AbstractMarkupHandler {
     private static final char[] HEAD_BUFFER = "head".toCharArray();
     private static final char[] BODY_BUFFER = "body".toCharArray();
 
-    private final IMarkupHandler next;
+    private IMarkupHandler next;
 
     private ParseStatus status = null; // Will be always set, but anyway we should initialize.
     private boolean autoOpenEnabled = false;
@@ -63,6 +63,21 @@ final class HtmlMarkupHandler extends AbstractMarkupHandler {
 
 
 
+    /*
+     * Only meant to be used by parse sessions, which reuse this handler for several documents.
+     */
+    void reset(final IMarkupHandler next) {
+        this.next = next;
+        this.status = null;
+        this.currentElement = null;
+        this.markupLevel = 0;
+        this.htmlElementHandled = false;
+        this.headElementHandled = false;
+        this.bodyElementHandled = false;
+    }
+
+
+
     @Override
     public void setParseStatus(final ParseStatus status) {
         // This will be ALWAYS called, so there is no need to actually check whether this property is null when using it
@@ -0,0 +1,131 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+/**
+ * <p>
+ *   Interface to be implemented by markup handlers that only consume some of the kinds of events that can be
+ *   produced during parsing.
+ * </p>
+ * <p>
+ *   When the handler specified for a parsing operation implements this interface, the parser will not even
+ *   tokenize the structures corresponding to the kinds of events not declared as consumed by
+ *   {@link #getEventInterests()}: these structures will still be correctly delimited (so that, for example,
+ *   the contents of an ignored comment are never parsed as markup), but no events will be reported for them.
+ * </p>
+ * <p>
+ *   Document and element events are always reported, as they are needed for balancing elements and for
+ *   applying the HTML auto-open and auto-close rules. Also, if the {@link org.attoparser.config.ParseConfiguration}
+ *   being used requires validating some kind of structure (e.g. the prolog, or the uniqueness of attribute
+ *   names), that kind of structure will be parsed and validated even if the handler is not interested in it.
+ *   The same happens with the attributes of HTML elements whose contents might not be parsed as markup depending
+ *   on the value of their attributes (e.g. <tt>&lt;script type="..."&gt;</tt>).
+ * </p>
+ * <p>
+ *   Note that interests are declared by the handler directly passed to the parser, which should therefore
+ *   include the interests of any other handlers it delegates events to.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public interface IInterestAwareMarkupHandler extends IMarkupHandler {
+
+    /**
+     * <p>
+     *   Text events (see {@link ITextHandler}).
+     * </p>
+     */
+    public static final int TEXT_EVENTS = 1;
+
+    /**
+     * <p>
+     *   Comment events (see {@link ICommentHandler}).
+     * </p>
+     */
+    public static final int COMMENT_EVENTS = 1 << 1;
+
+    /**
+     * <p>
+     *   CDATA Section events (see {@link ICDATASectionHandler}).
+     * </p>
+     */
+    public static final int CDATA_SECTION_EVENTS = 1 << 2;
+
+    /**
+     * <p>
+     *   DOCTYPE clause events (see {@link IDocTypeHandler}).
+     * </p>
+     */
+    public static final int DOCTYPE_EVENTS = 1 << 3;
+
+    /**
+     * <p>
+     *   XML Declaration events (see {@link IXMLDeclarationHandler}).
+     * </p>
+     */
+    public static final int XML_DECLARATION_EVENTS = 1 << 4;
+
+    /**
+     * <p>
+     *   Processing Instruction events (see {@link IProcessingInstructionHandler}).
+     * </p>
+     */
+    public static final int PROCESSING_INSTRUCTION_EVENTS = 1 << 5;
+
+    /**
+     * <p>
+     *   Attribute and inner white space events in open and standalone elements
+     *   (see {@link IAttributeSequenceHandler}).
+     * </p>
+     * <p>
+     *   Handlers not consuming these events can still parse the attributes of specific elements on demand,
+     *   by means of an {@link AttributeCursor}.
+     * </p>
+     */
+    public static final int ATTRIBUTE_EVENTS = 1 << 6;
+
+    /**
+     * <p>
+     *   All kinds of events.
+     * </p>
+     */
+    public static final int ALL_EVENTS =
+            TEXT_EVENTS | COMMENT_EVENTS | CDATA_SECTION_EVENTS | DOCTYPE_EVENTS |
+            XML_DECLARATION_EVENTS | PROCESSING_INSTRUCTION_EVENTS | ATTRIBUTE_EVENTS;
+
+
+
+    /**
+     * <p>
+     *   Returns the kinds of events this handler consumes, as a combination (bitwise OR) of the
+     *   <tt>*_EVENTS</tt> constants in this interface.
+     * </p>
+     * <p>
+     *   This method is called once at the beginning of each parsing operation.
+     * </p>
+     *
+     * @return the kinds of events consumed by this handler.
+     */
+    public int getEventInterests();
+
+}
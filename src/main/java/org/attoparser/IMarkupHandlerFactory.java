@@ -0,0 +1,53 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+/**
+ * <p>
+ *   Factory of {@link IMarkupHandler} objects, used by {@link MarkupBatchParser} for creating a new handler
+ *   for each of the documents in a batch.
+ * </p>
+ * <p>
+ *   Documents in a batch are parsed concurrently, so implementations of this interface must be
+ *   <strong>thread-safe</strong>. The handlers they create, on the contrary, will only be used by one thread
+ *   and for one document.
+ * </p>
+ *
+ * @param <H> the type of the handlers created by this factory.
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public interface IMarkupHandlerFactory<H extends IMarkupHandler> {
+
+    /**
+     * <p>
+     *   Creates the handler for one of the documents in a batch.
+     * </p>
+     *
+     * @param index the position of the document in the batch (zero-based).
+     * @return the handler to be used for parsing the document.
+     */
+    public H createHandler(final int index);
+
+}
@@ -19,7 +19,11 @@
  */
 package org.attoparser;
 
+import java.io.File;
+import java.io.InputStream;
 import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 
 
 /**
@@ -88,6 +92,26 @@ public interface IMarkupParser {
     public void parse(final String document, final IMarkupHandler handler)
             throws ParseException;
 
+
+    /**
+     * <p>
+     *   Parse a document using the specified {@link IMarkupHandler}.
+     * </p>
+     * <p>
+     *   This allows parsing documents held in objects such as {@link StringBuilder} or
+     *   {@link java.nio.CharBuffer} without first converting them to <tt>String</tt>. For
+     *   <tt>CharBuffer</tt>s, the document is formed by the chars remaining in the buffer
+     *   (between its current position and its limit), and the buffer's position will not be modified.
+     * </p>
+     *
+     * @param document the document to be parsed, as a CharSequence.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     * @since 2.0.6
+     */
+    public void parse(final CharSequence document, final IMarkupHandler handler)
+            throws ParseException;
+
     
     /**
      * <p>
@@ -135,5 +159,71 @@ public void parse(final Reader reader, final IMarkupHandler handler)
             throws ParseException;
 
 
+    /**
+     * <p>
+     *   Parse a document, specified as a sequence of bytes, using the specified {@link IMarkupHandler}.
+     * </p>
+     * <p>
+     *   If the document starts with a Byte Order Mark (UTF-8, UTF-16BE or UTF-16LE), it will be used for
+     *   decoding the document, and it will not be reported as a part of it. If there is no BOM, the specified
+     *   <tt>charset</tt> will be used. If no <tt>charset</tt> is specified (<tt>null</tt>), the encoding
+     *   declared at the document's XML Declaration (if any) will be used, and UTF-8 otherwise.
+     * </p>
+     * <p>
+     *   Implementations of this interface must close the provided {@link InputStream}
+     *   object after parsing.
+     * </p>
+     *
+     * @param inputStream an InputStream on the document.
+     * @param charset the charset the document is encoded in, or <tt>null</tt> if it should be detected.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     * @since 2.0.6
+     */
+    public void parse(final InputStream inputStream, final Charset charset, final IMarkupHandler handler)
+            throws ParseException;
+
+
+    /**
+     * <p>
+     *   Parse a document, specified as a buffer of bytes, using the specified {@link IMarkupHandler}.
+     * </p>
+     * <p>
+     *   The document is formed by the bytes remaining in the buffer (between its current position and its
+     *   limit). The buffer's position will not be modified. Encoding is determined in the same way as in
+     *   {@link #parse(InputStream, Charset, IMarkupHandler)}.
+     * </p>
+     *
+     * @param document the document to be parsed, as a ByteBuffer (either heap or direct).
+     * @param charset the charset the document is encoded in, or <tt>null</tt> if it should be detected.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     * @since 2.0.6
+     */
+    public void parse(final ByteBuffer document, final Charset charset, final IMarkupHandler handler)
+            throws ParseException;
+
+
+    /**
+     * <p>
+     *   Parse a document, specified as a file, using the specified {@link IMarkupHandler}.
+     * </p>
+     * <p>
+     *   This method is aimed at parsing very large files: instead of reading the file through an
+     *   {@link InputStream}, implementations can map it into memory (in parts) and decode it directly from
+     *   there, so that heap usage does not depend on the size of the file. Encoding is determined in the same
+     *   way as in {@link #parse(InputStream, Charset, IMarkupHandler)}.
+     * </p>
+     *
+     * @param file the file containing the document.
+     * @param charset the charset the document is encoded in, or <tt>null</tt> if it should be detected.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     * @since 2.0.6
+     */
+    public void parse(final File file, final Charset charset, final IMarkupHandler handler)
+            throws ParseException;
+
+
     
 }
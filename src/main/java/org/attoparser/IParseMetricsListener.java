@@ -0,0 +1,57 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+/**
+ * <p>
+ *   Interface to be implemented by objects interested in the metrics of the parsing operations performed by a
+ *   {@link MarkupParser} (see {@link MarkupParser#MarkupParser(org.attoparser.config.ParseConfiguration,
+ *   org.attoparser.buffer.IBufferPool, IParseMetricsListener)}).
+ * </p>
+ * <p>
+ *   Metrics are only collected when a listener has been set, so parsers without a listener incur in no
+ *   overhead at all. The {@link ParseMetricsCollector} implementation aggregates the metrics of all documents
+ *   parsed, but listeners can also be used for detecting pathological documents (e.g. very deep ones, or
+ *   ones with a large amount of auto-closed elements).
+ * </p>
+ * <p>
+ *   Listeners are called from the thread that parsed the document, right after parsing finishes, so
+ *   implementations must be <strong>thread-safe</strong> and should be fast. Any exceptions they raise
+ *   are ignored.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public interface IParseMetricsListener {
+
+    /**
+     * <p>
+     *   Called once for every document parsed.
+     * </p>
+     *
+     * @param metrics the metrics of the document.
+     */
+    public void handleParseMetrics(final ParseMetrics metrics);
+
+}
@@ -0,0 +1,187 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+
+
+/*
+ * Reader implementation used by MarkupParser for parsing files by memory-mapping them.
+ *
+ * The file is mapped in fixed-size windows, one at a time, and each window is decoded directly from the
+ * mapping into the parser's char[] buffer, so the file contents never go through an intermediate heap byte
+ * buffer and heap usage does not depend on file size.
+ *
+ * Windows are mapped at arbitrary byte offsets, so when a window ends in the middle of a multi-byte sequence,
+ * the next window is simply mapped starting at the first byte not yet consumed by the decoder: nothing needs
+ * to be copied between windows. Structures crossing a window boundary are of no concern at this level, as
+ * the parser only ever sees chars.
+ *
+ * Detection of the encoding is performed on the first bytes of the first window (see ParsingEncodingUtil).
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class MappedFileReader extends Reader {
+
+    static final int DEFAULT_WINDOW_SIZE = 16 * 1024 * 1024;
+
+    // Windows must always be able to contain at least one complete multi-byte sequence
+    private static final int MIN_WINDOW_SIZE = 8;
+
+    private final FileInputStream inputStream;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int windowSize;
+
+    private CharsetDecoder decoder;
+    private MappedByteBuffer window;
+    private long windowPosition;
+
+    private boolean flushed = false;
+
+
+
+    MappedFileReader(final File file, final int windowSize) throws IOException {
+
+        super();
+
+        this.inputStream = new FileInputStream(file);
+        this.channel = this.inputStream.getChannel();
+        this.windowSize = Math.max(windowSize, MIN_WINDOW_SIZE);
+
+        try {
+            this.fileSize = this.channel.size();
+            this.windowPosition = 0L;
+            this.window = map(0L);
+        } catch (final IOException e) {
+            this.inputStream.close();
+            throw e;
+        }
+
+    }
+
+
+
+    /*
+     * Returns the first bytes of the file (independently of the window size), used for detecting its encoding.
+     */
+    byte[] head(final int maxLen) throws IOException {
+        final ByteBuffer head = ByteBuffer.allocate((int) Math.min(maxLen, this.fileSize));
+        while (head.hasRemaining() && this.channel.read(head, head.position()) != -1) {
+            // Nothing to do here, just keep on reading
+        }
+        final byte[] bytes = new byte[head.position()];
+        head.flip();
+        head.get(bytes);
+        return bytes;
+    }
+
+
+    /*
+     * Sets the decoder to be used and the amount of bytes to be skipped at the beginning of the file (BOM).
+     */
+    void startDecoding(final CharsetDecoder decoder, final int skip) throws IOException {
+        this.decoder = decoder;
+        if (skip >= this.window.limit()) {
+            this.windowPosition = skip;
+            this.window = map(skip);
+        } else {
+            this.window.position(skip);
+        }
+    }
+
+
+
+
+    @Override
+    public int read(final char[] cbuf, final int off, final int len) throws IOException {
+
+        if (len == 0) {
+            return 0;
+        }
+
+        if (this.flushed) {
+            return -1;
+        }
+
+        final CharBuffer out = CharBuffer.wrap(cbuf, off, len);
+
+        while (out.position() == off) {
+
+            final boolean lastWindow = (this.windowPosition + this.window.limit() >= this.fileSize);
+            final CoderResult result = this.decoder.decode(this.window, out, lastWindow);
+
+            if (result.isOverflow()) {
+                // Output buffer is full (or has no room for a surrogate pair, which is only possible with len == 1)
+                if (out.position() == off) {
+                    throw new IOException("Buffer of size " + len + " cannot hold the next decoded char");
+                }
+                break;
+            }
+
+            if (lastWindow) {
+                if (this.decoder.flush(out).isUnderflow()) {
+                    this.flushed = true;
+                    return (out.position() == off ? -1 : out.position() - off);
+                }
+                break;
+            }
+
+            // Underflow: map the next window, starting at the first byte not consumed yet (the decoder
+            // might have left here the first bytes of an incomplete multi-byte sequence)
+            this.windowPosition += this.window.position();
+            this.window = map(this.windowPosition);
+
+        }
+
+        return out.position() - off;
+
+    }
+
+
+
+
+    private MappedByteBuffer map(final long position) throws IOException {
+        final long size = Math.min(this.windowSize, this.fileSize - position);
+        return this.channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+    }
+
+
+
+
+    @Override
+    public void close() throws IOException {
+        // Mapped windows are released by the garbage collector, there is no portable way to unmap them
+        this.window = null;
+        this.inputStream.close();
+    }
+
+
+}
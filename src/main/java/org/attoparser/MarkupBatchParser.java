@@ -0,0 +1,309 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.attoparser.buffer.ThreadLocalBufferPool;
+import org.attoparser.config.ParseConfiguration;
+
+
+/**
+ * <p>
+ *   Parser for batches of documents, which are parsed concurrently by the threads of an
+ *   {@link ExecutorService}.
+ * </p>
+ * <p>
+ *   Each document in a batch is processed by its own handler, created by an {@link IMarkupHandlerFactory}, and
+ *   results are returned in the same order as documents were specified, one {@link MarkupBatchResult} per
+ *   document. A document that cannot be parsed does not stop the rest of the batch: its
+ *   {@link ParseException} is simply reported in its result.
+ * </p>
+ * <p>
+ *   Any executor can be used, which allows choosing the one that best fits the application: a
+ *   <tt>java.util.concurrent.ForkJoinPool</tt>, a fixed pool of threads
+ *   (<tt>Executors.newFixedThreadPool(n)</tt>) or, in Java 21 or newer, a virtual thread executor
+ *   (<tt>Executors.newVirtualThreadPerTaskExecutor()</tt>). Executors are never shut down by this class.
+ * </p>
+ * <p>
+ *   Parse sessions ({@link MarkupParseSession}) are reused among the documents in a batch and also
+ *   among batches, so only as many sessions are created as documents are ever parsed at the same time.
+ *   Buffers are obtained from the buffer pool of the underlying {@link MarkupParser}: parsers created by means
+ *   of {@link #MarkupBatchParser(ParseConfiguration, ExecutorService)} use a
+ *   {@link ThreadLocalBufferPool} so that each worker thread reuses its own buffers without any
+ *   contention. Parsers meant to be used with virtual threads (which are never reused) should be created
+ *   with a {@link org.attoparser.buffer.StripedBufferPool} instead, and specified by means of
+ *   {@link #MarkupBatchParser(MarkupParser, ExecutorService)}.
+ * </p>
+ * <p>
+ *   Sample usage:
+ * </p>
+ * <pre><code>
+ *   final ExecutorService executor = Executors.newFixedThreadPool(4);
+ *   final MarkupBatchParser batchParser =
+ *       new MarkupBatchParser(ParseConfiguration.htmlConfiguration(), executor);
+ *
+ *   final List&lt;MarkupBatchResult&lt;DOMBuilderMarkupHandler&gt;&gt; results =
+ *       batchParser.parse(documents, new IMarkupHandlerFactory&lt;DOMBuilderMarkupHandler&gt;() {
+ *           public DOMBuilderMarkupHandler createHandler(final int index) {
+ *               return new DOMBuilderMarkupHandler();
+ *           }
+ *       });
+ * </code></pre>
+ * <p>
+ *   This class is <strong>thread-safe</strong>, and several batches can be parsed at the same time. Note
+ *   however that batches should not be parsed from inside a task running on a fixed pool of threads used
+ *   as the batch executor, as this task would block one of the threads needed for parsing the batch.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupBatchParser {
+
+    private final MarkupParser parser;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<MarkupParseSession> sessions;
+
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this batch parser, using the specified configuration and a buffer pool
+     *   that keeps a separate set of buffers for each worker thread ({@link ThreadLocalBufferPool}).
+     * </p>
+     *
+     * @param configuration the parsing configuration to be used.
+     * @param executor the executor that will parse the documents.
+     */
+    public MarkupBatchParser(final ParseConfiguration configuration, final ExecutorService executor) {
+        this(new MarkupParser(configuration, new ThreadLocalBufferPool(MarkupParser.DEFAULT_BUFFER_SIZE)), executor);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this batch parser, using the specified parser for parsing each document.
+     * </p>
+     *
+     * @param parser the parser to be used.
+     * @param executor the executor that will parse the documents.
+     */
+    public MarkupBatchParser(final MarkupParser parser, final ExecutorService executor) {
+        super();
+        if (parser == null) {
+            throw new IllegalArgumentException("Parser cannot be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("Executor cannot be null");
+        }
+        this.parser = parser;
+        this.executor = executor;
+        this.sessions = new ConcurrentLinkedQueue<MarkupParseSession>();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the parser used for parsing each document.
+     * </p>
+     *
+     * @return the parser.
+     */
+    public MarkupParser getParser() {
+        return this.parser;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Parse a batch of documents, creating a handler for each of them by means of the specified factory.
+     * </p>
+     * <p>
+     *   This method blocks until all documents have been parsed.
+     * </p>
+     *
+     * @param documents the documents to be parsed.
+     * @param handlerFactory the factory of handlers, which will be called once per document (concurrently).
+     * @param <H> the type of the handlers.
+     * @return the results, one per document and in the same order as the documents.
+     * @throws InterruptedException if the current thread is interrupted while waiting (documents not yet
+     *         parsed will be cancelled).
+     */
+    public <H extends IMarkupHandler> List<MarkupBatchResult<H>> parse(
+            final List<? extends CharSequence> documents, final IMarkupHandlerFactory<H> handlerFactory)
+            throws InterruptedException {
+        if (documents == null) {
+            throw new IllegalArgumentException("Documents cannot be null");
+        }
+        return parseBatch(documents, handlerFactory);
+    }
+
+
+    /**
+     * <p>
+     *   Parse a batch of documents read from the specified {@link Reader} objects, creating a handler for
+     *   each of them by means of the specified factory.
+     * </p>
+     * <p>
+     *   This method blocks until all documents have been parsed. Each {@link Reader} will be closed after
+     *   its document is parsed (readers of documents cancelled because of an interruption will not be read
+     *   nor closed).
+     * </p>
+     *
+     * @param readers the readers on the documents to be parsed.
+     * @param handlerFactory the factory of handlers, which will be called once per document (concurrently).
+     * @param <H> the type of the handlers.
+     * @return the results, one per document and in the same order as the readers.
+     * @throws InterruptedException if the current thread is interrupted while waiting (documents not yet
+     *         parsed will be cancelled).
+     */
+    public <H extends IMarkupHandler> List<MarkupBatchResult<H>> parseReaders(
+            final List<? extends Reader> readers, final IMarkupHandlerFactory<H> handlerFactory)
+            throws InterruptedException {
+        if (readers == null) {
+            throw new IllegalArgumentException("Readers cannot be null");
+        }
+        return parseBatch(readers, handlerFactory);
+    }
+
+
+
+
+    private <H extends IMarkupHandler> List<MarkupBatchResult<H>> parseBatch(
+            final List<?> sources, final IMarkupHandlerFactory<H> handlerFactory)
+            throws InterruptedException {
+
+        if (handlerFactory == null) {
+            throw new IllegalArgumentException("Handler factory cannot be null");
+        }
+
+        final int size = sources.size();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+
+        final List<DocumentParseTask<H>> tasks = new ArrayList<DocumentParseTask<H>>(size);
+        int index = 0;
+        for (final Object source : sources) {
+            if (source == null) {
+                throw new IllegalArgumentException("Document at index " + index + " is null");
+            }
+            tasks.add(new DocumentParseTask<H>(this, index++, source, handlerFactory));
+        }
+
+        // invokeAll() returns futures in the same order as tasks, and cancels the pending ones if interrupted
+        final List<Future<MarkupBatchResult<H>>> futures = this.executor.invokeAll(tasks);
+
+        final List<MarkupBatchResult<H>> results = new ArrayList<MarkupBatchResult<H>>(size);
+        for (final Future<MarkupBatchResult<H>> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (final ExecutionException e) {
+                // Parse errors are already part of the results, so this is an unexpected error (e.g. in the factory)
+                final Throwable cause = e.getCause();
+                if (cause instanceof RuntimeException) {
+                    throw (RuntimeException) cause;
+                }
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw new IllegalStateException("Unexpected error during batch parsing", cause);
+            }
+        }
+        return results;
+
+    }
+
+
+    private MarkupParseSession acquireSession() {
+        final MarkupParseSession session = this.sessions.poll();
+        return (session != null? session : this.parser.createSession());
+    }
+
+
+    private void releaseSession(final MarkupParseSession session) {
+        this.sessions.offer(session);
+    }
+
+
+
+
+    private static final class DocumentParseTask<H extends IMarkupHandler> implements Callable<MarkupBatchResult<H>> {
+
+        private final MarkupBatchParser batchParser;
+        private final int index;
+        private final Object source;
+        private final IMarkupHandlerFactory<H> handlerFactory;
+
+
+        DocumentParseTask(
+                final MarkupBatchParser batchParser, final int index, final Object source,
+                final IMarkupHandlerFactory<H> handlerFactory) {
+            super();
+            this.batchParser = batchParser;
+            this.index = index;
+            this.source = source;
+            this.handlerFactory = handlerFactory;
+        }
+
+
+        public MarkupBatchResult<H> call() {
+
+            final H handler = this.handlerFactory.createHandler(this.index);
+            if (handler == null) {
+                throw new IllegalStateException("Handler factory returned null for document at index " + this.index);
+            }
+
+            final MarkupParseSession session = this.batchParser.acquireSession();
+            try {
+                if (this.source instanceof Reader) {
+                    session.parse((Reader) this.source, handler);
+                } else {
+                    session.parse((CharSequence) this.source, handler);
+                }
+                return new MarkupBatchResult<H>(this.index, handler, null);
+            } catch (final ParseException e) {
+                return new MarkupBatchResult<H>(this.index, handler, e);
+            } finally {
+                this.batchParser.releaseSession(session);
+            }
+
+        }
+
+    }
+
+
+}
@@ -0,0 +1,116 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+/**
+ * <p>
+ *   Result of parsing one of the documents in a batch by means of {@link MarkupBatchParser}.
+ * </p>
+ * <p>
+ *   Results give access to the handler that processed the document (which will normally contain the
+ *   output of the parsing operation, e.g. a DOM tree) and, if the document could not be parsed, to the
+ *   {@link ParseException} that was raised.
+ * </p>
+ *
+ * @param <H> the type of the handler used for parsing the document.
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupBatchResult<H extends IMarkupHandler> {
+
+    private final int index;
+    private final H handler;
+    private final ParseException exception;
+
+
+
+    MarkupBatchResult(final int index, final H handler, final ParseException exception) {
+        super();
+        this.index = index;
+        this.handler = handler;
+        this.exception = exception;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the position of the document in the batch (zero-based).
+     * </p>
+     *
+     * @return the index of the document.
+     */
+    public int getIndex() {
+        return this.index;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the handler that processed the document, as created by the batch's
+     *   {@link IMarkupHandlerFactory}.
+     * </p>
+     * <p>
+     *   Note that if parsing failed, the handler will only have received part of the events of the document.
+     * </p>
+     *
+     * @return the handler.
+     */
+    public H getHandler() {
+        return this.handler;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the exception raised when parsing the document, or <tt>null</tt> if it was parsed successfully.
+     * </p>
+     *
+     * @return the exception, or <tt>null</tt>.
+     */
+    public ParseException getException() {
+        return this.exception;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether the document was parsed successfully.
+     * </p>
+     *
+     * @return <tt>true</tt> if no exception was raised, <tt>false</tt> if not.
+     */
+    public boolean isSuccessful() {
+        return this.exception == null;
+    }
+
+
+    @Override
+    public String toString() {
+        return "[index=" + this.index + ", successful=" + isSuccessful() +
+                (this.exception == null? "" : ", exception=" + this.exception.getMessage()) + "]";
+    }
+
+}
@@ -21,7 +21,8 @@
 
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import org.attoparser.config.ParseConfiguration;
@@ -37,7 +38,8 @@
  * events to their specific position in the original document.
  *
  * Note that, although MarkupParser's are stateless, objects of this class are STATEFUL just like markup handlers can
- * potentially be, and therefore a new MarkupEventProcessor object will be built for each parsing operation.
+ * potentially be, and therefore a new MarkupEventProcessor object will be built for each parsing operation (unless
+ * a MarkupParseSession is being used, in which case the same object will be reset and reused for every document).
  *
  * @author Daniel Fernandez
  * @since 2.0.0
@@ -47,6 +49,8 @@ final class MarkupEventProcessorHandler extends AbstractChainedMarkupHandler {
 
     private static final int DEFAULT_STACK_LEN = 10;
     private static final int DEFAULT_ATTRIBUTE_NAMES_LEN = 3;
+    // Structure names repositories kept between documents by parse sessions will be discarded if they grow this big
+    private static final int MAX_REUSED_STRUCTURE_NAMES = 2000;
 
     private ParseStatus status;
 
@@ -78,6 +82,9 @@ final class MarkupEventProcessorHandler extends AbstractChainedMarkupHandler {
 
     private char[][] elementStack;
     private int elementStackSize;
+    // Amount of elements with each name in the stack, so that looking for elements in it does not always require
+    // traversing the whole stack
+    private OpenElementCounts openElementCounts;
 
     private boolean validPrologXmlDeclarationRead = false;
     private boolean validPrologDocTypeRead = false;
@@ -101,6 +108,25 @@ final class MarkupEventProcessorHandler extends AbstractChainedMarkupHandler {
 
 
 
+    /*
+     * Only meant to be used by parse sessions, which reuse this processor for several documents. Grown structures
+     * (element stack, structure names repository, attribute names) are kept.
+     */
+    void reset(final IMarkupHandler next) {
+        setNext(next);
+        this.status = null;
+        clearStack();
+        this.validPrologXmlDeclarationRead = false;
+        this.validPrologDocTypeRead = false;
+        this.elementRead = false;
+        this.rootElementName = null;
+        this.currentElementAttributeNamesSize = 0;
+        this.closeElementIsMatched = true;
+    }
+
+
+
+
     @Override
     public void setParseStatus(final ParseStatus status) {
         this.status = status;
@@ -145,16 +171,30 @@ public void setParseConfiguration(final ParseConfiguration parseConfiguration) {
 
         if (this.useStack) {
 
-            this.elementStack = new char[DEFAULT_STACK_LEN][];
-            this.elementStackSize = 0;
+            // If this processor is being reused (parse sessions), we will keep the already-grown stack
+            if (this.elementStack == null) {
+                this.elementStack = new char[DEFAULT_STACK_LEN][];
+            }
 
-            this.structureNamesRepository = new StructureNamesRepository();
+            if (this.structureNamesRepository == null ||
+                    this.structureNamesRepository.getSize() > MAX_REUSED_STRUCTURE_NAMES) {
+                this.structureNamesRepository = new StructureNamesRepository();
+            }
+
+            if (this.openElementCounts == null ||
+                    this.openElementCounts.isCaseSensitive() != this.caseSensitive ||
+                    this.openElementCounts.getSize() > MAX_REUSED_STRUCTURE_NAMES) {
+                this.openElementCounts = new OpenElementCounts(this.caseSensitive);
+            }
+
+            clearStack();
 
         } else {
 
             this.elementStack = null;
             this.elementStackSize = 0;
             this.structureNamesRepository = null;
+            this.openElementCounts = null;
 
         }
 
@@ -165,9 +205,34 @@ public void setParseConfiguration(final ParseConfiguration parseConfiguration) {
 
 
 
+    /*
+     * Returns the kinds of events (see IInterestAwareMarkupHandler) this processor needs to receive for
+     * applying the validations required by the current configuration, independently of the interests of the
+     * handlers it reports to.
+     */
+    int getRequiredEventInterests() {
+        int required = 0;
+        if (this.validateProlog) {
+            required |= IInterestAwareMarkupHandler.DOCTYPE_EVENTS | IInterestAwareMarkupHandler.XML_DECLARATION_EVENTS;
+        }
+        if ((this.useStack && this.requireUniqueAttributesInElement) || this.requireWellFormedAttributeValues) {
+            required |= IInterestAwareMarkupHandler.ATTRIBUTE_EVENTS;
+        }
+        return required;
+    }
+
+
+
+
     public void handleDocumentEnd(final long endTimeNanos, final long totalTimeNanos, final int line, final int col)
             throws ParseException {
 
+        if (this.status != null && this.status.isParsingStopped()) {
+            // Parsing was stopped by a handler, so the document is incomplete on purpose: nothing is to be checked
+            getNext().handleDocumentEnd(endTimeNanos, totalTimeNanos, line, col);
+            return;
+        }
+
         if (this.requireBalancedElements && this.elementStackSize > 0) {
             final char[] popped = popFromStack();
             throw new ParseException(
@@ -262,7 +327,7 @@ public void handleStandaloneElementStart(
             }
 
             if (this.requireUniqueAttributesInElement) {
-                this.currentElementAttributeNames = null;
+                // The array itself is kept (already grown) for the next elements
                 this.currentElementAttributeNamesSize = 0;
             }
 
@@ -342,7 +407,7 @@ public void handleOpenElementStart(
             }
 
             if (this.requireUniqueAttributesInElement) {
-                this.currentElementAttributeNames = null;
+                // The array itself is kept (already grown) for the next elements
                 this.currentElementAttributeNamesSize = 0;
             }
 
@@ -439,7 +504,7 @@ public void handleCloseElementStart(
                     checkStackForElement(buffer, nameOffset, nameLen, line, col);
 
             if (this.requireUniqueAttributesInElement) {
-                this.currentElementAttributeNames = null;
+                // The array itself is kept (already grown) for the next elements
                 this.currentElementAttributeNamesSize = 0;
             }
 
@@ -539,12 +604,14 @@ public void handleAttribute(
                 // we only create this structure if there is at least one attribute
                 this.currentElementAttributeNames = new char[DEFAULT_ATTRIBUTE_NAMES_LEN][];
             }
+            // Attribute names are interned, so they can be compared by identity (unless we are case-insensitive)
+            final char[] attributeName = this.structureNamesRepository.getStructureName(buffer, nameOffset, nameLen);
+
             for (int i = 0; i < this.currentElementAttributeNamesSize; i++) {
 
-                if (TextUtil.equals(
-                        this.caseSensitive,
-                        this.currentElementAttributeNames[i], 0, this.currentElementAttributeNames[i].length,
-                        buffer, nameOffset, nameLen)) {
+                final char[] currentElementAttributeName = this.currentElementAttributeNames[i];
+                if (currentElementAttributeName == attributeName ||
+                        (!this.caseSensitive && TextUtil.equals(false, currentElementAttributeName, attributeName))) {
 
                     throw new ParseException(
                             "Malformed markup: Attribute \"" + new String(buffer, nameOffset, nameLen) + "\" " +
@@ -561,8 +628,7 @@ public void handleAttribute(
                 this.currentElementAttributeNames = newCurrentElementAttributeNames;
             }
 
-            this.currentElementAttributeNames[this.currentElementAttributeNamesSize] =
-                    this.structureNamesRepository.getStructureName(buffer, nameOffset, nameLen);
+            this.currentElementAttributeNames[this.currentElementAttributeNamesSize] = attributeName;
 
             this.currentElementAttributeNamesSize++;
 
@@ -746,12 +812,27 @@ private boolean checkStackForElement(
             final char[] buffer, final int offset, final int len, final int line, final int col)
             throws ParseException {
 
+        // Element names in the stack are interned, so once we intern this name too, we can compare by identity
+        // (unless we are case-insensitive, in which case names with different case have to be compared char by char)
+        final char[] name = this.structureNamesRepository.getStructureName(buffer, offset, len);
+
+        // If no element with this name is open, there is no need to look for it in the stack
+        final boolean open = (this.openElementCounts.get(name) > 0);
+
+        if (!open && this.requireBalancedElements && this.elementStackSize > 0) {
+            final char[] top = peekFromStack(0);
+            throw new ParseException(
+                    "Malformed markup: element " +
+                    "\"" + new String(top, 0, top.length) + "\"" +
+                    " is never closed", line, col);
+        }
+
         int peekDelta = 0;
-        char[] peek = peekFromStack(peekDelta);
+        char[] peek = (open? peekFromStack(peekDelta) : null);
 
         while (peek != null) {
 
-            if (TextUtil.equals(this.caseSensitive, peek, 0, peek.length, buffer, offset, len)) {
+            if (peek == name || (!this.caseSensitive && TextUtil.equals(false, peek, name))) {
 
                 // We found the corresponding opening element, so we execute all pending auto-close events
                 // (if needed) and return true (meaning the close element has a matching open element).
@@ -841,12 +922,26 @@ private void autoClose(
             final char[][] autoCloseElements, final char[][] autoCloseLimits, final int line, final int col)
             throws ParseException {
 
+        int i,n;
+
+        // Amount of open elements that could need to be closed. Once all of them have been found in the stack
+        // there is no need to keep on looking, and if there are none (the most common case), nothing is to be done.
+        int pendingCount = 0;
+        i = 0;
+        n = autoCloseElements.length;
+        while (n-- != 0) {
+            pendingCount += this.openElementCounts.get(autoCloseElements[i]);
+            i++;
+        }
+
+        if (pendingCount == 0) {
+            return;
+        }
+
         int peekDelta = 0;
         int unstackCount = 0;
         char[] peek = peekFromStack(peekDelta);
 
-        int i,n;
-
         while (peek != null) {
 
             if (autoCloseLimits != null) {
@@ -872,13 +967,14 @@ private void autoClose(
                     if (TextUtil.equals(this.caseSensitive, autoCloseElements[i], peek)) {
                         // This is an element we must unstack, so we should mark unstackCount
                         unstackCount = peekDelta + 1;
+                        pendingCount--;
                         break;
                     }
                     i++;
                 }
 
-                // Feed the loop
-                peek = peekFromStack(++peekDelta);
+                // Feed the loop (unless there is nothing else to be found deeper in the stack)
+                peek = (pendingCount > 0? peekFromStack(++peekDelta) : null);
 
             }
 
@@ -1010,8 +1106,10 @@ private void pushToStack(
             growStack();
         }
 
-        this.elementStack[this.elementStackSize] =
-                this.structureNamesRepository.getStructureName(buffer, offset, len);
+        final char[] name = this.structureNamesRepository.getStructureName(buffer, offset, len);
+
+        this.elementStack[this.elementStackSize] = name;
+        this.openElementCounts.increment(name);
 
         this.elementStackSize++;
 
@@ -1033,10 +1131,22 @@ private char[] popFromStack() {
         final char[] popped = this.elementStack[this.elementStackSize - 1];
         this.elementStack[this.elementStackSize - 1] = null;
         this.elementStackSize--;
+        this.openElementCounts.decrement(popped);
         return popped;
     }
 
 
+    private void clearStack() {
+        if (this.elementStack != null) {
+            Arrays.fill(this.elementStack, 0, this.elementStackSize, null);
+        }
+        this.elementStackSize = 0;
+        if (this.openElementCounts != null) {
+            this.openElementCounts.clear();
+        }
+    }
+
+
     private void growStack() {
 
         final int newStackLen = this.elementStack.length + DEFAULT_STACK_LEN;
@@ -1055,64 +1165,247 @@ private void growStack() {
     /*
      * In-instance repository for structure names (element + attribute names).
      *
+     * Standard HTML names are always resolved through the (static, perfect-hashed) StandardNamesRepository, so
+     * this repository only stores non-standard names, in an open-addressing hash table keyed on the hash code of
+     * the char range (see TextUtil.hashCode(char[],int,int)). As names are interned, two names obtained from the
+     * same repository are equal if and only if they are the same char[] object.
+     *
      * This class is NOT thread-safe. Should only be used inside a specific handler
      * instance/thread and only during a single execution.
      */
     static final class StructureNamesRepository {
 
-        private static final int REPOSITORY_INITIAL_LEN = 100;
-        private static final int REPOSITORY_INITIAL_INC = 20;
+        private static final int REPOSITORY_INITIAL_LEN = 64; // Must be a power of two
+
         private char[][] repository;
+        private int[] hashes;
         private int repositorySize;
 
 
         StructureNamesRepository() {
             super();
             this.repository = new char[REPOSITORY_INITIAL_LEN][];
+            this.hashes = new int[REPOSITORY_INITIAL_LEN];
             this.repositorySize = 0;
         }
 
 
+        int getSize() {
+            return this.repositorySize;
+        }
+
+
         char[] getStructureName(final char[] text, final int offset, final int len) {
 
-            final int index =
-                    TextUtil.binarySearch(true, this.repository, 0, this.repositorySize, text, offset, len);
+            final int hash = TextUtil.hashCode(text, offset, len);
 
-            if (index >= 0) {
-                return this.repository[index];
+            final char[] standardName = StandardNamesRepository.getStandardName(text, offset, len, hash);
+            if (standardName != null) {
+                return standardName;
+            }
+
+            final int mask = this.repository.length - 1;
+            int index = StandardNamesRepository.mix(hash) & mask;
+
+            char[] name;
+            while ((name = this.repository[index]) != null) {
+                if (this.hashes[index] == hash && TextUtil.equals(true, name, 0, name.length, text, offset, len)) {
+                    return name;
+                }
+                index = (index + 1) & mask;
             }
 
             /*
              * NOT FOUND. We need to store the text
              */
-            return storeStructureName(index, text, offset, len);
+            return storeStructureName(index, hash, text, offset, len);
 
         }
 
 
-        private char[] storeStructureName(final int index, final char[] text, final int offset, final int len) {
+        private char[] storeStructureName(
+                final int index, final int hash, final char[] text, final int offset, final int len) {
+
+            final char[] structureName = new char[len];
+            System.arraycopy(text, offset, structureName, 0, len);
 
-            if (this.repositorySize == this.repository.length) {
-                // We must grow the repository!
-                final char[][] newRepository = new char[this.repository.length + REPOSITORY_INITIAL_INC][];
-                Arrays.fill(newRepository, null);
-                System.arraycopy(this.repository, 0, newRepository, 0, this.repositorySize);
-                this.repository = newRepository;
+            this.repository[index] = structureName;
+            this.hashes[index] = hash;
+            this.repositorySize++;
+
+            if (this.repositorySize * 2 > this.repository.length) {
+                // Keep load factor under 0.5, so that probe sequences are always short
+                growRepository();
             }
 
-            // binary search returned (-(insertion point) - 1)
-            final int insertionIndex = ((index + 1) * -1);
+            return structureName;
 
-            // We rely on the static structure name cache, just in case it is a standard HTML structure name.
-            // Note the StandardNamesRepository will create the new char[] if not found, so no need to null-check.
-            final char[] structureName = StandardNamesRepository.getStructureName(text, offset, len);
+        }
 
-            // Make room and insert the new element
-            System.arraycopy(this.repository, insertionIndex, this.repository, insertionIndex + 1, this.repositorySize - insertionIndex);
-            this.repository[insertionIndex] = structureName;
-            this.repositorySize++;
 
-            return structureName;
+        private void growRepository() {
+
+            final char[][] oldRepository = this.repository;
+            final int[] oldHashes = this.hashes;
+
+            this.repository = new char[oldRepository.length * 2][];
+            this.hashes = new int[oldRepository.length * 2];
+
+            final int mask = this.repository.length - 1;
+            for (int i = 0; i < oldRepository.length; i++) {
+                if (oldRepository[i] != null) {
+                    int index = StandardNamesRepository.mix(oldHashes[i]) & mask;
+                    while (this.repository[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    this.repository[index] = oldRepository[i];
+                    this.hashes[index] = oldHashes[i];
+                }
+            }
+
+        }
+
+    }
+
+
+
+
+    /*
+     * Counts of the elements currently open (i.e. in the element stack) by name.
+     *
+     * Names are stored in an open-addressing hash table. Entries are never removed (only their counts are set back
+     * to zero), as the same few names tend to be opened and closed over and over in a document. When parsing is not
+     * case-sensitive, names are hashed and compared ignoring case, so that e.g. "li" and "LI" count as the same
+     * element, exactly as they are considered by the rest of this processor.
+     *
+     * This class is NOT thread-safe. Should only be used inside a specific handler
+     * instance/thread and only during a single execution.
+     */
+    static final class OpenElementCounts {
+
+        private static final int INITIAL_LEN = 32; // Must be a power of two
+
+        private final boolean caseSensitive;
+        private char[][] names;
+        private int[] hashes;
+        private int[] counts;
+        private int size;
+
+
+        OpenElementCounts(final boolean caseSensitive) {
+            super();
+            this.caseSensitive = caseSensitive;
+            this.names = new char[INITIAL_LEN][];
+            this.hashes = new int[INITIAL_LEN];
+            this.counts = new int[INITIAL_LEN];
+            this.size = 0;
+        }
+
+
+        boolean isCaseSensitive() {
+            return this.caseSensitive;
+        }
+
+
+        int getSize() {
+            return this.size;
+        }
+
+
+        int get(final char[] name) {
+            final int index = indexOf(name, hash(name));
+            return (this.names[index] == null? 0 : this.counts[index]);
+        }
+
+
+        void increment(final char[] name) {
+            final int hash = hash(name);
+            final int index = indexOf(name, hash);
+            if (this.names[index] == null) {
+                this.names[index] = name;
+                this.hashes[index] = hash;
+                this.counts[index] = 1;
+                this.size++;
+                if (this.size * 2 > this.names.length) {
+                    // Keep load factor under 0.5, so that probe sequences are always short
+                    grow();
+                }
+                return;
+            }
+            this.counts[index]++;
+        }
+
+
+        void decrement(final char[] name) {
+            final int index = indexOf(name, hash(name));
+            if (this.names[index] != null && this.counts[index] > 0) {
+                this.counts[index]--;
+            }
+        }
+
+
+        void clear() {
+            Arrays.fill(this.counts, 0);
+        }
+
+
+        private int indexOf(final char[] name, final int hash) {
+            final int mask = this.names.length - 1;
+            int index = StandardNamesRepository.mix(hash) & mask;
+            char[] current;
+            while ((current = this.names[index]) != null) {
+                if (current == name ||
+                        (this.hashes[index] == hash && TextUtil.equals(this.caseSensitive, current, name))) {
+                    return index;
+                }
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+
+        private int hash(final char[] name) {
+            if (this.caseSensitive) {
+                return TextUtil.hashCode(name, 0, name.length);
+            }
+            int h = 0;
+            char c;
+            for (int i = 0; i < name.length; i++) {
+                c = name[i];
+                if (c >= 'A' && c <= 'Z') {
+                    c += 32;
+                } else if (c > 0x7F) {
+                    // Same normalization as String#equalsIgnoreCase(), which TextUtil.equals(false,...) mimics
+                    c = Character.toLowerCase(Character.toUpperCase(c));
+                }
+                h = 31 * h + c;
+            }
+            return h;
+        }
+
+
+        private void grow() {
+
+            final char[][] oldNames = this.names;
+            final int[] oldHashes = this.hashes;
+            final int[] oldCounts = this.counts;
+
+            this.names = new char[oldNames.length * 2][];
+            this.hashes = new int[oldNames.length * 2];
+            this.counts = new int[oldNames.length * 2];
+
+            final int mask = this.names.length - 1;
+            for (int i = 0; i < oldNames.length; i++) {
+                if (oldNames[i] != null) {
+                    int index = StandardNamesRepository.mix(oldHashes[i]) & mask;
+                    while (this.names[index] != null) {
+                        index = (index + 1) & mask;
+                    }
+                    this.names[index] = oldNames[i];
+                    this.hashes[index] = oldHashes[i];
+                    this.counts[index] = oldCounts[i];
+                }
+            }
 
         }
 
@@ -1124,11 +1417,20 @@ private char[] storeStructureName(final int index, final char[] text, final int
     /*
      *     This class is IMMUTABLE, and therefore thread-safe. Will be used in a static manner by all
      *     threads which require the use of a repository of standard names (HTML names, in this case).
+     *
+     *     As the set of names is known in advance, it is stored in a minimal perfect hash table built by means of
+     *     the "hash and displace" technique: names are first distributed among a number of buckets, and then
+     *     each bucket (starting with the largest ones) is assigned a displacement value that places all of its
+     *     names into free slots of the table. Looking up a name therefore never requires more than one slot to be
+     *     checked (and one comparison of chars to be performed).
      */
     static final class StandardNamesRepository {
 
 
         private static final char[][] REPOSITORY;
+        private static final int[] DISPLACEMENTS;
+        private static final int BUCKET_SHIFT;
+        private static final int SLOT_MASK;
 
 
         static {
@@ -1146,33 +1448,158 @@ static final class StandardNamesRepository {
             for (final String name : HtmlNames.ALL_STANDARD_ATTRIBUTE_NAMES) {
                 names.add(name.toUpperCase());
             }
-            Collections.sort(names);
 
-            REPOSITORY = new char[names.size()][];
+            // Some names are both element and attribute names (e.g. "style"), and some have no case (e.g. "h1")
+            final List<String> uniqueNames = new ArrayList<String>(new LinkedHashSet<String>(names));
+
+            // Table size: next power of two giving a load factor of at most 0.5
+            int slotBits = 1;
+            while ((1 << slotBits) < uniqueNames.size() * 2) {
+                slotBits++;
+            }
+
+            char[][] repository = null;
+            int[] displacements = null;
+            int bucketBits = slotBits - 2; // about 2 names per bucket
+            // Building the table can only fail if two names have colliding hash codes, in which case we just
+            // try again with a larger table (which will never be needed for the current set of names)
+            while (repository == null) {
+                displacements = new int[1 << bucketBits];
+                repository = buildPerfectHashTable(uniqueNames, slotBits, bucketBits, displacements);
+                slotBits++;
+                bucketBits++;
+            }
+
+            REPOSITORY = repository;
+            DISPLACEMENTS = displacements;
+            BUCKET_SHIFT = 32 - (bucketBits - 1);
+            SLOT_MASK = repository.length - 1;
+
+        }
+
+
+        private static char[][] buildPerfectHashTable(
+                final List<String> names, final int slotBits, final int bucketBits, final int[] displacements) {
+
+            final int slotMask = (1 << slotBits) - 1;
+            final int bucketShift = 32 - bucketBits;
 
-            for (int i = 0; i < names.size(); i++) {
-                final String name = names.get(i);
-                REPOSITORY[i] = name.toCharArray();
+            final List<List<char[]>> buckets = new ArrayList<List<char[]>>(1 << bucketBits);
+            for (int i = 0; i < (1 << bucketBits); i++) {
+                buckets.add(new ArrayList<char[]>(4));
+            }
+            for (final String name : names) {
+                final char[] nameChars = name.toCharArray();
+                final int mixed = mix(TextUtil.hashCode(nameChars, 0, nameChars.length));
+                buckets.get(mixed >>> bucketShift).add(nameChars);
             }
 
+            // Largest buckets are placed first, while the table is still mostly empty
+            final Integer[] bucketOrder = new Integer[buckets.size()];
+            for (int i = 0; i < bucketOrder.length; i++) {
+                bucketOrder[i] = Integer.valueOf(i);
+            }
+            Arrays.sort(bucketOrder, new Comparator<Integer>() {
+                public int compare(final Integer o1, final Integer o2) {
+                    return buckets.get(o2.intValue()).size() - buckets.get(o1.intValue()).size();
+                }
+            });
+
+            final char[][] table = new char[slotMask + 1][];
+            final int[] slots = new int[buckets.get(bucketOrder[0].intValue()).size()];
+
+            for (final Integer bucketIndex : bucketOrder) {
+
+                final List<char[]> bucket = buckets.get(bucketIndex.intValue());
+                if (bucket.isEmpty()) {
+                    continue;
+                }
+
+                boolean placed = false;
+                for (int displacement = 0; !placed && displacement <= slotMask; displacement++) {
+                    placed = true;
+                    for (int i = 0; placed && i < bucket.size(); i++) {
+                        final char[] name = bucket.get(i);
+                        final int slot = slot(mix(TextUtil.hashCode(name, 0, name.length)), displacement, slotMask);
+                        if (table[slot] != null) {
+                            placed = false;
+                        }
+                        for (int j = 0; placed && j < i; j++) {
+                            if (slots[j] == slot) {
+                                placed = false;
+                            }
+                        }
+                        slots[i] = slot;
+                    }
+                    if (placed) {
+                        for (int i = 0; i < bucket.size(); i++) {
+                            table[slots[i]] = bucket.get(i);
+                        }
+                        displacements[bucketIndex.intValue()] = displacement;
+                    }
+                }
+
+                if (!placed) {
+                    return null;
+                }
+
+            }
+
+            return table;
+
+        }
+
+
+        /*
+         * Returns the standard name matching the specified text (which hash code is also specified), or null
+         * if it is not a standard name.
+         */
+        static char[] getStandardName(final char[] text, final int offset, final int len, final int hash) {
+            final int mixed = mix(hash);
+            final char[] name = REPOSITORY[slot(mixed, DISPLACEMENTS[mixed >>> BUCKET_SHIFT], SLOT_MASK)];
+            if (name != null && TextUtil.equals(true, name, 0, name.length, text, offset, len)) {
+                return name;
+            }
+            return null;
         }
 
 
         static char[] getStructureName(final char[] text, final int offset, final int len) {
 
-            final int index = TextUtil.binarySearch(true, REPOSITORY, text, offset, len);
+            final char[] standardName = getStandardName(text, offset, len, TextUtil.hashCode(text, offset, len));
 
-            if (index < 0) {
+            if (standardName == null) {
                 final char[] structureName = new char[len];
                 System.arraycopy(text, offset, structureName, 0, len);
                 return structureName;
             }
 
-            return REPOSITORY[index];
+            return standardName;
 
         }
 
 
+        /*
+         * Hash codes of names are computed like String.hashCode(), which does not distribute short names well
+         * among low bits. The MurmurHash3 finalizer is applied to them before using them for any table.
+         */
+        static int mix(final int hash) {
+            int h = hash;
+            h ^= h >>> 16;
+            h *= 0x85EBCA6B;
+            h ^= h >>> 13;
+            h *= 0xC2B2AE35;
+            h ^= h >>> 16;
+            return h;
+        }
+
+
+        private static int slot(final int mixed, final int displacement, final int slotMask) {
+            // Low bits choose the slot and (odd) middle bits the stride, while the high bits choose the bucket
+            return (mixed + displacement * ((mixed >>> 8) | 1)) & slotMask;
+        }
+
+
         private StandardNamesRepository() {
             super();
         }
@@ -1180,5 +1607,4 @@ private StandardNamesRepository() {
     }
 
 
-
 }
\ No newline at end of file
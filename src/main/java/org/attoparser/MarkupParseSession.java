@@ -0,0 +1,391 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.Reader;
+import java.nio.CharBuffer;
+
+import org.attoparser.buffer.IBufferPool;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.select.ParseSelection;
+
+
+/**
+ * <p>
+ *   Reusable context for performing several parsing operations with a {@link MarkupParser}, one after another.
+ * </p>
+ * <p>
+ *   Each parsing operation needs a set of internal objects (the status of the parsing operation, the objects
+ *   in charge of applying HTML and XML markup rules, the stack of open elements, the repository of
+ *   element and attribute names...) which are normally created for each document. When a large amount of
+ *   small documents or fragments is being parsed, creating these objects can cost more than parsing itself.
+ *   Parse sessions keep these internal objects (at the capacity they have grown to) and simply reset them
+ *   between documents.
+ * </p>
+ * <p>
+ *   Sessions are created by means of {@link MarkupParser#createSession()}, and use the configuration and buffer
+ *   pool of the parser that created them. Parsing with a session is equivalent to parsing with its parser.
+ * </p>
+ * <p>
+ *   Unlike parsers, sessions are <strong>not thread-safe</strong>: a session can only be used by one thread
+ *   at a time, and only for one document at a time. The usual way to use them is to keep one session per
+ *   thread:
+ * </p>
+ * <pre><code>
+ *   private static final MarkupParser PARSER = new MarkupParser(ParseConfiguration.htmlConfiguration());
+ *   private static final ThreadLocal&lt;MarkupParseSession&gt; SESSIONS =
+ *       new ThreadLocal&lt;MarkupParseSession&gt;() {
+ *           protected MarkupParseSession initialValue() {
+ *               return PARSER.createSession();
+ *           }
+ *       };
+ *   ...
+ *   SESSIONS.get().parse(fragment, handler);
+ * </code></pre>
+ * <p>
+ *   Sessions never keep references to the handlers or documents of previous parsing operations.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupParseSession {
+
+    // Handlers of previous parsing operations are replaced by this one, so that they can be garbage collected
+    private static final IMarkupHandler NO_OP_HANDLER = new AbstractMarkupHandler() {};
+
+    private final MarkupParser parser;
+    private final ParseConfiguration configuration;
+    private final boolean html;
+    private final ParseStatus status;
+
+    private HtmlMarkupHandler htmlHandler = null;
+    private MarkupEventProcessorHandler eventProcessor = null;
+    private MetricsMarkupHandler metricsHandler = null;
+    private Object documentParseEvent = null;
+    private long documentParseStartTimeNanos = 0L;
+    private boolean inUse = false;
+
+
+
+    MarkupParseSession(final MarkupParser parser, final ParseConfiguration configuration) {
+        super();
+        this.parser = parser;
+        this.configuration = configuration;
+        this.html = ParseConfiguration.ParsingMode.HTML.equals(configuration.getMode());
+        this.status = new ParseStatus();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Parse a document using the specified {@link IMarkupHandler}.
+     * </p>
+     *
+     * @param document the document to be parsed, as a String.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void parse(final String document, final IMarkupHandler handler)
+            throws ParseException {
+        if (document == null) {
+            throw new IllegalArgumentException("Document cannot be null");
+        }
+        parse((CharSequence) document, handler);
+    }
+
+
+    /**
+     * <p>
+     *   Parse a document using the specified {@link IMarkupHandler}.
+     * </p>
+     * <p>
+     *   Array-backed {@link CharBuffer}s are parsed directly on their backing array (between their position and
+     *   their limit, which will not be modified). The chars of any other sequence are copied once into a single
+     *   buffer, which is then parsed as a whole.
+     * </p>
+     *
+     * @param document the document to be parsed, as a CharSequence.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     * @since 2.0.6
+     */
+    public void parse(final CharSequence document, final IMarkupHandler handler)
+            throws ParseException {
+
+        if (document == null) {
+            throw new IllegalArgumentException("Document cannot be null");
+        }
+
+        if (document instanceof CharBuffer && ((CharBuffer) document).hasArray()) {
+            final CharBuffer charBuffer = (CharBuffer) document;
+            parse(charBuffer.array(), charBuffer.arrayOffset() + charBuffer.position(), charBuffer.remaining(), handler);
+            return;
+        }
+
+        final IBufferPool pool = this.parser.getBufferPool();
+        final int len = document.length();
+
+        // Documents that fit in a default-sized buffer (most templates and fragments) use one from the pool, and
+        // larger ones get a buffer of their own, which the pool would not be able to reuse anyway.
+        final boolean pooled = (len <= pool.getDefaultBufferSize());
+        final char[] buffer = (pooled? pool.allocateBuffer(pool.getDefaultBufferSize()) : new char[len]);
+        try {
+            copyChars(document, buffer, len);
+            parse(buffer, 0, len, handler);
+        } finally {
+            if (pooled) {
+                pool.releaseBuffer(buffer);
+            }
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Parse a document using the specified {@link IMarkupHandler}.
+     * </p>
+     *
+     * @param document the document to be parsed, as a char[].
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void parse(final char[] document, final IMarkupHandler handler)
+            throws ParseException {
+        if (document == null) {
+            throw new IllegalArgumentException("Document cannot be null");
+        }
+        parse(document, 0, document.length, handler);
+    }
+
+
+    /**
+     * <p>
+     *   Parse a document using the specified {@link IMarkupHandler}.
+     * </p>
+     *
+     * @param document the document to be parsed, as a char[].
+     * @param offset the offset to be applied on the char[] document to determine the
+     *        start of the document contents.
+     * @param len the length (in chars) of the document stored in the char[].
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void parse(final char[] document, final int offset, final int len, final IMarkupHandler handler)
+            throws ParseException {
+
+        if (document == null) {
+            throw new IllegalArgumentException("Document cannot be null");
+        }
+        if (offset < 0 || len < 0) {
+            throw new IllegalArgumentException(
+                    "Neither document offset (" + offset + ") nor document length (" +
+                            len + ") can be less than zero");
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+
+        final IMarkupHandler markupHandler = start(handler);
+        try {
+            // We already have a suitable char[] buffer, so there is no need to use one from the pool.
+            this.parser.parseDocument(document, offset, len, markupHandler, this.status);
+        } finally {
+            end();
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Parse a document using the specified {@link IMarkupHandler}.
+     * </p>
+     * <p>
+     *   The provided {@link Reader} object will be closed after parsing.
+     * </p>
+     *
+     * @param reader a Reader on the document.
+     * @param handler the handler to be used, an {@link IMarkupHandler} implementation.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void parse(final Reader reader, final IMarkupHandler handler)
+            throws ParseException {
+
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null");
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+
+        final IMarkupHandler markupHandler = start(handler);
+        try {
+            // We don't already have a suitable char[] buffer, so we expect the parser to use one of its pooled buffers.
+            this.parser.parseDocument(
+                    reader, this.parser.getBufferPool().getDefaultBufferSize(), markupHandler, this.status);
+        } finally {
+            end();
+        }
+
+    }
+
+
+
+
+    private static void copyChars(final CharSequence document, final char[] buffer, final int len) {
+        if (document instanceof String) {
+            ((String) document).getChars(0, len, buffer, 0);
+        } else if (document instanceof StringBuilder) {
+            ((StringBuilder) document).getChars(0, len, buffer, 0);
+        } else if (document instanceof StringBuffer) {
+            ((StringBuffer) document).getChars(0, len, buffer, 0);
+        } else if (document instanceof CharBuffer) {
+            // Read-only or direct buffer: a duplicate is used so that the document's position is not modified
+            ((CharBuffer) document).duplicate().get(buffer, 0, len);
+        } else {
+            for (int i = 0; i < len; i++) {
+                buffer[i] = document.charAt(i);
+            }
+        }
+    }
+
+
+    ParseStatus getParseStatus() {
+        return this.status;
+    }
+
+
+    /*
+     * Prepares the session for parsing a new document, returning the handler the parser should report its events to.
+     */
+    IMarkupHandler start(final IMarkupHandler handler) {
+
+        if (this.inUse) {
+            throw new IllegalStateException(
+                    "Parse session is already being used for parsing a document. Sessions cannot be used " +
+                    "concurrently, nor for parsing a document from inside the handler of another one.");
+        }
+        this.inUse = true;
+
+        try {
+
+            IMarkupHandler markupHandler = handler;
+
+            if (this.parser.getMetricsListener() != null) {
+                if (this.metricsHandler == null) {
+                    this.metricsHandler = new MetricsMarkupHandler(markupHandler);
+                } else {
+                    this.metricsHandler.reset(markupHandler);
+                }
+                markupHandler = this.metricsHandler;
+            }
+
+            if (this.html) {
+                if (this.htmlHandler == null) {
+                    this.htmlHandler = new HtmlMarkupHandler(markupHandler);
+                } else {
+                    this.htmlHandler.reset(markupHandler);
+                }
+                markupHandler = this.htmlHandler;
+            }
+
+            // We will not report directly to the specified handler, but instead to an intermediate class that will
+            // be in charge of applying the required markup logic and rules, according to the specified configuration
+            if (this.eventProcessor == null) {
+                this.eventProcessor = new MarkupEventProcessorHandler(markupHandler);
+            } else {
+                this.eventProcessor.reset(markupHandler);
+            }
+
+            this.status.reset();
+
+            this.eventProcessor.setParseConfiguration(this.configuration);
+            this.eventProcessor.setParseStatus(this.status);
+            // Selection levels are subscribed by the handlers in the chain, which can be different for each document
+            this.eventProcessor.setParseSelection(new ParseSelection());
+
+            // Structures nobody is going to consume will not be tokenized by the parser
+            if (handler instanceof IInterestAwareMarkupHandler) {
+                this.status.eventInterests =
+                        ((IInterestAwareMarkupHandler) handler).getEventInterests() |
+                        this.eventProcessor.getRequiredEventInterests();
+            }
+
+            if (FlightRecorderEvents.enabled) {
+                this.documentParseEvent = FlightRecorderEvents.beginDocumentParse();
+                this.documentParseStartTimeNanos = System.nanoTime();
+            }
+
+            return this.eventProcessor;
+
+        } catch (final RuntimeException e) {
+            end();
+            throw e;
+        }
+
+    }
+
+
+    /*
+     * Releases the handlers of the document being parsed, so that the session can be used again.
+     */
+    void end() {
+        if (this.documentParseEvent != null) {
+            FlightRecorderEvents.commitDocumentParse(
+                    this.documentParseEvent, this.documentParseStartTimeNanos, this.status.readChars, this.html);
+            this.documentParseEvent = null;
+        }
+        if (this.metricsHandler != null) {
+            reportMetrics();
+            this.metricsHandler.reset(NO_OP_HANDLER);
+        }
+        if (this.htmlHandler != null) {
+            this.htmlHandler.reset(NO_OP_HANDLER);
+        }
+        if (this.eventProcessor != null) {
+            this.eventProcessor.reset(NO_OP_HANDLER);
+        }
+        this.status.reset();
+        this.inUse = false;
+    }
+
+
+    private void reportMetrics() {
+        final IParseMetricsListener listener = this.parser.getMetricsListener();
+        if (listener == null) {
+            return;
+        }
+        try {
+            listener.handleParseMetrics(this.metricsHandler.createMetrics(this.status));
+        } catch (final Throwable ignored) {
+            // Metrics listeners cannot affect the result of parsing
+        }
+    }
+
+
+}
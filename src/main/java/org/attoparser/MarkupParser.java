@@ -19,12 +19,19 @@
  */
 package org.attoparser;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
-import java.io.StringReader;
-import java.util.Arrays;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
 
+import org.attoparser.buffer.IBufferPool;
+import org.attoparser.buffer.StripedBufferPool;
 import org.attoparser.config.ParseConfiguration;
-import org.attoparser.select.ParseSelection;
 
 
 /**
@@ -79,6 +86,11 @@
  *   is created and returned without waiting for a pooled buffer to be available.
  * </p>
  * <p>
+ *   The pooling strategy can be chosen by creating the parser with a specific
+ *   {@link org.attoparser.buffer.IBufferPool} implementation. By default, a lock-free
+ *   {@link org.attoparser.buffer.StripedBufferPool} is used.
+ * </p>
+ * <p>
  *   <em>(Note that these pooled buffers will not be used when parsing documents specified as <tt>char[]</tt>
  *   objects. In such case, the <tt>char[]</tt> documents themselves will be used as buffers, avoiding the need
  *   to allocate pooled buffers or use any additional amount of memory.)</em>
@@ -106,14 +118,23 @@ public final class MarkupParser implements IMarkupParser {
      *   reused in order to increase performance. Pool will be non-exclusive
      *   so that if pool size = 2 and a 3rd request arrives, it is assigned
      *   a new buffer object (not linked to the pool, and therefore GC-ed
-     *   at the end). Value: 2.
+     *   at the end). Pool size applies to each size class of buffers (buffers
+     *   that had to be grown are also pooled).
+     * </p>
+     * <p>
+     *   Value: the amount of available processors (minimum 2), so that every
+     *   thread parsing at the same time can usually reuse a pooled buffer.
+     *   Applications in which more threads than that parse at the same time
+     *   (e.g. while blocked reading their documents) should specify a larger
+     *   pool size.
      * </p>
      */
-    public static final int DEFAULT_POOL_SIZE = 2;
+    public static final int DEFAULT_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
 
 
     private final ParseConfiguration configuration;
-    private final BufferPool pool;
+    private final IBufferPool pool;
+    private final IParseMetricsListener metricsListener;
 
 
 
@@ -157,9 +178,133 @@ public MarkupParser(final ParseConfiguration configuration) {
      * @param bufferSize the default size of the buffers to be instanced for this parser.
      */
     public MarkupParser(final ParseConfiguration configuration, final int poolSize, final int bufferSize) {
+        this(configuration, new StripedBufferPool(bufferSize, poolSize));
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this parser, specifying the pool of buffers to be used.
+     * </p>
+     * <p>
+     *   This allows choosing the pooling strategy that best fits the application's concurrency model (see
+     *   {@link org.attoparser.buffer.StripedBufferPool} and {@link org.attoparser.buffer.ThreadLocalBufferPool}),
+     *   as well as sharing a pool among several parsers. The size of the buffers used by the parser will be the
+     *   pool's default buffer size.
+     * </p>
+     *
+     * @param configuration the parsing configuration to be used.
+     * @param bufferPool the pool of buffers to be used.
+     * @since 2.0.6
+     */
+    public MarkupParser(final ParseConfiguration configuration, final IBufferPool bufferPool) {
+        this(configuration, bufferPool, null);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this parser, specifying the pool of buffers to be used and a listener that
+     *   will receive the metrics of every document parsed (see {@link ParseMetrics}).
+     * </p>
+     * <p>
+     *   Metrics are only collected when a listener is specified, so parsers created without one (or with a
+     *   <tt>null</tt> listener) incur in no overhead at all.
+     * </p>
+     *
+     * @param configuration the parsing configuration to be used.
+     * @param bufferPool the pool of buffers to be used.
+     * @param metricsListener the listener that will receive the metrics of each document, can be null.
+     * @since 2.0.6
+     */
+    public MarkupParser(
+            final ParseConfiguration configuration, final IBufferPool bufferPool,
+            final IParseMetricsListener metricsListener) {
         super();
+        if (bufferPool == null) {
+            throw new IllegalArgumentException("Buffer pool cannot be null");
+        }
         this.configuration = configuration;
-        this.pool = new BufferPool(poolSize, bufferSize);
+        this.pool = bufferPool;
+        this.metricsListener = metricsListener;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the pool of buffers used by this parser, which can be used for monitoring its usage by means
+     *   of {@link org.attoparser.buffer.IBufferPool#getStatistics()}.
+     * </p>
+     *
+     * @return the pool of buffers.
+     * @since 2.0.6
+     */
+    public IBufferPool getBufferPool() {
+        return this.pool;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the listener that receives the metrics of every document parsed, if any.
+     * </p>
+     *
+     * @return the metrics listener, or null if metrics are not being collected.
+     * @since 2.0.6
+     */
+    public IParseMetricsListener getMetricsListener() {
+        return this.metricsListener;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the current usage statistics of the repository of HTML elements shared by all parsers
+     *   (see {@link HtmlElementRepositoryStatistics}).
+     * </p>
+     *
+     * @return a snapshot of the statistics of the HTML element repository.
+     * @since 2.0.6
+     */
+    public static HtmlElementRepositoryStatistics getHtmlElementRepositoryStatistics() {
+        return HtmlElements.getRepositoryStatistics();
+    }
+
+
+
+    /**
+     * <p>
+     *   Creates a new parse session for this parser, which can be used for parsing several documents one after
+     *   another (never concurrently) reusing the parser's internal structures, instead of creating them again for
+     *   each document. See {@link MarkupParseSession}.
+     * </p>
+     *
+     * @return a new parse session.
+     * @since 2.0.6
+     */
+    public MarkupParseSession createSession() {
+        return new MarkupParseSession(this, this.configuration);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new push (incremental) parse session for parsing a single document that will be fed to the
+     *   parser chunk by chunk as it becomes available, reporting its events to the specified handler.
+     *   See {@link MarkupPushParseSession}.
+     * </p>
+     *
+     * @param handler the handler that will receive the events of the document.
+     * @return a new push parse session.
+     * @since 2.0.6
+     */
+    public MarkupPushParseSession createPushSession(final IMarkupHandler handler) {
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+        return new MarkupPushParseSession(this, this.configuration, handler);
     }
 
 
@@ -169,10 +314,13 @@ public MarkupParser(final ParseConfiguration configuration, final int poolSize,
 
     public void parse(final String document, final IMarkupHandler handler)
             throws ParseException {
-        if (document == null) {
-            throw new IllegalArgumentException("Document cannot be null");
-        }
-        parse(new StringReader(document), handler);
+        createSession().parse(document, handler);
+    }
+
+
+    public void parse(final CharSequence document, final IMarkupHandler handler)
+            throws ParseException {
+        createSession().parse(document, handler);
     }
 
 
@@ -188,74 +336,164 @@ public void parse(final char[] document, final IMarkupHandler handler)
     public void parse(
             final char[] document, final int offset, final int len, final IMarkupHandler handler)
             throws ParseException {
+        // Parsing with a new session is exactly the same as parsing without one, so we use it to avoid duplicating
+        // the creation of the chain of internal handlers.
+        createSession().parse(document, offset, len, handler);
+    }
+
+
+
+    public void parse(
+            final Reader reader, final IMarkupHandler handler)
+            throws ParseException {
+        createSession().parse(reader, handler);
+    }
+
+
+
+    public void parse(
+            final InputStream inputStream, final Charset charset, final IMarkupHandler handler)
+            throws ParseException {
+
+        if (inputStream == null) {
+            throw new IllegalArgumentException("Input stream cannot be null");
+        }
+
+        if (handler == null) {
+            throw new IllegalArgumentException("Handler cannot be null");
+        }
+
+        final Reader reader;
+        try {
+
+            // Read the first bytes of the document so that we can detect its encoding. These will be later
+            // handed to the reader, so that they don't need to be read again.
+            final byte[] head = new byte[ParsingEncodingUtil.DETECTION_LEN];
+            int headLen = 0;
+            int read;
+            while (headLen < head.length && (read = inputStream.read(head, headLen, head.length - headLen)) != -1) {
+                headLen += read;
+            }
+
+            final Charset documentCharset = ParsingEncodingUtil.detectCharset(head, 0, headLen, charset);
+            final int bomLength = ParsingEncodingUtil.bomLength(head, 0, headLen);
+
+            reader = new ByteDecodingReader(inputStream, documentCharset, head, bomLength, headLen - bomLength);
+
+        } catch (final ParseException e) {
+            closeQuietly(inputStream);
+            throw e;
+        } catch (final IOException e) {
+            closeQuietly(inputStream);
+            throw new ParseException(e);
+        }
+
+        // Closing the reader will close the input stream
+        parse(reader, handler);
+
+    }
+
+
+
+    public void parse(
+            final ByteBuffer document, final Charset charset, final IMarkupHandler handler)
+            throws ParseException {
 
         if (document == null) {
             throw new IllegalArgumentException("Document cannot be null");
         }
-        if (offset < 0 || len < 0) {
-            throw new IllegalArgumentException(
-                    "Neither document offset (" + offset + ") nor document length (" +
-                            len + ") can be less than zero");
-        }
 
         if (handler == null) {
             throw new IllegalArgumentException("Handler cannot be null");
         }
 
-        IMarkupHandler markupHandler =
-                (ParseConfiguration.ParsingMode.HTML.equals(this.configuration.getMode()) ?
-                        new HtmlMarkupHandler(handler) : handler);
-
-        // We will not report directly to the specified handler, but instead to an intermediate class that will be in
-        // charge of applying the required markup logic and rules, according to the specified configuration
-        markupHandler = new MarkupEventProcessorHandler(markupHandler);
+        // Work on a duplicate so that the position of the specified buffer is never modified
+        final ByteBuffer bytes = document.duplicate();
 
-        markupHandler.setParseConfiguration(this.configuration);
+        final byte[] head = new byte[Math.min(ParsingEncodingUtil.DETECTION_LEN, bytes.remaining())];
+        bytes.duplicate().get(head);
 
-        final ParseStatus status = new ParseStatus();
-        markupHandler.setParseStatus(status);
+        final Charset documentCharset = ParsingEncodingUtil.detectCharset(head, 0, head.length, charset);
+        bytes.position(bytes.position() + ParsingEncodingUtil.bomLength(head, 0, head.length));
 
-        final ParseSelection selection = new ParseSelection();
-        markupHandler.setParseSelection(selection);
+        // The whole document is available, so it can be decoded in one single bulk operation (for both heap and
+        // direct buffers) and then parsed as a char[], without the need for a Reader or any buffer compaction.
+        final CharBuffer chars;
+        try {
+            chars = ParsingEncodingUtil.createDecoder(documentCharset).decode(bytes);
+        } catch (final CharacterCodingException e) {
+            // Cannot happen, as the decoder replaces malformed and unmappable input
+            throw new ParseException(e);
+        }
 
-        // We already have a suitable char[] buffer, so there is no need to use one from the pool.
-        parseDocument(document, offset, len, markupHandler, status);
+        parse(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining(), handler);
 
     }
 
 
 
     public void parse(
-            final Reader reader, final IMarkupHandler handler)
+            final File file, final Charset charset, final IMarkupHandler handler)
             throws ParseException {
 
-        if (reader == null) {
-            throw new IllegalArgumentException("Reader cannot be null");
+        if (file == null) {
+            throw new IllegalArgumentException("File cannot be null");
         }
 
         if (handler == null) {
             throw new IllegalArgumentException("Handler cannot be null");
         }
 
-        IMarkupHandler markupHandler =
-                (ParseConfiguration.ParsingMode.HTML.equals(this.configuration.getMode()) ?
-                        new HtmlMarkupHandler(handler) : handler);
+        parse(file, MappedFileReader.DEFAULT_WINDOW_SIZE, charset, handler);
 
-        // We will not report directly to the specified handler, but instead to an intermediate class that will be in
-        // charge of applying the required markup logic and rules, according to the specified configuration
-        markupHandler = new MarkupEventProcessorHandler(markupHandler);
+    }
 
-        markupHandler.setParseConfiguration(this.configuration);
 
-        final ParseStatus status = new ParseStatus();
-        markupHandler.setParseStatus(status);
+    /*
+     * This method receiving the window size with package visibility allows
+     * testing different window sizes.
+     */
+    void parse(
+            final File file, final int windowSize, final Charset charset, final IMarkupHandler handler)
+            throws ParseException {
 
-        final ParseSelection selection = new ParseSelection();
-        markupHandler.setParseSelection(selection);
+        final MappedFileReader reader;
+        try {
+            reader = new MappedFileReader(file, windowSize);
+        } catch (final IOException e) {
+            throw new ParseException(e);
+        }
 
-        // We don't already have a suitable char[] buffer, so we expect the parser to use one of its pooled buffers.
-        parseDocument(reader, this.pool.poolBufferSize, markupHandler, status);
+        try {
 
+            final byte[] head = reader.head(ParsingEncodingUtil.DETECTION_LEN);
+
+            final Charset documentCharset = ParsingEncodingUtil.detectCharset(head, 0, head.length, charset);
+            reader.startDecoding(
+                    ParsingEncodingUtil.createDecoder(documentCharset),
+                    ParsingEncodingUtil.bomLength(head, 0, head.length));
+
+        } catch (final ParseException e) {
+            closeQuietly(reader);
+            throw e;
+        } catch (final IOException e) {
+            closeQuietly(reader);
+            throw new ParseException(e);
+        }
+
+        // Closing the reader will close the file
+        parse(reader, handler);
+
+    }
+
+
+
+    private static void closeQuietly(final Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (final Throwable ignored) {
+            // This exception can be safely ignored
+        }
     }
 
 
@@ -274,11 +512,13 @@ void parseDocument(
 
         final long parsingStartTimeNanos = System.nanoTime();
 
+        final boolean lazyPositionTracking = this.configuration.isLazyPositionTracking();
+
         char[] buffer = null;
 
         try {
 
-            handler.handleDocumentStart(parsingStartTimeNanos, 1, 1);
+            startDocument(parsingStartTimeNanos, handler, status);
 
             int bufferSize = suggestedBufferSize;
             buffer = this.pool.allocateBuffer(bufferSize);
@@ -286,28 +526,41 @@ void parseDocument(
             int bufferContentSize = reader.read(buffer);
 
             boolean cont = (bufferContentSize != -1);
-
-            status.offset = -1;
-            status.line = 1;
-            status.col = 1;
-            status.inStructure = false;
-            status.parsingDisabled = true;
-            status.parsingDisabledLimitSequence = null;
-            status.autoCloseRequired = null;
-            status.autoCloseLimits = null;
+            if (cont) {
+                status.readChars += bufferContentSize;
+            }
 
             while (cont) {
 
+                status.setLocationBuffer(buffer, 0, bufferContentSize);
+
                 parseBuffer(buffer, 0, bufferContentSize, handler, status);
 
+                if (status.parsingStopped) {
+                    break;
+                }
+
                 int readOffset = 0;
                 int readLen = bufferSize;
 
+                if (status.offset > 0) {
+                    // The already-processed part of the buffer is going to be discarded, so positions will be
+                    // computed from now on starting at the first char not yet processed
+                    if (lazyPositionTracking) {
+                        status.moveLocationOrigin(status.offset);
+                    } else {
+                        status.setLocationOrigin(status.line, status.col);
+                    }
+                }
+
                 if (status.offset == 0) {
 
                     if (bufferContentSize == bufferSize) {
                         // Buffer is not big enough, double it!
 
+                        final Object growthEvent =
+                                (FlightRecorderEvents.enabled? FlightRecorderEvents.beginBufferGrowth() : null);
+
                         char[] newBuffer = null;
                         try {
 
@@ -319,6 +572,11 @@ void parseDocument(
                             this.pool.releaseBuffer(buffer);
 
                             buffer = newBuffer;
+                            status.bufferGrowths++;
+
+                            if (growthEvent != null) {
+                                FlightRecorderEvents.commitBufferGrowth(growthEvent, bufferSize / 2, bufferSize);
+                            }
 
                         } catch (final Exception ignored) {
                             this.pool.releaseBuffer(newBuffer);
@@ -340,12 +598,14 @@ void parseDocument(
 
                     status.offset = 0;
                     bufferContentSize = readOffset;
+                    status.bufferCompactions++;
 
                 }
 
                 final int read = reader.read(buffer, readOffset, readLen);
                 if (read != -1) {
                     bufferContentSize = readOffset + read;
+                    status.readChars += read;
                 } else {
                     cont = false;
                 }
@@ -354,41 +614,14 @@ void parseDocument(
 
             // Iteration done, now it's time to clean up in case we still have some text to be notified
 
-            int lastLine = status.line;
-            int lastCol = status.col;
-
-            final int lastStart = status.offset;
-            final int lastLen = bufferContentSize - lastStart;
-
-            if (lastLen > 0) {
-
-                if (status.inStructure) {
-                    throw new ParseException(
-                            "Incomplete structure: \"" + new String(buffer, lastStart, lastLen) + "\"", status.line, status.col);
-                }
-
-                handler.handleText(buffer, lastStart, lastLen, status.line, status.col);
-
-                // As we have produced an additional text event, we need to fast-forward the
-                // lastLine and lastCol position to include the last text structure.
-                for (int i = lastStart; i < (lastStart + lastLen); i++) {
-                    final char c = buffer[i];
-                    if (c == '\n') {
-                        lastLine++;
-                        lastCol = 1;
-                    } else {
-                        lastCol++;
-                    }
-
-                }
-
+            if (status.offset >= 0) {
+                status.setLocationBuffer(buffer, status.offset, bufferContentSize);
             }
 
-            final long parsingEndTimeNanos = System.nanoTime();
-            handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLine, lastCol);
+            endDocument(buffer, bufferContentSize, parsingStartTimeNanos, handler, status);
 
         } catch (final ParseException e) {
-            throw e;
+            throw locateException(e, status);
         } catch (final Exception e) {
             throw new ParseException(e);
         } finally {
@@ -424,36 +657,88 @@ void parseDocument(
 
         try {
 
-            handler.handleDocumentStart(parsingStartTimeNanos, 1, 1);
+            startDocument(parsingStartTimeNanos, handler, status);
 
-            status.offset = -1;
-            status.line = 1;
-            status.col = 1;
-            status.inStructure = false;
-            status.parsingDisabled = true;
-            status.parsingDisabledLimitSequence = null;
-            status.autoCloseRequired = null;
-            status.autoCloseLimits = null;
+            status.setLocationBuffer(buffer, offset, offset + len);
+            status.readChars = len;
 
             parseBuffer(buffer, offset, len, handler, status);
 
             // First parse done, now it's time to clean up in case we still have some text to be notified
 
-            int lastLine = status.line;
-            int lastCol = status.col;
+            endDocument(buffer, offset + len, parsingStartTimeNanos, handler, status);
 
-            final int lastStart = status.offset;
-            final int lastLen = (offset + len) - lastStart;
+        } catch (final ParseException e) {
+            throw locateException(e, status);
+        } catch (final Exception e) {
+            throw new ParseException(e);
+        }
 
-            if (lastLen > 0) {
+    }
 
-                if (status.inStructure) {
-                    throw new ParseException(
-                            "Incomplete structure: \"" + new String(buffer, lastStart, lastLen) + "\"", status.line, status.col);
-                }
 
+
+    /*
+     * Signals the start of a document and initializes the parsing status for it.
+     */
+    void startDocument(final long parsingStartTimeNanos, final IMarkupHandler handler, final ParseStatus status)
+            throws ParseException {
+
+        final boolean lazyPositionTracking = this.configuration.isLazyPositionTracking();
+
+        handler.handleDocumentStart(parsingStartTimeNanos, 1, 1);
+
+        status.offset = -1;
+        status.line = (lazyPositionTracking? -1 : 1);
+        status.col = (lazyPositionTracking? -1 : 1);
+        status.inStructure = false;
+        status.parsingDisabled = true;
+        status.parsingDisabledLimitSequence = null;
+        status.autoCloseRequired = null;
+        status.autoCloseLimits = null;
+        status.parsingStopped = false;
+        status.skipElementBodyRequested = false;
+        status.skippedElementName = null;
+        status.skippedElementDepth = 0;
+
+        status.setLocationOrigin(1, 1);
+
+    }
+
+
+    /*
+     * Notifies the text remaining at the buffer after the last parsed structure (from status.offset up to the
+     * specified end), if any, and signals the end of the document.
+     */
+    void endDocument(
+            final char[] buffer, final int end, final long parsingStartTimeNanos,
+            final IMarkupHandler handler, final ParseStatus status)
+            throws ParseException {
+
+        final boolean lazyPositionTracking = this.configuration.isLazyPositionTracking();
+
+        int lastLine = status.line;
+        int lastCol = status.col;
+
+        final int lastStart = status.offset;
+        // Nothing remaining is reported if parsing was stopped or we are skipping the body of an element
+        final int lastLen =
+                (status.parsingStopped || status.skippedElementName != null ? 0 : end - lastStart);
+
+        if (lastLen > 0) {
+
+            status.eventOffset = lastStart;
+
+            if (status.inStructure) {
+                throw new ParseException(
+                        "Incomplete structure: \"" + new String(buffer, lastStart, lastLen) + "\"", status.line, status.col);
+            }
+
+            if ((status.eventInterests & IInterestAwareMarkupHandler.TEXT_EVENTS) != 0) {
                 handler.handleText(buffer, lastStart, lastLen, status.line, status.col);
+            }
 
+            if (!lazyPositionTracking) {
                 // As we have produced an additional text event, we need to fast-forward the
                 // lastLine and lastCol position to include the last text structure.
                 for (int i = lastStart; i < (lastStart + lastLen); i++) {
@@ -464,19 +749,37 @@ void parseDocument(
                     } else {
                         lastCol++;
                     }
-
                 }
-
             }
 
-            final long parsingEndTimeNanos = System.nanoTime();
-            handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLine, lastCol);
+        }
 
-        } catch (final ParseException e) {
-            throw e;
-        } catch (final Exception e) {
-            throw new ParseException(e);
+        status.eventOffset = end;
+
+        final long parsingEndTimeNanos = System.nanoTime();
+        handler.handleDocumentEnd(parsingEndTimeNanos, (parsingEndTimeNanos - parsingStartTimeNanos), lastLine, lastCol);
+
+    }
+
+
+
+    /*
+     * When positions are not being tracked, exceptions are thrown with an unknown line and column, so we
+     * compute them now for the structure that was being processed.
+     */
+    ParseException locateException(final ParseException e, final ParseStatus status) {
+
+        if (!this.configuration.isLazyPositionTracking() || !e.hasUnknownPosition() || status.locationBuffer == null) {
+            return e;
+        }
+
+        final int line = status.getLine(status.eventOffset);
+        final int col = status.getCol(status.eventOffset);
+
+        if (e.getMessage() == null) {
+            return new ParseException(e, line, col);
         }
+        return new ParseException(e.getMessage(), e, line, col);
 
     }
 
@@ -493,50 +796,80 @@ void parseDocument(
 
     
     
-    private void parseBuffer(
+    void parseBuffer(
             final char[] buffer, final int offset, final int len,
             final IMarkupHandler handler,
             final ParseStatus status)
             throws ParseException {
 
 
-        final int[] locator = new int[] {status.line, status.col};
-        
-        int currentLine;
-        int currentCol;
+        // Will be null if lazy position tracking is enabled (status.line will be -1)
+        final int[] locator = ParsingLocatorUtil.createLocator(status.line, status.col);
+
+        final boolean bulkScanning = this.configuration.isBulkScanning();
+        final boolean caseSensitive = this.configuration.isCaseSensitive();
+
+        // Structures corresponding to kinds of events nobody consumes will be delimited, but not tokenized
+        final boolean reportText = (status.eventInterests & IInterestAwareMarkupHandler.TEXT_EVENTS) != 0;
+        final boolean reportComments = (status.eventInterests & IInterestAwareMarkupHandler.COMMENT_EVENTS) != 0;
+        final boolean reportCDATASections = (status.eventInterests & IInterestAwareMarkupHandler.CDATA_SECTION_EVENTS) != 0;
+        final boolean reportDocTypes = (status.eventInterests & IInterestAwareMarkupHandler.DOCTYPE_EVENTS) != 0;
+        final boolean reportXmlDeclarations = (status.eventInterests & IInterestAwareMarkupHandler.XML_DECLARATION_EVENTS) != 0;
+        final boolean reportProcessingInstructions = (status.eventInterests & IInterestAwareMarkupHandler.PROCESSING_INSTRUCTION_EVENTS) != 0;
+
+        int currentLine = -1;
+        int currentCol = -1;
         
         final int maxi = offset + len;
         int i = offset;
         int current = i;
 
-        boolean inStructure;
-
-        boolean inOpenElement = false;
-        boolean inCloseElement = false;
-        boolean inComment = false;
-        boolean inCdata = false;
-        boolean inDocType = false;
-        boolean inXmlDeclaration = false;
-        boolean inProcessingInstruction = false;
+        // Type of the structure being parsed, if any (see ParsingStructureClassifier)
+        int structure = ParsingStructureClassifier.NONE;
 
         int tagStart;
         int tagEnd;
         
         while (i < maxi) {
 
-            currentLine = locator[0];
-            currentCol = locator[1];
+            if (status.parsingStopped) {
+                // A handler asked for the rest of the document not to be parsed
+                break;
+            }
+
+            if (locator != null) {
+                currentLine = locator[0];
+                currentCol = locator[1];
+            } else {
+                // Positions are not being tracked, so just keep the offset in case we need to locate an exception
+                status.eventOffset = current;
+            }
+
+            if (status.skippedElementName != null) {
+                // A handler asked for the body of an element to be skipped, so we will just look for its close tag
+                current = ParsingElementMarkupUtil.skipElementBody(buffer, i, maxi, caseSensitive, locator, status);
+                i = current;
+                if (status.skippedElementName != null) {
+                    // Close tag not found, we should ask for more buffer
+                    break;
+                }
+                continue;
+            }
 
             if (status.parsingDisabledLimitSequence != null) {
                 // We need to disable parsing until we find a specific character sequence.
                 // This allows correct parsing of CDATA (not PCDATA) sections (e.g. <script> tags).
                 final int sequenceIndex =
-                        ParsingMarkupUtil.findCharacterSequence(buffer, i, maxi, locator, status.parsingDisabledLimitSequence);
+                        (bulkScanning?
+                                ParsingBulkScanUtil.findCharacterSequence(buffer, i, maxi, locator, status.parsingDisabledLimitSequence) :
+                                ParsingMarkupUtil.findCharacterSequence(buffer, i, maxi, locator, status.parsingDisabledLimitSequence));
                 if (sequenceIndex == -1) {
 
                     // Not found, should ask for more buffer
                     if (this.configuration.isTextSplittable()) {
-                        handler.handleText(buffer, current, len - current, currentLine, currentCol);
+                        if (reportText) {
+                            handler.handleText(buffer, current, len - current, currentLine, currentCol);
+                        }
                         // No need to change the disability limit, as we havent reached the sequence yet
                         current = len;
                     }
@@ -554,7 +887,9 @@ private void parseBuffer(
                 // a returned Text event (if parsing is not re-enabled with a structure). Parsing-disabled and
                 // parsing-enabled events should not be mixed in order to improve event handling.
 
-                handler.handleText(buffer, current, sequenceIndex - current, currentLine, currentCol);
+                if (reportText) {
+                    handler.handleText(buffer, current, sequenceIndex - current, currentLine, currentCol);
+                }
                 status.parsingDisabledLimitSequence = null;
                 status.parsingDisabled = true;
 
@@ -563,18 +898,20 @@ private void parseBuffer(
 
             }
 
-            inStructure =
-                    (inOpenElement || inCloseElement || inComment || inCdata || inDocType || inXmlDeclaration || inProcessingInstruction);
-
-            if (!inStructure) {
+            if (structure == ParsingStructureClassifier.NONE) {
                 
-                tagStart = ParsingMarkupUtil.findNextStructureStart(buffer, i, maxi, locator);
+                tagStart =
+                        (bulkScanning?
+                                ParsingBulkScanUtil.findNextStructureStart(buffer, i, maxi, locator) :
+                                ParsingMarkupUtil.findNextStructureStart(buffer, i, maxi, locator));
                 
                 if (tagStart == -1) {
 
                     if (this.configuration.isTextSplittable()) {
 
-                        handler.handleText(buffer, current, len - current, currentLine, currentCol);
+                        if (reportText) {
+                            handler.handleText(buffer, current, len - current, currentLine, currentCol);
+                        }
                         if (status.parsingDisabledLimitSequence != null) {
                             status.parsingDisabled = false;
                         }
@@ -591,36 +928,17 @@ private void parseBuffer(
 
                 }
 
-                inOpenElement = ParsingElementMarkupUtil.isOpenElementStart(buffer, tagStart, maxi);
-                if (!inOpenElement) {
-                    inCloseElement = ParsingElementMarkupUtil.isCloseElementStart(buffer, tagStart, maxi);
-                    if (!inCloseElement) {
-                        inComment = ParsingCommentMarkupUtil.isCommentStart(buffer, tagStart, maxi);
-                        if (!inComment) {
-                            inCdata = ParsingCDATASectionMarkupUtil.isCDATASectionStart(buffer, tagStart, maxi);
-                            if (!inCdata) {
-                                inDocType = ParsingDocTypeMarkupUtil.isDocTypeStart(buffer, tagStart, maxi);
-                                if (!inDocType) {
-                                    inXmlDeclaration = ParsingXmlDeclarationMarkupUtil.isXmlDeclarationStart(buffer, tagStart, maxi);
-                                    if (!inXmlDeclaration) {
-                                        inProcessingInstruction = ParsingProcessingInstructionUtil.isProcessingInstructionStart(buffer, tagStart, maxi);
-                                    }
-                                }
-                            }
-                        }
-                    }
-                }
-                
-                inStructure =
-                        (inOpenElement || inCloseElement || inComment || inCdata || inDocType || inXmlDeclaration || inProcessingInstruction);
-                
-                
-                while (!inStructure) {
+                structure = ParsingStructureClassifier.classify(buffer, tagStart, maxi);
+
+                while (structure == ParsingStructureClassifier.NONE) {
                     // We found a '<', but it cannot be considered a tag because it is not
                     // the beginning of any known structure
                     
                     ParsingLocatorUtil.countChar(locator, buffer[tagStart]);
-                    tagStart = ParsingMarkupUtil.findNextStructureStart(buffer, tagStart + 1, maxi, locator);
+                    tagStart =
+                            (bulkScanning?
+                                    ParsingBulkScanUtil.findNextStructureStart(buffer, tagStart + 1, maxi, locator) :
+                                    ParsingMarkupUtil.findNextStructureStart(buffer, tagStart + 1, maxi, locator));
                     
                     if (tagStart == -1) {
                         status.offset = current;
@@ -630,38 +948,19 @@ private void parseBuffer(
                         return;
                     }
 
-                    inOpenElement = ParsingElementMarkupUtil.isOpenElementStart(buffer, tagStart, maxi);
-                    if (!inOpenElement) {
-                        inCloseElement = ParsingElementMarkupUtil.isCloseElementStart(buffer, tagStart, maxi);
-                        if (!inCloseElement) {
-                            inComment = ParsingCommentMarkupUtil.isCommentStart(buffer, tagStart, maxi);
-                            if (!inComment) {
-                                inCdata = ParsingCDATASectionMarkupUtil.isCDATASectionStart(buffer, tagStart, maxi);
-                                if (!inCdata) {
-                                    inDocType = ParsingDocTypeMarkupUtil.isDocTypeStart(buffer, tagStart, maxi);
-                                    if (!inDocType) {
-                                        inXmlDeclaration = ParsingXmlDeclarationMarkupUtil.isXmlDeclarationStart(buffer, tagStart, maxi);
-                                        if (!inXmlDeclaration) {
-                                            inProcessingInstruction = ParsingProcessingInstructionUtil.isProcessingInstructionStart(buffer, tagStart, maxi);
-                                        }
-                                    }
-                                }
-                            }
-                        }
-                    }
-                    
-                    inStructure =
-                            (inOpenElement || inCloseElement || inComment || inCdata || inDocType || inXmlDeclaration || inProcessingInstruction);
-                
+                    structure = ParsingStructureClassifier.classify(buffer, tagStart, maxi);
+
                 }
             
                 
                 if (tagStart > current) {
                     // We avoid empty-string text events
 
-                    handler.handleText(
-                            buffer, current, (tagStart - current),
-                            currentLine, currentCol);
+                    if (reportText) {
+                        handler.handleText(
+                                buffer, current, (tagStart - current),
+                                currentLine, currentCol);
+                    }
 
                     if (status.parsingDisabledLimitSequence != null) {
                         status.parsingDisabled = false;
@@ -678,15 +977,22 @@ private void parseBuffer(
                 // is undefined, and everything should be allowed except the "?>" sequence,
                 // which will terminate the instruction.
                 final boolean avoidQuotes =
-                        (inOpenElement || inCloseElement || inDocType || inXmlDeclaration);
+                        (structure == ParsingStructureClassifier.OPEN_ELEMENT ||
+                         structure == ParsingStructureClassifier.CLOSE_ELEMENT ||
+                         structure == ParsingStructureClassifier.DOCTYPE ||
+                         structure == ParsingStructureClassifier.XML_DECLARATION);
 
                 
                 tagEnd =
-                        (inDocType?
+                        (structure == ParsingStructureClassifier.DOCTYPE?
                                 ParsingDocTypeMarkupUtil.findNextDocTypeStructureEnd(buffer, i, maxi, locator) :
-                                (avoidQuotes?
-                                        ParsingMarkupUtil.findNextStructureEndAvoidQuotes(buffer, i, maxi, locator) :
-                                        ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, i, maxi, locator)));
+                                (bulkScanning?
+                                        (avoidQuotes?
+                                                ParsingBulkScanUtil.findNextStructureEndAvoidQuotes(buffer, i, maxi, locator) :
+                                                ParsingBulkScanUtil.findNextStructureEndDontAvoidQuotes(buffer, i, maxi, locator)) :
+                                        (avoidQuotes?
+                                                ParsingMarkupUtil.findNextStructureEndAvoidQuotes(buffer, i, maxi, locator) :
+                                                ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, i, maxi, locator))));
                 
                 if (tagEnd < 0) {
                     // This is an unfinished structure
@@ -697,18 +1003,26 @@ private void parseBuffer(
                     return;
                 }
 
+                // Skipping requests are only honored if made while handling the events for this structure
+                status.skipElementBodyRequested = false;
+
                 
-                if (inOpenElement) {
+                if (structure == ParsingStructureClassifier.OPEN_ELEMENT) {
                     // This is a open/standalone tag (to be determined by looking at the penultimate character)
 
                     if ((buffer[tagEnd - 1] == '/')) {
                         ParsingElementMarkupUtil.
                                 parseStandaloneElement(
-                                        buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                                        buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler, status);
                     } else {
                         ParsingElementMarkupUtil.
                                 parseOpenElement(
-                                        buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                                        buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler, status);
+                        // Open tags reported as standalone (e.g. HTML void elements) are not stacked, so there
+                        // will be no close tag for them at which skipping could stop
+                        if (status.skipElementBodyRequested && !status.avoidStacking) {
+                            startSkippingElementBody(buffer, current + 1, tagEnd, status);
+                        }
                     }
 
 
@@ -716,9 +1030,7 @@ private void parseBuffer(
                         status.parsingDisabled = false;
                     }
 
-                    inOpenElement = false;
-                    
-                } else if (inCloseElement) {
+                } else if (structure == ParsingStructureClassifier.CLOSE_ELEMENT) {
                     // This is a closing tag
 
                     ParsingElementMarkupUtil.
@@ -729,16 +1041,17 @@ private void parseBuffer(
                         status.parsingDisabled = false;
                     }
 
-                    inCloseElement = false;
-                    
-                } else if (inComment) {
+                } else if (structure == ParsingStructureClassifier.COMMENT) {
                     // This is a comment! (obviously ;-))
                     
                     while (tagEnd - current < 6 || buffer[tagEnd - 1] != '-' || buffer[tagEnd - 2] != '-') {
                         // the '>' we chose is not the comment-closing one. Let's find again
                         
                         ParsingLocatorUtil.countChar(locator, buffer[tagEnd]);
-                        tagEnd = ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator);
+                        tagEnd =
+                                (bulkScanning?
+                                        ParsingBulkScanUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator) :
+                                        ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator));
                         
                         if (tagEnd == -1) {
                             status.offset = current;
@@ -750,22 +1063,25 @@ private void parseBuffer(
                         
                     }
 
-                    ParsingCommentMarkupUtil.parseComment(buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    if (reportComments) {
+                        ParsingCommentMarkupUtil.parseComment(buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    }
 
                     if (status.parsingDisabledLimitSequence != null) {
                         status.parsingDisabled = false;
                     }
 
-                    inComment = false;
-                    
-                } else if (inCdata) {
+                } else if (structure == ParsingStructureClassifier.CDATA_SECTION) {
                     // This is a CDATA section
                     
                     while (tagEnd - current < 11 || buffer[tagEnd - 1] != ']' || buffer[tagEnd - 2] != ']') {
                         // the '>' we chose is not the comment-closing one. Let's find again
                         
                         ParsingLocatorUtil.countChar(locator, buffer[tagEnd]);
-                        tagEnd = ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator);
+                        tagEnd =
+                                (bulkScanning?
+                                        ParsingBulkScanUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator) :
+                                        ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator));
                         
                         if (tagEnd == -1) {
                             status.offset = current;
@@ -777,46 +1093,49 @@ private void parseBuffer(
                         
                     }
 
-                    ParsingCDATASectionMarkupUtil.parseCDATASection(buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    if (reportCDATASections) {
+                        ParsingCDATASectionMarkupUtil.parseCDATASection(buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    }
 
                     if (status.parsingDisabledLimitSequence != null) {
                         status.parsingDisabled = false;
                     }
 
-                    inCdata = false;
-                    
-                } else if (inDocType) {
+                } else if (structure == ParsingStructureClassifier.DOCTYPE) {
                     // This is a DOCTYPE clause
 
-                    ParsingDocTypeMarkupUtil.parseDocType(
-                            buffer, current, ((tagEnd - current) + 1), currentLine, currentCol, handler);
+                    if (reportDocTypes) {
+                        ParsingDocTypeMarkupUtil.parseDocType(
+                                buffer, current, ((tagEnd - current) + 1), currentLine, currentCol, handler);
+                    }
 
                     if (status.parsingDisabledLimitSequence != null) {
                         status.parsingDisabled = false;
                     }
 
-                    inDocType = false;
-                    
-                } else if (inXmlDeclaration) {
+                } else if (structure == ParsingStructureClassifier.XML_DECLARATION) {
                     // This is an XML Declaration
 
-                    ParsingXmlDeclarationMarkupUtil.parseXmlDeclaration(
-                            buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    if (reportXmlDeclarations) {
+                        ParsingXmlDeclarationMarkupUtil.parseXmlDeclaration(
+                                buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    }
 
                     if (status.parsingDisabledLimitSequence != null) {
                         status.parsingDisabled = false;
                     }
 
-                    inXmlDeclaration = false;
-                    
-                } else if (inProcessingInstruction) {
+                } else if (structure == ParsingStructureClassifier.PROCESSING_INSTRUCTION) {
                     // This is a processing instruction
 
                     while (tagEnd - current < 5 || buffer[tagEnd - 1] != '?') {
                         // the '>' we chose is not the PI-closing one. Let's find again
 
                         ParsingLocatorUtil.countChar(locator, buffer[tagEnd]);
-                        tagEnd = ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator);
+                        tagEnd =
+                                (bulkScanning?
+                                        ParsingBulkScanUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator) :
+                                        ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(buffer, tagEnd + 1, maxi, locator));
                         
                         if (tagEnd == -1) {
                             status.offset = current;
@@ -828,15 +1147,15 @@ private void parseBuffer(
                         
                     }
 
-                    ParsingProcessingInstructionUtil.parseProcessingInstruction(
-                            buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    if (reportProcessingInstructions) {
+                        ParsingProcessingInstructionUtil.parseProcessingInstruction(
+                                buffer, current, (tagEnd - current) + 1, currentLine, currentCol, handler);
+                    }
 
                     if (status.parsingDisabledLimitSequence != null) {
                         status.parsingDisabled = false;
                     }
 
-                    inProcessingInstruction = false;
-                    
                 } else {
 
                     throw new IllegalStateException(
@@ -844,6 +1163,8 @@ private void parseBuffer(
                     
                 }
                 
+                structure = ParsingStructureClassifier.NONE;
+
                 // The '>' char will be considered as processed too
                 ParsingLocatorUtil.countChar(locator, buffer[tagEnd]);
                 
@@ -855,8 +1176,8 @@ private void parseBuffer(
         }
 
         status.offset = current;
-        status.line = locator[0];
-        status.col = locator[1];
+        status.line = ParsingLocatorUtil.getLine(locator);
+        status.col = ParsingLocatorUtil.getCol(locator);
         status.inStructure = false;
 
     }
@@ -864,71 +1185,26 @@ private void parseBuffer(
 
 
 
-
-
-
     /*
-     * This class models a pool of buffers, used to keep the amount of
-     * large char[] buffer objects required to operate to a minimum.
-     *
-     * Note this pool never blocks, so if a new buffer is needed and all
-     * are currently allocated, a new char[] object is created and returned.
-     *
+     * Starts skipping the body of the open element whose name starts at the specified offset (and is contained
+     * in its tag, ending at tagEnd), as requested by a handler. Skipping takes precedence over disabling parsing
+     * for elements with CDATA bodies (e.g. <script>), as no events will be reported for their bodies anyway.
      */
-    private static final class BufferPool {
-
-        private final char[][] pool;
-        private final boolean[] allocated;
-        private final int poolBufferSize;
-
-        private BufferPool(final int poolSize, final int poolBufferSize) {
-
-            super();
-
-            this.pool = new char[poolSize][];
-            this.allocated = new boolean[poolSize];
-            this.poolBufferSize = poolBufferSize;
-
-            for (int i = 0; i < this.pool.length; i++) {
-                this.pool[i] = new char[this.poolBufferSize];
-            }
-            Arrays.fill(this.allocated, false);
-
-        }
+    private static void startSkippingElementBody(
+            final char[] buffer, final int nameOffset, final int tagEnd, final ParseStatus status) {
 
-        private synchronized char[] allocateBuffer(final int bufferSize) {
-            if (bufferSize != this.poolBufferSize) {
-                // We will only pool buffers of the default size. If a different size is required, we just
-                // create it without pooling.
-                return new char[bufferSize];
-            }
-            for (int i = 0; i < this.pool.length; i++) {
-                if (!this.allocated[i]) {
-                    this.allocated[i] = true;
-                    return this.pool[i];
-                }
-            }
-            return new char[bufferSize];
+        int nameEnd = ParsingMarkupUtil.findNextWhitespaceCharWildcard(buffer, nameOffset, tagEnd, true, null);
+        if (nameEnd == -1) {
+            nameEnd = tagEnd;
         }
 
-        private synchronized void releaseBuffer(final char[] buffer) {
-            if (buffer == null) {
-                return;
-            }
-            if (buffer.length != this.poolBufferSize) {
-                // This buffer cannot be part of the pool - only buffers with a specific size are contained
-                return;
-            }
-            for (int i = 0; i < this.pool.length; i++) {
-                if (this.pool[i] == buffer) {
-                    // Found it. Mark it as non-allocated
-                    this.allocated[i] = false;
-                    return;
-                }
-            }
-            // The buffer wasn't part of our pool. Just return.
-        }
+        final char[] name = new char[nameEnd - nameOffset];
+        System.arraycopy(buffer, nameOffset, name, 0, name.length);
 
+        status.skipElementBodyRequested = false;
+        status.skippedElementName = name;
+        status.skippedElementDepth = 1;
+        status.parsingDisabledLimitSequence = null;
 
     }
 
@@ -0,0 +1,377 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.nio.CharBuffer;
+
+import org.attoparser.config.ParseConfiguration;
+
+
+/**
+ * <p>
+ *   Push-mode (incremental) parsing operation on a single document, which is fed to the parser chunk by chunk
+ *   as it becomes available instead of being read by the parser from a {@link java.io.Reader}.
+ * </p>
+ * <p>
+ *   This allows parsing documents coming from non-blocking I/O sources without ever blocking a thread
+ *   waiting for more input and without first buffering the whole document: each call to
+ *   one of the <tt>feed(...)</tt> methods parses as much of the document as possible and reports the
+ *   corresponding events to the handler before returning. Markup structures that are not complete yet
+ *   (e.g. an element whose <tt>&gt;</tt> has not arrived yet) are kept until the chunks that complete them
+ *   are fed. Once all chunks have been fed, {@link #finish()} must be called in order to signal the end of
+ *   the document.
+ * </p>
+ * <p>
+ *   The events reported (and their positions) are the same as if the whole document had been parsed
+ *   at once, with the only exception of text events, which might be split at chunk boundaries if
+ *   text splitting is allowed by the parse configuration (see
+ *   {@link org.attoparser.config.ParseConfiguration#isTextSplittable()}).
+ * </p>
+ * <pre><code>
+ *   final MarkupPushParseSession session = parser.createPushSession(handler);
+ *   ...
+ *   // Every time a chunk arrives (e.g. from a non-blocking channel, once decoded)
+ *   session.feed(chunk, 0, chunkLen);
+ *   ...
+ *   // When the document is complete
+ *   session.finish();
+ * </code></pre>
+ * <p>
+ *   Push sessions are created by means of {@link MarkupParser#createPushSession(IMarkupHandler)}, and use a buffer
+ *   from the pool of the parser that created them until the document is finished, or until an error occurs
+ *   (after which the session cannot be used any more).
+ * </p>
+ * <p>
+ *   Push sessions are <strong>not thread-safe</strong>. Chunks can be fed from different threads (as usually
+ *   happens with asynchronous I/O), but never concurrently, and the caller must guarantee a <em>happens-before</em>
+ *   relation between calls (which is the case with most asynchronous I/O frameworks).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupPushParseSession {
+
+    private final MarkupParser parser;
+    private final MarkupParseSession session;
+    private final IMarkupHandler handler;
+    private final boolean lazyPositionTracking;
+
+    private IMarkupHandler markupHandler = null;
+    private ParseStatus status = null;
+    private long parsingStartTimeNanos;
+
+    private char[] buffer = null;
+    private int bufferContentSize = 0;
+
+    private boolean started = false;
+    private boolean finished = false;
+
+
+
+    MarkupPushParseSession(
+            final MarkupParser parser, final ParseConfiguration configuration, final IMarkupHandler handler) {
+        super();
+        this.parser = parser;
+        this.session = new MarkupParseSession(parser, configuration);
+        this.handler = handler;
+        this.lazyPositionTracking = configuration.isLazyPositionTracking();
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Feeds the next chunk of the document to the parser, which will report the events for all the
+     *   markup structures completed by it before returning.
+     * </p>
+     *
+     * @param chunk the chunk of the document to be parsed.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void feed(final char[] chunk) throws ParseException {
+        if (chunk == null) {
+            throw new IllegalArgumentException("Chunk cannot be null");
+        }
+        feed(chunk, 0, chunk.length);
+    }
+
+
+    /**
+     * <p>
+     *   Feeds the next chunk of the document to the parser, which will report the events for all the
+     *   markup structures completed by it before returning.
+     * </p>
+     * <p>
+     *   Chars are copied, so the specified array can be reused by the caller after this method returns.
+     * </p>
+     *
+     * @param chunk the array containing the chunk of the document to be parsed.
+     * @param offset the offset of the chunk in the array.
+     * @param len the length (in chars) of the chunk.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void feed(final char[] chunk, final int offset, final int len) throws ParseException {
+
+        if (chunk == null) {
+            throw new IllegalArgumentException("Chunk cannot be null");
+        }
+        if (offset < 0 || len < 0 || offset + len > chunk.length) {
+            throw new IllegalArgumentException(
+                    "Invalid chunk offset (" + offset + ") and length (" + len + ") for an array of length " +
+                    chunk.length);
+        }
+
+        checkNotFinished();
+
+        try {
+
+            start();
+
+            int chunkOffset = offset;
+            int remaining = len;
+            while (remaining > 0) {
+                final int copyLen = reserve(remaining);
+                System.arraycopy(chunk, chunkOffset, this.buffer, this.bufferContentSize, copyLen);
+                this.bufferContentSize += copyLen;
+                this.status.readChars += copyLen;
+                chunkOffset += copyLen;
+                remaining -= copyLen;
+                parseBufferContents();
+            }
+
+        } catch (final Exception e) {
+            throw abort(e);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Feeds the next chunk of the document to the parser, which will report the events for all the
+     *   markup structures completed by it before returning. All remaining chars in the buffer are consumed.
+     * </p>
+     *
+     * @param chunk the chunk of the document to be parsed.
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void feed(final CharBuffer chunk) throws ParseException {
+
+        if (chunk == null) {
+            throw new IllegalArgumentException("Chunk cannot be null");
+        }
+
+        if (chunk.hasArray()) {
+            final int len = chunk.remaining();
+            feed(chunk.array(), chunk.arrayOffset() + chunk.position(), len);
+            chunk.position(chunk.position() + len);
+            return;
+        }
+
+        checkNotFinished();
+
+        try {
+
+            start();
+
+            while (chunk.hasRemaining()) {
+                final int copyLen = reserve(chunk.remaining());
+                chunk.get(this.buffer, this.bufferContentSize, copyLen);
+                this.bufferContentSize += copyLen;
+                this.status.readChars += copyLen;
+                parseBufferContents();
+            }
+
+        } catch (final Exception e) {
+            throw abort(e);
+        }
+
+    }
+
+
+    /**
+     * <p>
+     *   Signals the end of the document, reporting the events for any remaining contents (or failing if the
+     *   document ends in the middle of a markup structure) and the <em>document end</em> event.
+     * </p>
+     * <p>
+     *   After calling this method, the session cannot be used any more.
+     * </p>
+     *
+     * @throws ParseException if the document cannot be parsed.
+     */
+    public void finish() throws ParseException {
+
+        checkNotFinished();
+
+        try {
+
+            start();
+
+            // All contents not yet processed have been moved to the start of the buffer
+            this.status.offset = 0;
+            this.status.setLocationBuffer(this.buffer, 0, this.bufferContentSize);
+
+            this.parser.endDocument(
+                    this.buffer, this.bufferContentSize, this.parsingStartTimeNanos, this.markupHandler, this.status);
+
+        } catch (final Exception e) {
+            throw abort(e);
+        }
+
+        release();
+
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether this session has been finished, either by calling {@link #finish()} or because an
+     *   error happened while parsing.
+     * </p>
+     *
+     * @return true if the session has finished, false if not.
+     */
+    public boolean isFinished() {
+        return this.finished;
+    }
+
+
+
+
+    private void checkNotFinished() {
+        if (this.finished) {
+            throw new IllegalStateException("Push parse session has already finished");
+        }
+    }
+
+
+    private void start() throws ParseException {
+
+        if (this.started) {
+            return;
+        }
+        this.started = true;
+
+        this.markupHandler = this.session.start(this.handler);
+        this.status = this.session.getParseStatus();
+        this.buffer = this.parser.getBufferPool().allocateBuffer(this.parser.getBufferPool().getDefaultBufferSize());
+        this.bufferContentSize = 0;
+
+        this.parsingStartTimeNanos = System.nanoTime();
+        this.parser.startDocument(this.parsingStartTimeNanos, this.markupHandler, this.status);
+
+    }
+
+
+    /*
+     * Makes sure there is room in the buffer for at least one more char, growing it if needed, and returns the
+     * amount of chars (up to the specified length) that can be copied into it.
+     */
+    private int reserve(final int len) {
+
+        if (this.bufferContentSize == this.buffer.length) {
+            // The buffer is full of contents that could not be processed yet (a structure or text bigger than
+            // the whole buffer), so it needs to grow
+            final Object growthEvent =
+                    (FlightRecorderEvents.enabled? FlightRecorderEvents.beginBufferGrowth() : null);
+            final char[] newBuffer = this.parser.getBufferPool().allocateBuffer(this.buffer.length * 2);
+            System.arraycopy(this.buffer, 0, newBuffer, 0, this.bufferContentSize);
+            this.parser.getBufferPool().releaseBuffer(this.buffer);
+            this.buffer = newBuffer;
+            this.status.bufferGrowths++;
+            if (growthEvent != null) {
+                FlightRecorderEvents.commitBufferGrowth(growthEvent, this.buffer.length / 2, this.buffer.length);
+            }
+        }
+
+        return Math.min(len, this.buffer.length - this.bufferContentSize);
+
+    }
+
+
+    /*
+     * Parses the current buffer contents and moves the part not processed yet (if any) to the start of the buffer,
+     * so that the next chunk can be appended to it.
+     */
+    private void parseBufferContents() throws ParseException {
+
+        this.status.setLocationBuffer(this.buffer, 0, this.bufferContentSize);
+
+        this.parser.parseBuffer(this.buffer, 0, this.bufferContentSize, this.markupHandler, this.status);
+
+        if (this.status.parsingStopped) {
+            // Nothing else is going to be parsed, so contents not processed yet (and any further chunks) are discarded
+            this.bufferContentSize = 0;
+            this.status.offset = 0;
+            return;
+        }
+
+        final int processed = this.status.offset;
+        if (processed > 0) {
+
+            // The already-processed part of the buffer is going to be discarded, so positions will be
+            // computed from now on starting at the first char not yet processed
+            if (this.lazyPositionTracking) {
+                this.status.moveLocationOrigin(processed);
+            } else {
+                this.status.setLocationOrigin(this.status.line, this.status.col);
+            }
+
+            this.bufferContentSize -= processed;
+            if (this.bufferContentSize > 0) {
+                System.arraycopy(this.buffer, processed, this.buffer, 0, this.bufferContentSize);
+                this.status.bufferCompactions++;
+            }
+            this.status.offset = 0;
+
+        }
+
+    }
+
+
+    private ParseException abort(final Exception e) {
+        final ParseException exception =
+                (e instanceof ParseException ?
+                        this.parser.locateException((ParseException) e, this.status) : new ParseException(e));
+        release();
+        return exception;
+    }
+
+
+    private void release() {
+        this.finished = true;
+        if (this.buffer != null) {
+            this.parser.getBufferPool().releaseBuffer(this.buffer);
+            this.buffer = null;
+        }
+        if (this.started) {
+            this.session.end();
+        }
+        this.markupHandler = null;
+        this.status = null;
+    }
+
+
+}
@@ -0,0 +1,360 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+/*
+ * Handler used by parse sessions for counting the events reported to the handler specified for parsing, when
+ * a metrics listener has been set on the parser. It is placed right before that handler in the chain, so that
+ * it receives the same events it does (after markup rules have been applied).
+ *
+ * Only the events that are counted are overridden, the rest are simply delegated by AbstractChainedMarkupHandler.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class MetricsMarkupHandler extends AbstractChainedMarkupHandler {
+
+    private final long[] counters = new long[ParseMetrics.SIZE];
+    private int depth = 0;
+    private long startTimeNanos = 0L;
+    private boolean started = false;
+    private boolean completed = false;
+
+
+
+    MetricsMarkupHandler(final IMarkupHandler next) {
+        super(next);
+    }
+
+
+
+    void reset(final IMarkupHandler next) {
+        setNext(next);
+        for (int i = 0; i < this.counters.length; i++) {
+            this.counters[i] = 0L;
+        }
+        this.depth = 0;
+        this.startTimeNanos = 0L;
+        this.started = false;
+        this.completed = false;
+    }
+
+
+    /*
+     * Creates the metrics for the document just parsed (or which parsing just failed).
+     */
+    ParseMetrics createMetrics(final ParseStatus status) {
+        final long[] values = this.counters.clone();
+        values[ParseMetrics.DOCUMENTS] = 1L;
+        values[ParseMetrics.FAILED_DOCUMENTS] = (this.completed? 0L : 1L);
+        if (!this.completed) {
+            values[ParseMetrics.DURATION_NANOS] = (this.started? System.nanoTime() - this.startTimeNanos : 0L);
+        }
+        values[ParseMetrics.CHARS] = status.readChars;
+        values[ParseMetrics.BUFFER_GROWTHS] = status.bufferGrowths;
+        values[ParseMetrics.BUFFER_COMPACTIONS] = status.bufferCompactions;
+        return new ParseMetrics(values);
+    }
+
+
+
+
+    @Override
+    public void handleDocumentStart(
+            final long startTimeNanos, final int line, final int col)
+            throws ParseException {
+        this.startTimeNanos = startTimeNanos;
+        this.started = true;
+        super.handleDocumentStart(startTimeNanos, line, col);
+    }
+
+
+    @Override
+    public void handleDocumentEnd(
+            final long endTimeNanos, final long totalTimeNanos, final int line, final int col)
+            throws ParseException {
+        super.handleDocumentEnd(endTimeNanos, totalTimeNanos, line, col);
+        this.counters[ParseMetrics.DURATION_NANOS] = totalTimeNanos;
+        this.completed = true;
+    }
+
+
+
+    @Override
+    public void handleXmlDeclaration(
+            final char[] buffer,
+            final int keywordOffset, final int keywordLen,
+            final int keywordLine, final int keywordCol,
+            final int versionOffset, final int versionLen,
+            final int versionLine, final int versionCol,
+            final int encodingOffset, final int encodingLen,
+            final int encodingLine, final int encodingCol,
+            final int standaloneOffset, final int standaloneLen,
+            final int standaloneLine, final int standaloneCol,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.XML_DECLARATIONS]++;
+        super.handleXmlDeclaration(
+                buffer,
+                keywordOffset, keywordLen, keywordLine, keywordCol,
+                versionOffset, versionLen, versionLine, versionCol,
+                encodingOffset, encodingLen, encodingLine, encodingCol,
+                standaloneOffset, standaloneLen, standaloneLine, standaloneCol,
+                outerOffset, outerLen, line, col);
+    }
+
+
+    @Override
+    public void handleDocType(
+            final char[] buffer,
+            final int keywordOffset, final int keywordLen,
+            final int keywordLine, final int keywordCol,
+            final int elementNameOffset, final int elementNameLen,
+            final int elementNameLine, final int elementNameCol,
+            final int typeOffset, final int typeLen,
+            final int typeLine, final int typeCol,
+            final int publicIdOffset, final int publicIdLen,
+            final int publicIdLine, final int publicIdCol,
+            final int systemIdOffset, final int systemIdLen,
+            final int systemIdLine, final int systemIdCol,
+            final int internalSubsetOffset, final int internalSubsetLen,
+            final int internalSubsetLine, final int internalSubsetCol,
+            final int outerOffset, final int outerLen,
+            final int outerLine, final int outerCol)
+            throws ParseException {
+        this.counters[ParseMetrics.DOCTYPES]++;
+        super.handleDocType(
+                buffer,
+                keywordOffset, keywordLen, keywordLine, keywordCol,
+                elementNameOffset, elementNameLen, elementNameLine, elementNameCol,
+                typeOffset, typeLen, typeLine, typeCol,
+                publicIdOffset, publicIdLen, publicIdLine, publicIdCol,
+                systemIdOffset, systemIdLen, systemIdLine, systemIdCol,
+                internalSubsetOffset, internalSubsetLen, internalSubsetLine, internalSubsetCol,
+                outerOffset, outerLen, outerLine, outerCol);
+    }
+
+
+    @Override
+    public void handleCDATASection(
+            final char[] buffer,
+            final int contentOffset, final int contentLen,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.CDATA_SECTIONS]++;
+        super.handleCDATASection(buffer, contentOffset, contentLen, outerOffset, outerLen, line, col);
+    }
+
+
+    @Override
+    public void handleComment(
+            final char[] buffer,
+            final int contentOffset, final int contentLen,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.COMMENTS]++;
+        super.handleComment(buffer, contentOffset, contentLen, outerOffset, outerLen, line, col);
+    }
+
+
+    @Override
+    public void handleText(
+            final char[] buffer,
+            final int offset, final int len,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.TEXTS]++;
+        super.handleText(buffer, offset, len, line, col);
+    }
+
+
+    @Override
+    public void handleStandaloneElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final boolean minimized, final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.STANDALONE_ELEMENTS]++;
+        super.handleStandaloneElementStart(buffer, nameOffset, nameLen, minimized, line, col);
+    }
+
+
+    @Override
+    public void handleOpenElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.OPEN_ELEMENTS]++;
+        super.handleOpenElementStart(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleOpenElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        increaseDepth();
+        super.handleOpenElementEnd(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleAutoOpenElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.AUTO_OPEN_ELEMENTS]++;
+        super.handleAutoOpenElementStart(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleAutoOpenElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        increaseDepth();
+        super.handleAutoOpenElementEnd(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleCloseElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.CLOSE_ELEMENTS]++;
+        super.handleCloseElementStart(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        decreaseDepth();
+        super.handleCloseElementEnd(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleAutoCloseElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.AUTO_CLOSE_ELEMENTS]++;
+        super.handleAutoCloseElementStart(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleAutoCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        decreaseDepth();
+        super.handleAutoCloseElementEnd(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleUnmatchedCloseElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.UNMATCHED_CLOSE_ELEMENTS]++;
+        super.handleUnmatchedCloseElementStart(buffer, nameOffset, nameLen, line, col);
+    }
+
+
+    @Override
+    public void handleAttribute(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int nameLine, final int nameCol,
+            final int operatorOffset, final int operatorLen,
+            final int operatorLine, final int operatorCol,
+            final int valueContentOffset, final int valueContentLen,
+            final int valueOuterOffset, final int valueOuterLen,
+            final int valueLine, final int valueCol)
+            throws ParseException {
+        this.counters[ParseMetrics.ATTRIBUTES]++;
+        super.handleAttribute(
+                buffer,
+                nameOffset, nameLen, nameLine, nameCol,
+                operatorOffset, operatorLen, operatorLine, operatorCol,
+                valueContentOffset, valueContentLen,
+                valueOuterOffset, valueOuterLen, valueLine, valueCol);
+    }
+
+
+    @Override
+    public void handleProcessingInstruction(
+            final char[] buffer,
+            final int targetOffset, final int targetLen,
+            final int targetLine, final int targetCol,
+            final int contentOffset, final int contentLen,
+            final int contentLine, final int contentCol,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.counters[ParseMetrics.PROCESSING_INSTRUCTIONS]++;
+        super.handleProcessingInstruction(
+                buffer,
+                targetOffset, targetLen, targetLine, targetCol,
+                contentOffset, contentLen, contentLine, contentCol,
+                outerOffset, outerLen, line, col);
+    }
+
+
+
+
+    private void increaseDepth() {
+        this.depth++;
+        if (this.depth > this.counters[ParseMetrics.MAX_DEPTH]) {
+            this.counters[ParseMetrics.MAX_DEPTH] = this.depth;
+        }
+    }
+
+
+    private void decreaseDepth() {
+        // Without element balancing, there might be more close elements than open ones
+        if (this.depth > 0) {
+            this.depth--;
+        }
+    }
+
+
+}
@@ -37,6 +37,8 @@ public class ParseException extends Exception {
 
     private final Integer line;
     private final Integer col;
+    // Whether this exception refers to a position that was unknown when it was created (negative line and col)
+    private final boolean unknownPosition;
 
     
 
@@ -44,6 +46,7 @@ public ParseException() {
         super();
         this.line = null;
         this.col = null;
+        this.unknownPosition = false;
     }
 
     public ParseException(final String message, final Throwable throwable) {
@@ -53,9 +56,11 @@ public ParseException(final String message, final Throwable throwable) {
         if (throwable != null && throwable instanceof ParseException) {
             this.line = ((ParseException)throwable).getLine();
             this.col = ((ParseException)throwable).getCol();
+            this.unknownPosition = ((ParseException)throwable).hasUnknownPosition();
         } else {
             this.line = null;
             this.col = null;
+            this.unknownPosition = false;
         }
         
     }
@@ -64,6 +69,7 @@ public ParseException(final String message) {
         super(message);
         this.line = null;
         this.col = null;
+        this.unknownPosition = false;
     }
 
     public ParseException(final Throwable throwable) {
@@ -73,9 +79,11 @@ public ParseException(final Throwable throwable) {
         if (throwable != null && throwable instanceof ParseException) {
             this.line = ((ParseException)throwable).getLine();
             this.col = ((ParseException)throwable).getCol();
+            this.unknownPosition = ((ParseException)throwable).hasUnknownPosition();
         } else {
             this.line = null;
             this.col = null;
+            this.unknownPosition = false;
         }
         
     }
@@ -83,34 +91,58 @@ public ParseException(final Throwable throwable) {
 
     public ParseException(final int line, final int col) {
         super(messagePrefix(line, col));
-        this.line = Integer.valueOf(line);
-        this.col = Integer.valueOf(col);
+        this.line = (isUnknownPosition(line, col)? null : Integer.valueOf(line));
+        this.col = (isUnknownPosition(line, col)? null : Integer.valueOf(col));
+        this.unknownPosition = isUnknownPosition(line, col);
     }
 
     public ParseException(final String message, final Throwable throwable, final int line, final int col) {
-        super(messagePrefix(line, col) + " " + message, throwable);
-        this.line = Integer.valueOf(line);
-        this.col = Integer.valueOf(col);
+        super(messagePrefix(line, col, message), throwable);
+        this.line = (isUnknownPosition(line, col)? null : Integer.valueOf(line));
+        this.col = (isUnknownPosition(line, col)? null : Integer.valueOf(col));
+        this.unknownPosition = isUnknownPosition(line, col);
     }
 
     public ParseException(final String message, final int line, final int col) {
-        super(messagePrefix(line, col) + " " + message);
-        this.line = Integer.valueOf(line);
-        this.col = Integer.valueOf(col);
+        super(messagePrefix(line, col, message));
+        this.line = (isUnknownPosition(line, col)? null : Integer.valueOf(line));
+        this.col = (isUnknownPosition(line, col)? null : Integer.valueOf(col));
+        this.unknownPosition = isUnknownPosition(line, col);
     }
 
     public ParseException(final Throwable throwable, final int line, final int col) {
-        super(messagePrefix(line, col), throwable);
-        this.line = Integer.valueOf(line);
-        this.col = Integer.valueOf(col);
+        super((isUnknownPosition(line, col)? message(null, throwable) : messagePrefix(line, col)), throwable);
+        this.line = (isUnknownPosition(line, col)? null : Integer.valueOf(line));
+        this.col = (isUnknownPosition(line, col)? null : Integer.valueOf(col));
+        this.unknownPosition = isUnknownPosition(line, col);
     }
 
     
     
     
+    /*
+     * Negative lines and columns (as reported by the parser when lazy position tracking is enabled) mean the
+     * position is unknown, in which case it will be neither stored nor included in the message.
+     */
+    private static boolean isUnknownPosition(final int line, final int col) {
+        return (line < 0 || col < 0);
+    }
+
+
     private static String messagePrefix(final int line, final int col) {
+        if (isUnknownPosition(line, col)) {
+            return null;
+        }
         return "(Line = " + line + ", Column = " + col + ")"; 
     }
+
+
+    private static String messagePrefix(final int line, final int col, final String message) {
+        if (isUnknownPosition(line, col)) {
+            return message;
+        }
+        return messagePrefix(line, col) + " " + message;
+    }
     
     
     
@@ -147,5 +179,9 @@ public Integer getCol() {
         return this.col;
     }
 
+    boolean hasUnknownPosition() {
+        return this.unknownPosition;
+    }
+
     
 }
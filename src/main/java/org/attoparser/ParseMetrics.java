@@ -0,0 +1,358 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+/**
+ * <p>
+ *   Snapshot of the metrics of one or several parsing operations, reported to {@link IParseMetricsListener}
+ *   implementations (see {@link MarkupParser#MarkupParser(org.attoparser.config.ParseConfiguration,
+ *   org.attoparser.buffer.IBufferPool, IParseMetricsListener)}).
+ * </p>
+ * <p>
+ *   Metrics for a single document are reported once parsing finishes, either successfully or because an
+ *   exception was raised (in which case only the work done until the exception is accounted for). Metrics
+ *   for several documents are obtained from {@link ParseMetricsCollector}, and contain the sum of all their
+ *   counters, except for {@link #getMaxDepth()}, which is the maximum among them.
+ * </p>
+ * <p>
+ *   Event counts refer to the events received by the handler specified for parsing, once markup rules (e.g.
+ *   HTML element auto-opening and auto-closing, or element balancing) have been applied. Note that structures
+ *   of the kinds of events an {@link IInterestAwareMarkupHandler} declares no interest in are not
+ *   reported, and therefore not counted either.
+ * </p>
+ * <p>
+ *   Buffer pool hits and misses are not part of these metrics, as they cannot be attributed to individual
+ *   documents when a pool is shared among threads. They are kept by the pool itself
+ *   (see {@link org.attoparser.buffer.IBufferPool#getStatistics()}).
+ * </p>
+ * <p>
+ *   Objects of this class are <strong>immutable</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class ParseMetrics {
+
+    static final int DOCUMENTS = 0;
+    static final int FAILED_DOCUMENTS = 1;
+    static final int DURATION_NANOS = 2;
+    static final int CHARS = 3;
+    static final int BUFFER_GROWTHS = 4;
+    static final int BUFFER_COMPACTIONS = 5;
+    static final int XML_DECLARATIONS = 6;
+    static final int DOCTYPES = 7;
+    static final int CDATA_SECTIONS = 8;
+    static final int COMMENTS = 9;
+    static final int TEXTS = 10;
+    static final int STANDALONE_ELEMENTS = 11;
+    static final int OPEN_ELEMENTS = 12;
+    static final int CLOSE_ELEMENTS = 13;
+    static final int AUTO_OPEN_ELEMENTS = 14;
+    static final int AUTO_CLOSE_ELEMENTS = 15;
+    static final int UNMATCHED_CLOSE_ELEMENTS = 16;
+    static final int ATTRIBUTES = 17;
+    static final int PROCESSING_INSTRUCTIONS = 18;
+    // Max depth must always be the last one, as it is the only one not aggregated by addition
+    static final int MAX_DEPTH = 19;
+
+    static final int SIZE = 20;
+
+
+    private final long[] values;
+
+
+
+    ParseMetrics(final long[] values) {
+        super();
+        this.values = values;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the amount of documents parsed (always 1 for the metrics of a single document).
+     * </p>
+     *
+     * @return the amount of documents.
+     */
+    public long getDocumentCount() {
+        return this.values[DOCUMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of documents which parsing failed because an exception was raised.
+     * </p>
+     *
+     * @return the amount of failed documents.
+     */
+    public long getFailedDocumentCount() {
+        return this.values[FAILED_DOCUMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the time spent parsing (including the time spent in handlers), in nanoseconds.
+     * </p>
+     *
+     * @return the parsing time.
+     */
+    public long getDurationNanos() {
+        return this.values[DURATION_NANOS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of chars read by the parser.
+     * </p>
+     *
+     * @return the amount of chars.
+     */
+    public long getCharCount() {
+        return this.values[CHARS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of times the buffer had to be grown (doubled) because a structure or text did not
+     *   fit inside. Only documents read from a {@link java.io.Reader} (or fed to a push session) use buffers.
+     * </p>
+     *
+     * @return the amount of buffer growths.
+     */
+    public long getBufferGrowthCount() {
+        return this.values[BUFFER_GROWTHS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of times the contents of the buffer not processed yet had to be moved to its
+     *   beginning in order to make room for more contents. Only documents read from a {@link java.io.Reader}
+     *   (or fed to a push session) use buffers.
+     * </p>
+     *
+     * @return the amount of buffer compactions.
+     */
+    public long getBufferCompactionCount() {
+        return this.values[BUFFER_COMPACTIONS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of XML Declaration events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getXmlDeclarationCount() {
+        return this.values[XML_DECLARATIONS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of DOCTYPE events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getDocTypeCount() {
+        return this.values[DOCTYPES];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of CDATA section events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getCDATASectionCount() {
+        return this.values[CDATA_SECTIONS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of comment events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getCommentCount() {
+        return this.values[COMMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of text events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getTextCount() {
+        return this.values[TEXTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of standalone elements.
+     * </p>
+     *
+     * @return the amount of elements.
+     */
+    public long getStandaloneElementCount() {
+        return this.values[STANDALONE_ELEMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of open elements (not including auto-opened ones).
+     * </p>
+     *
+     * @return the amount of elements.
+     */
+    public long getOpenElementCount() {
+        return this.values[OPEN_ELEMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of close elements (not including auto-closed or unmatched ones).
+     * </p>
+     *
+     * @return the amount of elements.
+     */
+    public long getCloseElementCount() {
+        return this.values[CLOSE_ELEMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of elements opened automatically because of the markup rules being applied.
+     * </p>
+     *
+     * @return the amount of elements.
+     */
+    public long getAutoOpenElementCount() {
+        return this.values[AUTO_OPEN_ELEMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of elements closed automatically because of the markup rules being applied.
+     * </p>
+     *
+     * @return the amount of elements.
+     */
+    public long getAutoCloseElementCount() {
+        return this.values[AUTO_CLOSE_ELEMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of close elements not matching any open element.
+     * </p>
+     *
+     * @return the amount of elements.
+     */
+    public long getUnmatchedCloseElementCount() {
+        return this.values[UNMATCHED_CLOSE_ELEMENTS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of attribute events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getAttributeCount() {
+        return this.values[ATTRIBUTES];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of processing instruction events.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getProcessingInstructionCount() {
+        return this.values[PROCESSING_INSTRUCTIONS];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the maximum element nesting depth reached (open and auto-open elements not closed yet).
+     * </p>
+     *
+     * @return the maximum depth.
+     */
+    public long getMaxDepth() {
+        return this.values[MAX_DEPTH];
+    }
+
+
+    long[] getValues() {
+        return this.values;
+    }
+
+
+    @Override
+    public String toString() {
+        return "[documents=" + getDocumentCount() + ", failedDocuments=" + getFailedDocumentCount() +
+                ", durationNanos=" + getDurationNanos() + ", chars=" + getCharCount() +
+                ", bufferGrowths=" + getBufferGrowthCount() + ", bufferCompactions=" + getBufferCompactionCount() +
+                ", xmlDeclarations=" + getXmlDeclarationCount() + ", docTypes=" + getDocTypeCount() +
+                ", cdataSections=" + getCDATASectionCount() + ", comments=" + getCommentCount() +
+                ", texts=" + getTextCount() + ", standaloneElements=" + getStandaloneElementCount() +
+                ", openElements=" + getOpenElementCount() + ", closeElements=" + getCloseElementCount() +
+                ", autoOpenElements=" + getAutoOpenElementCount() +
+                ", autoCloseElements=" + getAutoCloseElementCount() +
+                ", unmatchedCloseElements=" + getUnmatchedCloseElementCount() +
+                ", attributes=" + getAttributeCount() +
+                ", processingInstructions=" + getProcessingInstructionCount() + ", maxDepth=" + getMaxDepth() + "]";
+    }
+
+}
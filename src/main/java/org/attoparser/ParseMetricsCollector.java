@@ -0,0 +1,118 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * <p>
+ *   {@link IParseMetricsListener} implementation that aggregates the metrics of all documents parsed, so that
+ *   they can be periodically exported to a monitoring system.
+ * </p>
+ * <p>
+ *   Sample usage:
+ * </p>
+ * <pre><code>
+ *   final ParseMetricsCollector collector = new ParseMetricsCollector();
+ *   final MarkupParser parser =
+ *       new MarkupParser(
+ *           ParseConfiguration.htmlConfiguration(), new StripedBufferPool(4096, 2), collector);
+ *   ...
+ *   final ParseMetrics metrics = collector.getMetrics();
+ *   final BufferPoolStatistics poolStatistics = parser.getBufferPool().getStatistics();
+ * </code></pre>
+ * <p>
+ *   This class is <strong>thread-safe</strong>. Counters are updated without locking, so a snapshot taken
+ *   while documents are being parsed might contain only part of the metrics of some of them.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class ParseMetricsCollector implements IParseMetricsListener {
+
+    private final AtomicLongArray values;
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this collector, with all counters set to zero.
+     * </p>
+     */
+    public ParseMetricsCollector() {
+        super();
+        this.values = new AtomicLongArray(ParseMetrics.SIZE);
+    }
+
+
+
+
+    public void handleParseMetrics(final ParseMetrics metrics) {
+        if (metrics == null) {
+            return;
+        }
+        final long[] documentValues = metrics.getValues();
+        for (int i = 0; i < ParseMetrics.MAX_DEPTH; i++) {
+            if (documentValues[i] != 0L) {
+                this.values.addAndGet(i, documentValues[i]);
+            }
+        }
+        final long depth = documentValues[ParseMetrics.MAX_DEPTH];
+        long maxDepth;
+        while ((maxDepth = this.values.get(ParseMetrics.MAX_DEPTH)) < depth &&
+                !this.values.compareAndSet(ParseMetrics.MAX_DEPTH, maxDepth, depth)) {
+            // Another thread modified the value, so we need to try again
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Returns a snapshot of the aggregated metrics of all documents parsed since this collector was created
+     *   (or last reset).
+     * </p>
+     *
+     * @return the aggregated metrics.
+     */
+    public ParseMetrics getMetrics() {
+        final long[] snapshot = new long[ParseMetrics.SIZE];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = this.values.get(i);
+        }
+        return new ParseMetrics(snapshot);
+    }
+
+
+    /**
+     * <p>
+     *   Sets all counters to zero.
+     * </p>
+     */
+    public void reset() {
+        for (int i = 0; i < ParseMetrics.SIZE; i++) {
+            this.values.set(i, 0L);
+        }
+    }
+
+}
@@ -49,6 +49,35 @@ public final class ParseStatus {
 
     boolean avoidStacking;
 
+    // Kinds of events (see IInterestAwareMarkupHandler) that must be reported by the parser. Structures
+    // corresponding to any other kinds of events will be delimited, but not tokenized.
+    int eventInterests = IInterestAwareMarkupHandler.ALL_EVENTS;
+
+    // Control requests from handlers: stopping the parsing of the document, or skipping the body of the open
+    // element being reported. While a body is being skipped, skippedElementName is the name of the element and
+    // skippedElementDepth the amount of elements with that name opened (and not closed yet) since it started.
+    boolean parsingStopped = false;
+    boolean skipElementBodyRequested = false;
+    char[] skippedElementName = null;
+    int skippedElementDepth = 0;
+
+    // Range of the attribute sequence (everything between the element name and the end of the tag) of the
+    // open or standalone element being reported, so that handlers can parse it on demand (see AttributeCursor).
+    // A length of -1 means no element start is being reported. The buffer is kept so that events reported with
+    // other buffers while the element start is being parsed (e.g. auto-close and auto-open events, which report
+    // the names of the affected elements in buffers of their own) cannot be mistaken for the element's.
+    char[] attributeSequenceBuffer = null;
+    int attributeSequenceOffset = 0;
+    int attributeSequenceLen = -1;
+    int attributeSequenceLine = -1;
+    int attributeSequenceCol = -1;
+
+    // Counters of the work done by the parser on its buffers, reported by parse sessions as part of their
+    // ParseMetrics (if a metrics listener has been set). Only updated once per buffer read, never per char.
+    long readChars = 0L;
+    int bufferGrowths = 0;
+    int bufferCompactions = 0;
+
 
     // These attributes instruct the event processor to make sure an element is correctly stacked inside the elements
     // it needs to. For example, a <tr> element will ask for the auto-opening of a <tbody> element as its
@@ -96,6 +125,21 @@ public final class ParseStatus {
     // firing events know that they don't need to stop the execution chain again.
     boolean autoOpenCloseDone;
 
+    // These attributes allow the computation of lines and columns on demand (see getLine(int) and getCol(int)),
+    // which is the only way to obtain them when lazy position tracking is enabled. The (locationLine, locationCol)
+    // pair is the position of locationBuffer[locationOffset], and the index of the line feeds found in the buffer
+    // after that offset is only created if needed, once per buffer. The eventOffset is the buffer offset of the
+    // structure being processed, used by the parser for locating exceptions when positions are not being tracked.
+    char[] locationBuffer;
+    int locationOffset;
+    int locationMaxi;
+    int locationLine;
+    int locationCol;
+    int eventOffset;
+    private int[] lineFeeds = null;
+    private int lineFeedsSize = 0;
+    private boolean lineFeedsComputed = false;
+
 
 
     /**
@@ -112,6 +156,48 @@ public ParseStatus() {
     }
 
 
+    /*
+     * Only meant to be used by parse sessions, which reuse status objects for several documents. Also releases
+     * the reference to the last buffer used, so that the document can be garbage collected.
+     */
+    void reset() {
+        this.offset = 0;
+        this.line = 0;
+        this.col = 0;
+        this.inStructure = false;
+        this.shouldDisableParsing = false;
+        this.parsingDisabled = false;
+        this.parsingDisabledLimitSequence = null;
+        this.avoidStacking = false;
+        this.eventInterests = IInterestAwareMarkupHandler.ALL_EVENTS;
+        this.parsingStopped = false;
+        this.skipElementBodyRequested = false;
+        this.skippedElementName = null;
+        this.skippedElementDepth = 0;
+        this.attributeSequenceBuffer = null;
+        this.attributeSequenceOffset = 0;
+        this.attributeSequenceLen = -1;
+        this.attributeSequenceLine = -1;
+        this.attributeSequenceCol = -1;
+        this.readChars = 0L;
+        this.bufferGrowths = 0;
+        this.bufferCompactions = 0;
+        this.autoOpenParents = null;
+        this.autoOpenLimits = null;
+        this.autoCloseRequired = null;
+        this.autoCloseLimits = null;
+        this.autoOpenCloseDone = false;
+        this.locationBuffer = null;
+        this.locationOffset = 0;
+        this.locationMaxi = 0;
+        this.locationLine = 0;
+        this.locationCol = 0;
+        this.eventOffset = 0;
+        this.lineFeedsSize = 0;
+        this.lineFeedsComputed = false;
+    }
+
+
     /**
      * <p>
      *   Returns the line in the document the parser is currently located at.
@@ -121,6 +207,9 @@ public ParseStatus() {
      *   it is reporting. In order to know the lines and cols an event was found at, use the <tt>(line,col)</tt>
      *   pairs reported with every event handler.
      * </p>
+     * <p>
+     *   This position is not tracked when lazy position tracking is enabled at the parse configuration.
+     * </p>
      *
      * @return the line number.
      */
@@ -138,6 +227,9 @@ public int getLine() {
      *   it is reporting. In order to know the lines and cols an event was found at, use the <tt>(line,col)</tt>
      *   pairs reported with every event handler.
      * </p>
+     * <p>
+     *   This position is not tracked when lazy position tracking is enabled at the parse configuration.
+     * </p>
      *
      * @return the column number.
      */
@@ -147,6 +239,140 @@ public int getCol() {
 
 
 
+    /**
+     * <p>
+     *   Computes the line in the document corresponding to the specified offset of the document buffer.
+     * </p>
+     * <p>
+     *   The offset must refer to the <tt>char[]</tt> buffer the parser is currently reporting events on (i.e. the
+     *   <tt>buffer</tt> argument received by event handlers), so this method should only be called while
+     *   handling an event. It is the way to obtain line numbers when lazy position tracking is enabled (see
+     *   {@link org.attoparser.config.ParseConfiguration#isLazyPositionTracking()}), in which case events are
+     *   reported with <tt>-1</tt> as line and column, but can be used with any configuration.
+     * </p>
+     * <p>
+     *   Note line feeds in the buffer are indexed the first time this method (or {@link #getCol(int)}) is called
+     *   for a specific buffer, and that index is then reused for every call until the parser moves on to the
+     *   next buffer.
+     * </p>
+     *
+     * @param offset the offset in the document buffer.
+     * @return the line number.
+     * @since 2.0.6
+     */
+    public int getLine(final int offset) {
+        return this.locationLine + countLineFeeds(offset);
+    }
+
+
+    /**
+     * <p>
+     *   Computes the column in the document corresponding to the specified offset of the document buffer.
+     * </p>
+     * <p>
+     *   The same considerations explained for {@link #getLine(int)} apply to this method.
+     * </p>
+     *
+     * @param offset the offset in the document buffer.
+     * @return the column number.
+     * @since 2.0.6
+     */
+    public int getCol(final int offset) {
+        final int lineFeedCount = countLineFeeds(offset);
+        if (lineFeedCount == 0) {
+            return this.locationCol + (offset - this.locationOffset);
+        }
+        return offset - this.lineFeeds[lineFeedCount - 1];
+    }
+
+
+
+    /*
+     * Sets the buffer the parser is going to report events on. The char at buffer[offset] will be considered
+     * to be at the current origin position (locationLine, locationCol).
+     */
+    void setLocationBuffer(final char[] buffer, final int offset, final int maxi) {
+        this.locationBuffer = buffer;
+        this.locationOffset = offset;
+        this.locationMaxi = maxi;
+        this.lineFeedsComputed = false;
+    }
+
+
+    void setLocationOrigin(final int line, final int col) {
+        this.locationLine = line;
+        this.locationCol = col;
+    }
+
+
+    /*
+     * Moves the origin position to the one corresponding to the specified offset in the current buffer. Used
+     * by the parser before discarding the already-processed part of a buffer.
+     */
+    void moveLocationOrigin(final int offset) {
+        final int newLine = getLine(offset);
+        final int newCol = getCol(offset);
+        this.locationLine = newLine;
+        this.locationCol = newCol;
+        this.locationOffset = offset;
+        this.lineFeedsComputed = false;
+    }
+
+
+    private int countLineFeeds(final int offset) {
+
+        if (this.locationBuffer == null || offset < this.locationOffset || offset > this.locationMaxi) {
+            throw new IllegalArgumentException(
+                    "Cannot compute position for offset " + offset + ": offset is not part of the current buffer");
+        }
+
+        if (!this.lineFeedsComputed) {
+            computeLineFeeds();
+        }
+
+        // Binary search for the amount of line feeds found before the offset
+        int low = 0;
+        int high = this.lineFeedsSize - 1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (this.lineFeeds[mid] < offset) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+
+    }
+
+
+    private void computeLineFeeds() {
+
+        if (this.lineFeeds == null) {
+            this.lineFeeds = new int[16];
+        }
+
+        final char[] buffer = this.locationBuffer;
+        int size = 0;
+
+        for (int i = this.locationOffset; i < this.locationMaxi; i++) {
+            if (buffer[i] == '\n') {
+                if (size == this.lineFeeds.length) {
+                    final int[] newLineFeeds = new int[this.lineFeeds.length * 2];
+                    System.arraycopy(this.lineFeeds, 0, newLineFeeds, 0, size);
+                    this.lineFeeds = newLineFeeds;
+                }
+                this.lineFeeds[size++] = i;
+            }
+        }
+
+        this.lineFeedsSize = size;
+        this.lineFeedsComputed = true;
+
+    }
+
+
+
     /**
      * <p>
      *   Determines whether parsing is currently disabled or not. This only happens if an event handler calls the
@@ -178,6 +404,113 @@ public void setParsingDisabled(final char[] limitSequence) {
     }
 
 
+    /**
+     * <p>
+     *   Asks the parser to stop parsing the document.
+     * </p>
+     * <p>
+     *   This allows handlers that have already obtained everything they needed from a document (e.g. its
+     *   <tt>&lt;head&gt;</tt>) to avoid the parsing of the rest of it without needing to raise an exception. No
+     *   more events will be reported after the one being handled, except the <em>document end</em> event,
+     *   and no checks will be performed on the part of the document already parsed (e.g. elements not closed
+     *   yet will not be reported as auto-closed or unclosed).
+     * </p>
+     */
+    public void stopParsing() {
+        this.parsingStopped = true;
+    }
+
+
+    /**
+     * <p>
+     *   Indicates whether a handler has asked the parser to stop parsing the document (see {@link #stopParsing()}).
+     * </p>
+     *
+     * @return true if parsing has been stopped, false if not.
+     */
+    public boolean isParsingStopped() {
+        return this.parsingStopped;
+    }
+
+
+    /**
+     * <p>
+     *   Asks the parser to skip the body of the open element being reported, which means that no events will be
+     *   reported for any of its contents. Parsing will resume at its matching close tag, which will be reported
+     *   as usual.
+     * </p>
+     * <p>
+     *   This request will only be honored in <em>start</em> and <em>end</em> events of open (not standalone
+     *   nor auto-open) elements. The body is not tokenized, but only scanned for close tags (taking into account
+     *   any nested elements with the same name, and ignoring anything inside comments and CDATA sections), so
+     *   elements with the same name that are not explicitly closed (as it might happen with some HTML elements
+     *   like <tt>&lt;li&gt;</tt> or <tt>&lt;p&gt;</tt>) could make the body end later than expected.
+     * </p>
+     */
+    public void skipElementBody() {
+        this.skipElementBodyRequested = true;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the offset (in the buffer reported with the event) of the attribute sequence of the open or
+     *   standalone element being currently reported, i.e. all the markup between the element name and the end
+     *   of the tag.
+     * </p>
+     * <p>
+     *   The attribute sequence is available between the <em>start</em> and the <em>end</em> events of
+     *   parsed open and standalone elements (not of auto-open ones), even if attribute events are not being
+     *   reported (see {@link IInterestAwareMarkupHandler}). This allows handlers to parse the attributes of
+     *   only the elements they are interested in, by means of an {@link AttributeCursor}.
+     * </p>
+     *
+     * @return the offset of the attribute sequence.
+     */
+    public int getAttributeSequenceOffset() {
+        return this.attributeSequenceOffset;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the length of the attribute sequence of the open or standalone element being currently
+     *   reported (see {@link #getAttributeSequenceOffset()}).
+     * </p>
+     *
+     * @return the length of the attribute sequence, or -1 if no element is being reported.
+     */
+    public int getAttributeSequenceLen() {
+        return this.attributeSequenceLen;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the line in the document at which the attribute sequence of the open or standalone element
+     *   being currently reported starts (see {@link #getAttributeSequenceOffset()}).
+     * </p>
+     *
+     * @return the line, or -1 if positions are not being tracked.
+     */
+    public int getAttributeSequenceLine() {
+        return this.attributeSequenceLine;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the column in the document at which the attribute sequence of the open or standalone element
+     *   being currently reported starts (see {@link #getAttributeSequenceOffset()}).
+     * </p>
+     *
+     * @return the column, or -1 if positions are not being tracked.
+     */
+    public int getAttributeSequenceCol() {
+        return this.attributeSequenceCol;
+    }
+
+
     /**
      * <p>
      *   Indicates whether the parser has already performed a required auto-open or auto-close operation. This
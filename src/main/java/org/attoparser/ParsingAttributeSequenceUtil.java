@@ -48,250 +48,222 @@ public static void parseAttributeSequence(
             final IAttributeSequenceHandler handler)
             throws ParseException {
 
+        parseAttributeSequence(buffer, offset, len, ParsingLocatorUtil.createLocator(line, col), handler);
+
+    }
+
+
+
+
+    /*
+     * Attribute sequences are tokenized in a single pass: each char is examined only once, by the loop of the
+     * step (whitespace, name, operator or value) it belongs to, and positions are computed from the current line and
+     * the offset at which it starts (so only line feeds need special treatment). After tokenizing, the locator
+     * (if positions are being tracked) is moved to the end of the sequence, so callers do not need to scan it again.
+     */
+    static void parseAttributeSequence(
+            final char[] buffer,
+            final int offset, final int len,
+            final int[] locator,
+            final IAttributeSequenceHandler handler)
+            throws ParseException {
+
         // Any string will be recognized as an "attribute sequence", so this will always either return a not-null result
         // or raise an exception.
 
         final int maxi = offset + len;
 
-        final int[] locator = new int[] {line, col};
+        final boolean tracked = (locator != null);
+
+        int line = ParsingLocatorUtil.getLine(locator);
+        int lineStart = offset;
+        int lineStartCol = ParsingLocatorUtil.getCol(locator);
 
         int i = offset;
-        int current = i;
+        char c;
 
-        int currentArtifactLine;
-        int currentArtifactCol;
-        
         while (i < maxi) {
 
             /*
              * STEP ONE: Look for whitespaces between attributes
              */
 
-            currentArtifactLine = locator[0];
-            currentArtifactCol = locator[1];
-            
-            final int wsEnd = 
-                    ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, i, maxi, locator);
-            
-            if (wsEnd == -1) {
-                // Everything is whitespace until the end of the tag
-                
-                handler.handleInnerWhiteSpace(buffer, current, (maxi - current), currentArtifactLine, currentArtifactCol);
-
-                i = maxi;
-                continue;
-                
+            final int wsOffset = i;
+            final int wsLine = line;
+            final int wsCol = column(tracked, i, lineStart, lineStartCol);
+
+            while (i < maxi) {
+                c = buffer[i];
+                if (!isWhitespace(c)) {
+                    break;
+                }
+                if (tracked && c == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                    lineStartCol = 1;
+                }
+                i++;
             }
-            
-            if (wsEnd > current) {
-                // We avoid empty whitespace fragments
-                final int wsOffset = current;
-                final int wsLen = wsEnd - current;
 
-                handler.handleInnerWhiteSpace(buffer, wsOffset, wsLen, currentArtifactLine, currentArtifactCol);
+            if (i > wsOffset) {
+                // We avoid empty whitespace fragments
+                handler.handleInnerWhiteSpace(buffer, wsOffset, (i - wsOffset), wsLine, wsCol);
+            }
 
-                i = wsEnd;
-                current = i;
+            if (i == maxi) {
+                // Everything was whitespace until the end of the tag
+                break;
             }
-            
 
-            
+
+
             /*
              * STEP TWO: Detect the attribute name
              */
 
-            
-            currentArtifactLine = locator[0];
-            currentArtifactCol = locator[1];
-            
-            final int attributeNameEnd = 
-                    ParsingMarkupUtil.findNextOperatorCharWildcard(buffer, i, maxi, locator);
-            
-            if (attributeNameEnd == -1) {
-                // This is a no-value and no-equals-sign attribute, equivalent to value = ""
-                
-                handler.handleAttribute(
-                        buffer,                                                               // name
-                        current, (maxi - current),                                            // name
-                        currentArtifactLine, currentArtifactCol,                              // name
-                        0, 0,                                                                 // operator
-                        locator[0], locator[1],                                               // operator
-                        0, 0, 0, 0,                                                           // value
-                        locator[0], locator[1]);                                              // value
-
-                i = maxi;
-                continue;
-                
+            final int attributeNameOffset = i;
+            final int attributeNameLine = line;
+            final int attributeNameCol = column(tracked, i, lineStart, lineStartCol);
+
+            // Names end at an operator char, so they can never contain line feeds
+            while (i < maxi) {
+                c = buffer[i];
+                if (c == '=' || isWhitespace(c)) {
+                    break;
+                }
+                i++;
             }
-            
-            if (attributeNameEnd <= current) {
+
+            if (i == attributeNameOffset) {
                 // This attribute name starts by an equals sign, which is forbidden
                 throw new ParseException(
                         "Bad attribute name in sequence \"" + new String(buffer, offset, len) + "\": attribute names " +
-                		"cannot start with an equals sign", currentArtifactLine, currentArtifactCol);  
+                        "cannot start with an equals sign", attributeNameLine, attributeNameCol);
             }
 
-            
-            final int attributeNameOffset = current;
-            final int attributeNameLen = attributeNameEnd - current;
-            final int attributeNameLine = currentArtifactLine;
-            final int attributeNameCol = currentArtifactCol;
-            i = attributeNameEnd;
-            current = i;
-            
+            final int attributeNameLen = i - attributeNameOffset;
 
-            
-            /*
-             * STEP THREE: Detect the operator
-             */
+            if (i == maxi) {
+                // This is a no-value and no-equals-sign attribute, equivalent to value = ""
 
-            
-            currentArtifactLine = locator[0];
-            currentArtifactCol = locator[1];
-
-            final int operatorEnd = 
-                    ParsingMarkupUtil.findNextNonOperatorCharWildcard(buffer, i, maxi, locator);
-            
-            if (operatorEnd == -1) {
-                // This could be: 
-                //    1. A no-value and no-equals-sign attribute
-                //    2. A no-value WITH equals sign attribute
-                
-                boolean equalsPresent = false;
-                for (int j = i; j < maxi; j++) {
-                    if (buffer[j] == '=') {
-                        equalsPresent = true;
-                        break;
-                    }
-                }
-                
-                if (equalsPresent) {
-                    // It is a no value with equals, so we will consider everything
-                    // to be an operator
-
-                    handler.handleAttribute(
-                            buffer,                                                                // name
-                            attributeNameOffset, attributeNameLen,                                 // name
-                            attributeNameLine, attributeNameCol,                                   // name
-                            current, (maxi - current),                                             // operator
-                            currentArtifactLine, currentArtifactCol,                               // operator
-                            0, 0, 0, 0,                                                            // value
-                            locator[0], locator[1]);                                               // value
-
-                } else {
-                    // There is no "=", so we will first output the attribute with no
-                    // operator and then a whitespace
-
-                    handler.handleAttribute(
-                            buffer,                                                                // name
-                            attributeNameOffset, attributeNameLen,                                 // name
-                            attributeNameLine, attributeNameCol,                                   // name
-                            0, 0,                                                                  // operator
-                            currentArtifactLine, currentArtifactCol,                               // operator
-                            0, 0, 0, 0,                                                            // value
-                            currentArtifactLine, currentArtifactCol);                              // value
-
-                    handler.handleInnerWhiteSpace(
-                            buffer,
-                            current, (maxi - current),
-                            currentArtifactLine, currentArtifactCol);
+                final int endCol = column(tracked, i, lineStart, lineStartCol);
+
+                handler.handleAttribute(
+                        buffer,                                                                // name
+                        attributeNameOffset, attributeNameLen,                                 // name
+                        attributeNameLine, attributeNameCol,                                   // name
+                        0, 0,                                                                  // operator
+                        line, endCol,                                                          // operator
+                        0, 0, 0, 0,                                                            // value
+                        line, endCol);                                                         // value
+
+                break;
 
-                }
-                
-                i = maxi;
-                continue;
-                
-                // end: (operatorEnd == -1)
             }
 
-            
+
+
+            /*
+             * STEP THREE: Detect the operator (any sequence of whitespace and equals signs)
+             */
+
+            final int operatorOffset = i;
+            final int operatorLine = line;
+            final int operatorCol = column(tracked, i, lineStart, lineStartCol);
+
             boolean equalsPresent = false;
-            for (int j = current; j < operatorEnd; j++) {
-                if (buffer[j] == '=') {
+            while (i < maxi) {
+                c = buffer[i];
+                if (c == '=') {
                     equalsPresent = true;
+                } else if (!isWhitespace(c)) {
                     break;
+                } else if (tracked && c == '\n') {
+                    line++;
+                    lineStart = i + 1;
+                    lineStartCol = 1;
                 }
+                i++;
             }
-            
+
             if (!equalsPresent) {
-                // It is not an operator, but a whitespace between this and the next attribute,
-                // so we will first output the attribute with no operator and then a whitespace
+                // It is not an operator, but a whitespace between this and the next attribute (or the end of
+                // the tag), so we will first output the attribute with no operator and then a whitespace
 
                 handler.handleAttribute(
                         buffer,                                                                // name
                         attributeNameOffset, attributeNameLen,                                 // name
                         attributeNameLine, attributeNameCol,                                   // name
                         0, 0,                                                                  // operator
-                        currentArtifactLine, currentArtifactCol,                               // operator
+                        operatorLine, operatorCol,                                             // operator
                         0, 0, 0, 0,                                                            // value
-                        currentArtifactLine, currentArtifactCol);                              // value
+                        operatorLine, operatorCol);                                            // value
 
                 handler.handleInnerWhiteSpace(
                         buffer,
-                        current, (operatorEnd - current),
-                        currentArtifactLine, currentArtifactCol);
+                        operatorOffset, (i - operatorOffset),
+                        operatorLine, operatorCol);
 
-                i = operatorEnd;
-                current = i;
                 continue;
-                
+
+            }
+
+            final int operatorLen = i - operatorOffset;
+
+            if (i == maxi) {
+                // It is a no value with equals, so we will consider everything to be an operator
+
+                handler.handleAttribute(
+                        buffer,                                                                // name
+                        attributeNameOffset, attributeNameLen,                                 // name
+                        attributeNameLine, attributeNameCol,                                   // name
+                        operatorOffset, operatorLen,                                           // operator
+                        operatorLine, operatorCol,                                             // operator
+                        0, 0, 0, 0,                                                            // value
+                        line, column(tracked, i, lineStart, lineStartCol));                    // value
+
+                break;
+
             }
 
-            
-            final int operatorOffset = current;
-            final int operatorLen = operatorEnd - current;
-            final int operatorLine = currentArtifactLine;
-            final int operatorCol = currentArtifactCol;
-            i = operatorEnd;
-            current = i;
-            
 
-            
+
             /*
              * STEP FOUR: Detect the value
              */
 
-            
-            currentArtifactLine = locator[0];
-            currentArtifactCol = locator[1];
-
-            final boolean attributeEndsWithQuotes = (i < maxi && (buffer[current] == '"' || buffer[current] == '\''));
-            final int valueEnd =
-                (attributeEndsWithQuotes?
-                        ParsingMarkupUtil.findNextAnyCharAvoidQuotesWildcard(buffer, i, maxi, locator) :
-                        ParsingMarkupUtil.findNextWhitespaceCharWildcard(buffer, i, maxi, false, locator));
-            
-            if (valueEnd == -1) {
-                // This value ends the attribute
-                
-                int valueContentOffset = current;
-                int valueContentLen = (maxi - current);
-                
-                if (isValueSurroundedByCommas(buffer, current, (maxi - current))) {
-                    valueContentOffset = valueContentOffset + 1;
-                    valueContentLen = valueContentLen - 2;
+            final int valueOuterOffset = i;
+            final int valueLine = line;
+            final int valueCol = column(tracked, i, lineStart, lineStartCol);
+
+            c = buffer[i];
+            if (c == '"' || c == '\'') {
+                // Quoted values end right after their closing quote (or at the end of the tag if they are not closed)
+                final char quote = c;
+                i++;
+                while (i < maxi) {
+                    c = buffer[i];
+                    if (tracked && c == '\n') {
+                        line++;
+                        lineStart = i + 1;
+                        lineStartCol = 1;
+                    }
+                    i++;
+                    if (c == quote) {
+                        break;
+                    }
+                }
+            } else {
+                // Unquoted values end at the next whitespace, so they can never contain line feeds
+                while (i < maxi && !isWhitespace(buffer[i])) {
+                    i++;
                 }
-
-                handler.handleAttribute(
-                        buffer,                                                               // name
-                        attributeNameOffset, attributeNameLen,                                // name
-                        attributeNameLine, attributeNameCol,                                  // name
-                        operatorOffset, operatorLen,                                          // operator
-                        operatorLine, operatorCol,                                            // operator
-                        valueContentOffset, valueContentLen, current, (maxi - current),       // value
-                        currentArtifactLine, currentArtifactCol);                             // value
-
-                i = maxi;
-                continue;
-                
             }
 
-            
-            final int valueOuterOffset = current;
-            final int valueOuterLen = valueEnd - current;
+            final int valueOuterLen = i - valueOuterOffset;
             int valueContentOffset = valueOuterOffset;
             int valueContentLen = valueOuterLen;
-            
+
             if (isValueSurroundedByCommas(buffer, valueOuterOffset, valueOuterLen)) {
                 valueContentOffset = valueOuterOffset + 1;
                 valueContentLen = valueOuterLen - 2;
@@ -304,11 +276,13 @@ public static void parseAttributeSequence(
                     operatorOffset, operatorLen,                                          // operator
                     operatorLine, operatorCol,                                            // operator
                     valueContentOffset, valueContentLen, valueOuterOffset, valueOuterLen, // value
-                    currentArtifactLine, currentArtifactCol);                             // value
+                    valueLine, valueCol);                                                 // value
 
-            i = valueEnd;
-            current = i;
-            
+        }
+
+        if (tracked) {
+            locator[0] = line;
+            locator[1] = column(true, maxi, lineStart, lineStartCol);
         }
 
     }
@@ -321,4 +295,16 @@ private static boolean isValueSurroundedByCommas(final char[] buffer, final int
     }
 
 
+    private static boolean isWhitespace(final char c) {
+        return (c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B'
+                || c == '\u001C' || c == '\u001D' || c == '\u001E' || c == '\u001F'
+                || (c > '\u007F' && Character.isWhitespace(c)));
+    }
+
+
+    private static int column(final boolean tracked, final int i, final int lineStart, final int lineStartCol) {
+        return (tracked? lineStartCol + (i - lineStart) : -1);
+    }
+
+
 }
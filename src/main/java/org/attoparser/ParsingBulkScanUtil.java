@@ -0,0 +1,275 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+
+
+/*
+ * Class containing bulk (word-at-a-time) equivalents of the structure-delimiting scan methods in
+ * ParsingMarkupUtil. These are used instead of those when bulk scanning is enabled at the
+ * ParseConfiguration.
+ *
+ * Four chars are packed into a long and the presence of any of the delimiters we are interested in
+ * ('<', '>', quotes or '\n') is tested on the whole word at once by means of SWAR ("SIMD within a register")
+ * arithmetic. Words containing none of them (the most common case in text-heavy markup) are skipped without
+ * looking at their chars one by one, nor updating the locator for each of them: as these words contain no
+ * line feeds, the column can be computed afterwards from the index of the last line feed found, exactly
+ * as the scalar methods do. Words that do contain a delimiter are processed char by char, so that results
+ * (including line and column) are always exactly the same as those of the ParsingMarkupUtil methods.
+ *
+ * As in ParsingMarkupUtil, a null locator means positions are not being tracked.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class ParsingBulkScanUtil {
+
+
+    // 16-bit lanes, one per char in the word
+    private static final long LANE_ONES = 0x0001000100010001L;
+    private static final long LANE_HIGH_BITS = 0x8000800080008000L;
+
+    private static final long LT_WORD = '<' * LANE_ONES;
+    private static final long GT_WORD = '>' * LANE_ONES;
+    private static final long QUOTES_WORD = '"' * LANE_ONES;
+    private static final long APOS_WORD = '\'' * LANE_ONES;
+    private static final long LF_WORD = '\n' * LANE_ONES;
+
+    private static final int WORD_LEN = 4;
+
+
+
+    private ParsingBulkScanUtil() {
+        super();
+    }
+
+
+
+
+    static int findNextStructureEndAvoidQuotes(
+            final char[] text, final int offset, final int maxi,
+            final int[] locator) {
+
+        boolean inQuotes = false;
+        boolean inApos = false;
+
+        char c;
+
+        int colIndex = offset;
+
+        final int wordMaxi = maxi - (WORD_LEN - 1);
+        int i = offset;
+
+        while (i < maxi) {
+
+            long word;
+            while (i < wordMaxi &&
+                    !containsChar((word = readWord(text, i)), GT_WORD) && !containsChar(word, LF_WORD) &&
+                    !containsChar(word, QUOTES_WORD) && !containsChar(word, APOS_WORD)) {
+                i += WORD_LEN;
+            }
+
+            final int blockMaxi = Math.min(i + WORD_LEN, maxi);
+            while (i < blockMaxi) {
+
+                c = text[i];
+
+                if (c == '\n') {
+                    if (locator != null) {
+                        colIndex = i;
+                        locator[1] = 0;
+                        locator[0]++;
+                    }
+                } else if (c == '"' && !inApos) {
+                    inQuotes = !inQuotes;
+                } else if (c == '\'' && !inQuotes) {
+                    inApos = !inApos;
+                } else if (c == '>' && !inQuotes && !inApos) {
+                    if (locator != null) {
+                        locator[1] += (i - colIndex);
+                    }
+                    return i;
+                }
+
+                i++;
+
+            }
+
+        }
+
+        if (locator != null) {
+            locator[1] += (maxi - colIndex);
+        }
+        return -1;
+
+    }
+
+
+    static int findNextStructureEndDontAvoidQuotes(
+            final char[] text, final int offset, final int maxi,
+            final int[] locator) {
+        return findNextChar(text, offset, maxi, locator, '>', GT_WORD);
+    }
+
+
+    static int findNextStructureStart(
+            final char[] text, final int offset, final int maxi,
+            final int[] locator) {
+        return findNextChar(text, offset, maxi, locator, '<', LT_WORD);
+    }
+
+
+    static int findCharacterSequence(
+            final char[] text, final int offset, final int maxi,
+            final int[] locator, final char[] charSeq) {
+
+        if (charSeq == null || charSeq.length == 0) {
+            return offset;
+        }
+
+        final char c1 = charSeq[0];
+        final long c1Word = c1 * LANE_ONES;
+        char c;
+
+        final int wordMaxi = maxi - (WORD_LEN - 1);
+        int i = offset;
+
+        while (i < maxi) {
+
+            /*
+             * Unlike the structure scan methods, this one counts every char in the locator (it has to, as
+             * its result is later used for reporting Text events). So skipped words add to the column.
+             */
+            long word;
+            while (i < wordMaxi &&
+                    !containsChar((word = readWord(text, i)), c1Word) && !containsChar(word, LF_WORD)) {
+                if (locator != null) {
+                    locator[1] += WORD_LEN;
+                }
+                i += WORD_LEN;
+            }
+
+            final int blockMaxi = Math.min(i + WORD_LEN, maxi);
+            while (i < blockMaxi) {
+
+                c = text[i];
+
+                if (c == c1) {
+                    // First char matches, let's see the others
+
+                    int j = 1;
+                    for ( ; j < charSeq.length && (i + j) < maxi ; j++) {
+                        if (text[i + j] != charSeq[j]) {
+                            break;
+                        }
+                    }
+                    if (j >= charSeq.length) {
+                        return i;
+                    }
+
+                }
+
+                ParsingLocatorUtil.countChar(locator, c);
+
+                i++;
+
+            }
+
+        }
+
+        return -1;
+
+    }
+
+
+
+
+    private static int findNextChar(
+            final char[] text, final int offset, final int maxi,
+            final int[] locator, final char target, final long targetWord) {
+
+        char c;
+
+        int colIndex = offset;
+
+        final int wordMaxi = maxi - (WORD_LEN - 1);
+        int i = offset;
+
+        while (i < maxi) {
+
+            long word;
+            while (i < wordMaxi && !containsChar((word = readWord(text, i)), targetWord) && !containsChar(word, LF_WORD)) {
+                i += WORD_LEN;
+            }
+
+            final int blockMaxi = Math.min(i + WORD_LEN, maxi);
+            while (i < blockMaxi) {
+
+                c = text[i];
+
+                if (c == '\n') {
+                    if (locator != null) {
+                        colIndex = i;
+                        locator[1] = 0;
+                        locator[0]++;
+                    }
+                } else if (c == target) {
+                    if (locator != null) {
+                        locator[1] += (i - colIndex);
+                    }
+                    return i;
+                }
+
+                i++;
+
+            }
+
+        }
+
+        if (locator != null) {
+            locator[1] += (maxi - colIndex);
+        }
+        return -1;
+
+    }
+
+
+    private static long readWord(final char[] text, final int i) {
+        return ((long) text[i]) |
+                ((long) text[i + 1] << 16) |
+                ((long) text[i + 2] << 32) |
+                ((long) text[i + 3] << 48);
+    }
+
+
+    /*
+     * A lane in (word ^ charWord) will be zero if and only if that lane contained the char. The classic
+     * "has zero" SWAR test then tells us whether any of the four lanes is zero: subtracting one from each lane
+     * will only set a lane's high bit (not already set in the original lane) if that lane was zero. Borrows
+     * can propagate to upper lanes, but only from a lane that actually was zero, so the test as a whole is exact.
+     */
+    private static boolean containsChar(final long word, final long charWord) {
+        final long x = word ^ charWord;
+        return ((x - LANE_ONES) & ~x & LANE_HIGH_BITS) != 0L;
+    }
+
+
+}
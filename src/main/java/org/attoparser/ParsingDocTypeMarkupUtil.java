@@ -72,7 +72,7 @@ public static void parseDocType(
 
         final int maxi = contentOffset + contentLen;
         
-        final int[] locator = new int[] {line, col + 2};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 2);
         
         /*
          * Extract the keyword 
@@ -90,7 +90,7 @@ public static void parseDocType(
         doParseDetailedDocTypeWithInternalSubset(
                 buffer, contentOffset, (internalSubsetStart - contentOffset), offset, len, line, col,
                 internalSubsetStart + 1, (internalSubsetLastChar - internalSubsetStart) - 1,
-                locator[0], locator[1],
+                ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),
                 handler);
         
         
@@ -113,7 +113,10 @@ private static void doParseDetailedDocTypeWithInternalSubset(
 
         final int maxi = contentOffset + contentLen;
         
-        final int[] locator = new int[] {line, col + 2};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 2);
+
+        final int keywordLine = ParsingLocatorUtil.getLine(locator);
+        final int keywordCol = ParsingLocatorUtil.getCol(locator);
 
         int i = contentOffset;
         
@@ -129,21 +132,21 @@ private static void doParseDetailedDocTypeWithInternalSubset(
             
             handler.handleDocType(
                     buffer,
-                    i, maxi - i,                                                // keyword 
-                    line, col + 2,                                              // keyword
-                    0, 0,                                                       // element name 
-                    locator[0], locator[1],  // element name
-                    0, 0,                                                       // type
-                    locator[0], locator[1],  // type
-                    0, 0,                                                       // publicId
-                    locator[0], locator[1],  // publicId
-                    0, 0,                                                       // systemId
-                    locator[0], locator[1],  // systemId
-                    internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                    Math.max(locator[0], internalSubsetLine), // internalSubset
-                    Math.max(locator[1], internalSubsetCol),   // internalSubset
-                    outerOffset, outerLen,                                      // outer 
-                    line, col);                                                 // outer
+                    i, maxi - i,                                                              // keyword 
+                    keywordLine, keywordCol,                                                  // keyword
+                    0, 0,                                                                     // element name 
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // element name
+                    0, 0,                                                                     // type
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // type
+                    0, 0,                                                                     // publicId
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // publicId
+                    0, 0,                                                                     // systemId
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // systemId
+                    internalSubsetOffset, internalSubsetLen,                                  // internalSubset
+                    Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),        // internalSubset
+                    Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),          // internalSubset
+                    outerOffset, outerLen,                                                    // outer 
+                    line, col);                                                               // outer
             return;
 
         }
@@ -152,8 +155,6 @@ private static void doParseDetailedDocTypeWithInternalSubset(
         
         final int keywordOffset = i;
         final int keywordLen = keywordEnd - keywordOffset;
-        final int keywordLine = line;
-        final int keywordCol = col + 2;
         
         i = keywordEnd;
 
@@ -162,8 +163,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Fast-forward to the element name
          */
         
-        int currentDocTypeLine = locator[0];
-        int currentDocTypeCol = locator[1];
+        int currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        int currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int elementNameStart = 
                 ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, i, maxi, locator);
@@ -201,8 +202,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Search the element name end
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int elementNameEnd = 
                 ParsingMarkupUtil.findNextWhitespaceCharWildcard(buffer, i, maxi, false, locator);
@@ -212,21 +213,21 @@ private static void doParseDetailedDocTypeWithInternalSubset(
             
             handler.handleDocType(
                     buffer,
-                    keywordOffset, keywordLen,                                  // keyword 
-                    keywordLine, keywordCol,                                    // keyword
-                    i, maxi - i,                                                // element name 
-                    currentDocTypeLine, currentDocTypeCol,                      // element name
-                    0, 0,                                                       // type
-                    locator[0], locator[1],  // type
-                    0, 0,                                                       // publicId
-                    locator[0], locator[1],  // publicId
-                    0, 0,                                                       // systemId
-                    locator[0], locator[1],  // systemId
-                    internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                    Math.max(locator[0], internalSubsetLine), // internalSubset
-                    Math.max(locator[1], internalSubsetCol),   // internalSubset
-                    outerOffset, outerLen,                                      // outer 
-                    line, col);                                                 // outer
+                    keywordOffset, keywordLen,                                                // keyword 
+                    keywordLine, keywordCol,                                                  // keyword
+                    i, maxi - i,                                                              // element name 
+                    currentDocTypeLine, currentDocTypeCol,                                    // element name
+                    0, 0,                                                                     // type
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // type
+                    0, 0,                                                                     // publicId
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // publicId
+                    0, 0,                                                                     // systemId
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // systemId
+                    internalSubsetOffset, internalSubsetLen,                                  // internalSubset
+                    Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),        // internalSubset
+                    Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),          // internalSubset
+                    outerOffset, outerLen,                                                    // outer 
+                    line, col);                                                               // outer
             return;
 
         }
@@ -245,8 +246,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Fast-forward to the type
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int typeStart = 
                 ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, i, maxi, locator);
@@ -256,21 +257,21 @@ private static void doParseDetailedDocTypeWithInternalSubset(
             
             handler.handleDocType(
                     buffer,
-                    keywordOffset, keywordLen,                                  // keyword 
-                    keywordLine, keywordCol,                                    // keyword
-                    elementNameOffset, elementNameLen,                          // element name 
-                    elementNameLine, elementNameCol,                            // element name
-                    0, 0,                                                       // type
-                    locator[0], locator[1],  // type
-                    0, 0,                                                       // publicId
-                    locator[0], locator[1],  // publicId
-                    0, 0,                                                       // systemId
-                    locator[0], locator[1],  // systemId
-                    internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                    Math.max(locator[0], internalSubsetLine), // internalSubset
-                    Math.max(locator[1], internalSubsetCol),   // internalSubset
-                    outerOffset, outerLen,                                      // outer 
-                    line, col);                                                 // outer
+                    keywordOffset, keywordLen,                                                // keyword 
+                    keywordLine, keywordCol,                                                  // keyword
+                    elementNameOffset, elementNameLen,                                        // element name 
+                    elementNameLine, elementNameCol,                                          // element name
+                    0, 0,                                                                     // type
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // type
+                    0, 0,                                                                     // publicId
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // publicId
+                    0, 0,                                                                     // systemId
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // systemId
+                    internalSubsetOffset, internalSubsetLen,                                  // internalSubset
+                    Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),        // internalSubset
+                    Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),          // internalSubset
+                    outerOffset, outerLen,                                                    // outer 
+                    line, col);                                                               // outer
             return;
 
         }
@@ -284,8 +285,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Search the type end
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int typeEnd = 
                 ParsingMarkupUtil.findNextWhitespaceCharWildcard(buffer, i, maxi, true, locator);
@@ -337,8 +338,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Fast-forward to the spec1 (publicId or systemId, depending on type)
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int spec1Start = 
                 ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, i, maxi, locator);
@@ -364,8 +365,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Search the spec1 end
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int spec1End = 
                 ParsingMarkupUtil.findNextWhitespaceCharWildcard(buffer, i, maxi, true, locator);
@@ -389,42 +390,42 @@ private static void doParseDetailedDocTypeWithInternalSubset(
                 
                 handler.handleDocType(
                         buffer,
-                        keywordOffset, keywordLen,                                  // keyword 
-                        keywordLine, keywordCol,                                    // keyword
-                        elementNameOffset, elementNameLen,                          // element name 
-                        elementNameLine, elementNameCol,                            // element name
-                        typeOffset, typeLen,                                        // type
-                        typeLine, typeCol,                                          // type
-                        i + 1, maxi - (i + 2),                                      // publicId
-                        currentDocTypeLine, currentDocTypeCol,                      // publicId
-                        0, 0,                                                       // systemId 
-                        locator[0], locator[1],  // systemId
-                        internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                        Math.max(locator[0], internalSubsetLine), // internalSubset
-                        Math.max(locator[1], internalSubsetCol),   // internalSubset
-                        outerOffset, outerLen,                                      // outer 
-                        line, col);                                                 // outer
+                        keywordOffset, keywordLen,                                                // keyword 
+                        keywordLine, keywordCol,                                                  // keyword
+                        elementNameOffset, elementNameLen,                                        // element name 
+                        elementNameLine, elementNameCol,                                          // element name
+                        typeOffset, typeLen,                                                      // type
+                        typeLine, typeCol,                                                        // type
+                        i + 1, maxi - (i + 2),                                                    // publicId
+                        currentDocTypeLine, currentDocTypeCol,                                    // publicId
+                        0, 0,                                                                     // systemId 
+                        ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // systemId
+                        internalSubsetOffset, internalSubsetLen,                                  // internalSubset
+                        Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),        // internalSubset
+                        Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),          // internalSubset
+                        outerOffset, outerLen,                                                    // outer 
+                        line, col);                                                               // outer
                 return;
 
             }
             
             handler.handleDocType(
                     buffer,
-                    keywordOffset, keywordLen,                                  // keyword 
-                    keywordLine, keywordCol,                                    // keyword
-                    elementNameOffset, elementNameLen,                          // element name 
-                    elementNameLine, elementNameCol,                            // element name
-                    typeOffset, typeLen,                                        // type
-                    typeLine, typeCol,                                          // type
-                    0, 0,                                                       // publicId 
-                    currentDocTypeLine, currentDocTypeCol,                      // publicId
-                    i + 1, maxi - (i + 2),                                      // systemId
-                    currentDocTypeLine, currentDocTypeCol,                      // systemId
-                    internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                    Math.max(locator[0], internalSubsetLine), // internalSubset
-                    Math.max(locator[1], internalSubsetCol),   // internalSubset
-                    outerOffset, outerLen,                                      // outer 
-                    line, col);                                                 // outer
+                    keywordOffset, keywordLen,                                          // keyword 
+                    keywordLine, keywordCol,                                            // keyword
+                    elementNameOffset, elementNameLen,                                  // element name 
+                    elementNameLine, elementNameCol,                                    // element name
+                    typeOffset, typeLen,                                                // type
+                    typeLine, typeCol,                                                  // type
+                    0, 0,                                                               // publicId 
+                    currentDocTypeLine, currentDocTypeCol,                              // publicId
+                    i + 1, maxi - (i + 2),                                              // systemId
+                    currentDocTypeLine, currentDocTypeCol,                              // systemId
+                    internalSubsetOffset, internalSubsetLen,                            // internalSubset
+                    Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),  // internalSubset
+                    Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),    // internalSubset
+                    outerOffset, outerLen,                                              // outer 
+                    line, col);                                                         // outer
             return;
 
         }
@@ -455,8 +456,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Fast-forward to the spec2 (systemId, only if type is PUBLIC)
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int spec2Start = 
                 ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, i, maxi, locator);
@@ -469,42 +470,42 @@ private static void doParseDetailedDocTypeWithInternalSubset(
                 
                 handler.handleDocType(
                         buffer,
-                        keywordOffset, keywordLen,                                  // keyword 
-                        keywordLine, keywordCol,                                    // keyword
-                        elementNameOffset, elementNameLen,                          // element name 
-                        elementNameLine, elementNameCol,                            // element name
-                        typeOffset, typeLen,                                        // type
-                        typeLine, typeCol,                                          // type
-                        spec1Offset + 1, spec1Len - 2,                              // publicId 
-                        spec1Line, spec1Col,                                        // publicId
-                        0, 0,                                                       // systemId
-                        locator[0], locator[1],  // systemId
-                        internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                        Math.max(locator[0], internalSubsetLine), // internalSubset
-                        Math.max(locator[1], internalSubsetCol),   // internalSubset
-                        outerOffset, outerLen,                                      // outer 
-                        line, col);                                                 // outer
+                        keywordOffset, keywordLen,                                                // keyword 
+                        keywordLine, keywordCol,                                                  // keyword
+                        elementNameOffset, elementNameLen,                                        // element name 
+                        elementNameLine, elementNameCol,                                          // element name
+                        typeOffset, typeLen,                                                      // type
+                        typeLine, typeCol,                                                        // type
+                        spec1Offset + 1, spec1Len - 2,                                            // publicId 
+                        spec1Line, spec1Col,                                                      // publicId
+                        0, 0,                                                                     // systemId
+                        ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // systemId
+                        internalSubsetOffset, internalSubsetLen,                                  // internalSubset
+                        Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),        // internalSubset
+                        Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),          // internalSubset
+                        outerOffset, outerLen,                                                    // outer 
+                        line, col);                                                               // outer
                 return;
 
             }
             
             handler.handleDocType(
                     buffer,
-                    keywordOffset, keywordLen,                                  // keyword 
-                    keywordLine, keywordCol,                                    // keyword
-                    elementNameOffset, elementNameLen,                          // element name 
-                    elementNameLine, elementNameCol,                            // element name
-                    typeOffset, typeLen,                                        // type
-                    typeLine, typeCol,                                          // type
-                    0, 0,                                                       // publicId 
-                    spec1Line, spec1Col,                                        // publicId
-                    spec1Offset + 1, spec1Len - 2,                              // systemId
-                    spec1Line, spec1Col,                                        // systemId
-                    internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                    Math.max(locator[0], internalSubsetLine), // internalSubset
-                    Math.max(locator[1], internalSubsetCol),   // internalSubset
-                    outerOffset, outerLen,                                      // outer 
-                    line, col);                                                 // outer
+                    keywordOffset, keywordLen,                                          // keyword 
+                    keywordLine, keywordCol,                                            // keyword
+                    elementNameOffset, elementNameLen,                                  // element name 
+                    elementNameLine, elementNameCol,                                    // element name
+                    typeOffset, typeLen,                                                // type
+                    typeLine, typeCol,                                                  // type
+                    0, 0,                                                               // publicId 
+                    spec1Line, spec1Col,                                                // publicId
+                    spec1Offset + 1, spec1Len - 2,                                      // systemId
+                    spec1Line, spec1Col,                                                // systemId
+                    internalSubsetOffset, internalSubsetLen,                            // internalSubset
+                    Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),  // internalSubset
+                    Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),    // internalSubset
+                    outerOffset, outerLen,                                              // outer 
+                    line, col);                                                         // outer
             return;
 
         }
@@ -518,8 +519,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Search the spec2 end
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
         
         final int spec2End = 
                 ParsingMarkupUtil.findNextWhitespaceCharWildcard(buffer, i, maxi, true, locator);
@@ -553,21 +554,21 @@ private static void doParseDetailedDocTypeWithInternalSubset(
             
             handler.handleDocType(
                     buffer,
-                    keywordOffset, keywordLen,                                  // keyword 
-                    keywordLine, keywordCol,                                    // keyword
-                    elementNameOffset, elementNameLen,                          // element name 
-                    elementNameLine, elementNameCol,                            // element name
-                    typeOffset, typeLen,                                        // type
-                    typeLine, typeCol,                                          // type
-                    spec1Offset + 1, spec1Len - 2,                              // publicId 
-                    spec1Line, spec1Col,                                        // publicId
-                    i + 1, maxi - (i + 2),                                      // systemId
-                    currentDocTypeLine, currentDocTypeCol,                      // systemId
-                    internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                    Math.max(locator[0], internalSubsetLine), // internalSubset
-                    Math.max(locator[1], internalSubsetCol),   // internalSubset
-                    outerOffset, outerLen,                                      // outer 
-                    line, col);                                                 // outer
+                    keywordOffset, keywordLen,                                          // keyword 
+                    keywordLine, keywordCol,                                            // keyword
+                    elementNameOffset, elementNameLen,                                  // element name 
+                    elementNameLine, elementNameCol,                                    // element name
+                    typeOffset, typeLen,                                                // type
+                    typeLine, typeCol,                                                  // type
+                    spec1Offset + 1, spec1Len - 2,                                      // publicId 
+                    spec1Line, spec1Col,                                                // publicId
+                    i + 1, maxi - (i + 2),                                              // systemId
+                    currentDocTypeLine, currentDocTypeCol,                              // systemId
+                    internalSubsetOffset, internalSubsetLen,                            // internalSubset
+                    Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),  // internalSubset
+                    Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),    // internalSubset
+                    outerOffset, outerLen,                                              // outer 
+                    line, col);                                                         // outer
             return;
 
         }
@@ -610,8 +611,8 @@ private static void doParseDetailedDocTypeWithInternalSubset(
          * Fast-forward to the end of the DOCTYPE clause
          */
         
-        currentDocTypeLine = locator[0];
-        currentDocTypeCol = locator[1];
+        currentDocTypeLine = ParsingLocatorUtil.getLine(locator);
+        currentDocTypeCol = ParsingLocatorUtil.getCol(locator);
 
         final int clauseEndStart =
                 ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, i, maxi, locator);
@@ -633,21 +634,21 @@ private static void doParseDetailedDocTypeWithInternalSubset(
         
         handler.handleDocType(
                 buffer,
-                keywordOffset, keywordLen,                                  // keyword 
-                keywordLine, keywordCol,                                    // keyword
-                elementNameOffset, elementNameLen,                          // element name 
-                elementNameLine, elementNameCol,                            // element name
-                typeOffset, typeLen,                                        // type
-                typeLine, typeCol,                                          // type
-                spec1Offset + 1, spec1Len - 2,                              // publicId 
-                spec1Line, spec1Col,                                        // publicId
-                spec2Offset + 1, spec2Len - 2,                              // systemId
-                spec2Line, spec2Col,                                        // systemId
-                internalSubsetOffset, internalSubsetLen,                    // internalSubset
-                Math.max(locator[0], internalSubsetLine),                   // internalSubset
-                Math.max(locator[1], internalSubsetCol),                    // internalSubset
-                outerOffset, outerLen,                                      // outer 
-                line, col);                                                 // outer
+                keywordOffset, keywordLen,                                          // keyword 
+                keywordLine, keywordCol,                                            // keyword
+                elementNameOffset, elementNameLen,                                  // element name 
+                elementNameLine, elementNameCol,                                    // element name
+                typeOffset, typeLen,                                                // type
+                typeLine, typeCol,                                                  // type
+                spec1Offset + 1, spec1Len - 2,                                      // publicId 
+                spec1Line, spec1Col,                                                // publicId
+                spec2Offset + 1, spec2Len - 2,                                      // systemId
+                spec2Line, spec2Col,                                                // systemId
+                internalSubsetOffset, internalSubsetLen,                            // internalSubset
+                Math.max(ParsingLocatorUtil.getLine(locator), internalSubsetLine),  // internalSubset
+                Math.max(ParsingLocatorUtil.getCol(locator), internalSubsetCol),    // internalSubset
+                outerOffset, outerLen,                                              // outer 
+                line, col);                                                         // outer
 
     }
 
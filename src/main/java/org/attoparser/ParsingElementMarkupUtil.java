@@ -19,6 +19,8 @@
  */
 package org.attoparser;
 
+import org.attoparser.util.TextUtil;
+
 
 /**
  * Class containing utility methods for parsing elements (tags).
@@ -32,6 +34,12 @@ public final class ParsingElementMarkupUtil {
     
 
     
+    private static final char[] COMMENT_START = "<!--".toCharArray();
+    private static final char[] COMMENT_END = "-->".toCharArray();
+    private static final char[] CDATA_START = "<![CDATA[".toCharArray();
+    private static final char[] CDATA_END = "]]>".toCharArray();
+
+
     private ParsingElementMarkupUtil() {
         super();
     }
@@ -45,6 +53,20 @@ public static void parseStandaloneElement(
             final int line, final int col,
             final IMarkupHandler markupHandler)
             throws ParseException {
+        parseStandaloneElement(buffer, offset, len, line, col, markupHandler, null);
+    }
+
+
+    /*
+     * If a status is specified, the attribute sequence will only be tokenized if it is going to be consumed.
+     */
+    static void parseStandaloneElement(
+            final char[] buffer,
+            final int offset, final int len,
+            final int line, final int col,
+            final IMarkupHandler markupHandler,
+            final ParseStatus status)
+            throws ParseException {
 
         if (len < 4 || !isOpenElementStart(buffer, offset, offset + len) || !isElementEnd(buffer, (offset + len) - 2, offset + len, true)) {
             throw new ParseException(
@@ -56,7 +78,7 @@ public static void parseStandaloneElement(
 
         final int maxi = contentOffset + contentLen;
         
-        final int[] locator = new int[] {line, col + 1};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 1);
         
         /*
          * Extract the element name first 
@@ -67,35 +89,45 @@ public static void parseStandaloneElement(
         
         if (elementNameEnd == -1) {
             // The buffer only contains the element name
-            
+
+            startAttributeSequence(status, buffer, maxi, maxi, locator);
+
             markupHandler.handleStandaloneElementStart(
                     buffer, contentOffset, contentLen,
                     true, line, col);
 
             markupHandler.handleStandaloneElementEnd(
                     buffer, contentOffset, contentLen,
-                    true, locator[0], locator[1]);
+                    true, ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator));
+
+            endAttributeSequence(status);
 
             return;
 
         }
 
 
+        startAttributeSequence(status, buffer, elementNameEnd, maxi, locator);
+
         markupHandler.handleStandaloneElementStart(
                 buffer, contentOffset, (elementNameEnd - contentOffset),
                 true, line, col);
 
 
-        // This parseAttributeSequence will take care of calling handleInnerWhitespace when appropriate.
-        ParsingAttributeSequenceUtil.parseAttributeSequence(
-                buffer, elementNameEnd, maxi - elementNameEnd, locator[0], locator[1], markupHandler);
-
-        // We need to forward the locator to the position corresponding with the element end (note we are discarding result)
-        ParsingMarkupUtil.findNextStructureEndAvoidQuotes(buffer, elementNameEnd, maxi, locator);
+        if (shouldParseAttributes(status)) {
+            // This parseAttributeSequence will take care of calling handleInnerWhitespace when appropriate, and will
+            // also forward the locator to the position corresponding with the element end.
+            ParsingAttributeSequenceUtil.parseAttributeSequence(
+                    buffer, elementNameEnd, maxi - elementNameEnd, locator, markupHandler);
+        } else {
+            skipAttributeSequence(buffer, elementNameEnd, maxi, locator);
+        }
 
         markupHandler.handleStandaloneElementEnd(
                 buffer, contentOffset, (elementNameEnd - contentOffset),
-                true, locator[0], locator[1]);
+                true, ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator));
+
+        endAttributeSequence(status);
 
     }
 
@@ -108,6 +140,20 @@ public static void parseOpenElement(
             final int line, final int col,
             final IMarkupHandler markupHandler)
             throws ParseException {
+        parseOpenElement(buffer, offset, len, line, col, markupHandler, null);
+    }
+
+
+    /*
+     * If a status is specified, the attribute sequence will only be tokenized if it is going to be consumed.
+     */
+    static void parseOpenElement(
+            final char[] buffer,
+            final int offset, final int len,
+            final int line, final int col,
+            final IMarkupHandler markupHandler,
+            final ParseStatus status)
+            throws ParseException {
 
         if (len < 3 || !isOpenElementStart(buffer, offset, offset + len) || !isElementEnd(buffer, (offset + len) - 1, offset + len, false)) {
             throw new ParseException(
@@ -119,7 +165,7 @@ public static void parseOpenElement(
 
         final int maxi = contentOffset + contentLen;
 
-        final int[] locator = new int[] {line, col + 1};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 1);
 
         /*
          * Extract the element name first
@@ -131,34 +177,44 @@ public static void parseOpenElement(
         if (elementNameEnd == -1) {
             // The buffer only contains the element name
 
+            startAttributeSequence(status, buffer, maxi, maxi, locator);
+
             markupHandler.handleOpenElementStart(
                     buffer, contentOffset, contentLen,
                     line, col);
 
             markupHandler.handleOpenElementEnd(
                     buffer, contentOffset, contentLen,
-                    locator[0], locator[1]);
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator));
+
+            endAttributeSequence(status);
 
             return;
 
         }
 
 
+        startAttributeSequence(status, buffer, elementNameEnd, maxi, locator);
+
         markupHandler.handleOpenElementStart(
                 buffer, contentOffset, (elementNameEnd - contentOffset),
                 line, col);
 
 
-        // This parseAttributeSequence will take care of calling handleInnerWhitespace when appropriate.
-        ParsingAttributeSequenceUtil.parseAttributeSequence(
-                buffer, elementNameEnd, maxi - elementNameEnd, locator[0], locator[1], markupHandler);
-
-        // We need to forward the locator to the position corresponding with the element end (note we are discarding result)
-        ParsingMarkupUtil.findNextStructureEndAvoidQuotes(buffer, elementNameEnd, maxi, locator);
+        if (shouldParseAttributes(status)) {
+            // This parseAttributeSequence will take care of calling handleInnerWhitespace when appropriate, and will
+            // also forward the locator to the position corresponding with the element end.
+            ParsingAttributeSequenceUtil.parseAttributeSequence(
+                    buffer, elementNameEnd, maxi - elementNameEnd, locator, markupHandler);
+        } else {
+            skipAttributeSequence(buffer, elementNameEnd, maxi, locator);
+        }
 
         markupHandler.handleOpenElementEnd(
                 buffer, contentOffset, (elementNameEnd - contentOffset),
-                locator[0], locator[1]);
+                ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator));
+
+        endAttributeSequence(status);
 
     }
 
@@ -182,7 +238,7 @@ public static void parseCloseElement(
 
         final int maxi = contentOffset + contentLen;
         
-        final int[] locator = new int[] {line, col + 2};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 2);
         
         /*
          * Extract the element name first 
@@ -200,7 +256,7 @@ public static void parseCloseElement(
 
             markupHandler.handleCloseElementEnd(
                     buffer, contentOffset, contentLen,
-                    locator[0], locator[1]);
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator));
             
             return;
             
@@ -212,8 +268,8 @@ public static void parseCloseElement(
                 line, col);
         
                
-        int currentArtifactLine = locator[0];
-        int currentArtifactCol = locator[1];
+        int currentArtifactLine = ParsingLocatorUtil.getLine(locator);
+        int currentArtifactCol = ParsingLocatorUtil.getCol(locator);
         
         final int wsEnd = 
             ParsingMarkupUtil.findNextNonWhitespaceCharWildcard(buffer, elementNameEnd, maxi, locator);
@@ -233,7 +289,7 @@ public static void parseCloseElement(
 
         markupHandler.handleCloseElementEnd(
                 buffer, contentOffset, (elementNameEnd - contentOffset),
-                locator[0], locator[1]);
+                ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator));
 
     }
     
@@ -242,6 +298,193 @@ public static void parseCloseElement(
     
     
     
+    /*
+     * Skips the body of the element being skipped (see ParseStatus.skipElementBody()) without tokenizing it,
+     * just scanning for open and close tags with its name and ignoring comments and CDATA sections, which could
+     * contain them. Returns the position of the matching close tag if it is found (in which case
+     * status.skippedElementName is set back to null), or else the position at which skipping should continue
+     * once more buffer is available (the end of the buffer, or a '<' that cannot be classified yet). In both
+     * cases, the locator is moved to the returned position.
+     */
+    static int skipElementBody(
+            final char[] buffer, final int offset, final int maxi, final boolean caseSensitive,
+            final int[] locator, final ParseStatus status) {
+
+        final char[] name = status.skippedElementName;
+        final int nameLen = name.length;
+
+        int i = offset;
+
+        while (i < maxi) {
+
+            final char c = buffer[i];
+
+            if (c != '<') {
+                ParsingLocatorUtil.countChar(locator, c);
+                i++;
+                continue;
+            }
+
+            if (i + 1 >= maxi) {
+                return i;
+            }
+
+            if (buffer[i + 1] == '!') {
+
+                final int comment = matchStart(buffer, i, maxi, COMMENT_START);
+                final int cdata = (comment == 1 ? 0 : matchStart(buffer, i, maxi, CDATA_START));
+                if (comment == -1 || cdata == -1) {
+                    // Not enough chars yet for knowing whether this is a comment or a CDATA section
+                    return i;
+                }
+
+                if (comment == 1 || cdata == 1) {
+
+                    final char[] start = (comment == 1 ? COMMENT_START : CDATA_START);
+                    final char[] end = (comment == 1 ? COMMENT_END : CDATA_END);
+
+                    final int endIndex = findSequence(buffer, i + start.length, maxi, end);
+                    if (endIndex == -1) {
+                        return i;
+                    }
+                    final int next = endIndex + end.length;
+                    for (int j = i; j < next; j++) {
+                        ParsingLocatorUtil.countChar(locator, buffer[j]);
+                    }
+                    i = next;
+                    continue;
+
+                }
+
+            } else {
+
+                final boolean close = (buffer[i + 1] == '/');
+                final int nameOffset = (close ? i + 2 : i + 1);
+
+                if (nameOffset + nameLen >= maxi) {
+                    // We need to look at the char after the name too
+                    return i;
+                }
+
+                if (TextUtil.equals(caseSensitive, name, 0, nameLen, buffer, nameOffset, nameLen)) {
+
+                    final char nameEnd = buffer[nameOffset + nameLen];
+                    if (nameEnd == '>' || nameEnd == '/' || Character.isWhitespace(nameEnd)) {
+
+                        if (close) {
+                            status.skippedElementDepth--;
+                            if (status.skippedElementDepth == 0) {
+                                status.skippedElementName = null;
+                                return i;
+                            }
+                        } else {
+                            final int tagEnd =
+                                    ParsingMarkupUtil.findNextStructureEndAvoidQuotes(buffer, nameOffset + nameLen, maxi, null);
+                            if (tagEnd == -1) {
+                                return i;
+                            }
+                            if (buffer[tagEnd - 1] != '/') {
+                                // Not a standalone element, so it will need to be closed too
+                                status.skippedElementDepth++;
+                            }
+                            // Go on after the tag, as its attribute values could contain anything
+                            for (int j = i; j <= tagEnd; j++) {
+                                ParsingLocatorUtil.countChar(locator, buffer[j]);
+                            }
+                            i = tagEnd + 1;
+                            continue;
+                        }
+
+                    }
+
+                }
+
+            }
+
+            ParsingLocatorUtil.countChar(locator, c);
+            i++;
+
+        }
+
+        return maxi;
+
+    }
+
+
+    /*
+     * Returns 1 if the buffer contains the specified structure start at the offset, 0 if it does not, and -1 if
+     * there are not enough chars in the buffer for knowing it yet.
+     */
+    private static int matchStart(final char[] buffer, final int offset, final int maxi, final char[] start) {
+        final int n = Math.min(start.length, maxi - offset);
+        for (int i = 0; i < n; i++) {
+            if (buffer[offset + i] != start[i]) {
+                return 0;
+            }
+        }
+        return (n == start.length ? 1 : -1);
+    }
+
+
+    private static int findSequence(final char[] buffer, final int offset, final int maxi, final char[] sequence) {
+        final int n = maxi - sequence.length;
+        for (int i = offset; i <= n; i++) {
+            if (buffer[i] == sequence[0] &&
+                    TextUtil.equals(true, sequence, 0, sequence.length, buffer, i, sequence.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+
+
+    private static void startAttributeSequence(
+            final ParseStatus status, final char[] buffer, final int offset, final int maxi, final int[] locator) {
+        if (status != null) {
+            status.attributeSequenceBuffer = buffer;
+            status.attributeSequenceOffset = offset;
+            status.attributeSequenceLen = maxi - offset;
+            status.attributeSequenceLine = ParsingLocatorUtil.getLine(locator);
+            status.attributeSequenceCol = ParsingLocatorUtil.getCol(locator);
+        }
+    }
+
+
+    private static void endAttributeSequence(final ParseStatus status) {
+        if (status != null) {
+            status.attributeSequenceBuffer = null;
+            status.attributeSequenceOffset = 0;
+            status.attributeSequenceLen = -1;
+            status.attributeSequenceLine = -1;
+            status.attributeSequenceCol = -1;
+        }
+    }
+
+
+    private static boolean shouldParseAttributes(final ParseStatus status) {
+        // Attributes of elements that disable parsing of their contents are always needed, as
+        // the values of some of them (e.g. <script type="...">) might re-enable it.
+        return (status == null ||
+                (status.eventInterests & IInterestAwareMarkupHandler.ATTRIBUTE_EVENTS) != 0 ||
+                status.shouldDisableParsing);
+    }
+
+
+    private static void skipAttributeSequence(
+            final char[] buffer, final int offset, final int maxi, final int[] locator) {
+        if (locator == null) {
+            return;
+        }
+        for (int i = offset; i < maxi; i++) {
+            ParsingLocatorUtil.countChar(locator, buffer[i]);
+        }
+    }
+
+
+
+
     static boolean isOpenElementStart(final char[] buffer, final int offset, final int maxi) {
         
         final int len = maxi - offset;
@@ -0,0 +1,186 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+
+
+/*
+ * Class containing utility methods for determining the encoding of documents specified as bytes.
+ *
+ * Detection only looks at the first bytes of the document (those already read for parsing, so that no
+ * additional pass on the document is needed), in this order of precedence:
+ *
+ *   1. A Byte Order Mark (UTF-8, UTF-16BE or UTF-16LE), which is always skipped.
+ *   2. The charset explicitly specified by the user, if any.
+ *   3. The encoding declared at the XML Declaration, if the document starts with one (only for
+ *      ASCII-compatible encodings, i.e. when no UTF-16 BOM has been found).
+ *   4. UTF-8.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class ParsingEncodingUtil {
+
+    // Amount of bytes to be read before trying to detect the encoding. Enough for any reasonable XML Declaration.
+    static final int DETECTION_LEN = 1024;
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+    private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+
+
+    private ParsingEncodingUtil() {
+        super();
+    }
+
+
+
+
+    static int bomLength(final byte[] bytes, final int offset, final int len) {
+        if (len >= 3 && bytes[offset] == (byte)0xEF && bytes[offset + 1] == (byte)0xBB && bytes[offset + 2] == (byte)0xBF) {
+            return 3;
+        }
+        if (len >= 2 &&
+                ((bytes[offset] == (byte)0xFE && bytes[offset + 1] == (byte)0xFF) ||
+                 (bytes[offset] == (byte)0xFF && bytes[offset + 1] == (byte)0xFE))) {
+            return 2;
+        }
+        return 0;
+    }
+
+
+    static Charset detectCharset(
+            final byte[] bytes, final int offset, final int len, final Charset specifiedCharset)
+            throws ParseException {
+
+        final int bomLength = bomLength(bytes, offset, len);
+        if (bomLength == 3) {
+            return UTF_8;
+        }
+        if (bomLength == 2) {
+            return (bytes[offset] == (byte)0xFE ? UTF_16BE : UTF_16LE);
+        }
+
+        if (specifiedCharset != null) {
+            return specifiedCharset;
+        }
+
+        final Charset declaredCharset = detectXmlDeclarationCharset(bytes, offset, len);
+        return (declaredCharset != null ? declaredCharset : UTF_8);
+
+    }
+
+
+    static CharsetDecoder createDecoder(final Charset charset) {
+        // Same behaviour as java.io.InputStreamReader: malformed or unmappable input is replaced, never reported
+        return charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+
+
+
+    private static Charset detectXmlDeclarationCharset(final byte[] bytes, final int offset, final int len)
+            throws ParseException {
+
+        final int maxi = offset + len;
+
+        // The XML Declaration must appear at the very beginning of the document, so if there is one,
+        // we will find it before the first '>'
+        int end = offset;
+        while (end < maxi && bytes[end] != '>') {
+            end++;
+        }
+        if (end == maxi) {
+            return null;
+        }
+
+        // Until we know the encoding, the declaration can be considered ISO-8859-1 (any ASCII-compatible
+        // encoding will do), which allows us to use the standard parsing mechanism for it.
+        final int declarationLen = (end - offset) + 1;
+        final char[] declaration = new char[declarationLen];
+        for (int i = 0; i < declarationLen; i++) {
+            declaration[i] = (char) (bytes[offset + i] & 0xFF);
+        }
+
+        if (!ParsingXmlDeclarationMarkupUtil.isXmlDeclarationStart(declaration, 0, declarationLen) ||
+                !ParsingXmlDeclarationMarkupUtil.isXmlDeclarationEnd(declaration, declarationLen - 2, declarationLen)) {
+            return null;
+        }
+
+        final EncodingXmlDeclarationHandler handler = new EncodingXmlDeclarationHandler();
+        ParsingXmlDeclarationMarkupUtil.parseXmlDeclaration(declaration, 0, declarationLen, 1, 1, handler);
+
+        if (handler.encoding == null) {
+            return null;
+        }
+
+        try {
+            return Charset.forName(handler.encoding);
+        } catch (final IllegalCharsetNameException e) {
+            throw new ParseException(
+                    "Invalid encoding \"" + handler.encoding + "\" specified at XML Declaration", e, 1, 1);
+        } catch (final UnsupportedCharsetException e) {
+            throw new ParseException(
+                    "Unsupported encoding \"" + handler.encoding + "\" specified at XML Declaration", e, 1, 1);
+        }
+
+    }
+
+
+
+
+    private static final class EncodingXmlDeclarationHandler implements IXMLDeclarationHandler {
+
+        String encoding = null;
+
+        EncodingXmlDeclarationHandler() {
+            super();
+        }
+
+        public void handleXmlDeclaration(
+                final char[] buffer,
+                final int keywordOffset, final int keywordLen,
+                final int keywordLine, final int keywordCol,
+                final int versionOffset, final int versionLen,
+                final int versionLine, final int versionCol,
+                final int encodingOffset, final int encodingLen,
+                final int encodingLine, final int encodingCol,
+                final int standaloneOffset, final int standaloneLen,
+                final int standaloneLine, final int standaloneCol,
+                final int outerOffset, final int outerLen,
+                final int line, final int col)
+                throws ParseException {
+            if (encodingLen > 0) {
+                this.encoding = new String(buffer, encodingOffset, encodingLen);
+            }
+        }
+
+    }
+
+
+}
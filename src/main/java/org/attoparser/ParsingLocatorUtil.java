@@ -23,6 +23,9 @@
 
 /*
  * Class containing utility methods for counting lines and columns during parsing.
+ *
+ * A null locator means positions are not being tracked (lazy position tracking is enabled at the
+ * ParseConfiguration), in which case nothing is counted and -1 is returned as line and column.
  * 
  * @author Daniel Fernandez
  * @since 2.0.0
@@ -30,6 +33,9 @@
 final class ParsingLocatorUtil {
 
     public static void countChar(final int[] locator, final char c) {
+        if (locator == null) {
+            return;
+        }
         if (c == '\n') {
             locator[0]++;
             locator[1] = 1;
@@ -38,6 +44,19 @@ public static void countChar(final int[] locator, final char c) {
         locator[1]++;
     }
 
+    public static int getLine(final int[] locator) {
+        return (locator == null ? -1 : locator[0]);
+    }
+
+    public static int getCol(final int[] locator) {
+        return (locator == null ? -1 : locator[1]);
+    }
+
+    public static int[] createLocator(final int line, final int col) {
+        // A negative line means the caller is not tracking positions, so neither will we
+        return (line < 0 ? null : new int[] {line, col});
+    }
+
     
     private ParsingLocatorUtil() {
         super();
@@ -43,6 +43,11 @@ private ParsingMarkupUtil() {
     static int findNextStructureEndAvoidQuotes(
             final char[] text, final int offset, final int maxi, 
             final int[] locator) {
+
+        if (locator == null) {
+            // Positions are not being tracked, so there is no need to look for line feeds
+            return findNextStructureEndAvoidQuotes(text, offset, maxi);
+        }
         
         boolean inQuotes = false;
         boolean inApos = false;
@@ -85,6 +90,11 @@ static int findNextStructureEndDontAvoidQuotes(
             final char[] text, final int offset, final int maxi, 
             final int[] locator) {
 
+        if (locator == null) {
+            // Positions are not being tracked, so there is no need to look for line feeds
+            return findNextChar(text, offset, maxi, '>');
+        }
+
         char c;
 
         int colIndex = offset;
@@ -115,10 +125,63 @@ static int findNextStructureEndDontAvoidQuotes(
     }
 
     
+    private static int findNextStructureEndAvoidQuotes(final char[] text, final int offset, final int maxi) {
+
+        boolean inQuotes = false;
+        boolean inApos = false;
+
+        char c;
+
+        int i = offset;
+        int n = (maxi - offset);
+
+        while (n-- != 0) {
+
+            c = text[i];
+
+            if (c == '"' && !inApos) {
+                inQuotes = !inQuotes;
+            } else if (c == '\'' && !inQuotes) {
+                inApos = !inApos;
+            } else if (c == '>' && !inQuotes && !inApos) {
+                return i;
+            }
+
+            i++;
+
+        }
+
+        return -1;
+
+    }
+
+
+    private static int findNextChar(final char[] text, final int offset, final int maxi, final char target) {
+
+        int i = offset;
+        int n = (maxi - offset);
+
+        while (n-- != 0) {
+            if (text[i] == target) {
+                return i;
+            }
+            i++;
+        }
+
+        return -1;
+
+    }
+
+    
     static int findNextStructureStart(
             final char[] text, final int offset, final int maxi, 
             final int[] locator) {
 
+        if (locator == null) {
+            // Positions are not being tracked, so there is no need to look for line feeds
+            return findNextChar(text, offset, maxi, '<');
+        }
+
         char c;
 
         int colIndex = offset;
@@ -57,7 +57,10 @@ public static void parseProcessingInstruction(
 
         final int maxi = contentOffset + contentLen;
         
-        final int[] locator = new int[] {line, col + 2};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 2);
+
+        final int targetLine = ParsingLocatorUtil.getLine(locator);
+        final int targetCol = ParsingLocatorUtil.getCol(locator);
         
         int i = contentOffset;
         
@@ -73,12 +76,12 @@ public static void parseProcessingInstruction(
             
             handler.handleProcessingInstruction(
                     buffer,
-                    i, maxi - i,                                      // target
-                    line, col + 2,                                    // target
-                    0, 0,                                             // content
-                    locator[0], locator[1],                           // content
-                    offset, len,                            // outer
-                    line, col);                                       // outer
+                    i, maxi - i,                                                              // target
+                    targetLine, targetCol,                                                    // target
+                    0, 0,                                                                     // content
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // content
+                    offset, len,                                                              // outer
+                    line, col);                                                               // outer
             return;
 
         }
@@ -103,12 +106,12 @@ public static void parseProcessingInstruction(
             
             handler.handleProcessingInstruction(
                     buffer,
-                    targetOffset, targetLen,                          // target
-                    line, col + 2,                                    // target
-                    0, 0,                                             // content
-                    locator[0], locator[1],                           // content
-                    offset, len,                            // outer
-                    line, col);                                       // outer
+                    targetOffset, targetLen,                                                  // target
+                    targetLine, targetCol,                                                    // target
+                    0, 0,                                                                     // content
+                    ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // content
+                    offset, len,                                                              // outer
+                    line, col);                                                               // outer
             return;
 
         }
@@ -116,12 +119,12 @@ public static void parseProcessingInstruction(
         
         handler.handleProcessingInstruction(
                 buffer,
-                targetOffset, targetLen,                          // target
-                line, col + 2,                                    // target
-                contentStart, maxi - contentStart,                // content
-                locator[0], locator[1],                           // content
-                offset, len,                            // outer
-                line, col);                                       // outer
+                targetOffset, targetLen,                                                  // target
+                targetLine, targetCol,                                                    // target
+                contentStart, maxi - contentStart,                                        // content
+                ParsingLocatorUtil.getLine(locator), ParsingLocatorUtil.getCol(locator),  // content
+                offset, len,                                                              // outer
+                line, col);                                                               // outer
 
     }
     
@@ -0,0 +1,140 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+
+
+
+/*
+ * Class in charge of classifying the markup structure starting at a '<' char.
+ *
+ * Instead of checking every known structure type one after another (each check bounds-checking the buffer and
+ * comparing its own prefix again), the structure is classified by dispatching on the char following the '<'
+ * through a lookup table: any char that can start an element name means an open element, '/' a close element,
+ * '!' a comment, CDATA section or DOCTYPE clause (or, in some edge cases, an element), and '?' an XML
+ * Declaration or processing instruction. Only the checks for the structure types that can actually start
+ * with that char are then performed, in the same order of precedence as they always were.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class ParsingStructureClassifier {
+
+    static final int NONE = 0;
+    static final int OPEN_ELEMENT = 1;
+    static final int CLOSE_ELEMENT = 2;
+    static final int COMMENT = 3;
+    static final int CDATA_SECTION = 4;
+    static final int DOCTYPE = 5;
+    static final int XML_DECLARATION = 6;
+    static final int PROCESSING_INSTRUCTION = 7;
+
+
+    // Classes of the char following the '<' (only ASCII chars are in the table)
+    private static final byte CLASS_ELEMENT_NAME = 0;
+    private static final byte CLASS_NONE = 1;
+    private static final byte CLASS_SLASH = 2;
+    private static final byte CLASS_EXCLAMATION = 3;
+    private static final byte CLASS_QUESTION = 4;
+
+    private static final byte[] CHAR_CLASSES = new byte[128];
+
+
+    static {
+        for (int c = 0; c < CHAR_CLASSES.length; c++) {
+            // Whitespace can never follow the '<' of a structure
+            CHAR_CLASSES[c] = (Character.isWhitespace((char) c) ? CLASS_NONE : CLASS_ELEMENT_NAME);
+        }
+        // These chars cannot start an element name, and no other structure starts with them
+        CHAR_CLASSES['-'] = CLASS_NONE;
+        CHAR_CLASSES['['] = CLASS_NONE;
+        CHAR_CLASSES['/'] = CLASS_SLASH;
+        CHAR_CLASSES['!'] = CLASS_EXCLAMATION;
+        CHAR_CLASSES['?'] = CLASS_QUESTION;
+    }
+
+
+
+    private ParsingStructureClassifier() {
+        super();
+    }
+
+
+
+
+    /*
+     * Returns the type of the structure starting at the '<' at the specified offset (or NONE if it is not the
+     * start of any known structure).
+     */
+    static int classify(final char[] buffer, final int offset, final int maxi) {
+
+        if (maxi - offset < 2) {
+            // Every structure needs at least one more char after the '<'
+            return NONE;
+        }
+
+        final char c = buffer[offset + 1];
+        final byte charClass =
+                (c < 128 ? CHAR_CLASSES[c] : (Character.isWhitespace(c) ? CLASS_NONE : CLASS_ELEMENT_NAME));
+
+        switch (charClass) {
+
+            case CLASS_ELEMENT_NAME:
+                return OPEN_ELEMENT;
+
+            case CLASS_SLASH:
+                return (ParsingElementMarkupUtil.isCloseElementStart(buffer, offset, maxi) ? CLOSE_ELEMENT : NONE);
+
+            case CLASS_EXCLAMATION:
+                // Elements have precedence here ("<!DOCTYPE" is only recognized as such if it is complete)
+                if (ParsingElementMarkupUtil.isOpenElementStart(buffer, offset, maxi)) {
+                    return OPEN_ELEMENT;
+                }
+                if (maxi - offset < 3) {
+                    return NONE;
+                }
+                switch (buffer[offset + 2]) {
+                    case '-':
+                        return (ParsingCommentMarkupUtil.isCommentStart(buffer, offset, maxi) ? COMMENT : NONE);
+                    case '[':
+                        return (ParsingCDATASectionMarkupUtil.isCDATASectionStart(buffer, offset, maxi) ? CDATA_SECTION : NONE);
+                    case 'D':
+                    case 'd':
+                        return (ParsingDocTypeMarkupUtil.isDocTypeStart(buffer, offset, maxi) ? DOCTYPE : NONE);
+                    default:
+                        return NONE;
+                }
+
+            case CLASS_QUESTION:
+                if (ParsingXmlDeclarationMarkupUtil.isXmlDeclarationStart(buffer, offset, maxi)) {
+                    return XML_DECLARATION;
+                }
+                return (ParsingProcessingInstructionUtil.isProcessingInstructionStart(buffer, offset, maxi) ?
+                        PROCESSING_INSTRUCTION : NONE);
+
+            default:
+                return NONE;
+
+        }
+
+    }
+
+
+}
@@ -61,10 +61,10 @@ public static void parseXmlDeclaration(
 
         final int maxi = internalOffset + internalLen;
         
-        final int[] locator = new int[] {line, col + 2};
+        final int[] locator = ParsingLocatorUtil.createLocator(line, col + 2);
         
-        final int keywordLine = locator[0];
-        final int keywordCol = locator[1];
+        final int keywordLine = ParsingLocatorUtil.getLine(locator);
+        final int keywordCol = ParsingLocatorUtil.getCol(locator);
         
         int i = internalOffset;
         
@@ -117,11 +117,9 @@ public static void parseXmlDeclaration(
                 new XmlDeclarationAttributeProcessor(offset, len, line, col);
 
 
+        // The locator will be forwarded to the position corresponding with the structure end
         ParsingAttributeSequenceUtil.
-                parseAttributeSequence(buffer, contentOffset, contentLen, locator[0], locator[1], attHandling);
-
-        // We need to forward the locator to the position corresponding with the structure end (note we are discarding result)
-        ParsingMarkupUtil.findNextStructureEndAvoidQuotes(buffer, contentOffset, maxi, locator);
+                parseAttributeSequence(buffer, contentOffset, contentLen, locator, attHandling);
 
         attHandling.finalChecks(locator, buffer);
 
@@ -315,13 +313,13 @@ public void finalChecks(final int[] locator, final char[] buffer) throws ParseEx
                         this.outerLine, this.outerLine);
             }
             if (!this.standalonePresent) {
-                this.standaloneLine = locator[0];
-                this.standaloneCol = locator[1];
+                this.standaloneLine = ParsingLocatorUtil.getLine(locator);
+                this.standaloneCol = ParsingLocatorUtil.getCol(locator);
             }
             if (!this.encodingPresent) {
                 if (!this.standalonePresent) {
-                    this.encodingLine = locator[0];
-                    this.encodingCol = locator[1];
+                    this.encodingLine = ParsingLocatorUtil.getLine(locator);
+                    this.encodingCol = ParsingLocatorUtil.getCol(locator);
                 } else {
                     this.encodingLine = this.standaloneLine;
                     this.encodingCol = this.standaloneCol;
@@ -0,0 +1,192 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.buffer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * <p>
+ *   Base abstract class for {@link IBufferPool} implementations, in charge of organizing pooled buffers in
+ *   <em>size classes</em> and of keeping usage statistics.
+ * </p>
+ * <p>
+ *   Parsers only grow buffers by doubling their size, so size class <tt>n</tt> holds buffers of exactly
+ *   <tt>defaultBufferSize * 2^n</tt> chars. This allows buffers which had to be grown for a document to be
+ *   reused when another document also needs them. Buffers of any other size (or bigger than the biggest
+ *   size class) are never pooled.
+ * </p>
+ * <p>
+ *   Subclasses only need to implement the actual storage of buffers for each size class, by means of the
+ *   {@link #pollBuffer(int)} and {@link #offerBuffer(int, char[])} methods, which must be thread-safe.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public abstract class AbstractBufferPool implements IBufferPool {
+
+    /**
+     * <p>
+     *   Default amount of size classes. Value: 8 (so with a default buffer size of 4096 chars,
+     *   buffers of up to 512K chars will be pooled).
+     * </p>
+     */
+    public static final int DEFAULT_SIZE_CLASSES = 8;
+
+
+    private final int defaultBufferSize;
+    private final int sizeClasses;
+
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+    private final AtomicLong grows = new AtomicLong(0L);
+    private final AtomicLong releases = new AtomicLong(0L);
+    private final AtomicLong discards = new AtomicLong(0L);
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this pool.
+     * </p>
+     *
+     * @param defaultBufferSize the default size (in chars) of buffers.
+     * @param sizeClasses the amount of size classes to be pooled.
+     */
+    protected AbstractBufferPool(final int defaultBufferSize, final int sizeClasses) {
+        super();
+        if (defaultBufferSize <= 0) {
+            throw new IllegalArgumentException("Default buffer size must be greater than zero");
+        }
+        if (sizeClasses <= 0) {
+            throw new IllegalArgumentException("Amount of size classes must be greater than zero");
+        }
+        this.defaultBufferSize = defaultBufferSize;
+        this.sizeClasses = sizeClasses;
+    }
+
+
+
+    public final int getDefaultBufferSize() {
+        return this.defaultBufferSize;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of size classes in this pool.
+     * </p>
+     *
+     * @return the amount of size classes.
+     */
+    public final int getSizeClasses() {
+        return this.sizeClasses;
+    }
+
+
+
+    public final char[] allocateBuffer(final int bufferSize) {
+
+        if (bufferSize > this.defaultBufferSize) {
+            this.grows.incrementAndGet();
+        }
+
+        final int sizeClass = computeSizeClass(bufferSize);
+        if (sizeClass >= 0) {
+            final char[] buffer = pollBuffer(sizeClass);
+            if (buffer != null) {
+                this.hits.incrementAndGet();
+                return buffer;
+            }
+        }
+
+        this.misses.incrementAndGet();
+        return new char[bufferSize];
+
+    }
+
+
+
+    public final void releaseBuffer(final char[] buffer) {
+
+        if (buffer == null) {
+            return;
+        }
+
+        final int sizeClass = computeSizeClass(buffer.length);
+        if (sizeClass >= 0 && offerBuffer(sizeClass, buffer)) {
+            this.releases.incrementAndGet();
+        } else {
+            this.discards.incrementAndGet();
+        }
+
+    }
+
+
+
+    public final BufferPoolStatistics getStatistics() {
+        return new BufferPoolStatistics(
+                this.hits.get(), this.misses.get(), this.grows.get(), this.releases.get(), this.discards.get());
+    }
+
+
+
+    /**
+     * <p>
+     *   Takes a buffer of the specified size class from the pool, if there is one available.
+     * </p>
+     *
+     * @param sizeClass the size class.
+     * @return a pooled buffer, or null if none is available.
+     */
+    protected abstract char[] pollBuffer(final int sizeClass);
+
+
+    /**
+     * <p>
+     *   Tries to put a buffer of the specified size class into the pool.
+     * </p>
+     *
+     * @param sizeClass the size class.
+     * @param buffer the buffer.
+     * @return true if the buffer was kept in the pool, false if it was discarded (e.g. because the pool is full).
+     */
+    protected abstract boolean offerBuffer(final int sizeClass, final char[] buffer);
+
+
+
+    private int computeSizeClass(final int bufferSize) {
+        int size = this.defaultBufferSize;
+        for (int i = 0; i < this.sizeClasses; i++) {
+            if (size == bufferSize) {
+                return i;
+            }
+            if (size > bufferSize || size > (Integer.MAX_VALUE >> 1)) {
+                return -1;
+            }
+            size <<= 1;
+        }
+        return -1;
+    }
+
+
+}
@@ -0,0 +1,146 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.buffer;
+
+/**
+ * <p>
+ *   Snapshot of the usage statistics of an {@link IBufferPool}.
+ * </p>
+ * <p>
+ *   Objects of this class are immutable. Note that, as counters are updated concurrently by different threads,
+ *   the different values in a snapshot might not have been read at the exact same instant.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class BufferPoolStatistics {
+
+    private final long hits;
+    private final long misses;
+    private final long grows;
+    private final long releases;
+    private final long discards;
+
+
+    /**
+     * <p>
+     *   Creates a new statistics snapshot.
+     * </p>
+     *
+     * @param hits the amount of allocations served with a pooled buffer.
+     * @param misses the amount of allocations that required the creation of a new buffer.
+     * @param grows the amount of allocations of buffers bigger than the default buffer size.
+     * @param releases the amount of released buffers that were kept in the pool.
+     * @param discards the amount of released buffers that were discarded.
+     */
+    public BufferPoolStatistics(
+            final long hits, final long misses, final long grows, final long releases, final long discards) {
+        super();
+        this.hits = hits;
+        this.misses = misses;
+        this.grows = grows;
+        this.releases = releases;
+        this.discards = discards;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of buffer allocations that were served with a buffer taken from the pool.
+     * </p>
+     *
+     * @return the amount of hits.
+     */
+    public long getHits() {
+        return this.hits;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of buffer allocations that required the creation of a new buffer, because no
+     *   suitable buffer was available in the pool.
+     * </p>
+     *
+     * @return the amount of misses.
+     */
+    public long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of buffer allocations requesting a buffer bigger than the default buffer size, i.e.
+     *   the amount of times a parser had to grow its buffer because a markup structure did not fit inside.
+     *   These allocations are also counted as hits or misses.
+     * </p>
+     *
+     * @return the amount of grows.
+     */
+    public long getGrows() {
+        return this.grows;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of released buffers that were kept in the pool for later reuse.
+     * </p>
+     *
+     * @return the amount of releases.
+     */
+    public long getReleases() {
+        return this.releases;
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of released buffers that were discarded, either because the pool was full or
+     *   because their size could not be pooled.
+     * </p>
+     *
+     * @return the amount of discards.
+     */
+    public long getDiscards() {
+        return this.discards;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the ratio of allocations served with a pooled buffer (between 0.0 and 1.0).
+     * </p>
+     *
+     * @return the hit ratio, or 0.0 if no buffers have been allocated yet.
+     */
+    public double getHitRatio() {
+        final long allocations = this.hits + this.misses;
+        return (allocations == 0L ? 0.0d : (double) this.hits / (double) allocations);
+    }
+
+
+    @Override
+    public String toString() {
+        return "[hits=" + this.hits + ", misses=" + this.misses + ", grows=" + this.grows +
+                ", releases=" + this.releases + ", discards=" + this.discards + "]";
+    }
+
+}
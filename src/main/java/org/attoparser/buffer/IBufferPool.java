@@ -0,0 +1,89 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.buffer;
+
+/**
+ * <p>
+ *   Interface to be implemented by all pools of <tt>char[]</tt> buffers used by
+ *   {@link org.attoparser.MarkupParser} for reading documents.
+ * </p>
+ * <p>
+ *   Parsers allocate a buffer of the pool's <em>default buffer size</em> for each document read from a
+ *   {@link java.io.Reader}, and might need to grow it (allocating a new one with twice its size) if a markup
+ *   structure does not fit inside. All allocated buffers are released to the pool once they are no longer needed.
+ * </p>
+ * <p>
+ *   Pools are non-blocking: if no pooled buffer is available, a new one is simply created. Also, pools are
+ *   non-exclusive: releasing a buffer which was not obtained from the pool is allowed, and pools are free to
+ *   keep it or discard it.
+ * </p>
+ * <p>
+ *   Implementations of this interface must be <strong>thread-safe</strong>, as a single pool is shared by all
+ *   the parsing operations performed by a parser.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public interface IBufferPool {
+
+    /**
+     * <p>
+     *   Returns the default size (in chars) of the buffers used by parsers for reading documents.
+     * </p>
+     *
+     * @return the default buffer size.
+     */
+    public int getDefaultBufferSize();
+
+    /**
+     * <p>
+     *   Allocates a buffer of the specified size, either by taking it from the pool or by creating a new one.
+     * </p>
+     *
+     * @param bufferSize the size (in chars) of the buffer. The returned buffer will have exactly this length.
+     * @return the allocated buffer.
+     */
+    public char[] allocateBuffer(final int bufferSize);
+
+    /**
+     * <p>
+     *   Releases a buffer, so that it can be returned to the pool (if the pool decides to keep it).
+     * </p>
+     * <p>
+     *   Buffers must not be used after being released.
+     * </p>
+     *
+     * @param buffer the buffer to be released. Can be null, in which case nothing will be done.
+     */
+    public void releaseBuffer(final char[] buffer);
+
+    /**
+     * <p>
+     *   Returns a snapshot of the usage statistics of this pool.
+     * </p>
+     *
+     * @return the statistics.
+     */
+    public BufferPoolStatistics getStatistics();
+
+}
@@ -0,0 +1,122 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.buffer;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>
+ *   Lock-free {@link IBufferPool} implementation, shared by all threads.
+ * </p>
+ * <p>
+ *   Each size class is stored in a fixed-size array of slots which are taken and returned by means of
+ *   atomic compare-and-set operations, so threads never block. Each thread starts looking for a buffer (or for
+ *   an empty slot) at a different position of the array, depending on its id, so that concurrent threads
+ *   usually work on different slots and do not contend with each other.
+ * </p>
+ * <p>
+ *   This is the pool used by default by {@link org.attoparser.MarkupParser}. For high levels of concurrency,
+ *   the amount of buffers per size class should be close to the amount of threads parsing at the same time.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class StripedBufferPool extends AbstractBufferPool {
+
+    private final AtomicReferenceArray<char[]>[] slots;
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this pool, using {@link #DEFAULT_SIZE_CLASSES} size classes.
+     * </p>
+     *
+     * @param defaultBufferSize the default size (in chars) of buffers.
+     * @param buffersPerSizeClass the maximum amount of buffers to be kept for each size class.
+     */
+    public StripedBufferPool(final int defaultBufferSize, final int buffersPerSizeClass) {
+        this(defaultBufferSize, buffersPerSizeClass, DEFAULT_SIZE_CLASSES);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this pool.
+     * </p>
+     *
+     * @param defaultBufferSize the default size (in chars) of buffers.
+     * @param buffersPerSizeClass the maximum amount of buffers to be kept for each size class.
+     * @param sizeClasses the amount of size classes to be pooled.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StripedBufferPool(final int defaultBufferSize, final int buffersPerSizeClass, final int sizeClasses) {
+        super(defaultBufferSize, sizeClasses);
+        if (buffersPerSizeClass < 0) {
+            throw new IllegalArgumentException("Amount of buffers per size class cannot be less than zero");
+        }
+        this.slots = new AtomicReferenceArray[sizeClasses];
+        for (int i = 0; i < sizeClasses; i++) {
+            this.slots[i] = new AtomicReferenceArray<char[]>(buffersPerSizeClass);
+        }
+    }
+
+
+
+    @Override
+    protected char[] pollBuffer(final int sizeClass) {
+        final AtomicReferenceArray<char[]> classSlots = this.slots[sizeClass];
+        final int n = classSlots.length();
+        final int start = stripe(n);
+        for (int i = 0; i < n; i++) {
+            final int index = (start + i) % n;
+            final char[] buffer = classSlots.get(index);
+            if (buffer != null && classSlots.compareAndSet(index, buffer, null)) {
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+
+    @Override
+    protected boolean offerBuffer(final int sizeClass, final char[] buffer) {
+        final AtomicReferenceArray<char[]> classSlots = this.slots[sizeClass];
+        final int n = classSlots.length();
+        final int start = stripe(n);
+        for (int i = 0; i < n; i++) {
+            final int index = (start + i) % n;
+            if (classSlots.get(index) == null && classSlots.compareAndSet(index, null, buffer)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    private static int stripe(final int n) {
+        return (n == 0 ? 0 : (int) ((Thread.currentThread().getId() & 0x7FFFFFFFL) % n));
+    }
+
+
+}
@@ -0,0 +1,119 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.buffer;
+
+/**
+ * <p>
+ *   {@link IBufferPool} implementation that keeps a separate set of buffers for each thread.
+ * </p>
+ * <p>
+ *   Threads never share buffers, so allocating and releasing them requires no synchronization at all. This
+ *   makes this pool the fastest option when documents are parsed by a fixed set of long-lived threads (e.g.
+ *   the worker threads of a web server), at the price of keeping up to <tt>buffersPerSizeClass</tt> buffers
+ *   of each size class for every thread that has ever used the pool.
+ * </p>
+ * <p>
+ *   Buffers are kept for as long as the thread (and the pool) are alive, so this pool should be avoided in
+ *   environments where threads are created very frequently, or where thread-local data can prevent class
+ *   unloading (e.g. applications redeployed into a shared container).
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class ThreadLocalBufferPool extends AbstractBufferPool {
+
+    private final int buffersPerSizeClass;
+    private final ThreadLocal<char[][][]> threadBuffers;
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this pool, keeping one buffer per size class for each thread and
+     *   using {@link #DEFAULT_SIZE_CLASSES} size classes.
+     * </p>
+     *
+     * @param defaultBufferSize the default size (in chars) of buffers.
+     */
+    public ThreadLocalBufferPool(final int defaultBufferSize) {
+        this(defaultBufferSize, 1, DEFAULT_SIZE_CLASSES);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this pool.
+     * </p>
+     *
+     * @param defaultBufferSize the default size (in chars) of buffers.
+     * @param buffersPerSizeClass the maximum amount of buffers to be kept for each size class and thread.
+     * @param sizeClasses the amount of size classes to be pooled.
+     */
+    public ThreadLocalBufferPool(final int defaultBufferSize, final int buffersPerSizeClass, final int sizeClasses) {
+        super(defaultBufferSize, sizeClasses);
+        if (buffersPerSizeClass < 0) {
+            throw new IllegalArgumentException("Amount of buffers per size class cannot be less than zero");
+        }
+        this.buffersPerSizeClass = buffersPerSizeClass;
+        this.threadBuffers = new ThreadLocal<char[][][]>();
+    }
+
+
+
+    @Override
+    protected char[] pollBuffer(final int sizeClass) {
+        final char[][][] buffers = this.threadBuffers.get();
+        if (buffers == null) {
+            return null;
+        }
+        final char[][] classBuffers = buffers[sizeClass];
+        for (int i = 0; i < classBuffers.length; i++) {
+            final char[] buffer = classBuffers[i];
+            if (buffer != null) {
+                classBuffers[i] = null;
+                return buffer;
+            }
+        }
+        return null;
+    }
+
+
+    @Override
+    protected boolean offerBuffer(final int sizeClass, final char[] buffer) {
+        char[][][] buffers = this.threadBuffers.get();
+        if (buffers == null) {
+            buffers = new char[getSizeClasses()][this.buffersPerSizeClass][];
+            this.threadBuffers.set(buffers);
+        }
+        final char[][] classBuffers = buffers[sizeClass];
+        for (int i = 0; i < classBuffers.length; i++) {
+            if (classBuffers[i] == null) {
+                classBuffers[i] = buffer;
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+}
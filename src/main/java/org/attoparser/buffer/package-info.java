@@ -0,0 +1,6 @@
+/**
+ * <p>
+ *   Pools of <tt>char[]</tt> buffers used by parsers.
+ * </p>
+ */
+package org.attoparser.buffer;
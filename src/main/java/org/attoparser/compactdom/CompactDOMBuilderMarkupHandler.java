@@ -0,0 +1,717 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.compactdom;
+
+import org.attoparser.AbstractMarkupHandler;
+import org.attoparser.ParseException;
+
+
+/**
+ * <p>
+ *   Implementation of {@link org.attoparser.IMarkupHandler} that builds a {@link CompactDocument}: a read-only
+ *   DOM tree stored in arrays instead of in one object per node.
+ * </p>
+ * <p>
+ *   This handler is an alternative to {@link org.attoparser.dom.DOMBuilderMarkupHandler} for applications that
+ *   only need to read (navigate) the parsed tree, especially when documents are large: the tree is built
+ *   into a small, fixed amount of arrays that grow as needed, and no <tt>String</tt> objects are created
+ *   for texts or attribute values (names are created only once per document). Once parsing finishes, arrays
+ *   are trimmed to their final size, and chars are stored as bytes if all of them are ISO-8859-1.
+ * </p>
+ * <p>
+ *   Differences in the resulting tree with the one built by {@link org.attoparser.dom.DOMBuilderMarkupHandler}
+ *   are that consecutive text events (which the parser might produce for a single text when texts are
+ *   configured as <em>splittable</em>) are merged into a single text node, that repeated attributes are all
+ *   kept, and that no line and column information is stored.
+ * </p>
+ * <p>
+ *   Sample usage:
+ * </p>
+ * <pre><code>
+ *   // Instance the compact DOM-builder handler
+ *   final CompactDOMBuilderMarkupHandler handler = new CompactDOMBuilderMarkupHandler("Some document");
+ *
+ *   // Create or obtain the parser instance
+ *   final IMarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+ *
+ *   // Parse the document
+ *   parser.parse(documentReader, handler);
+ *
+ *   // Obtain the parsed compact Document Object Model
+ *   final CompactDocument document = handler.getDocument();
+ * </code></pre>
+ * <p>
+ *   Note that, as with most handlers, this class is <strong>not thread-safe</strong>. Also, instances of this class
+ *   should not be reused across parsing operations.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class CompactDOMBuilderMarkupHandler extends AbstractMarkupHandler {
+
+    private static final int INITIAL_NODE_CAPACITY = 64;
+    private static final int INITIAL_ATTRIBUTE_CAPACITY = 64;
+    private static final int INITIAL_CHAR_CAPACITY = 1024;
+    private static final int INITIAL_DEPTH_CAPACITY = 16;
+
+
+    private final String documentName;
+
+    private CompactDocument document = null;
+    private boolean parsingFinished = false;
+
+    private int nodeCount = 0;
+    private byte[] types;
+    private int[] parents;
+    private int[] firstChildren;
+    private int[] nextSiblings;
+    private int[] names;
+    private int[] valueOffsets;
+    private int[] valueLens;
+    private int[] attributeStarts;
+
+    private int attributeCount = 0;
+    private int[] attributeNames;
+    private int[] attributeValueOffsets;
+    private int[] attributeValueLens;
+
+    private char[] chars;
+    private int charCount = 0;
+
+    private NameTable nameTable;
+
+    // Stack of open nodes (the document node at depth 0), along with the last child added to each of them
+    private int[] openNodes;
+    private int[] lastChildren;
+    private int depth = 0;
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this handler.
+     * </p>
+     */
+    public CompactDOMBuilderMarkupHandler() {
+        this(null);
+    }
+
+    /**
+     * <p>
+     *   Creates a new instance of this handler.
+     * </p>
+     *
+     * @param documentName the name of the document to be parsed.
+     */
+    public CompactDOMBuilderMarkupHandler(final String documentName) {
+        super();
+        this.documentName =
+                (documentName == null?
+                        String.valueOf(System.identityHashCode(this)) : documentName);
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns the {@link CompactDocument} created during parsing. This will be <tt>null</tt> until
+     *   parsing finishes.
+     * </p>
+     *
+     * @return the built compact DOM document object.
+     */
+    public CompactDocument getDocument() {
+        return this.document;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether parsing has already finished or not.
+     * </p>
+     *
+     * @return <tt>true</tt> if parsing has finished, <tt>false</tt> if not.
+     */
+    public boolean isParsingFinished() {
+        return this.parsingFinished;
+    }
+
+
+
+
+    @Override
+    public void handleDocumentStart(
+            final long startTimeNanos,
+            final int line, final int col)
+            throws ParseException {
+
+        this.types = new byte[INITIAL_NODE_CAPACITY];
+        this.parents = new int[INITIAL_NODE_CAPACITY];
+        this.firstChildren = new int[INITIAL_NODE_CAPACITY];
+        this.nextSiblings = new int[INITIAL_NODE_CAPACITY];
+        this.names = new int[INITIAL_NODE_CAPACITY];
+        this.valueOffsets = new int[INITIAL_NODE_CAPACITY];
+        this.valueLens = new int[INITIAL_NODE_CAPACITY];
+        this.attributeStarts = new int[INITIAL_NODE_CAPACITY];
+
+        this.attributeNames = new int[INITIAL_ATTRIBUTE_CAPACITY];
+        this.attributeValueOffsets = new int[INITIAL_ATTRIBUTE_CAPACITY];
+        this.attributeValueLens = new int[INITIAL_ATTRIBUTE_CAPACITY];
+
+        this.chars = new char[INITIAL_CHAR_CAPACITY];
+        this.nameTable = new NameTable();
+
+        this.openNodes = new int[INITIAL_DEPTH_CAPACITY];
+        this.lastChildren = new int[INITIAL_DEPTH_CAPACITY];
+
+        // The document node has no parent, so it is not linked as a child of anything
+        this.nodeCount = 1;
+        this.types[CompactDocument.DOCUMENT_NODE] = CompactDocument.TYPE_DOCUMENT;
+        this.parents[CompactDocument.DOCUMENT_NODE] = CompactDocument.NO_NODE;
+        this.firstChildren[CompactDocument.DOCUMENT_NODE] = CompactDocument.NO_NODE;
+        this.nextSiblings[CompactDocument.DOCUMENT_NODE] = CompactDocument.NO_NODE;
+        this.names[CompactDocument.DOCUMENT_NODE] = -1;
+        this.valueOffsets[CompactDocument.DOCUMENT_NODE] = -1;
+
+        this.depth = 0;
+        this.openNodes[0] = CompactDocument.DOCUMENT_NODE;
+        this.lastChildren[0] = CompactDocument.NO_NODE;
+
+    }
+
+
+
+    @Override
+    public void handleDocumentEnd(
+            final long endTimeNanos, final long totalTimeNanos,
+            final int line, final int col)
+            throws ParseException {
+
+        final int count = this.nodeCount;
+        final boolean latin1 = isLatin1(this.chars, this.charCount);
+
+        final int[] finalAttributeStarts = grow(this.attributeStarts, count + 1);
+        finalAttributeStarts[count] = this.attributeCount;
+
+        this.document =
+                new CompactDocument(
+                        this.documentName, count,
+                        grow(this.types, count),
+                        grow(this.parents, count),
+                        grow(this.firstChildren, count),
+                        grow(this.nextSiblings, count),
+                        grow(this.names, count),
+                        grow(this.valueOffsets, count),
+                        grow(this.valueLens, count),
+                        finalAttributeStarts,
+                        grow(this.attributeNames, this.attributeCount),
+                        grow(this.attributeValueOffsets, this.attributeCount),
+                        grow(this.attributeValueLens, this.attributeCount),
+                        this.nameTable.toArray(),
+                        (latin1 ? null : grow(this.chars, this.charCount)),
+                        (latin1 ? toLatin1(this.chars, this.charCount) : null));
+
+        // Building structures are released, so that only the (trimmed) document is kept in memory
+        this.types = null;
+        this.parents = null;
+        this.firstChildren = null;
+        this.nextSiblings = null;
+        this.names = null;
+        this.valueOffsets = null;
+        this.valueLens = null;
+        this.attributeStarts = null;
+        this.attributeNames = null;
+        this.attributeValueOffsets = null;
+        this.attributeValueLens = null;
+        this.chars = null;
+        this.nameTable = null;
+        this.openNodes = null;
+        this.lastChildren = null;
+
+        this.parsingFinished = true;
+
+    }
+
+
+
+
+    @Override
+    public void handleXmlDeclaration(
+            final char[] buffer,
+            final int keywordOffset, final int keywordLen,
+            final int keywordLine, final int keywordCol,
+            final int versionOffset, final int versionLen,
+            final int versionLine, final int versionCol,
+            final int encodingOffset, final int encodingLen,
+            final int encodingLine, final int encodingCol,
+            final int standaloneOffset, final int standaloneLen,
+            final int standaloneLine, final int standaloneCol,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+
+        addNode(CompactDocument.TYPE_XML_DECLARATION, -1, appendChars(buffer, outerOffset, outerLen), outerLen);
+
+    }
+
+
+
+    @Override
+    public void handleDocType(
+            final char[] buffer,
+            final int keywordOffset, final int keywordLen,
+            final int keywordLine, final int keywordCol,
+            final int elementNameOffset, final int elementNameLen,
+            final int elementNameLine, final int elementNameCol,
+            final int typeOffset, final int typeLen,
+            final int typeLine, final int typeCol,
+            final int publicIdOffset, final int publicIdLen,
+            final int publicIdLine, final int publicIdCol,
+            final int systemIdOffset, final int systemIdLen,
+            final int systemIdLine, final int systemIdCol,
+            final int internalSubsetOffset, final int internalSubsetLen,
+            final int internalSubsetLine, final int internalSubsetCol,
+            final int outerOffset, final int outerLen,
+            final int outerLine, final int outerCol)
+            throws ParseException {
+
+        addNode(
+                CompactDocument.TYPE_DOCTYPE,
+                this.nameTable.getId(buffer, elementNameOffset, elementNameLen),
+                appendChars(buffer, outerOffset, outerLen), outerLen);
+
+    }
+
+
+
+    @Override
+    public void handleCDATASection(
+            final char[] buffer,
+            final int contentOffset, final int contentLen,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+
+        addNode(CompactDocument.TYPE_CDATA_SECTION, -1, appendChars(buffer, contentOffset, contentLen), contentLen);
+
+    }
+
+
+
+    @Override
+    public void handleComment(
+            final char[] buffer,
+            final int contentOffset, final int contentLen,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+
+        addNode(CompactDocument.TYPE_COMMENT, -1, appendChars(buffer, contentOffset, contentLen), contentLen);
+
+    }
+
+
+
+    @Override
+    public void handleText(
+            final char[] buffer,
+            final int offset, final int len,
+            final int line, final int col)
+            throws ParseException {
+
+        final int last = this.lastChildren[this.depth];
+        if (last != CompactDocument.NO_NODE
+                && this.types[last] == CompactDocument.TYPE_TEXT
+                && this.valueOffsets[last] + this.valueLens[last] == this.charCount) {
+            // The previous node is a text whose chars are the last ones added: just extend it
+            appendChars(buffer, offset, len);
+            this.valueLens[last] += len;
+            return;
+        }
+
+        addNode(CompactDocument.TYPE_TEXT, -1, appendChars(buffer, offset, len), len);
+
+    }
+
+
+
+    @Override
+    public void handleStandaloneElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final boolean minimized, final int line, final int col)
+            throws ParseException {
+
+        addNode(CompactDocument.TYPE_ELEMENT, this.nameTable.getId(buffer, nameOffset, nameLen), -1, 0);
+
+    }
+
+
+
+    @Override
+    public void handleOpenElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+
+        addNode(CompactDocument.TYPE_ELEMENT, this.nameTable.getId(buffer, nameOffset, nameLen), -1, 0);
+
+    }
+
+
+
+    @Override
+    public void handleOpenElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+
+        pushLastChild();
+
+    }
+
+
+
+    @Override
+    public void handleAutoOpenElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+
+        addNode(CompactDocument.TYPE_ELEMENT, this.nameTable.getId(buffer, nameOffset, nameLen), -1, 0);
+
+    }
+
+
+
+    @Override
+    public void handleAutoOpenElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+
+        pushLastChild();
+
+    }
+
+
+
+    @Override
+    public void handleCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+
+        pop();
+
+    }
+
+
+
+    @Override
+    public void handleAutoCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+
+        pop();
+
+    }
+
+
+
+    @Override
+    public void handleAttribute(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int nameLine, final int nameCol,
+            final int operatorOffset, final int operatorLen,
+            final int operatorLine, final int operatorCol,
+            final int valueContentOffset, final int valueContentLen,
+            final int valueOuterOffset, final int valueOuterLen,
+            final int valueLine, final int valueCol)
+            throws ParseException {
+
+        if (this.attributeCount == this.attributeNames.length) {
+            final int capacity = this.attributeCount * 2;
+            this.attributeNames = grow(this.attributeNames, capacity);
+            this.attributeValueOffsets = grow(this.attributeValueOffsets, capacity);
+            this.attributeValueLens = grow(this.attributeValueLens, capacity);
+        }
+
+        final int attribute = this.attributeCount++;
+        this.attributeNames[attribute] = this.nameTable.getId(buffer, nameOffset, nameLen);
+        if (valueContentLen <= 0) {
+            this.attributeValueOffsets[attribute] = 0;
+            this.attributeValueLens[attribute] = 0;
+        } else {
+            this.attributeValueOffsets[attribute] = appendChars(buffer, valueContentOffset, valueContentLen);
+            this.attributeValueLens[attribute] = valueContentLen;
+        }
+
+    }
+
+
+
+    @Override
+    public void handleProcessingInstruction(
+            final char[] buffer,
+            final int targetOffset, final int targetLen,
+            final int targetLine, final int targetCol,
+            final int contentOffset, final int contentLen,
+            final int contentLine, final int contentCol,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+
+        final int target = this.nameTable.getId(buffer, targetOffset, targetLen);
+        if (contentOffset <= 0) {
+            addNode(CompactDocument.TYPE_PROCESSING_INSTRUCTION, target, -1, 0);
+        } else {
+            addNode(
+                    CompactDocument.TYPE_PROCESSING_INSTRUCTION, target,
+                    appendChars(buffer, contentOffset, contentLen), contentLen);
+        }
+
+    }
+
+
+
+
+    private void addNode(final byte type, final int name, final int valueOffset, final int valueLen) {
+
+        if (this.nodeCount == this.types.length) {
+            final int capacity = this.nodeCount * 2;
+            this.types = grow(this.types, capacity);
+            this.parents = grow(this.parents, capacity);
+            this.firstChildren = grow(this.firstChildren, capacity);
+            this.nextSiblings = grow(this.nextSiblings, capacity);
+            this.names = grow(this.names, capacity);
+            this.valueOffsets = grow(this.valueOffsets, capacity);
+            this.valueLens = grow(this.valueLens, capacity);
+            this.attributeStarts = grow(this.attributeStarts, capacity);
+        }
+
+        final int node = this.nodeCount++;
+        final int parent = this.openNodes[this.depth];
+
+        this.types[node] = type;
+        this.parents[node] = parent;
+        this.firstChildren[node] = CompactDocument.NO_NODE;
+        this.nextSiblings[node] = CompactDocument.NO_NODE;
+        this.names[node] = name;
+        this.valueOffsets[node] = valueOffset;
+        this.valueLens[node] = valueLen;
+        // Attributes for this node (if it is an element) will come right after this
+        this.attributeStarts[node] = this.attributeCount;
+
+        final int last = this.lastChildren[this.depth];
+        if (last == CompactDocument.NO_NODE) {
+            this.firstChildren[parent] = node;
+        } else {
+            this.nextSiblings[last] = node;
+        }
+        this.lastChildren[this.depth] = node;
+
+    }
+
+
+    private void pushLastChild() {
+        // The element being opened is always the last node added
+        if (this.depth + 1 == this.openNodes.length) {
+            final int capacity = this.openNodes.length * 2;
+            this.openNodes = grow(this.openNodes, capacity);
+            this.lastChildren = grow(this.lastChildren, capacity);
+        }
+        this.depth++;
+        this.openNodes[this.depth] = this.nodeCount - 1;
+        this.lastChildren[this.depth] = CompactDocument.NO_NODE;
+    }
+
+
+    private void pop() {
+        if (this.depth > 0) {
+            this.depth--;
+        }
+    }
+
+
+    private static boolean isLatin1(final char[] chars, final int len) {
+        for (int i = 0; i < len; i++) {
+            if (chars[i] > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static byte[] toLatin1(final char[] chars, final int len) {
+        final byte[] bytes = new byte[len];
+        for (int i = 0; i < len; i++) {
+            bytes[i] = (byte) chars[i];
+        }
+        return bytes;
+    }
+
+
+    /*
+     * Returns a copy of an array with a different length, used both for growing arrays and for trimming them
+     * once parsing finishes.
+     */
+    private static byte[] grow(final byte[] array, final int len) {
+        final byte[] newArray = new byte[len];
+        System.arraycopy(array, 0, newArray, 0, Math.min(array.length, len));
+        return newArray;
+    }
+
+
+    private static int[] grow(final int[] array, final int len) {
+        final int[] newArray = new int[len];
+        System.arraycopy(array, 0, newArray, 0, Math.min(array.length, len));
+        return newArray;
+    }
+
+
+    private static char[] grow(final char[] array, final int len) {
+        final char[] newArray = new char[len];
+        System.arraycopy(array, 0, newArray, 0, Math.min(array.length, len));
+        return newArray;
+    }
+
+
+    private static String[] grow(final String[] array, final int len) {
+        final String[] newArray = new String[len];
+        System.arraycopy(array, 0, newArray, 0, Math.min(array.length, len));
+        return newArray;
+    }
+
+
+    private int appendChars(final char[] buffer, final int offset, final int len) {
+        final int start = this.charCount;
+        if (start + len > this.chars.length) {
+            this.chars = grow(this.chars, Math.max(this.chars.length * 2, start + len));
+        }
+        System.arraycopy(buffer, offset, this.chars, start, len);
+        this.charCount += len;
+        return start;
+    }
+
+
+
+
+    /*
+     * Table of the names (of elements, attributes and processing instruction targets) in the document,
+     * so that a String is created only once for each different name. Names are looked up directly on the
+     * parsing buffer by means of an open-addressing hash table.
+     */
+    private static final class NameTable {
+
+        private String[] names = new String[32];
+        private int[] hashes = new int[32];
+        private int size = 0;
+        // Contains name id + 1 (0 meaning empty slot)
+        private int[] slots = new int[64];
+
+
+        NameTable() {
+            super();
+        }
+
+
+        int getId(final char[] buffer, final int offset, final int len) {
+
+            int hash = 0;
+            for (int i = offset, n = offset + len; i < n; i++) {
+                hash = 31 * hash + buffer[i];
+            }
+
+            final int mask = this.slots.length - 1;
+            int slot = hash & mask;
+            int id;
+            while ((id = this.slots[slot] - 1) >= 0) {
+                if (this.hashes[id] == hash && matches(this.names[id], buffer, offset, len)) {
+                    return id;
+                }
+                slot = (slot + 1) & mask;
+            }
+
+            if (this.size == this.names.length) {
+                this.names = grow(this.names, this.size * 2);
+                this.hashes = grow(this.hashes, this.size * 2);
+            }
+            id = this.size++;
+            this.names[id] = new String(buffer, offset, len);
+            this.hashes[id] = hash;
+            this.slots[slot] = id + 1;
+
+            if (this.size * 2 > this.slots.length) {
+                rehash();
+            }
+
+            return id;
+
+        }
+
+
+        String[] toArray() {
+            return grow(this.names, this.size);
+        }
+
+
+        private void rehash() {
+            final int[] newSlots = new int[this.slots.length * 2];
+            final int mask = newSlots.length - 1;
+            for (int id = 0; id < this.size; id++) {
+                int slot = this.hashes[id] & mask;
+                while (newSlots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                newSlots[slot] = id + 1;
+            }
+            this.slots = newSlots;
+        }
+
+
+        private static boolean matches(final String name, final char[] buffer, final int offset, final int len) {
+            if (name.length() != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (name.charAt(i) != buffer[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,536 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.compactdom;
+
+import java.io.IOException;
+import java.io.Writer;
+
+
+/**
+ * <p>
+ *   Read-only DOM tree produced by the {@link org.attoparser.compactdom.CompactDOMBuilderMarkupHandler} handler.
+ * </p>
+ * <p>
+ *   Unlike the object trees in package <tt>org.attoparser.dom</tt>, this document does not create an object
+ *   per node. Nodes are identified by <tt>int</tt> numbers and stored in parallel arrays holding their type,
+ *   parent, first child, next sibling and name. Element and attribute names are stored once per document and
+ *   referenced by id, and the contents of texts, comments, CDATA sections, etc. as well as attribute values
+ *   are stored as ranges of a single array of chars, so that no <tt>String</tt> objects are created for them
+ *   until (and only if) they are asked for. This array stores one byte per char when all the chars in the
+ *   document are ISO-8859-1 (as is the case for most markup), and two bytes per char otherwise.
+ * </p>
+ * <p>
+ *   Node numbers follow document order, the document node itself being {@link #DOCUMENT_NODE}. As a
+ *   consequence, all the descendants of a node have consecutive numbers immediately after it, and iterating
+ *   nodes from <tt>0</tt> to {@link #getNodeCount()} is a depth-first traversal of the whole tree.
+ * </p>
+ * <p>
+ *   Navigation example (printing the <tt>href</tt> of all <tt>&lt;a&gt;</tt> elements):
+ * </p>
+ * <pre><code>
+ *   final CompactDocument document = handler.getDocument();
+ *   for (final int a : document.getElements("a")) {
+ *       System.out.println(document.getAttributeValue(a, "href"));
+ *   }
+ * </code></pre>
+ * <p>
+ *   Line and column information is not kept. Objects of this class are immutable, and therefore
+ *   <strong>thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class CompactDocument {
+
+    /**
+     * <p>
+     *   Number of the document node, root of the tree.
+     * </p>
+     */
+    public static final int DOCUMENT_NODE = 0;
+
+    /**
+     * <p>
+     *   Value returned by navigation methods when the requested node does not exist.
+     * </p>
+     */
+    public static final int NO_NODE = -1;
+
+
+    public static final byte TYPE_DOCUMENT = 0;
+    public static final byte TYPE_ELEMENT = 1;
+    public static final byte TYPE_TEXT = 2;
+    public static final byte TYPE_COMMENT = 3;
+    public static final byte TYPE_CDATA_SECTION = 4;
+    public static final byte TYPE_DOCTYPE = 5;
+    public static final byte TYPE_XML_DECLARATION = 6;
+    public static final byte TYPE_PROCESSING_INSTRUCTION = 7;
+
+
+    private static final int[] NO_NODES = new int[0];
+    private static final int WRITE_CHUNK_SIZE = 1024;
+
+
+    private final String documentName;
+
+    private final int nodeCount;
+    private final byte[] types;
+    private final int[] parents;
+    private final int[] firstChildren;
+    private final int[] nextSiblings;
+    private final int[] names;
+    private final int[] valueOffsets;
+    private final int[] valueLens;
+    // Attributes of node n are those from attributeStarts[n] to attributeStarts[n + 1]
+    private final int[] attributeStarts;
+
+    private final int[] attributeNames;
+    private final int[] attributeValueOffsets;
+    private final int[] attributeValueLens;
+
+    private final String[] nameTable;
+    // Only one of these is used: chars are stored as bytes when all of them are ISO-8859-1
+    private final char[] chars;
+    private final byte[] latin1Chars;
+
+
+
+
+    CompactDocument(
+            final String documentName, final int nodeCount,
+            final byte[] types, final int[] parents, final int[] firstChildren, final int[] nextSiblings,
+            final int[] names, final int[] valueOffsets, final int[] valueLens, final int[] attributeStarts,
+            final int[] attributeNames, final int[] attributeValueOffsets, final int[] attributeValueLens,
+            final String[] nameTable, final char[] chars, final byte[] latin1Chars) {
+        super();
+        this.documentName = documentName;
+        this.nodeCount = nodeCount;
+        this.types = types;
+        this.parents = parents;
+        this.firstChildren = firstChildren;
+        this.nextSiblings = nextSiblings;
+        this.names = names;
+        this.valueOffsets = valueOffsets;
+        this.valueLens = valueLens;
+        this.attributeStarts = attributeStarts;
+        this.attributeNames = attributeNames;
+        this.attributeValueOffsets = attributeValueOffsets;
+        this.attributeValueLens = attributeValueLens;
+        this.nameTable = nameTable;
+        this.chars = chars;
+        this.latin1Chars = latin1Chars;
+    }
+
+
+
+
+    public String getDocumentName() {
+        return this.documentName;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of nodes in this document, including the document node itself.
+     * </p>
+     *
+     * @return the amount of nodes.
+     */
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the type of a node, as one of the <tt>TYPE_*</tt> constants in this class.
+     * </p>
+     *
+     * @param node the node.
+     * @return the node type.
+     */
+    public byte getType(final int node) {
+        return this.types[node];
+    }
+
+
+    public boolean isElement(final int node) {
+        return this.types[node] == TYPE_ELEMENT;
+    }
+
+
+    /**
+     * <p>
+     *   Returns whether a node is an element with the specified name. Name comparison is case-sensitive,
+     *   so for HTML documents (in which element names are case-insensitive) names are better specified in
+     *   the same case they are written in the document.
+     * </p>
+     *
+     * @param node the node.
+     * @param name the element name.
+     * @return <tt>true</tt> if the node is an element with the specified name, <tt>false</tt> if not.
+     */
+    public boolean isElement(final int node, final String name) {
+        return this.types[node] == TYPE_ELEMENT && this.nameTable[this.names[node]].equals(name);
+    }
+
+
+
+
+    public int getParent(final int node) {
+        return this.parents[node];
+    }
+
+
+    public int getFirstChild(final int node) {
+        return this.firstChildren[node];
+    }
+
+
+    public int getNextSibling(final int node) {
+        return this.nextSiblings[node];
+    }
+
+
+    public int getFirstChildElement(final int node) {
+        int child = this.firstChildren[node];
+        while (child != NO_NODE && this.types[child] != TYPE_ELEMENT) {
+            child = this.nextSiblings[child];
+        }
+        return child;
+    }
+
+
+    public int getNextSiblingElement(final int node) {
+        int sibling = this.nextSiblings[node];
+        while (sibling != NO_NODE && this.types[sibling] != TYPE_ELEMENT) {
+            sibling = this.nextSiblings[sibling];
+        }
+        return sibling;
+    }
+
+
+    public boolean hasChildren(final int node) {
+        return this.firstChildren[node] != NO_NODE;
+    }
+
+
+    public int getChildCount(final int node) {
+        int count = 0;
+        for (int child = this.firstChildren[node]; child != NO_NODE; child = this.nextSiblings[child]) {
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the children of a node, in document order.
+     * </p>
+     *
+     * @param node the node.
+     * @return the children (an empty array if the node has no children).
+     */
+    public int[] getChildren(final int node) {
+        final int count = getChildCount(node);
+        if (count == 0) {
+            return NO_NODES;
+        }
+        final int[] children = new int[count];
+        int i = 0;
+        for (int child = this.firstChildren[node]; child != NO_NODE; child = this.nextSiblings[child]) {
+            children[i++] = child;
+        }
+        return children;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the number of the first node after the last descendant of the specified node. As
+     *   descendants have consecutive numbers, they are all the nodes between <tt>node + 1</tt> (inclusive)
+     *   and the returned number (exclusive).
+     * </p>
+     *
+     * @param node the node.
+     * @return the number of the first node after the subtree of the specified node (which might be
+     *         equal to {@link #getNodeCount()}).
+     */
+    public int getSubtreeEnd(final int node) {
+        int current = node;
+        while (current != NO_NODE) {
+            final int sibling = this.nextSiblings[current];
+            if (sibling != NO_NODE) {
+                return sibling;
+            }
+            current = this.parents[current];
+        }
+        return this.nodeCount;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the name of a node: the element name for elements, the target for processing instructions
+     *   and the root element name for DOCTYPE clauses. Rest of node types have no name.
+     * </p>
+     *
+     * @param node the node.
+     * @return the node name, or <tt>null</tt> if the node has no name.
+     */
+    public String getName(final int node) {
+        final int name = this.names[node];
+        return (name < 0 ? null : this.nameTable[name]);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the id of the name of a node (see {@link #getNameId(String)}).
+     * </p>
+     *
+     * @param node the node.
+     * @return the name id, or <tt>-1</tt> if the node has no name.
+     */
+    public int getNodeNameId(final int node) {
+        return this.names[node];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the id of a name (element, attribute or processing instruction target) in this document.
+     *   Ids allow comparing names as <tt>int</tt> values when navigating large amounts of nodes.
+     * </p>
+     *
+     * @param name the name.
+     * @return the name id, or <tt>-1</tt> if no node or attribute in this document has such name.
+     */
+    public int getNameId(final String name) {
+        for (int i = 0; i < this.nameTable.length; i++) {
+            if (this.nameTable[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the value of a node: the contents of texts, comments, CDATA sections and processing
+     *   instructions, or the complete markup of DOCTYPE clauses and XML declarations. A new <tt>String</tt>
+     *   is created for it on every call.
+     * </p>
+     *
+     * @param node the node.
+     * @return the node value, or <tt>null</tt> if the node has no value.
+     */
+    public String getValue(final int node) {
+        final int offset = this.valueOffsets[node];
+        return (offset < 0 ? null : string(offset, this.valueLens[node]));
+    }
+
+
+    /**
+     * <p>
+     *   Returns the length of the value of a node, without creating a <tt>String</tt> for it.
+     * </p>
+     *
+     * @param node the node.
+     * @return the length of the node value, or <tt>-1</tt> if the node has no value.
+     */
+    public int getValueLength(final int node) {
+        return (this.valueOffsets[node] < 0 ? -1 : this.valueLens[node]);
+    }
+
+
+    /**
+     * <p>
+     *   Writes the value of a node, without creating a <tt>String</tt> for it.
+     * </p>
+     *
+     * @param node the node.
+     * @param writer the writer to write the value to.
+     * @throws IOException if an error happens while writing.
+     */
+    public void writeValue(final int node, final Writer writer) throws IOException {
+        final int offset = this.valueOffsets[node];
+        if (offset < 0) {
+            return;
+        }
+        if (this.chars != null) {
+            writer.write(this.chars, offset, this.valueLens[node]);
+            return;
+        }
+        final char[] chunk = new char[Math.min(this.valueLens[node], WRITE_CHUNK_SIZE)];
+        int written = 0;
+        while (written < this.valueLens[node]) {
+            final int len = Math.min(chunk.length, this.valueLens[node] - written);
+            for (int i = 0; i < len; i++) {
+                chunk[i] = (char) (this.latin1Chars[offset + written + i] & 0xFF);
+            }
+            writer.write(chunk, 0, len);
+            written += len;
+        }
+    }
+
+
+    /**
+     * <p>
+     *   Returns the concatenation of all the texts and CDATA sections inside a node (or the node itself,
+     *   if it is a text or CDATA section).
+     * </p>
+     *
+     * @param node the node.
+     * @return the text content (an empty String if there is none).
+     */
+    public String getTextContent(final int node) {
+        final StringBuilder strBuilder = new StringBuilder();
+        final int end = getSubtreeEnd(node);
+        for (int i = node; i < end; i++) {
+            if (this.types[i] == TYPE_TEXT || this.types[i] == TYPE_CDATA_SECTION) {
+                if (this.chars != null) {
+                    strBuilder.append(this.chars, this.valueOffsets[i], this.valueLens[i]);
+                } else {
+                    for (int j = this.valueOffsets[i], n = j + this.valueLens[i]; j < n; j++) {
+                        strBuilder.append((char) (this.latin1Chars[j] & 0xFF));
+                    }
+                }
+            }
+        }
+        return strBuilder.toString();
+    }
+
+
+
+
+    public int getAttributeCount(final int node) {
+        return this.attributeStarts[node + 1] - this.attributeStarts[node];
+    }
+
+
+    public String getAttributeName(final int node, final int index) {
+        return this.nameTable[this.attributeNames[attribute(node, index)]];
+    }
+
+
+    public String getAttributeValue(final int node, final int index) {
+        final int attribute = attribute(node, index);
+        return string(this.attributeValueOffsets[attribute], this.attributeValueLens[attribute]);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the value of an attribute of a node, specified by name. If the attribute appears more than
+     *   once, the value of the last appearance is returned.
+     * </p>
+     *
+     * @param node the node.
+     * @param name the attribute name.
+     * @return the attribute value (an empty String for attributes with no value), or <tt>null</tt> if the
+     *         node does not have such attribute.
+     */
+    public String getAttributeValue(final int node, final String name) {
+        final int attribute = findAttribute(node, name);
+        if (attribute < 0) {
+            return null;
+        }
+        return string(this.attributeValueOffsets[attribute], this.attributeValueLens[attribute]);
+    }
+
+
+    public boolean hasAttribute(final int node, final String name) {
+        return findAttribute(node, name) >= 0;
+    }
+
+
+    @SuppressWarnings("deprecation")
+    private String string(final int offset, final int len) {
+        if (this.chars != null) {
+            return new String(this.chars, offset, len);
+        }
+        // This (deprecated) constructor is the only one that widens bytes to chars without a charset lookup
+        return new String(this.latin1Chars, 0, offset, len);
+    }
+
+
+    private int attribute(final int node, final int index) {
+        if (index < 0 || index >= getAttributeCount(node)) {
+            throw new IndexOutOfBoundsException(
+                    "Node " + node + " has " + getAttributeCount(node) + " attributes, index: " + index);
+        }
+        return this.attributeStarts[node] + index;
+    }
+
+
+    private int findAttribute(final int node, final String name) {
+        // Searched backwards, so that the last appearance wins (as happens in org.attoparser.dom.Element)
+        for (int i = this.attributeStarts[node + 1] - 1; i >= this.attributeStarts[node]; i--) {
+            if (this.nameTable[this.attributeNames[i]].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns all the elements in the document with the specified name, in document order.
+     * </p>
+     *
+     * @param name the element name.
+     * @return the elements (an empty array if there are none).
+     */
+    public int[] getElements(final String name) {
+        final int nameId = getNameId(name);
+        if (nameId < 0) {
+            return NO_NODES;
+        }
+        int count = 0;
+        for (int i = 0; i < this.nodeCount; i++) {
+            if (this.names[i] == nameId && this.types[i] == TYPE_ELEMENT) {
+                count++;
+            }
+        }
+        final int[] elements = new int[count];
+        int j = 0;
+        for (int i = 0; j < count; i++) {
+            if (this.names[i] == nameId && this.types[i] == TYPE_ELEMENT) {
+                elements[j++] = i;
+            }
+        }
+        return elements;
+    }
+
+
+}
@@ -0,0 +1,6 @@
+/**
+ * <p>
+ *   Handlers for creating compact, read-only DOM trees stored in arrays as a result of parsing.
+ * </p>
+ */
+package org.attoparser.compactdom;
@@ -114,6 +114,9 @@ public static enum ElementBalancing {
     private boolean caseSensitive = true;
 
     private boolean textSplittable = false;
+
+    private boolean bulkScanning = false;
+    private boolean lazyPositionTracking = false;
     
     private ElementBalancing elementBalancing = ElementBalancing.NO_BALANCING;
 
@@ -133,6 +136,8 @@ public static enum ElementBalancing {
         DEFAULT_HTML_PARSE_CONFIGURATION = new ParseConfiguration();
         DEFAULT_HTML_PARSE_CONFIGURATION.setMode(ParsingMode.HTML);
         DEFAULT_HTML_PARSE_CONFIGURATION.setTextSplittable(false);
+        DEFAULT_HTML_PARSE_CONFIGURATION.setBulkScanning(false);
+        DEFAULT_HTML_PARSE_CONFIGURATION.setLazyPositionTracking(false);
         DEFAULT_HTML_PARSE_CONFIGURATION.setElementBalancing(ElementBalancing.AUTO_CLOSE);
         DEFAULT_HTML_PARSE_CONFIGURATION.setNoUnmatchedCloseElementsRequired(false);
         DEFAULT_HTML_PARSE_CONFIGURATION.setUniqueAttributesInElementRequired(false);
@@ -148,6 +153,8 @@ public static enum ElementBalancing {
         DEFAULT_XML_PARSE_CONFIGURATION = new ParseConfiguration();
         DEFAULT_XML_PARSE_CONFIGURATION.setMode(ParsingMode.XML);
         DEFAULT_XML_PARSE_CONFIGURATION.setTextSplittable(false);
+        DEFAULT_XML_PARSE_CONFIGURATION.setBulkScanning(false);
+        DEFAULT_XML_PARSE_CONFIGURATION.setLazyPositionTracking(false);
         DEFAULT_XML_PARSE_CONFIGURATION.setElementBalancing(ElementBalancing.REQUIRE_BALANCED);
         DEFAULT_XML_PARSE_CONFIGURATION.setNoUnmatchedCloseElementsRequired(true);
         DEFAULT_XML_PARSE_CONFIGURATION.setUniqueAttributesInElementRequired(true);
@@ -170,6 +177,8 @@ public static enum ElementBalancing {
      * <ul>
      *     <li>Mode: {@link org.attoparser.config.ParseConfiguration.ParsingMode#HTML}</li>
      *     <li>Text splittable: false</li>
+     *     <li>Bulk scanning: false</li>
+     *     <li>Lazy position tracking: false</li>
      *     <li>Element balancing: {@link org.attoparser.config.ParseConfiguration.ElementBalancing#AUTO_CLOSE}</li>
      *     <li>No unmatched close elements required: false</li>
      *     <li>Unique attributes in elements required: false</li>
@@ -199,6 +208,8 @@ public static ParseConfiguration htmlConfiguration() {
      * <ul>
      *     <li>Mode: {@link org.attoparser.config.ParseConfiguration.ParsingMode#XML}</li>
      *     <li>Text splittable: false</li>
+     *     <li>Bulk scanning: false</li>
+     *     <li>Lazy position tracking: false</li>
      *     <li>Element balancing: {@link org.attoparser.config.ParseConfiguration.ElementBalancing#REQUIRE_BALANCED}</li>
      *     <li>No unmatched close elements required: true</li>
      *     <li>Unique attributes in elements required: true</li>
@@ -351,6 +362,107 @@ public void setTextSplittable(final boolean textSplittable) {
 
 
 
+    /**
+     * <p>
+     *   Returns whether the parser will look for the delimiters of markup structures (<tt>&lt;</tt>,
+     *   <tt>&gt;</tt>, quotes and line feeds) several chars at a time (word-at-a-time), skipping in bulk
+     *   those fragments of text that contain none of them.
+     * </p>
+     * <p>
+     *   Bulk scanning produces exactly the same events (including line and column numbers) as the default
+     *   char-by-char scanning, and can speed up the parsing of text-heavy documents.
+     * </p>
+     * <p>
+     *   Default is <tt>false</tt>.
+     * </p>
+     *
+     * @return whether bulk scanning is enabled or not.
+     * @since 2.0.6
+     */
+    public boolean isBulkScanning() {
+        return this.bulkScanning;
+    }
+
+
+    /**
+     * <p>
+     *   Specify whether the parser will look for the delimiters of markup structures (<tt>&lt;</tt>,
+     *   <tt>&gt;</tt>, quotes and line feeds) several chars at a time (word-at-a-time), skipping in bulk
+     *   those fragments of text that contain none of them.
+     * </p>
+     * <p>
+     *   Bulk scanning produces exactly the same events (including line and column numbers) as the default
+     *   char-by-char scanning, and can speed up the parsing of text-heavy documents.
+     * </p>
+     * <p>
+     *   Default is <tt>false</tt>.
+     * </p>
+     *
+     * @param bulkScanning whether bulk scanning should be enabled or not.
+     * @since 2.0.6
+     */
+    public void setBulkScanning(final boolean bulkScanning) {
+        this.bulkScanning = bulkScanning;
+    }
+
+
+
+    /**
+     * <p>
+     *   Returns whether the parser will avoid computing the line and column of every event while
+     *   parsing (<em>lazy position tracking</em>).
+     * </p>
+     * <p>
+     *   By default, the parser counts lines and columns for every char it reads, so that a <tt>(line,col)</tt>
+     *   pair can be reported along with every event. When lazy position tracking is enabled, this counting is
+     *   not performed and events will be reported with <tt>-1</tt> as line and column (except the
+     *   <em>document start</em> event). Lines and columns will then only be computed on demand: for the
+     *   messages of any {@link org.attoparser.ParseException} thrown during parsing (which will be located
+     *   at the start of the markup structure being processed), and whenever an event handler calls
+     *   {@link org.attoparser.ParseStatus#getLine(int)} or {@link org.attoparser.ParseStatus#getCol(int)}
+     *   for the offset of an event in the document buffer.
+     * </p>
+     * <p>
+     *   Default is <tt>false</tt>.
+     * </p>
+     *
+     * @return whether lazy position tracking is enabled or not.
+     * @since 2.0.6
+     */
+    public boolean isLazyPositionTracking() {
+        return this.lazyPositionTracking;
+    }
+
+
+    /**
+     * <p>
+     *   Specify whether the parser will avoid computing the line and column of every event while
+     *   parsing (<em>lazy position tracking</em>).
+     * </p>
+     * <p>
+     *   By default, the parser counts lines and columns for every char it reads, so that a <tt>(line,col)</tt>
+     *   pair can be reported along with every event. When lazy position tracking is enabled, this counting is
+     *   not performed and events will be reported with <tt>-1</tt> as line and column (except the
+     *   <em>document start</em> event). Lines and columns will then only be computed on demand: for the
+     *   messages of any {@link org.attoparser.ParseException} thrown during parsing (which will be located
+     *   at the start of the markup structure being processed), and whenever an event handler calls
+     *   {@link org.attoparser.ParseStatus#getLine(int)} or {@link org.attoparser.ParseStatus#getCol(int)}
+     *   for the offset of an event in the document buffer.
+     * </p>
+     * <p>
+     *   Default is <tt>false</tt>.
+     * </p>
+     *
+     * @param lazyPositionTracking whether lazy position tracking should be enabled or not.
+     * @since 2.0.6
+     */
+    public void setLazyPositionTracking(final boolean lazyPositionTracking) {
+        this.lazyPositionTracking = lazyPositionTracking;
+    }
+
+
+
+
     /**
      * <p>
      *   Returns the level of element balancing required at the document being parsed,
@@ -19,10 +19,11 @@
  */
 package org.attoparser.dom;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 
 /*
@@ -35,8 +36,10 @@
         extends AbstractNode
         implements INestableNode {
 
-    
-    private List<INode> children = null;
+    // Most nodes in markup have very few children
+    private static final int INITIAL_CHILDREN_CAPACITY = 2;
+
+    private INode[] children = null;
     private int childrenLen = 0;
     
 
@@ -67,7 +70,8 @@ public List<INode> getChildren() {
         if (this.childrenLen == 0) {
             return Collections.emptyList();
         }
-        return Collections.unmodifiableList(this.children);
+        // Unmodifiable view on the children (so it will reflect any later changes in them)
+        return new ChildrenList();
     }
 
     
@@ -77,7 +81,8 @@ public <T extends INode> List<T> getChildrenOfType(final Class<T> type) {
             return Collections.emptyList();
         }
         final List<T> selectedChildren = new ArrayList<T>(5);
-        for (final INode child : this.children) {
+        for (int i = 0; i < this.childrenLen; i++) {
+            final INode child = this.children[i];
             if (type.isInstance(child)) {
                 selectedChildren.add((T)child);
             }
@@ -91,16 +96,14 @@ public INode getFirstChild() {
         if (this.childrenLen == 0) {
             return null;
         }
-        return this.children.get(0);
+        return this.children[0];
     }
 
 
     @SuppressWarnings("unchecked")
     public <T extends INode> T getFirstChildOfType(final Class<T> type) {
-        if (this.childrenLen == 0) {
-            return null;
-        }
-        for (final INode child : this.children) {
+        for (int i = 0; i < this.childrenLen; i++) {
+            final INode child = this.children[i];
             if (type.isInstance(child)) {
                 return (T) child;
             }
@@ -115,11 +118,8 @@ public void addChild(final INode newChild) {
         
         if (newChild != null) {
             
-            if (this.childrenLen == 0) {
-                this.children = new ArrayList<INode>(5);
-            }
-            this.children.add(newChild);
-            this.childrenLen++;
+            ensureChildrenCapacity();
+            this.children[this.childrenLen++] = newChild;
             
             newChild.setParent(this);
             
@@ -132,13 +132,11 @@ public final void insertChild(final int index, final INode newChild) {
         
         if (newChild != null) {
             
-            if (this.childrenLen == 0) {
-                this.children = new ArrayList<INode>(5);
-            }
-            
             if (index <= this.childrenLen) {
                 
-                this.children.add(index, newChild);
+                ensureChildrenCapacity();
+                System.arraycopy(this.children, index, this.children, index + 1, this.childrenLen - index);
+                this.children[index] = newChild;
                 this.childrenLen++;
                 
                 newChild.setParent(this);
@@ -154,13 +152,10 @@ public final void insertChildBefore(final INode before, final INode newChild) {
         
         if (newChild != null) {
             
-            if (this.childrenLen > 0) {
-                for (int i = 0; i < this.childrenLen; i++) {
-                    final INode currentChild = this.children.get(i);
-                    if (currentChild == before) {
-                        insertChild(i, newChild);
-                        return;
-                    }
+            for (int i = 0; i < this.childrenLen; i++) {
+                if (this.children[i] == before) {
+                    insertChild(i, newChild);
+                    return;
                 }
             }
             
@@ -173,13 +168,10 @@ public final void insertChildAfter(final INode after, final INode newChild) {
         
         if (newChild != null) {
             
-            if (this.childrenLen > 0) {
-                for (int i = 0; i < this.childrenLen; i++) {
-                    final INode currentChild = this.children.get(i);
-                    if (currentChild == after) {
-                        insertChild(i + 1, newChild);
-                        return;
-                    }
+            for (int i = 0; i < this.childrenLen; i++) {
+                if (this.children[i] == after) {
+                    insertChild(i + 1, newChild);
+                    return;
                 }
             }
             
@@ -192,12 +184,11 @@ public final void removeChild(final INode child) {
         
         if (child != null && child.getParent() == this) {
             
-            final Iterator<INode> childrenIter = this.children.iterator();
-            while (childrenIter.hasNext()) {
-                final INode nodeChild = childrenIter.next();
-                if (nodeChild == child) {
-                    childrenIter.remove();
+            for (int i = 0; i < this.childrenLen; i++) {
+                if (this.children[i] == child) {
                     this.childrenLen--;
+                    System.arraycopy(this.children, i + 1, this.children, i, this.childrenLen - i);
+                    this.children[this.childrenLen] = null;
                     break;
                 }
             }
@@ -219,6 +210,43 @@ public final void clearChildren() {
 
 
 
-    
+    private void ensureChildrenCapacity() {
+        if (this.children == null) {
+            this.children = new INode[INITIAL_CHILDREN_CAPACITY];
+        } else if (this.childrenLen == this.children.length) {
+            final INode[] newChildren = new INode[this.childrenLen * 2];
+            System.arraycopy(this.children, 0, newChildren, 0, this.childrenLen);
+            this.children = newChildren;
+        }
+    }
+
+
+
+
+    /*
+     * Unmodifiable List view on the children of the node.
+     */
+    private final class ChildrenList extends AbstractList<INode> implements RandomAccess {
+
+        ChildrenList() {
+            super();
+        }
+
+        @Override
+        public INode get(final int index) {
+            if (index < 0 || index >= AbstractNestableNode.this.childrenLen) {
+                throw new IndexOutOfBoundsException(
+                        "Index: " + index + ", Size: " + AbstractNestableNode.this.childrenLen);
+            }
+            return AbstractNestableNode.this.children[index];
+        }
+
+        @Override
+        public int size() {
+            return AbstractNestableNode.this.childrenLen;
+        }
+
+    }
+
 
 }
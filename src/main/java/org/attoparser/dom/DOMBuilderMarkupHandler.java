@@ -19,11 +19,9 @@
  */
 package org.attoparser.dom;
 
-import java.util.LinkedHashMap;
-import java.util.Map;
-
 import org.attoparser.AbstractMarkupHandler;
 import org.attoparser.ParseException;
+import org.attoparser.util.StringDeduplicationCache;
 
 
 /**
@@ -55,6 +53,11 @@
  *   final Document document = handler.getDocument();
  * </code></pre>
  * <p>
+ *   Short attribute values and texts (as well as whitespace-only texts) can be deduplicated by specifying a
+ *   {@link org.attoparser.util.StringDeduplicationCache} at construction time, so that a single <tt>String</tt>
+ *   object is created for all the appearances of each of them. No deduplication is performed by default.
+ * </p>
+ * <p>
  *   Note that, as with most handlers, this class is <strong>not thread-safe</strong>. Also, instances of this class
  *   should not be reused across parsing operations.
  * </p>
@@ -68,6 +71,7 @@
 public final class DOMBuilderMarkupHandler extends AbstractMarkupHandler {
     
     private final String documentName;
+    private final StringDeduplicationCache stringCache;
     
     private Document document = null;
     private boolean parsingFinished = false;
@@ -79,7 +83,9 @@ public final class DOMBuilderMarkupHandler extends AbstractMarkupHandler {
 
 
     private String currentElementName = null;
-    private Map<String,String> currentElementAttributes = null;
+    // Names and values (interleaved) of the attributes of the current element, reused for every element
+    private String[] currentElementAttributes = new String[16];
+    private int currentElementAttributesLen = 0;
     private int currentElementLine = -1;
     private int currentElementCol = -1;
 
@@ -102,10 +108,30 @@ public DOMBuilderMarkupHandler() {
      * @param documentName the name of the document to be parsed.
      */
     public DOMBuilderMarkupHandler(final String documentName) {
+        this(documentName, null);
+    }
+
+    /**
+     * <p>
+     *   Creates a new instance of this handler, specifying the cache to be used for deduplicating the
+     *   <tt>String</tt> objects created for attribute values and texts.
+     * </p>
+     * <p>
+     *   By default, texts are not deduplicated. Sharing a cache among the handlers for different documents
+     *   also shares the canonical texts among their DOM trees, and makes hit rate statistics available for
+     *   all of them.
+     * </p>
+     *
+     * @param documentName the name of the document to be parsed.
+     * @param stringCache the cache to be used, or <tt>null</tt> for not deduplicating texts at all.
+     * @since 2.0.6
+     */
+    public DOMBuilderMarkupHandler(final String documentName, final StringDeduplicationCache stringCache) {
         super();
         this.documentName = 
                 (documentName == null? 
                         String.valueOf(System.identityHashCode(this)) : documentName);
+        this.stringCache = stringCache;
     }
 
     
@@ -121,6 +147,21 @@ public Document getDocument() {
         return this.document;
     }
 
+
+
+    /**
+     * <p>
+     *   Returns the cache used for deduplicating the <tt>String</tt> objects created for attribute values
+     *   and texts, which can be queried for hit rate statistics.
+     * </p>
+     *
+     * @return the cache, or <tt>null</tt> if texts are not being deduplicated.
+     * @since 2.0.6
+     */
+    public StringDeduplicationCache getStringCache() {
+        return this.stringCache;
+    }
+
     
 
     /**
@@ -331,7 +372,7 @@ public void handleText(
             final int line, final int col)
             throws ParseException {
 
-        final Text text = new Text(new String(buffer, offset, len));
+        final Text text = new Text(createString(buffer, offset, len));
         text.setLine(Integer.valueOf(line));
         text.setLine(Integer.valueOf(col));
 
@@ -353,7 +394,7 @@ public void handleStandaloneElementStart(
             throws ParseException {
 
         this.currentElementName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
-        this.currentElementAttributes = null;
+        this.currentElementAttributesLen = 0;
         this.currentElementLine = line;
         this.currentElementCol = col;
 
@@ -369,7 +410,7 @@ public void handleStandaloneElementEnd(
             throws ParseException {
 
         final Element element = new Element(this.currentElementName);
-        element.addAttributes(this.currentElementAttributes);
+        element.addAttributes(this.currentElementAttributes, this.currentElementAttributesLen);
         element.setLine(Integer.valueOf(this.currentElementLine));
         element.setLine(Integer.valueOf(this.currentElementCol));
 
@@ -391,7 +432,7 @@ public void handleOpenElementStart(
             throws ParseException {
 
         this.currentElementName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
-        this.currentElementAttributes = null;
+        this.currentElementAttributesLen = 0;
         this.currentElementLine = line;
         this.currentElementCol = col;
 
@@ -407,7 +448,7 @@ public void handleOpenElementEnd(
             throws ParseException {
 
         final Element element = new Element(this.currentElementName);
-        element.addAttributes(this.currentElementAttributes);
+        element.addAttributes(this.currentElementAttributes, this.currentElementAttributesLen);
         element.setLine(Integer.valueOf(this.currentElementLine));
         element.setLine(Integer.valueOf(this.currentElementCol));
 
@@ -430,7 +471,7 @@ public void handleAutoOpenElementStart(
             throws ParseException {
 
         this.currentElementName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
-        this.currentElementAttributes = null;
+        this.currentElementAttributesLen = 0;
         this.currentElementLine = line;
         this.currentElementCol = col;
 
@@ -446,7 +487,7 @@ public void handleAutoOpenElementEnd(
             throws ParseException {
 
         final Element element = new Element(this.currentElementName);
-        element.addAttributes(this.currentElementAttributes);
+        element.addAttributes(this.currentElementAttributes, this.currentElementAttributesLen);
         element.setLine(Integer.valueOf(this.currentElementLine));
         element.setLine(Integer.valueOf(this.currentElementCol));
 
@@ -469,7 +510,7 @@ public void handleCloseElementStart(
             throws ParseException {
 
         this.currentElementName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
-        this.currentElementAttributes = null;
+        this.currentElementAttributesLen = 0;
         this.currentElementLine = line;
         this.currentElementCol = col;
 
@@ -499,7 +540,7 @@ public void handleAutoCloseElementStart(
             throws ParseException {
 
         this.currentElementName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
-        this.currentElementAttributes = null;
+        this.currentElementAttributesLen = 0;
         this.currentElementLine = line;
         this.currentElementCol = col;
 
@@ -562,13 +603,18 @@ public void handleAttribute(
 
         final String attributeName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
         final String attributeValue =
-                (valueContentLen <= 0?  "" : new String(buffer, valueContentOffset, valueContentLen));
+                (valueContentLen <= 0?  "" : createString(buffer, valueContentOffset, valueContentLen));
 
-        if (this.currentElementAttributes == null) {
-            this.currentElementAttributes = new LinkedHashMap<String, String>(5, 1.0f);
+        if (this.currentElementAttributesLen * 2 == this.currentElementAttributes.length) {
+            final String[] newAttributes = new String[this.currentElementAttributes.length * 2];
+            System.arraycopy(
+                    this.currentElementAttributes, 0, newAttributes, 0, this.currentElementAttributes.length);
+            this.currentElementAttributes = newAttributes;
         }
 
-        this.currentElementAttributes.put(attributeName, attributeValue);
+        this.currentElementAttributes[this.currentElementAttributesLen * 2] = attributeName;
+        this.currentElementAttributes[this.currentElementAttributesLen * 2 + 1] = attributeValue;
+        this.currentElementAttributesLen++;
 
     }
 
@@ -615,4 +661,15 @@ public void handleProcessingInstruction(
     }
 
 
+
+
+
+    private String createString(final char[] buffer, final int offset, final int len) {
+        if (this.stringCache == null) {
+            return new String(buffer, offset, len);
+        }
+        return this.stringCache.getString(buffer, offset, len);
+    }
+
+
 }
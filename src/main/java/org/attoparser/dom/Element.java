@@ -19,10 +19,19 @@
  */
 package org.attoparser.dom;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 
 /**
@@ -41,9 +50,18 @@ public class Element
 
     private static final long serialVersionUID = -8980986739486971174L;
 
+    // Attributes are serialized as a Map (as they were stored before 2.0.6) so that the serialized
+    // form remains compatible with that of previous versions.
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("elementName", String.class),
+            new ObjectStreamField("attributes", Map.class),
+            new ObjectStreamField("attributesLen", Integer.TYPE)
+    };
+
     private String elementName;
-    
-    private Map<String,String> attributes = null;
+
+    // Attribute names and values, interleaved: [name0, value0, name1, value1, ...]
+    private String[] attributes = null;
     private int attributesLen = 0;
     
 
@@ -99,16 +117,14 @@ public boolean hasAttributes() {
     
     
     public boolean hasAttribute(final String attributeName) {
-        if (this.attributesLen > 0) {
-            return this.attributes.containsKey(attributeName);
-        }
-        return false;
+        return indexOfAttribute(attributeName) >= 0;
     }
 
     
     public String getAttributeValue(final String attributeName) {
-        if (this.attributesLen > 0) {
-            return this.attributes.get(attributeName);
+        final int index = indexOfAttribute(attributeName);
+        if (index >= 0) {
+            return this.attributes[index + 1];
         }
         return null;
     }
@@ -118,7 +134,8 @@ public String getAttributeValue(final String attributeName) {
     
     public Map<String,String> getAttributeMap() {
         if (this.attributesLen > 0) {
-            return Collections.unmodifiableMap(this.attributes);
+            // Unmodifiable view on the attributes (so it will reflect any later changes in them)
+            return new AttributeMap();
         }
         return Collections.emptyMap();
     }
@@ -128,10 +145,16 @@ public Map<String,String> getAttributeMap() {
 
     public void addAttribute(final String attributeName, final String attributeValue) {
         
-        if (this.attributesLen == 0) {
-            this.attributes = new LinkedHashMap<String, String>();
+        final int index = indexOfAttribute(attributeName);
+        if (index >= 0) {
+            // Same as with a Map, a new value for an existing attribute does not change its position
+            this.attributes[index + 1] = attributeValue;
+            return;
         }
-        this.attributes.put(attributeName, attributeValue);
+
+        ensureAttributeCapacity(this.attributesLen + 1);
+        this.attributes[this.attributesLen * 2] = attributeName;
+        this.attributes[this.attributesLen * 2 + 1] = attributeValue;
         this.attributesLen++;
         
     }
@@ -140,28 +163,42 @@ public void addAttribute(final String attributeName, final String attributeValue
     public void addAttributes(final Map<String,String> newAttributes) {
         
         if (newAttributes != null) {
-            if (this.attributesLen == 0) {
-                this.attributes = new LinkedHashMap<String, String>();
+            ensureAttributeCapacity(this.attributesLen + newAttributes.size());
+            for (final Map.Entry<String,String> newAttribute : newAttributes.entrySet()) {
+                addAttribute(newAttribute.getKey(), newAttribute.getValue());
             }
-            this.attributes.putAll(newAttributes);
-            this.attributesLen += newAttributes.size();
         }
 
     }
 
+
+    /*
+     * Adds attributes specified as an array of interleaved names and values, avoiding the creation of a Map
+     * when all attributes are known beforehand (as happens when building a DOM).
+     */
+    void addAttributes(final String[] newAttributes, final int newAttributesLen) {
+        ensureAttributeCapacity(this.attributesLen + newAttributesLen);
+        for (int i = 0; i < newAttributesLen; i++) {
+            addAttribute(newAttributes[i * 2], newAttributes[i * 2 + 1]);
+        }
+    }
+
     
     
     
     public void removeAttribute(final String attributeName) {
         
-        if (this.attributesLen > 0) {
+        final int index = indexOfAttribute(attributeName);
+        if (index >= 0) {
             
-            if (this.attributes.containsKey(attributeName)) {
-                this.attributes.remove(attributeName);
-                this.attributesLen--;
-                if (this.attributesLen == 0) {
-                    this.attributes = null;
-                }
+            this.attributesLen--;
+            if (this.attributesLen == 0) {
+                this.attributes = null;
+            } else {
+                System.arraycopy(
+                        this.attributes, index + 2, this.attributes, index, this.attributesLen * 2 - index);
+                this.attributes[this.attributesLen * 2] = null;
+                this.attributes[this.attributesLen * 2 + 1] = null;
             }
             
         }
@@ -175,11 +212,74 @@ public void clearAttributes() {
         this.attributes = null;
         this.attributesLen = 0;
     }
+
+
+
+
+    private int indexOfAttribute(final String attributeName) {
+        // Elements normally have very few attributes, so a linear search is faster than hashing
+        for (int i = 0, n = this.attributesLen * 2; i < n; i += 2) {
+            final String name = this.attributes[i];
+            if (name == null ? attributeName == null : name.equals(attributeName)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private void ensureAttributeCapacity(final int capacity) {
+        if (this.attributes == null) {
+            this.attributes = new String[capacity * 2];
+        } else if (this.attributes.length < capacity * 2) {
+            final String[] newAttributes = new String[Math.max(capacity, this.attributesLen * 2) * 2];
+            System.arraycopy(this.attributes, 0, newAttributes, 0, this.attributesLen * 2);
+            this.attributes = newAttributes;
+        }
+    }
     
 
     
 
     
+    /*
+     * ***************
+     *  SERIALIZATION
+     * ***************
+     */
+
+
+    private void writeObject(final ObjectOutputStream out) throws IOException {
+        Map<String,String> attributeMap = null;
+        if (this.attributesLen > 0) {
+            attributeMap = new LinkedHashMap<String,String>(this.attributesLen * 2, 1.0f);
+            for (int i = 0, n = this.attributesLen * 2; i < n; i += 2) {
+                attributeMap.put(this.attributes[i], this.attributes[i + 1]);
+            }
+        }
+        final ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("elementName", this.elementName);
+        fields.put("attributes", attributeMap);
+        fields.put("attributesLen", this.attributesLen);
+        out.writeFields();
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
+        final ObjectInputStream.GetField fields = in.readFields();
+        this.elementName = (String) fields.get("elementName", null);
+        this.attributes = null;
+        this.attributesLen = 0;
+        final Map<String,String> attributeMap = (Map<String,String>) fields.get("attributes", null);
+        if (attributeMap != null && !attributeMap.isEmpty()) {
+            addAttributes(attributeMap);
+        }
+    }
+
+
+
+
     /*
      * *********
      *  CLONING
@@ -189,7 +289,9 @@ public void clearAttributes() {
 
     public Element cloneNode(final INestableNode parent) {
         final Element element = new Element(this.elementName);
-        element.addAttributes(this.attributes);
+        if (this.attributesLen > 0) {
+            element.addAttributes(this.attributes, this.attributesLen);
+        }
         for (final INode child : getChildren()) {
             final INode clonedChild = child.cloneNode(element);
             element.addChild(clonedChild);
@@ -202,4 +304,134 @@ public Element cloneNode(final INestableNode parent) {
 
     
 
+
+
+
+    /*
+     * Unmodifiable Map view on the attributes of the element, keeping their order.
+     */
+    private final class AttributeMap extends AbstractMap<String,String> {
+
+        AttributeMap() {
+            super();
+        }
+
+        @Override
+        public int size() {
+            return Element.this.attributesLen;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return (key == null || key instanceof String) && indexOfAttribute((String) key) >= 0;
+        }
+
+        @Override
+        public String get(final Object key) {
+            if (key == null || key instanceof String) {
+                final int index = indexOfAttribute((String) key);
+                if (index >= 0) {
+                    return Element.this.attributes[index + 1];
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public Set<Map.Entry<String,String>> entrySet() {
+            return new AbstractSet<Map.Entry<String,String>>() {
+
+                @Override
+                public int size() {
+                    return Element.this.attributesLen;
+                }
+
+                @Override
+                public Iterator<Map.Entry<String,String>> iterator() {
+                    return new AttributeIterator();
+                }
+
+            };
+        }
+
+    }
+
+
+    private final class AttributeIterator implements Iterator<Map.Entry<String,String>> {
+
+        private int index = 0;
+
+        AttributeIterator() {
+            super();
+        }
+
+        public boolean hasNext() {
+            return this.index < Element.this.attributesLen;
+        }
+
+        public Map.Entry<String,String> next() {
+            if (this.index >= Element.this.attributesLen) {
+                throw new NoSuchElementException();
+            }
+            final int i = this.index++ * 2;
+            return new AttributeEntry(Element.this.attributes[i], Element.this.attributes[i + 1]);
+        }
+
+        public void remove() {
+            throw new UnsupportedOperationException("Attribute map is unmodifiable");
+        }
+
+    }
+
+
+    /*
+     * Immutable entry returned when iterating the attribute map, following the equals/hashCode
+     * contract of Map.Entry.
+     */
+    private static final class AttributeEntry implements Map.Entry<String,String> {
+
+        private final String name;
+        private final String value;
+
+        AttributeEntry(final String name, final String value) {
+            super();
+            this.name = name;
+            this.value = value;
+        }
+
+        public String getKey() {
+            return this.name;
+        }
+
+        public String getValue() {
+            return this.value;
+        }
+
+        public String setValue(final String value) {
+            throw new UnsupportedOperationException("Attribute map is unmodifiable");
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Map.Entry)) {
+                return false;
+            }
+            final Map.Entry<?,?> entry = (Map.Entry<?,?>) obj;
+            return (this.name == null ? entry.getKey() == null : this.name.equals(entry.getKey())) &&
+                   (this.value == null ? entry.getValue() == null : this.value.equals(entry.getValue()));
+        }
+
+        @Override
+        public int hashCode() {
+            return (this.name == null ? 0 : this.name.hashCode()) ^ (this.value == null ? 0 : this.value.hashCode());
+        }
+
+        @Override
+        public String toString() {
+            return this.name + "=" + this.value;
+        }
+
+    }
+
+
 }
@@ -0,0 +1,46 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.profile;
+
+
+/**
+ * <p>
+ *   Types of the events reported to {@link org.attoparser.IMarkupHandler} implementations, used for
+ *   classifying the figures of {@link MarkupStageProfile}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public enum MarkupEventType {
+
+    DOCUMENT_START, DOCUMENT_END,
+    XML_DECLARATION, DOCTYPE, CDATA_SECTION, COMMENT, TEXT,
+    STANDALONE_ELEMENT_START, STANDALONE_ELEMENT_END,
+    OPEN_ELEMENT_START, OPEN_ELEMENT_END,
+    AUTO_OPEN_ELEMENT_START, AUTO_OPEN_ELEMENT_END,
+    CLOSE_ELEMENT_START, CLOSE_ELEMENT_END,
+    AUTO_CLOSE_ELEMENT_START, AUTO_CLOSE_ELEMENT_END,
+    UNMATCHED_CLOSE_ELEMENT_START, UNMATCHED_CLOSE_ELEMENT_END,
+    ATTRIBUTE, INNER_WHITE_SPACE, PROCESSING_INSTRUCTION
+
+}
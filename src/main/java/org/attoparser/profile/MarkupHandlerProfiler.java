@@ -0,0 +1,220 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.profile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>
+ *   Profiler for chains of markup handlers, which measures the time spent in each of the <em>stages</em>
+ *   of a chain, and the amount of events each of them receives.
+ * </p>
+ * <p>
+ *   Stages are delimited by inserting {@link ProfilingMarkupHandler} objects before the handlers to be
+ *   profiled, all of them created for the same profiler:
+ * </p>
+ * <pre><code>
+ *   final MarkupHandlerProfiler profiler = new MarkupHandlerProfiler();
+ *
+ *   IMarkupHandler handler = new ProfilingMarkupHandler(profiler, "output", new OutputMarkupHandler(writer));
+ *   handler = new ProfilingMarkupHandler(profiler, "minimize", new MinimizeHtmlMarkupHandler(mode, handler));
+ *   handler = new ProfilingMarkupHandler(profiler, "selector", new BlockSelectorMarkupHandler(handler, selector));
+ *
+ *   parser.parse(document, handler);
+ *   System.out.println(profiler.getProfile());
+ * </code></pre>
+ * <p>
+ *   The <em>exclusive</em> time of a stage is the time spent in the handlers between its profiling handler and
+ *   the next one in the chain, i.e. its <em>inclusive</em> time minus the inclusive time of the stages it
+ *   delegates events to.
+ * </p>
+ * <p>
+ *   Calling <tt>System.nanoTime()</tt> twice per event and stage would add a considerable overhead to cheap
+ *   handlers, so times are only measured for one out of every <tt>samplingInterval</tt> events entering the
+ *   chain (and then for all the events this one causes in all stages). Reported times are estimations computed
+ *   from these samples. Event counts are always exact. A sampling interval of 1 measures every event.
+ * </p>
+ * <p>
+ *   Profilers are <strong>not thread-safe</strong>: a profiler (and its profiling handlers) can only be used for
+ *   one parsing operation at a time. If used for several documents one after another, figures are aggregated
+ *   until {@link #reset()} is called. Profiles obtained in different threads can be aggregated by means of
+ *   {@link MarkupProfile#add(MarkupProfile)}.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupHandlerProfiler {
+
+    /**
+     * <p>
+     *   Default sampling interval: times are measured for one out of every 16 events.
+     * </p>
+     */
+    public static final int DEFAULT_SAMPLING_INTERVAL = 16;
+
+
+    private final int samplingInterval;
+    private final List<ProfilingMarkupHandler> stages = new ArrayList<ProfilingMarkupHandler>(4);
+
+    private long events = 0L;
+    private long sampledEvents = 0L;
+    private int samplingCountdown = 1;
+    private boolean sampling = false;
+
+    // Time spent in nested stages by each of the profiling handlers currently processing an event
+    private long[] nestedNanos = new long[8];
+    private int depth = 0;
+
+
+
+    /**
+     * <p>
+     *   Creates a new profiler, using the default sampling interval ({@link #DEFAULT_SAMPLING_INTERVAL}).
+     * </p>
+     */
+    public MarkupHandlerProfiler() {
+        this(DEFAULT_SAMPLING_INTERVAL);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new profiler, using the specified sampling interval.
+     * </p>
+     *
+     * @param samplingInterval time will be measured for one out of every <tt>samplingInterval</tt> events.
+     */
+    public MarkupHandlerProfiler(final int samplingInterval) {
+        super();
+        if (samplingInterval <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be greater than zero");
+        }
+        this.samplingInterval = samplingInterval;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the sampling interval of this profiler.
+     * </p>
+     *
+     * @return the sampling interval.
+     */
+    public int getSamplingInterval() {
+        return this.samplingInterval;
+    }
+
+
+    /**
+     * <p>
+     *   Returns a snapshot of the figures gathered since this profiler was created (or last reset).
+     * </p>
+     *
+     * @return the profile.
+     */
+    public MarkupProfile getProfile() {
+        final List<MarkupStageProfile> stageProfiles = new ArrayList<MarkupStageProfile>(this.stages.size());
+        for (final ProfilingMarkupHandler stage : this.stages) {
+            stageProfiles.add(stage.createStageProfile(this.events, this.sampledEvents));
+        }
+        return new MarkupProfile(stageProfiles, this.events, this.sampledEvents);
+    }
+
+
+    /**
+     * <p>
+     *   Discards all the figures gathered, e.g. for profiling a new document.
+     * </p>
+     */
+    public void reset() {
+        for (final ProfilingMarkupHandler stage : this.stages) {
+            stage.resetCounters();
+        }
+        this.events = 0L;
+        this.sampledEvents = 0L;
+        this.samplingCountdown = 1;
+        this.sampling = false;
+        this.depth = 0;
+    }
+
+
+
+
+    void addStage(final ProfilingMarkupHandler stage) {
+        for (final ProfilingMarkupHandler existing : this.stages) {
+            if (existing.getStageName().equals(stage.getStageName())) {
+                throw new IllegalArgumentException(
+                        "A stage with name \"" + stage.getStageName() + "\" already exists in this profiler");
+            }
+        }
+        this.stages.add(stage);
+    }
+
+
+    /*
+     * Called by profiling handlers before delegating an event. Returns the start time if the event is being
+     * sampled, or -1 if it is not.
+     */
+    long enter() {
+        if (this.depth == 0) {
+            // This event is entering the chain (it was not caused by another profiled stage)
+            this.events++;
+            this.sampling = (--this.samplingCountdown == 0);
+            if (this.sampling) {
+                this.samplingCountdown = this.samplingInterval;
+                this.sampledEvents++;
+            }
+        }
+        if (this.depth == this.nestedNanos.length) {
+            final long[] newNestedNanos = new long[this.nestedNanos.length * 2];
+            System.arraycopy(this.nestedNanos, 0, newNestedNanos, 0, this.nestedNanos.length);
+            this.nestedNanos = newNestedNanos;
+        }
+        this.nestedNanos[this.depth++] = 0L;
+        return (this.sampling? System.nanoTime() : -1L);
+    }
+
+
+    /*
+     * Called by profiling handlers after delegating an event (even if an exception was raised). Returns the
+     * exclusive time of the event, or -1 if it was not sampled.
+     */
+    long exit(final long startNanos, final long[] inclusiveNanos, final int type) {
+        this.depth--;
+        if (startNanos < 0L) {
+            return -1L;
+        }
+        final long elapsed = System.nanoTime() - startNanos;
+        inclusiveNanos[type] += elapsed;
+        if (this.depth > 0) {
+            this.nestedNanos[this.depth - 1] += elapsed;
+        }
+        return elapsed - this.nestedNanos[this.depth];
+    }
+
+
+}
@@ -0,0 +1,184 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+
+/**
+ * <p>
+ *   Snapshot of the figures gathered by a {@link MarkupHandlerProfiler}, with one {@link MarkupStageProfile}
+ *   per stage (in the same order as their profiling handlers were created).
+ * </p>
+ * <p>
+ *   Profiles obtained from different profilers (e.g. one per thread) can be aggregated by means of
+ *   {@link #add(MarkupProfile)}, which matches stages by their names.
+ * </p>
+ * <p>
+ *   Objects of this class are <strong>immutable</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupProfile {
+
+    private final List<MarkupStageProfile> stages;
+    private final long events;
+    private final long sampledEvents;
+
+
+
+    MarkupProfile(final List<MarkupStageProfile> stages, final long events, final long sampledEvents) {
+        super();
+        this.stages = Collections.unmodifiableList(stages);
+        this.events = events;
+        this.sampledEvents = sampledEvents;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the figures of each of the stages.
+     * </p>
+     *
+     * @return the stages, as an unmodifiable list.
+     */
+    public List<MarkupStageProfile> getStages() {
+        return this.stages;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the figures of the stage with the specified name.
+     * </p>
+     *
+     * @param name the name of the stage.
+     * @return the stage, or null if there is no stage with such name.
+     */
+    public MarkupStageProfile getStage(final String name) {
+        for (final MarkupStageProfile stage : this.stages) {
+            if (stage.getName().equals(name)) {
+                return stage;
+            }
+        }
+        return null;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of events that entered the profiled chain (i.e. events not caused by other
+     *   events processed by a profiled stage).
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getEventCount() {
+        return this.events;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of events entering the profiled chain for which times were measured.
+     * </p>
+     *
+     * @return the amount of sampled events.
+     */
+    public long getSampledEventCount() {
+        return this.sampledEvents;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the stage with the highest exclusive time.
+     * </p>
+     *
+     * @return the hottest stage, or null if there are no stages.
+     */
+    public MarkupStageProfile getHottestStage() {
+        MarkupStageProfile hottest = null;
+        for (final MarkupStageProfile stage : this.stages) {
+            if (hottest == null || stage.getExclusiveTimeNanos() > hottest.getExclusiveTimeNanos()) {
+                hottest = stage;
+            }
+        }
+        return hottest;
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new profile aggregating the figures of this one and the specified one. Stages with the same
+     *   name are added together, and stages only present in the specified profile are added at the end.
+     * </p>
+     *
+     * @param other the profile to be added.
+     * @return the aggregated profile.
+     */
+    public MarkupProfile add(final MarkupProfile other) {
+        if (other == null) {
+            return this;
+        }
+        final List<MarkupStageProfile> aggregated = new ArrayList<MarkupStageProfile>(this.stages.size());
+        for (final MarkupStageProfile stage : this.stages) {
+            final MarkupStageProfile otherStage = other.getStage(stage.getName());
+            aggregated.add(otherStage == null? stage : stage.add(otherStage));
+        }
+        for (final MarkupStageProfile otherStage : other.stages) {
+            if (getStage(otherStage.getName()) == null) {
+                aggregated.add(otherStage);
+            }
+        }
+        return new MarkupProfile(
+                aggregated, this.events + other.events, this.sampledEvents + other.sampledEvents);
+    }
+
+
+    @Override
+    public String toString() {
+        long totalExclusiveNanos = 0L;
+        for (final MarkupStageProfile stage : this.stages) {
+            totalExclusiveNanos += stage.getExclusiveTimeNanos();
+        }
+        final StringBuilder strBuilder = new StringBuilder();
+        strBuilder.append("[events=").append(this.events).append(", sampledEvents=").append(this.sampledEvents);
+        for (final MarkupStageProfile stage : this.stages) {
+            final long exclusiveNanos = stage.getExclusiveTimeNanos();
+            strBuilder.append(", ").append(stage.getName()).append("=[events=").append(stage.getEventCount());
+            strBuilder.append(", exclusiveTimeNanos=").append(exclusiveNanos);
+            strBuilder.append(", exclusiveTimePercent=");
+            strBuilder.append(totalExclusiveNanos == 0L? 0L : (exclusiveNanos * 100L) / totalExclusiveNanos);
+            strBuilder.append(']');
+        }
+        strBuilder.append(']');
+        return strBuilder.toString();
+    }
+
+}
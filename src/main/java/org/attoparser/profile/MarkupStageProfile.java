@@ -0,0 +1,187 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.profile;
+
+
+/**
+ * <p>
+ *   Figures of one of the stages of a {@link MarkupProfile}.
+ * </p>
+ * <p>
+ *   Times are <em>estimations</em>, computed from the times measured for the events sampled by the
+ *   {@link MarkupHandlerProfiler}. Event counts are exact.
+ * </p>
+ * <p>
+ *   Objects of this class are <strong>immutable</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class MarkupStageProfile {
+
+    private final String name;
+    private final long[] eventCounts;
+    private final long[] inclusiveNanos;
+    private final long[] exclusiveNanos;
+
+
+
+    MarkupStageProfile(
+            final String name, final long[] eventCounts, final long[] inclusiveNanos, final long[] exclusiveNanos) {
+        super();
+        this.name = name;
+        this.eventCounts = eventCounts;
+        this.inclusiveNanos = inclusiveNanos;
+        this.exclusiveNanos = exclusiveNanos;
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the name of the stage.
+     * </p>
+     *
+     * @return the name of the stage.
+     */
+    public String getName() {
+        return this.name;
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of events received by the stage.
+     * </p>
+     *
+     * @return the amount of events.
+     */
+    public long getEventCount() {
+        return sum(this.eventCounts);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the amount of events of the specified type received by the stage.
+     * </p>
+     *
+     * @param type the type of events.
+     * @return the amount of events.
+     */
+    public long getEventCount(final MarkupEventType type) {
+        return this.eventCounts[type.ordinal()];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the time spent processing events in this stage and in all the stages after it.
+     * </p>
+     *
+     * @return the inclusive time, in nanoseconds.
+     */
+    public long getInclusiveTimeNanos() {
+        return sum(this.inclusiveNanos);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the time spent processing events of the specified type in this stage and in all the stages
+     *   after it.
+     * </p>
+     *
+     * @param type the type of events.
+     * @return the inclusive time, in nanoseconds.
+     */
+    public long getInclusiveTimeNanos(final MarkupEventType type) {
+        return this.inclusiveNanos[type.ordinal()];
+    }
+
+
+    /**
+     * <p>
+     *   Returns the time spent processing events in this stage only (not including the time spent in the stages
+     *   it delegated events to).
+     * </p>
+     *
+     * @return the exclusive time, in nanoseconds.
+     */
+    public long getExclusiveTimeNanos() {
+        return sum(this.exclusiveNanos);
+    }
+
+
+    /**
+     * <p>
+     *   Returns the time spent processing events of the specified type in this stage only (not including the
+     *   time spent in the stages it delegated events to).
+     * </p>
+     *
+     * @param type the type of events.
+     * @return the exclusive time, in nanoseconds.
+     */
+    public long getExclusiveTimeNanos(final MarkupEventType type) {
+        return this.exclusiveNanos[type.ordinal()];
+    }
+
+
+
+
+    MarkupStageProfile add(final MarkupStageProfile other) {
+        return new MarkupStageProfile(
+                this.name,
+                add(this.eventCounts, other.eventCounts),
+                add(this.inclusiveNanos, other.inclusiveNanos),
+                add(this.exclusiveNanos, other.exclusiveNanos));
+    }
+
+
+    private static long[] add(final long[] a, final long[] b) {
+        final long[] result = new long[a.length];
+        for (int i = 0; i < a.length; i++) {
+            result[i] = a[i] + b[i];
+        }
+        return result;
+    }
+
+
+    private static long sum(final long[] values) {
+        long total = 0L;
+        for (int i = 0; i < values.length; i++) {
+            total += values[i];
+        }
+        return total;
+    }
+
+
+    @Override
+    public String toString() {
+        return "[name=" + this.name + ", events=" + getEventCount() +
+                ", exclusiveTimeNanos=" + getExclusiveTimeNanos() +
+                ", inclusiveTimeNanos=" + getInclusiveTimeNanos() + "]";
+    }
+
+}
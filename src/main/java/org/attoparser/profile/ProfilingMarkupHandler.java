@@ -0,0 +1,572 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.profile;
+
+import org.attoparser.AbstractChainedMarkupHandler;
+import org.attoparser.IInterestAwareMarkupHandler;
+import org.attoparser.IMarkupHandler;
+import org.attoparser.ParseException;
+
+
+/**
+ * <p>
+ *   Implementation of {@link org.attoparser.IMarkupHandler} that measures the time spent by the rest of the chain
+ *   in processing each event, and counts these events, as a <em>stage</em> of a {@link MarkupHandlerProfiler}.
+ * </p>
+ * <p>
+ *   These handlers can be inserted between any two handlers of a chain (or before the first one), and each of
+ *   them delimits the start of a stage, which ends at the next profiling handler in the chain (see
+ *   {@link MarkupHandlerProfiler} for an example). Events are delegated without any modification.
+ * </p>
+ * <p>
+ *   If the next handler in the chain is an {@link IInterestAwareMarkupHandler}, its interests are declared by
+ *   this handler too, so that profiling does not make the parser report any events not reported otherwise.
+ * </p>
+ * <p>
+ *   As with most handlers, this class is <strong>not thread-safe</strong>.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class ProfilingMarkupHandler
+        extends AbstractChainedMarkupHandler implements IInterestAwareMarkupHandler {
+
+    private static final int DOCUMENT_START = MarkupEventType.DOCUMENT_START.ordinal();
+    private static final int DOCUMENT_END = MarkupEventType.DOCUMENT_END.ordinal();
+    private static final int XML_DECLARATION = MarkupEventType.XML_DECLARATION.ordinal();
+    private static final int DOCTYPE = MarkupEventType.DOCTYPE.ordinal();
+    private static final int CDATA_SECTION = MarkupEventType.CDATA_SECTION.ordinal();
+    private static final int COMMENT = MarkupEventType.COMMENT.ordinal();
+    private static final int TEXT = MarkupEventType.TEXT.ordinal();
+    private static final int STANDALONE_ELEMENT_START = MarkupEventType.STANDALONE_ELEMENT_START.ordinal();
+    private static final int STANDALONE_ELEMENT_END = MarkupEventType.STANDALONE_ELEMENT_END.ordinal();
+    private static final int OPEN_ELEMENT_START = MarkupEventType.OPEN_ELEMENT_START.ordinal();
+    private static final int OPEN_ELEMENT_END = MarkupEventType.OPEN_ELEMENT_END.ordinal();
+    private static final int AUTO_OPEN_ELEMENT_START = MarkupEventType.AUTO_OPEN_ELEMENT_START.ordinal();
+    private static final int AUTO_OPEN_ELEMENT_END = MarkupEventType.AUTO_OPEN_ELEMENT_END.ordinal();
+    private static final int CLOSE_ELEMENT_START = MarkupEventType.CLOSE_ELEMENT_START.ordinal();
+    private static final int CLOSE_ELEMENT_END = MarkupEventType.CLOSE_ELEMENT_END.ordinal();
+    private static final int AUTO_CLOSE_ELEMENT_START = MarkupEventType.AUTO_CLOSE_ELEMENT_START.ordinal();
+    private static final int AUTO_CLOSE_ELEMENT_END = MarkupEventType.AUTO_CLOSE_ELEMENT_END.ordinal();
+    private static final int UNMATCHED_CLOSE_ELEMENT_START = MarkupEventType.UNMATCHED_CLOSE_ELEMENT_START.ordinal();
+    private static final int UNMATCHED_CLOSE_ELEMENT_END = MarkupEventType.UNMATCHED_CLOSE_ELEMENT_END.ordinal();
+    private static final int ATTRIBUTE = MarkupEventType.ATTRIBUTE.ordinal();
+    private static final int INNER_WHITE_SPACE = MarkupEventType.INNER_WHITE_SPACE.ordinal();
+    private static final int PROCESSING_INSTRUCTION = MarkupEventType.PROCESSING_INSTRUCTION.ordinal();
+
+    private static final int EVENT_TYPES = MarkupEventType.values().length;
+
+
+    private final MarkupHandlerProfiler profiler;
+    private final String stageName;
+
+    private final long[] eventCounts = new long[EVENT_TYPES];
+    private final long[] inclusiveNanos = new long[EVENT_TYPES];
+    private final long[] exclusiveNanos = new long[EVENT_TYPES];
+
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this handler, delimiting the start of a new stage of the specified profiler.
+     * </p>
+     *
+     * @param profiler the profiler this stage belongs to.
+     * @param stageName the name of the stage, which must be unique in the profiler.
+     * @param next the next handler in the chain (the first handler of the stage).
+     */
+    public ProfilingMarkupHandler(
+            final MarkupHandlerProfiler profiler, final String stageName, final IMarkupHandler next) {
+        super(next);
+        if (profiler == null) {
+            throw new IllegalArgumentException("Profiler cannot be null");
+        }
+        if (stageName == null) {
+            throw new IllegalArgumentException("Stage name cannot be null");
+        }
+        this.profiler = profiler;
+        this.stageName = stageName;
+        this.profiler.addStage(this);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the name of the stage delimited by this handler.
+     * </p>
+     *
+     * @return the name of the stage.
+     */
+    public String getStageName() {
+        return this.stageName;
+    }
+
+
+    public int getEventInterests() {
+        final IMarkupHandler next = getNext();
+        if (next instanceof IInterestAwareMarkupHandler) {
+            return ((IInterestAwareMarkupHandler) next).getEventInterests();
+        }
+        return ALL_EVENTS;
+    }
+
+
+
+
+    @Override
+    public void handleDocumentStart(
+            final long startTimeNanos, final int line, final int col)
+            throws ParseException {
+        this.eventCounts[DOCUMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleDocumentStart(startTimeNanos, line, col);
+        } finally {
+            exit(startNanos, DOCUMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleDocumentEnd(
+            final long endTimeNanos, final long totalTimeNanos, final int line, final int col)
+            throws ParseException {
+        this.eventCounts[DOCUMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleDocumentEnd(endTimeNanos, totalTimeNanos, line, col);
+        } finally {
+            exit(startNanos, DOCUMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleXmlDeclaration(
+            final char[] buffer,
+            final int keywordOffset, final int keywordLen,
+            final int keywordLine, final int keywordCol,
+            final int versionOffset, final int versionLen,
+            final int versionLine, final int versionCol,
+            final int encodingOffset, final int encodingLen,
+            final int encodingLine, final int encodingCol,
+            final int standaloneOffset, final int standaloneLen,
+            final int standaloneLine, final int standaloneCol,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[XML_DECLARATION]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleXmlDeclaration(
+                    buffer,
+                    keywordOffset, keywordLen, keywordLine, keywordCol,
+                    versionOffset, versionLen, versionLine, versionCol,
+                    encodingOffset, encodingLen, encodingLine, encodingCol,
+                    standaloneOffset, standaloneLen, standaloneLine, standaloneCol,
+                    outerOffset, outerLen, line, col);
+        } finally {
+            exit(startNanos, XML_DECLARATION);
+        }
+    }
+
+
+    @Override
+    public void handleDocType(
+            final char[] buffer,
+            final int keywordOffset, final int keywordLen,
+            final int keywordLine, final int keywordCol,
+            final int elementNameOffset, final int elementNameLen,
+            final int elementNameLine, final int elementNameCol,
+            final int typeOffset, final int typeLen,
+            final int typeLine, final int typeCol,
+            final int publicIdOffset, final int publicIdLen,
+            final int publicIdLine, final int publicIdCol,
+            final int systemIdOffset, final int systemIdLen,
+            final int systemIdLine, final int systemIdCol,
+            final int internalSubsetOffset, final int internalSubsetLen,
+            final int internalSubsetLine, final int internalSubsetCol,
+            final int outerOffset, final int outerLen,
+            final int outerLine, final int outerCol)
+            throws ParseException {
+        this.eventCounts[DOCTYPE]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleDocType(
+                    buffer,
+                    keywordOffset, keywordLen, keywordLine, keywordCol,
+                    elementNameOffset, elementNameLen, elementNameLine, elementNameCol,
+                    typeOffset, typeLen, typeLine, typeCol,
+                    publicIdOffset, publicIdLen, publicIdLine, publicIdCol,
+                    systemIdOffset, systemIdLen, systemIdLine, systemIdCol,
+                    internalSubsetOffset, internalSubsetLen, internalSubsetLine, internalSubsetCol,
+                    outerOffset, outerLen, outerLine, outerCol);
+        } finally {
+            exit(startNanos, DOCTYPE);
+        }
+    }
+
+
+    @Override
+    public void handleCDATASection(
+            final char[] buffer,
+            final int contentOffset, final int contentLen,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[CDATA_SECTION]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleCDATASection(buffer, contentOffset, contentLen, outerOffset, outerLen, line, col);
+        } finally {
+            exit(startNanos, CDATA_SECTION);
+        }
+    }
+
+
+    @Override
+    public void handleComment(
+            final char[] buffer,
+            final int contentOffset, final int contentLen,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[COMMENT]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleComment(buffer, contentOffset, contentLen, outerOffset, outerLen, line, col);
+        } finally {
+            exit(startNanos, COMMENT);
+        }
+    }
+
+
+    @Override
+    public void handleText(
+            final char[] buffer,
+            final int offset, final int len,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[TEXT]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleText(buffer, offset, len, line, col);
+        } finally {
+            exit(startNanos, TEXT);
+        }
+    }
+
+
+    @Override
+    public void handleStandaloneElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final boolean minimized, final int line, final int col)
+            throws ParseException {
+        this.eventCounts[STANDALONE_ELEMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleStandaloneElementStart(buffer, nameOffset, nameLen, minimized, line, col);
+        } finally {
+            exit(startNanos, STANDALONE_ELEMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleStandaloneElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final boolean minimized, final int line, final int col)
+            throws ParseException {
+        this.eventCounts[STANDALONE_ELEMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleStandaloneElementEnd(buffer, nameOffset, nameLen, minimized, line, col);
+        } finally {
+            exit(startNanos, STANDALONE_ELEMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleOpenElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[OPEN_ELEMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleOpenElementStart(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, OPEN_ELEMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleOpenElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[OPEN_ELEMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleOpenElementEnd(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, OPEN_ELEMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleAutoOpenElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[AUTO_OPEN_ELEMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleAutoOpenElementStart(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, AUTO_OPEN_ELEMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleAutoOpenElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[AUTO_OPEN_ELEMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleAutoOpenElementEnd(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, AUTO_OPEN_ELEMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleCloseElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[CLOSE_ELEMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleCloseElementStart(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, CLOSE_ELEMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[CLOSE_ELEMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleCloseElementEnd(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, CLOSE_ELEMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleAutoCloseElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[AUTO_CLOSE_ELEMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleAutoCloseElementStart(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, AUTO_CLOSE_ELEMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleAutoCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[AUTO_CLOSE_ELEMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleAutoCloseElementEnd(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, AUTO_CLOSE_ELEMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleUnmatchedCloseElementStart(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[UNMATCHED_CLOSE_ELEMENT_START]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleUnmatchedCloseElementStart(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, UNMATCHED_CLOSE_ELEMENT_START);
+        }
+    }
+
+
+    @Override
+    public void handleUnmatchedCloseElementEnd(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[UNMATCHED_CLOSE_ELEMENT_END]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleUnmatchedCloseElementEnd(buffer, nameOffset, nameLen, line, col);
+        } finally {
+            exit(startNanos, UNMATCHED_CLOSE_ELEMENT_END);
+        }
+    }
+
+
+    @Override
+    public void handleAttribute(
+            final char[] buffer,
+            final int nameOffset, final int nameLen,
+            final int nameLine, final int nameCol,
+            final int operatorOffset, final int operatorLen,
+            final int operatorLine, final int operatorCol,
+            final int valueContentOffset, final int valueContentLen,
+            final int valueOuterOffset, final int valueOuterLen,
+            final int valueLine, final int valueCol)
+            throws ParseException {
+        this.eventCounts[ATTRIBUTE]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleAttribute(
+                    buffer,
+                    nameOffset, nameLen, nameLine, nameCol,
+                    operatorOffset, operatorLen, operatorLine, operatorCol,
+                    valueContentOffset, valueContentLen,
+                    valueOuterOffset, valueOuterLen, valueLine, valueCol);
+        } finally {
+            exit(startNanos, ATTRIBUTE);
+        }
+    }
+
+
+    @Override
+    public void handleInnerWhiteSpace(
+            final char[] buffer,
+            final int offset, final int len,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[INNER_WHITE_SPACE]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleInnerWhiteSpace(buffer, offset, len, line, col);
+        } finally {
+            exit(startNanos, INNER_WHITE_SPACE);
+        }
+    }
+
+
+    @Override
+    public void handleProcessingInstruction(
+            final char[] buffer,
+            final int targetOffset, final int targetLen,
+            final int targetLine, final int targetCol,
+            final int contentOffset, final int contentLen,
+            final int contentLine, final int contentCol,
+            final int outerOffset, final int outerLen,
+            final int line, final int col)
+            throws ParseException {
+        this.eventCounts[PROCESSING_INSTRUCTION]++;
+        final long startNanos = this.profiler.enter();
+        try {
+            getNext().handleProcessingInstruction(
+                    buffer,
+                    targetOffset, targetLen, targetLine, targetCol,
+                    contentOffset, contentLen, contentLine, contentCol,
+                    outerOffset, outerLen, line, col);
+        } finally {
+            exit(startNanos, PROCESSING_INSTRUCTION);
+        }
+    }
+
+
+
+    private void exit(final long startNanos, final int type) {
+        final long exclusive = this.profiler.exit(startNanos, this.inclusiveNanos, type);
+        if (exclusive >= 0L) {
+            this.exclusiveNanos[type] += exclusive;
+        }
+    }
+
+
+    MarkupStageProfile createStageProfile(final long events, final long sampledEvents) {
+        // Times are estimated by extrapolating the ones measured for sampled events to all events
+        final double factor = (sampledEvents == 0L? 0.0 : (double) events / (double) sampledEvents);
+        final long[] estimatedInclusiveNanos = new long[EVENT_TYPES];
+        final long[] estimatedExclusiveNanos = new long[EVENT_TYPES];
+        for (int i = 0; i < EVENT_TYPES; i++) {
+            estimatedInclusiveNanos[i] = (long) (this.inclusiveNanos[i] * factor);
+            estimatedExclusiveNanos[i] = (long) (this.exclusiveNanos[i] * factor);
+        }
+        return new MarkupStageProfile(
+                this.stageName, this.eventCounts.clone(), estimatedInclusiveNanos, estimatedExclusiveNanos);
+    }
+
+
+    void resetCounters() {
+        for (int i = 0; i < EVENT_TYPES; i++) {
+            this.eventCounts[i] = 0L;
+            this.inclusiveNanos[i] = 0L;
+            this.exclusiveNanos[i] = 0L;
+        }
+    }
+
+
+}
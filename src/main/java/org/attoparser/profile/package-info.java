@@ -0,0 +1,6 @@
+/**
+ * <p>
+ *   Handlers for profiling chains of markup handlers.
+ * </p>
+ */
+package org.attoparser.profile;
@@ -134,6 +134,7 @@ public final class BlockSelectorMarkupHandler extends AbstractMarkupHandler {
     private final String[] selectors;
     private final boolean[] selectorMatches;
     private final MarkupSelectorFilter[] selectorFilters;
+    private MarkupSelectorIndex selectorIndex;
 
     private boolean insideAllSelectorMatchingBlock;
     private boolean someSelectorsMatch;
@@ -407,6 +408,13 @@ public void setParseConfiguration(final ParseConfiguration parseConfiguration) {
 
         }
 
+        /*
+         * Index the first level of all selectors, so that each event is only matched against the selectors that
+         * could possibly match it. Only worth it when there are several selectors.
+         */
+        this.selectorIndex =
+                (this.selectorsLen > 1 ? new MarkupSelectorIndex(html, this.selectorFilters) : null);
+
 
         /*
          * Now delegate to the selected/non-selected handlers
@@ -504,6 +512,8 @@ public void handleXmlDeclaration(
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchNode(i, MarkupSelectorIndex.NODE_XML_DECLARATION, this.markupLevel)) &&
                             this.selectorFilters[i].matchXmlDeclaration(true, this.markupLevel, this.markupBlocks[this.markupLevel]);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -578,6 +588,8 @@ public void handleDocType(
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchNode(i, MarkupSelectorIndex.NODE_DOC_TYPE_CLAUSE, this.markupLevel)) &&
                             this.selectorFilters[i].matchDocTypeClause(true, this.markupLevel, this.markupBlocks[this.markupLevel]);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -656,6 +668,8 @@ public void handleCDATASection(
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchNode(i, MarkupSelectorIndex.NODE_CDATA_SECTION, this.markupLevel)) &&
                             this.selectorFilters[i].matchCDATASection(true, this.markupLevel, this.markupBlocks[this.markupLevel]);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -713,6 +727,8 @@ public void handleText(
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchNode(i, MarkupSelectorIndex.NODE_TEXT, this.markupLevel)) &&
                             this.selectorFilters[i].matchText(true, this.markupLevel, this.markupBlocks[this.markupLevel]);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -768,6 +784,8 @@ public void handleComment(
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchNode(i, MarkupSelectorIndex.NODE_COMMENT, this.markupLevel)) &&
                             this.selectorFilters[i].matchComment(true, this.markupLevel, this.markupBlocks[this.markupLevel]);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -875,12 +893,17 @@ public void handleStandaloneElementEnd(
         if (!this.insideAllSelectorMatchingBlock) {
 
             this.elementBuffer.bufferElementEnd(buffer, nameOffset, nameLen, line, col);
+            if (this.selectorIndex != null) {
+                this.selectorIndex.computeElementCandidates(this.elementBuffer);
+            }
 
             this.someSelectorsMatch = false;
             for (int i = 0; i < this.selectorsLen; i++) {
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchElement(i, this.markupLevel)) &&
                             this.selectorFilters[i].matchStandaloneElement(true, this.markupLevel, this.markupBlocks[this.markupLevel], this.elementBuffer);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -942,11 +965,16 @@ public void handleOpenElementEnd(
         if (!this.insideAllSelectorMatchingBlock) {
 
             this.elementBuffer.bufferElementEnd(buffer, nameOffset, nameLen, line, col);
+            if (this.selectorIndex != null) {
+                this.selectorIndex.computeElementCandidates(this.elementBuffer);
+            }
 
             this.someSelectorsMatch = false;
             for (int i = 0; i < this.selectorsLen; i++) {
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchElement(i, this.markupLevel)) &&
                             this.selectorFilters[i].matchOpenElement(true, this.markupLevel, this.markupBlocks[this.markupLevel], this.elementBuffer);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -1030,11 +1058,16 @@ public void handleAutoOpenElementEnd(
         if (!this.insideAllSelectorMatchingBlock) {
 
             this.elementBuffer.bufferElementEnd(buffer, nameOffset, nameLen, line, col);
+            if (this.selectorIndex != null) {
+                this.selectorIndex.computeElementCandidates(this.elementBuffer);
+            }
 
             this.someSelectorsMatch = false;
             for (int i = 0; i < this.selectorsLen; i++) {
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchElement(i, this.markupLevel)) &&
                             this.selectorFilters[i].matchOpenElement(true, this.markupLevel, this.markupBlocks[this.markupLevel], this.elementBuffer);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
@@ -1097,7 +1130,9 @@ public void handleCloseElementStart(
 
         this.markupLevel--;
         for (int i = 0; i < this.selectorsLen; i++) {
-            this.selectorFilters[i].removeMatchesForLevel(this.markupLevel);
+            if (this.selectorFilters[i].hasMatchedLevels()) {
+                this.selectorFilters[i].removeMatchesForLevel(this.markupLevel);
+            }
         }
 
         if (!this.insideAllSelectorMatchingBlock) {
@@ -1191,7 +1226,9 @@ public void handleAutoCloseElementStart(
 
         this.markupLevel--;
         for (int i = 0; i < this.selectorsLen; i++) {
-            this.selectorFilters[i].removeMatchesForLevel(this.markupLevel);
+            if (this.selectorFilters[i].hasMatchedLevels()) {
+                this.selectorFilters[i].removeMatchesForLevel(this.markupLevel);
+            }
         }
 
         if (!this.insideAllSelectorMatchingBlock) {
@@ -1393,6 +1430,8 @@ public void handleProcessingInstruction(
 
                 if (this.matchingMarkupLevelsPerSelector[i] > this.markupLevel) {
                     this.selectorMatches[i] =
+                            (this.selectorIndex == null || this.selectorFilters[i].hasMatchedLevels() ||
+                                    this.selectorIndex.mightMatchNode(i, MarkupSelectorIndex.NODE_PROCESSING_INSTRUCTION, this.markupLevel)) &&
                             this.selectorFilters[i].matchProcessingInstruction(true, this.markupLevel, this.markupBlocks[this.markupLevel]);
                     if (this.selectorMatches[i]) {
                         this.someSelectorsMatch = true;
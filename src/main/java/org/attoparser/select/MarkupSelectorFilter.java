@@ -32,6 +32,10 @@ final class MarkupSelectorFilter {
     private final MarkupSelectorFilter prev;
     private MarkupSelectorFilter next;
 
+    // First filter in the chain, which keeps the count of matched markup levels for the whole chain
+    private final MarkupSelectorFilter head;
+    private int chainMatchedMarkupLevels;
+
     private final IMarkupSelectorItem markupSelectorItem;
 
     private static final int MATCHED_MARKUP_LEVELS_LEN = 10;
@@ -57,6 +61,8 @@ static final class MarkupBlockMatchingCounter {
         if (this.prev != null) {
             this.prev.next = this;
         }
+        this.head = (this.prev != null ? this.prev.head : this);
+        this.chainMatchedMarkupLevels = 0;
 
         this.matchedMarkupLevels = new boolean[MATCHED_MARKUP_LEVELS_LEN];
         Arrays.fill(this.matchedMarkupLevels, false);
@@ -396,7 +402,7 @@ boolean matchOpenElement(
                 // this piece of markup, and we still need to be able to re-initiate the matching process from
                 // here if possible.
 
-                this.matchedMarkupLevels[markupLevel] = this.matchesThisLevel;
+                setMatchedMarkupLevel(markupLevel, this.matchesThisLevel);
 
                 if (this.next != null) {
                     return this.next.matchOpenElement(blockMatching, markupLevel, markupBlockIndex, elementBuffer);
@@ -407,7 +413,7 @@ boolean matchOpenElement(
                 // This filter was not matched before. So the fact that it matches now means we need to consume it,
                 // therefore not delegating.
 
-                this.matchedMarkupLevels[markupLevel] = true;
+                setMatchedMarkupLevel(markupLevel, true);
                 return (this.next == null);
 
             }
@@ -500,7 +506,7 @@ private void checkMarkupLevel(final int markupLevel) {
     void removeMatchesForLevel(final int markupLevel) {
 
         if (this.matchedMarkupLevels.length > markupLevel) {
-            this.matchedMarkupLevels[markupLevel] = false;
+            setMatchedMarkupLevel(markupLevel, false);
         }
 
         if (this.next == null) {
@@ -512,6 +518,29 @@ void removeMatchesForLevel(final int markupLevel) {
     }
 
 
+    private void setMatchedMarkupLevel(final int markupLevel, final boolean matched) {
+        if (this.matchedMarkupLevels[markupLevel] != matched) {
+            this.matchedMarkupLevels[markupLevel] = matched;
+            this.head.chainMatchedMarkupLevels += (matched ? 1 : -1);
+        }
+    }
+
+
+    /*
+     * Returns whether any of the filters in this chain has matched any markup levels. If not, the result of matching
+     * any event with the chain only depends on whether the first item matches it (see MarkupSelectorIndex).
+     * Only meaningful when called on the first filter of a chain.
+     */
+    boolean hasMatchedLevels() {
+        return this.chainMatchedMarkupLevels > 0;
+    }
+
+
+    IMarkupSelectorItem getMarkupSelectorItem() {
+        return this.markupSelectorItem;
+    }
+
+
     int markupLevelCheckerIndex; // This is a very hot method -- we will avoid creating this variable each time
     private boolean matchesPreviousOrCurrentLevel(final int markupLevel) {
         this.markupLevelCheckerIndex = markupLevel;
@@ -0,0 +1,484 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.select;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.attoparser.util.TextUtil;
+
+/*
+ * Index computed on the first level (head filter) of each of the selectors used by a selector markup handler,
+ * which allows these handlers to evaluate for each event only the selectors that could possibly match it.
+ *
+ * A selector whose filter chain has no matched markup levels (see MarkupSelectorFilter#hasMatchedLevels()) can
+ * only start matching at its first level, so the result of evaluating it depends only on whether its first
+ * selector item matches the event. This index merges the first items of all selectors into:
+ *
+ *   - Lookup tables for element names, ids and (in HTML mode) classes, so that only the selectors whose first
+ *     item requires one of the name, id or classes of the current element are considered candidates for it.
+ *   - The set of node types (text, comment, etc.) each first item can match.
+ *
+ * Items that cannot be indexed (e.g. "content()", "*" with no id or class condition, or OR items with a
+ * non-indexable side) are considered candidates for every element. Items are only indexed on conditions that
+ * are checked before any index condition (e.g. "[2]"), so that discarding a non-candidate selector never skips
+ * the update of a matching counter.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class MarkupSelectorIndex {
+
+    static final int NODE_TEXT = 1;
+    static final int NODE_COMMENT = 1 << 1;
+    static final int NODE_CDATA_SECTION = 1 << 2;
+    static final int NODE_DOC_TYPE_CLAUSE = 1 << 3;
+    static final int NODE_XML_DECLARATION = 1 << 4;
+    static final int NODE_PROCESSING_INSTRUCTION = 1 << 5;
+    private static final int NODE_ALL =
+            NODE_TEXT | NODE_COMMENT | NODE_CDATA_SECTION | NODE_DOC_TYPE_CLAUSE | NODE_XML_DECLARATION |
+            NODE_PROCESSING_INSTRUCTION;
+
+    private static final int KEY_NAME = 0;
+    private static final int KEY_ID = 1;
+    private static final int KEY_CLASS = 2;
+
+
+    private final boolean html;
+
+    private final boolean[] anyLevel;
+    private final int[] nodeTypes;
+    private final boolean[] anyElement;
+
+    private final KeyTable names;
+    private final KeyTable ids;
+    private final KeyTable classes;
+
+    // Candidates for the current element are marked with the current stamp, so that nothing needs to be cleaned
+    private final int[] elementCandidateStamps;
+    private int elementStamp;
+
+
+
+    MarkupSelectorIndex(final boolean html, final MarkupSelectorFilter[] selectorFilters) {
+
+        super();
+
+        this.html = html;
+
+        final int selectorsLen = selectorFilters.length;
+
+        this.anyLevel = new boolean[selectorsLen];
+        this.nodeTypes = new int[selectorsLen];
+        this.anyElement = new boolean[selectorsLen];
+        this.elementCandidateStamps = new int[selectorsLen];
+        this.elementStamp = 0;
+
+        final List<Map<String,List<Integer>>> keyMaps = new ArrayList<Map<String,List<Integer>>>(3);
+        for (int i = 0; i < 3; i++) {
+            keyMaps.add(new LinkedHashMap<String,List<Integer>>());
+        }
+
+        final List<Key> keys = new ArrayList<Key>(4);
+        for (int i = 0; i < selectorsLen; i++) {
+
+            final IMarkupSelectorItem item = selectorFilters[i].getMarkupSelectorItem();
+
+            this.anyLevel[i] = item.anyLevel();
+            this.nodeTypes[i] = computeNodeTypes(item);
+
+            keys.clear();
+            if (!collectElementKeys(html, item, keys)) {
+                this.anyElement[i] = true;
+                continue;
+            }
+
+            for (final Key key : keys) {
+                final Map<String,List<Integer>> keyMap = keyMaps.get(key.type);
+                List<Integer> selectorIndexes = keyMap.get(key.value);
+                if (selectorIndexes == null) {
+                    selectorIndexes = new ArrayList<Integer>(2);
+                    keyMap.put(key.value, selectorIndexes);
+                }
+                selectorIndexes.add(Integer.valueOf(i));
+            }
+
+        }
+
+        this.names = new KeyTable(!html, keyMaps.get(KEY_NAME));
+        this.ids = new KeyTable(true, keyMaps.get(KEY_ID));
+        this.classes = new KeyTable(true, keyMaps.get(KEY_CLASS));
+
+    }
+
+
+
+
+    /*
+     * Returns whether the first item of the selector could match a non-element node of the specified type
+     * at the specified markup level.
+     */
+    boolean mightMatchNode(final int selectorIndex, final int nodeType, final int markupLevel) {
+        return (this.nodeTypes[selectorIndex] & nodeType) != 0 &&
+                (markupLevel == 0 || this.anyLevel[selectorIndex]);
+    }
+
+
+    /*
+     * Computes the candidates for the element currently in the buffer. Must be called before mightMatchElement().
+     */
+    void computeElementCandidates(final SelectorElementBuffer elementBuffer) {
+
+        this.elementStamp++;
+        if (this.elementStamp == 0) {
+            // Wrapped around: old stamps might be taken for current ones
+            Arrays.fill(this.elementCandidateStamps, 0);
+            this.elementStamp = 1;
+        }
+
+        markCandidates(this.names.get(elementBuffer.elementName, 0, elementBuffer.elementNameLen));
+
+        if (elementBuffer.attributeCount == 0 || (this.ids.isEmpty() && this.classes.isEmpty())) {
+            return;
+        }
+
+        for (int i = 0; i < elementBuffer.attributeCount; i++) {
+
+            final char[] attributeBuffer = elementBuffer.attributeBuffers[i];
+            final int nameLen = elementBuffer.attributeNameLens[i];
+            final int valueOffset = elementBuffer.attributeValueContentOffsets[i];
+            final int valueLen = elementBuffer.attributeValueContentLens[i];
+
+            if (!this.ids.isEmpty() &&
+                    TextUtil.equals(!this.html, MarkupSelectorItem.ID_ATTRIBUTE_NAME, 0, 2, attributeBuffer, 0, nameLen)) {
+                markCandidates(this.ids.get(attributeBuffer, valueOffset, valueLen));
+            } else if (!this.classes.isEmpty() &&
+                    TextUtil.equals(false, MarkupSelectorItem.CLASS_ATTRIBUTE_NAME, 0, 5, attributeBuffer, 0, nameLen)) {
+                // Only indexed in HTML mode, so attribute names are case-insensitive
+                int j = valueOffset;
+                final int maxj = valueOffset + valueLen;
+                while (j < maxj) {
+                    while (j < maxj && Character.isWhitespace(attributeBuffer[j])) { j++; }
+                    final int tokenOffset = j;
+                    while (j < maxj && !Character.isWhitespace(attributeBuffer[j])) { j++; }
+                    if (j > tokenOffset) {
+                        markCandidates(this.classes.get(attributeBuffer, tokenOffset, j - tokenOffset));
+                    }
+                }
+            }
+
+        }
+
+    }
+
+
+    /*
+     * Returns whether the first item of the selector could match the element for which candidates were last
+     * computed, at the specified markup level.
+     */
+    boolean mightMatchElement(final int selectorIndex, final int markupLevel) {
+        return (this.anyElement[selectorIndex] || this.elementCandidateStamps[selectorIndex] == this.elementStamp) &&
+                (markupLevel == 0 || this.anyLevel[selectorIndex]);
+    }
+
+
+    private void markCandidates(final int[] selectorIndexes) {
+        if (selectorIndexes != null) {
+            for (int i = 0; i < selectorIndexes.length; i++) {
+                this.elementCandidateStamps[selectorIndexes[i]] = this.elementStamp;
+            }
+        }
+    }
+
+
+
+
+    private static int computeNodeTypes(final IMarkupSelectorItem item) {
+
+        if (item instanceof MarkupSelectorItem) {
+            final MarkupSelectorItem selectorItem = (MarkupSelectorItem) item;
+            if (selectorItem.contentSelector) {
+                return NODE_ALL;
+            }
+            return (selectorItem.textSelector ? NODE_TEXT : 0) |
+                    (selectorItem.commentSelector ? NODE_COMMENT : 0) |
+                    (selectorItem.cdataSectionSelector ? NODE_CDATA_SECTION : 0) |
+                    (selectorItem.docTypeClauseSelector ? NODE_DOC_TYPE_CLAUSE : 0) |
+                    (selectorItem.xmlDeclarationSelector ? NODE_XML_DECLARATION : 0) |
+                    (selectorItem.processingInstructionSelector ? NODE_PROCESSING_INSTRUCTION : 0);
+        }
+        if (item instanceof MarkupSelectorAndItem) {
+            final MarkupSelectorAndItem andItem = (MarkupSelectorAndItem) item;
+            return computeNodeTypes(andItem.left) & computeNodeTypes(andItem.right);
+        }
+        if (item instanceof MarkupSelectorOrItem) {
+            final MarkupSelectorOrItem orItem = (MarkupSelectorOrItem) item;
+            return computeNodeTypes(orItem.left) | computeNodeTypes(orItem.right);
+        }
+        return NODE_ALL;
+
+    }
+
+
+    /*
+     * Adds to the list the keys (of which at least one must be present in an element) needed by the item in order to
+     * match an element. Returns false if the item cannot be indexed, in which case nothing is added.
+     */
+    private static boolean collectElementKeys(final boolean html, final IMarkupSelectorItem item, final List<Key> keys) {
+
+        if (item instanceof MarkupSelectorItem) {
+
+            final MarkupSelectorItem selectorItem = (MarkupSelectorItem) item;
+            if (selectorItem.contentSelector) {
+                return false;
+            }
+            if (selectorItem.textSelector || selectorItem.commentSelector || selectorItem.cdataSectionSelector ||
+                    selectorItem.docTypeClauseSelector || selectorItem.xmlDeclarationSelector ||
+                    selectorItem.processingInstructionSelector) {
+                // Never matches elements: indexed, but with no keys at all
+                return true;
+            }
+            if (selectorItem.selectorPath != null) {
+                keys.add(new Key(KEY_NAME, selectorItem.selectorPath));
+                return true;
+            }
+            final Key key = computeAttributeConditionKey(html, selectorItem.attributeCondition);
+            if (key != null) {
+                keys.add(key);
+                return true;
+            }
+            return false;
+
+        }
+
+        if (item instanceof MarkupSelectorAndItem) {
+            // Right side is only evaluated if left side matches, so it can only be used if the left side has
+            // no index conditions (which would have updated their counters before the right side fails)
+            final MarkupSelectorAndItem andItem = (MarkupSelectorAndItem) item;
+            return collectElementKeys(html, andItem.left, keys) ||
+                    (!hasIndexCondition(andItem.left) && collectElementKeys(html, andItem.right, keys));
+        }
+
+        if (item instanceof MarkupSelectorOrItem) {
+            final MarkupSelectorOrItem orItem = (MarkupSelectorOrItem) item;
+            final List<Key> orKeys = new ArrayList<Key>(2);
+            if (collectElementKeys(html, orItem.left, orKeys) && collectElementKeys(html, orItem.right, orKeys)) {
+                keys.addAll(orKeys);
+                return true;
+            }
+            return false;
+        }
+
+        return false;
+
+    }
+
+
+    private static Key computeAttributeConditionKey(
+            final boolean html, final MarkupSelectorItem.IAttributeCondition attributeCondition) {
+
+        if (attributeCondition instanceof MarkupSelectorItem.AttributeConditionRelation) {
+            final MarkupSelectorItem.AttributeConditionRelation relation =
+                    (MarkupSelectorItem.AttributeConditionRelation) attributeCondition;
+            if (relation.type != MarkupSelectorItem.AttributeConditionRelation.Type.AND) {
+                return null;
+            }
+            final Key key = computeAttributeConditionKey(html, relation.left);
+            return (key != null ? key : computeAttributeConditionKey(html, relation.right));
+        }
+
+        if (!(attributeCondition instanceof MarkupSelectorItem.AttributeCondition)) {
+            return null;
+        }
+
+        final MarkupSelectorItem.AttributeCondition condition = (MarkupSelectorItem.AttributeCondition) attributeCondition;
+        if (condition.operator != MarkupSelectorItem.AttributeCondition.Operator.EQUALS || condition.value == null) {
+            return null;
+        }
+
+        if (html ?
+                MarkupSelectorItem.ID_ATTRIBUTE_NAME.equalsIgnoreCase(condition.name) :
+                MarkupSelectorItem.ID_ATTRIBUTE_NAME.equals(condition.name)) {
+            return new Key(KEY_ID, condition.value);
+        }
+
+        // Classes are only matched token by token in HTML mode (and only if the attribute name is exactly "class").
+        // Values that cannot be a single token (e.g. empty) are not indexed.
+        if (html && MarkupSelectorItem.CLASS_ATTRIBUTE_NAME.equals(condition.name) && isSingleToken(condition.value)) {
+            return new Key(KEY_CLASS, condition.value);
+        }
+
+        return null;
+
+    }
+
+
+    private static boolean hasIndexCondition(final IMarkupSelectorItem item) {
+        if (item instanceof MarkupSelectorItem) {
+            return ((MarkupSelectorItem) item).index != null;
+        }
+        if (item instanceof MarkupSelectorAndItem) {
+            return hasIndexCondition(((MarkupSelectorAndItem) item).left) ||
+                    hasIndexCondition(((MarkupSelectorAndItem) item).right);
+        }
+        if (item instanceof MarkupSelectorOrItem) {
+            return hasIndexCondition(((MarkupSelectorOrItem) item).left) ||
+                    hasIndexCondition(((MarkupSelectorOrItem) item).right);
+        }
+        return true;
+    }
+
+
+    private static boolean isSingleToken(final String value) {
+        final int valueLen = value.length();
+        if (valueLen == 0) {
+            return false;
+        }
+        for (int i = 0; i < valueLen; i++) {
+            if (Character.isWhitespace(value.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+
+
+    private static final class Key {
+
+        final int type;
+        final String value;
+
+        Key(final int type, final String value) {
+            super();
+            this.type = type;
+            this.value = value;
+        }
+
+    }
+
+
+
+
+    /*
+     * Read-only open-addressing hash table mapping texts (looked up as char[] ranges, so that no objects need to be
+     * created) to the indexes of the selectors that require them. Case-insensitive tables use a hash function
+     * consistent with TextUtil.equals(false, ...).
+     */
+    private static final class KeyTable {
+
+        private final boolean caseSensitive;
+        private final char[][] keys;
+        private final int[][] values;
+        private final int mask;
+        private final int size;
+
+
+        KeyTable(final boolean caseSensitive, final Map<String,List<Integer>> map) {
+
+            super();
+
+            this.caseSensitive = caseSensitive;
+
+            int capacity = 2;
+            while (capacity < map.size() * 2) {
+                capacity <<= 1;
+            }
+            this.keys = new char[capacity][];
+            this.values = new int[capacity][];
+            this.mask = capacity - 1;
+            this.size = map.size();
+
+            for (final Map.Entry<String,List<Integer>> entry : map.entrySet()) {
+                final char[] key = entry.getKey().toCharArray();
+                final List<Integer> selectorIndexes = entry.getValue();
+                final int[] value = new int[selectorIndexes.size()];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = selectorIndexes.get(i).intValue();
+                }
+                put(key, value);
+            }
+
+        }
+
+
+        boolean isEmpty() {
+            return this.size == 0;
+        }
+
+
+        int[] get(final char[] text, final int offset, final int len) {
+            int slot = hash(text, offset, len) & this.mask;
+            char[] key;
+            while ((key = this.keys[slot]) != null) {
+                if (TextUtil.equals(this.caseSensitive, key, 0, key.length, text, offset, len)) {
+                    return this.values[slot];
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            return null;
+        }
+
+
+        private void put(final char[] key, final int[] value) {
+            int slot = hash(key, 0, key.length) & this.mask;
+            while (this.keys[slot] != null) {
+                if (TextUtil.equals(this.caseSensitive, this.keys[slot], 0, this.keys[slot].length, key, 0, key.length)) {
+                    // Keys differing only in case in a case-insensitive table: merge them
+                    final int[] merged = new int[this.values[slot].length + value.length];
+                    System.arraycopy(this.values[slot], 0, merged, 0, this.values[slot].length);
+                    System.arraycopy(value, 0, merged, this.values[slot].length, value.length);
+                    this.values[slot] = merged;
+                    return;
+                }
+                slot = (slot + 1) & this.mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = value;
+        }
+
+
+        private int hash(final char[] text, final int offset, final int len) {
+            int h = 0;
+            char c;
+            for (int i = offset, n = offset + len; i < n; i++) {
+                c = text[i];
+                if (!this.caseSensitive) {
+                    if (c < 128) {
+                        if (c >= 'A' && c <= 'Z') {
+                            c += ('a' - 'A');
+                        }
+                    } else {
+                        c = Character.toLowerCase(Character.toUpperCase(c));
+                    }
+                }
+                h = 31 * h + c;
+            }
+            return h ^ (h >>> 16);
+        }
+
+    }
+
+
+}
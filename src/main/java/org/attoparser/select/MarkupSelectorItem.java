@@ -53,17 +53,17 @@ final class MarkupSelectorItem implements IMarkupSelectorItem {
 
     private final boolean html;
     private final boolean anyLevel;
-    private final boolean contentSelector;
-    private final boolean textSelector;
-    private final boolean commentSelector;
-    private final boolean cdataSectionSelector;
-    private final boolean docTypeClauseSelector;
-    private final boolean xmlDeclarationSelector;
-    private final boolean processingInstructionSelector;
-    private final String selectorPath;
+    final boolean contentSelector;
+    final boolean textSelector;
+    final boolean commentSelector;
+    final boolean cdataSectionSelector;
+    final boolean docTypeClauseSelector;
+    final boolean xmlDeclarationSelector;
+    final boolean processingInstructionSelector;
+    final String selectorPath;
     private final int selectorPathLen;
-    private final IndexCondition index;
-    private final IAttributeCondition attributeCondition;
+    final IndexCondition index;
+    final IAttributeCondition attributeCondition;
     private final boolean requiresAttributesInElement;
 
 
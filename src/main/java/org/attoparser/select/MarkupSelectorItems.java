@@ -73,8 +73,14 @@ static List<IMarkupSelectorItem> forSelector(
             return items;
         }
 
+        final Object compilationEvent = SelectorFlightRecorder.beginSelectorCompilation();
+
         items = Collections.unmodifiableList(parseSelector(html, selector, referenceResolver));
 
+        if (compilationEvent != null) {
+            SelectorFlightRecorder.commitSelectorCompilation(compilationEvent, selector, html);
+        }
+
         if (map.size() < SelectorRepository.SELECTOR_ITEMS_MAX_SIZE) {
             map.putIfAbsent(selector, items);
         }
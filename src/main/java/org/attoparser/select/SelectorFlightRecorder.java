@@ -0,0 +1,188 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.select;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.attoparser.FlightRecorderEvents;
+
+/*
+ * Reports the compilation of markup selectors as JDK Flight Recorder events, whenever events are enabled by
+ * means of FlightRecorderEvents. As with the rest of the AttoParser events, the event type is defined at runtime
+ * by means of reflection (through jdk.jfr.EventFactory), so that there is no dependency on the JFR API.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+final class SelectorFlightRecorder {
+
+    private static final String CATEGORY = "AttoParser";
+
+    private static volatile EventType eventType = null;
+    private static volatile boolean unavailable = false;
+
+
+
+
+    static Object beginSelectorCompilation() {
+        if (!FlightRecorderEvents.isEnabled() || unavailable) {
+            return null;
+        }
+        final EventType type = getEventType();
+        return (type != null? type.begin() : null);
+    }
+
+
+    static void commitSelectorCompilation(final Object event, final String selector, final boolean html) {
+        final EventType type = eventType;
+        if (type != null && event != null) {
+            type.commit(event, selector, html);
+        }
+    }
+
+
+
+
+    private static EventType getEventType() {
+        EventType type = eventType;
+        if (type != null) {
+            return type;
+        }
+        synchronized (SelectorFlightRecorder.class) {
+            if (eventType == null && !unavailable) {
+                try {
+                    eventType = new EventType();
+                } catch (final Throwable ignored) {
+                    // JFR is not available (or does not allow the definition of events at runtime)
+                    unavailable = true;
+                }
+            }
+            return eventType;
+        }
+    }
+
+
+
+
+    private SelectorFlightRecorder() {
+        super();
+    }
+
+
+
+
+    /*
+     * The selector compilation event type, and the jdk.jfr.Event methods used for creating and committing
+     * its events.
+     */
+    private static final class EventType {
+
+        private final Object type;
+        private final Method newEventMethod;
+        private final Method beginMethod;
+        private final Method endMethod;
+        private final Method shouldCommitMethod;
+        private final Method setMethod;
+        private final Method commitMethod;
+
+
+        EventType() throws Exception {
+
+            super();
+
+            final Class<?> eventFactoryClass = Class.forName("jdk.jfr.EventFactory");
+            final Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            final Class<?> annotationElementClass = Class.forName("jdk.jfr.AnnotationElement");
+            final Class<?> valueDescriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+
+            final Constructor<?> annotationElementConstructor =
+                    annotationElementClass.getConstructor(Class.class, Object.class);
+            final Constructor<?> valueDescriptorConstructor =
+                    valueDescriptorClass.getConstructor(Class.class, String.class);
+
+            final List<Object> annotations = new ArrayList<Object>(4);
+            annotations.add(
+                    annotationElementConstructor.newInstance(
+                            annotationClass("jdk.jfr.Name"), FlightRecorderEvents.SELECTOR_COMPILATION_EVENT_NAME));
+            annotations.add(
+                    annotationElementConstructor.newInstance(annotationClass("jdk.jfr.Label"), "Selector Compilation"));
+            annotations.add(
+                    annotationElementConstructor.newInstance(
+                            annotationClass("jdk.jfr.Category"), new String[] { CATEGORY }));
+            annotations.add(
+                    annotationElementConstructor.newInstance(annotationClass("jdk.jfr.Threshold"), "0 ns"));
+
+            final List<Object> fields = new ArrayList<Object>(2);
+            fields.add(valueDescriptorConstructor.newInstance(String.class, "selector"));
+            fields.add(valueDescriptorConstructor.newInstance(boolean.class, "html"));
+
+            this.type = eventFactoryClass.getMethod("create", List.class, List.class).invoke(null, annotations, fields);
+            this.newEventMethod = eventFactoryClass.getMethod("newEvent");
+            this.beginMethod = eventClass.getMethod("begin");
+            this.endMethod = eventClass.getMethod("end");
+            this.shouldCommitMethod = eventClass.getMethod("shouldCommit");
+            this.setMethod = eventClass.getMethod("set", int.class, Object.class);
+            this.commitMethod = eventClass.getMethod("commit");
+
+        }
+
+
+        Object begin() {
+            try {
+                final Object event = this.newEventMethod.invoke(this.type);
+                this.beginMethod.invoke(event);
+                return event;
+            } catch (final Throwable ignored) {
+                // Something went wrong when recording an event, so we will not try again
+                unavailable = true;
+                return null;
+            }
+        }
+
+
+        void commit(final Object event, final String selector, final boolean html) {
+            try {
+                this.endMethod.invoke(event);
+                if (!((Boolean) this.shouldCommitMethod.invoke(event)).booleanValue()) {
+                    // Disabled in the current recordings, or below the configured threshold
+                    return;
+                }
+                this.setMethod.invoke(event, Integer.valueOf(0), selector);
+                this.setMethod.invoke(event, Integer.valueOf(1), Boolean.valueOf(html));
+                this.commitMethod.invoke(event);
+            } catch (final Throwable ignored) {
+                unavailable = true;
+            }
+        }
+
+
+        private static Class<? extends Annotation> annotationClass(final String annotationClassName)
+                throws ClassNotFoundException {
+            return Class.forName(annotationClassName).asSubclass(Annotation.class);
+        }
+
+    }
+
+
+}
@@ -24,6 +24,7 @@
 
 import org.attoparser.AbstractMarkupHandler;
 import org.attoparser.ParseException;
+import org.attoparser.util.StringDeduplicationCache;
 
 
 /**
@@ -70,6 +71,7 @@ public final class SimplifierMarkupHandler extends AbstractMarkupHandler {
 
 
     private final ISimpleMarkupHandler handler;
+    private final StringDeduplicationCache stringCache;
     
     private String currentElementName;
     private Map<String,String> currentElementAttributes;
@@ -88,11 +90,29 @@ public final class SimplifierMarkupHandler extends AbstractMarkupHandler {
      * @param handler the <strong>simple</strong> handler to which events will be delegated.
      */
     public SimplifierMarkupHandler(final ISimpleMarkupHandler handler) {
+        this(handler, null);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new instance of this parser, specifying a cache to be used for deduplicating the
+     *   <tt>String</tt> objects created for attribute values, so that a single object is created for all the
+     *   appearances of each short value. The cache can be shared among several handlers.
+     * </p>
+     *
+     * @param handler the <strong>simple</strong> handler to which events will be delegated.
+     * @param stringCache the cache to be used, or <tt>null</tt> for not deduplicating attribute values.
+     * @since 2.0.6
+     */
+    public SimplifierMarkupHandler(
+            final ISimpleMarkupHandler handler, final StringDeduplicationCache stringCache) {
         super();
         if (handler == null) {
             throw new IllegalArgumentException("Delegate handler cannot be null");
         }
         this.handler = handler;
+        this.stringCache = stringCache;
     }
 
 
@@ -419,7 +439,10 @@ public void handleAttribute(
 
         final String attributeName = StructureTextsRepository.getStructureName(buffer, nameOffset, nameLen);
         final String attributeValue = 
-                (valueContentLen <= 0?  "" : new String(buffer, valueContentOffset, valueContentLen));
+                (valueContentLen <= 0?  "" :
+                        (this.stringCache == null?
+                                new String(buffer, valueContentOffset, valueContentLen) :
+                                this.stringCache.getString(buffer, valueContentOffset, valueContentLen)));
         
         if (this.currentElementAttributes == null) {
             this.currentElementAttributes = new LinkedHashMap<String, String>(3, 1.0f);
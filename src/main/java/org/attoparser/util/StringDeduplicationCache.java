@@ -0,0 +1,345 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * <p>
+ *   Bounded cache of canonical <tt>String</tt> objects for short texts, looked up directly on ranges of
+ *   <tt>char[]</tt> buffers.
+ * </p>
+ * <p>
+ *   Markup repeats the same short attribute values (<tt>"button"</tt>, <tt>"btn btn-primary"</tt>,
+ *   <tt>"true"</tt>...) and whitespace-only texts (indentation) thousands of times. Handlers that turn these
+ *   into <tt>String</tt> objects (such as {@link org.attoparser.dom.DOMBuilderMarkupHandler} or
+ *   {@link org.attoparser.simple.SimplifierMarkupHandler}) can use this cache so that a single
+ *   <tt>String</tt> object is created for each of them, instead of one per appearance.
+ * </p>
+ * <p>
+ *   Only texts up to a maximum length are cached, plus whitespace-only texts up to a (normally larger)
+ *   maximum length. The rest are simply returned as new <tt>String</tt> objects without being counted in the
+ *   statistics. The empty text is always returned as the <tt>""</tt> constant.
+ * </p>
+ * <p>
+ *   The cache has a fixed capacity, organized in sets of two entries selected by the hash of the text. When a
+ *   text is not found, it is stored as the most recent entry in its set, evicting the least recent one if
+ *   the set was full.
+ * </p>
+ * <p>
+ *   A cache can be used for a single parsing operation, or shared among several of them (from the same or
+ *   different threads) so that canonical texts are also shared among their results. It is
+ *   <strong>thread-safe</strong> and lock-free: concurrent use might occasionally result in the same text
+ *   being created more than once, but never in a wrong text being returned. Note that, as counters are updated
+ *   concurrently, the different statistics values might not have been read at the exact same instant.
+ * </p>
+ *
+ * @author Daniel Fern&aacute;ndez
+ *
+ * @since 2.0.6
+ *
+ */
+public final class StringDeduplicationCache {
+
+    /**
+     * <p>
+     *   Default capacity (maximum amount of texts stored): 1024.
+     * </p>
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * <p>
+     *   Default maximum length of the (non-whitespace) texts stored: 32.
+     * </p>
+     */
+    public static final int DEFAULT_MAX_LENGTH = 32;
+
+    /**
+     * <p>
+     *   Default maximum length of the whitespace-only texts stored: 256.
+     * </p>
+     */
+    public static final int DEFAULT_MAX_WHITESPACE_LENGTH = 256;
+
+
+    private final AtomicReferenceArray<String> entries; // read-write, lock-free
+    private final int mask;
+    private final int maxLength;
+    private final int maxWhitespaceLength;
+
+    private final AtomicLong hits = new AtomicLong(0L);
+    private final AtomicLong misses = new AtomicLong(0L);
+    private final AtomicLong evictions = new AtomicLong(0L);
+
+
+
+
+    /**
+     * <p>
+     *   Creates a new cache with the default capacity and maximum lengths.
+     * </p>
+     */
+    public StringDeduplicationCache() {
+        this(DEFAULT_CAPACITY, DEFAULT_MAX_LENGTH, DEFAULT_MAX_WHITESPACE_LENGTH);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new cache with the specified capacity and the default maximum lengths.
+     * </p>
+     *
+     * @param capacity the maximum amount of texts to be stored (will be rounded up to a power of two).
+     */
+    public StringDeduplicationCache(final int capacity) {
+        this(capacity, DEFAULT_MAX_LENGTH, DEFAULT_MAX_WHITESPACE_LENGTH);
+    }
+
+
+    /**
+     * <p>
+     *   Creates a new cache.
+     * </p>
+     *
+     * @param capacity the maximum amount of texts to be stored (will be rounded up to a power of two).
+     * @param maxLength the maximum length of the texts to be stored.
+     * @param maxWhitespaceLength the maximum length of the whitespace-only texts to be stored.
+     */
+    public StringDeduplicationCache(final int capacity, final int maxLength, final int maxWhitespaceLength) {
+
+        super();
+
+        if (capacity <= 0 || capacity > (1 << 30)) {
+            throw new IllegalArgumentException("Capacity must be between 1 and 2^30, but is: " + capacity);
+        }
+        if (maxLength < 0 || maxWhitespaceLength < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum lengths cannot be negative: " + maxLength + ", " + maxWhitespaceLength);
+        }
+
+        // At least one set of two entries
+        int tableSize = 2;
+        while (tableSize < capacity) {
+            tableSize <<= 1;
+        }
+
+        this.entries = new AtomicReferenceArray<String>(tableSize);
+        // Selects the first entry of a set (always an even position)
+        this.mask = (tableSize - 1) & ~1;
+        this.maxLength = maxLength;
+        this.maxWhitespaceLength = maxWhitespaceLength;
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns a <tt>String</tt> with the contents of the specified range of chars, which will be the
+     *   canonical instance for that text if it is short enough to be cached.
+     * </p>
+     *
+     * @param buffer the buffer containing the text.
+     * @param offset the offset of the text in the buffer.
+     * @param len the length of the text.
+     * @return the text, as a String.
+     */
+    public String getString(final char[] buffer, final int offset, final int len) {
+
+        if (len == 0) {
+            return "";
+        }
+        if (len > this.maxLength && (len > this.maxWhitespaceLength || !isWhitespace(buffer, offset, len))) {
+            return new String(buffer, offset, len);
+        }
+
+        // Same hash function as java.lang.String, so that the (cached) hash of stored Strings can be used
+        int hash = 0;
+        for (int i = offset, n = offset + len; i < n; i++) {
+            hash = 31 * hash + buffer[i];
+        }
+
+        final int first = (hash ^ (hash >>> 16)) & this.mask;
+
+        final String firstEntry = this.entries.get(first);
+        if (firstEntry != null && matches(firstEntry, hash, buffer, offset, len)) {
+            this.hits.incrementAndGet();
+            return firstEntry;
+        }
+        final String secondEntry = this.entries.get(first + 1);
+        if (secondEntry != null && matches(secondEntry, hash, buffer, offset, len)) {
+            this.hits.incrementAndGet();
+            return secondEntry;
+        }
+
+        this.misses.incrementAndGet();
+
+        final String text = new String(buffer, offset, len);
+
+        // The new text becomes the most recent entry in the set, and the previous most recent one is kept as
+        // the least recent one (evicting whatever was there)
+        if (firstEntry != null) {
+            if (secondEntry != null) {
+                this.evictions.incrementAndGet();
+            }
+            this.entries.set(first + 1, firstEntry);
+        }
+        this.entries.set(first, text);
+
+        return text;
+
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Removes all texts from the cache and resets its statistics.
+     * </p>
+     */
+    public void clear() {
+        for (int i = 0; i < this.entries.length(); i++) {
+            this.entries.set(i, null);
+        }
+        this.hits.set(0L);
+        this.misses.set(0L);
+        this.evictions.set(0L);
+    }
+
+
+
+
+    /**
+     * <p>
+     *   Returns the amount of texts currently stored at the cache.
+     * </p>
+     *
+     * @return the current size.
+     */
+    public int getSize() {
+        // Not kept as a counter, so that misses (which fill entries) are cheaper
+        int size = 0;
+        for (int i = 0; i < this.entries.length(); i++) {
+            if (this.entries.get(i) != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * <p>
+     *   Returns the maximum amount of texts that can be stored at the cache.
+     * </p>
+     *
+     * @return the capacity.
+     */
+    public int getCapacity() {
+        return this.entries.length();
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of lookups of cacheable texts that found the text at the cache.
+     * </p>
+     *
+     * @return the amount of hits.
+     */
+    public long getHits() {
+        return this.hits.get();
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of lookups of cacheable texts that did not find the text at the cache, and
+     *   therefore required the creation of a new <tt>String</tt>.
+     * </p>
+     *
+     * @return the amount of misses.
+     */
+    public long getMisses() {
+        return this.misses.get();
+    }
+
+    /**
+     * <p>
+     *   Returns the amount of texts that were evicted from the cache in order to make room for new ones.
+     * </p>
+     *
+     * @return the amount of evictions.
+     */
+    public long getEvictions() {
+        return this.evictions.get();
+    }
+
+    /**
+     * <p>
+     *   Returns the ratio of lookups of cacheable texts that found the text at the cache.
+     * </p>
+     *
+     * @return the hit rate (between 0.0 and 1.0), or 0.0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        final long currentHits = this.hits.get();
+        final long lookups = currentHits + this.misses.get();
+        return (lookups == 0L ? 0.0 : (double) currentHits / (double) lookups);
+    }
+
+
+
+
+    private static boolean isWhitespace(final char[] buffer, final int offset, final int len) {
+        for (int i = offset, n = offset + len; i < n; i++) {
+            final char c = buffer[i];
+            if (c != ' ' && c != '\n' && c != '\t' && c != '\r' && c != '\f') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static boolean matches(
+            final String text, final int hash, final char[] buffer, final int offset, final int len) {
+        if (text.length() != len || text.hashCode() != hash) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (text.charAt(i) != buffer[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    @Override
+    public String toString() {
+        return "[size=" + getSize() + ", capacity=" + getCapacity() + ", hits=" + getHits() +
+                ", misses=" + getMisses() + ", evictions=" + getEvictions() + "]";
+    }
+
+
+}
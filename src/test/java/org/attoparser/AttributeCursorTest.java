@@ -0,0 +1,243 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.MarkupTraceEvent;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class AttributeCursorTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "<p>Hello</p>",
+                    "<p class=\"a\" id='b' hidden>One<br/>two<br />three</p>",
+                    "<div\n  title=\"multi\nline\"\n  data-x=1\n>text\n<img src='a.png'\n/></div>",
+                    "<p a=\"x>y\" b='<c>' c = d>quoted</p><input value=\"\" disabled  />",
+                    "<a href=\"one.html\">one</a><a name=x HREF='two.html'>two</a><a>three</a>"
+            };
+
+
+
+    public void testCursorMatchesAttributeEvents() throws Exception {
+
+        final ParseConfiguration lazyConfiguration = ParseConfiguration.htmlConfiguration();
+        lazyConfiguration.setLazyPositionTracking(true);
+
+        final ParseConfiguration[] configurations =
+                new ParseConfiguration[] {
+                        ParseConfiguration.htmlConfiguration(), ParseConfiguration.xmlConfiguration(), lazyConfiguration };
+
+        for (final ParseConfiguration configuration : configurations) {
+
+            final MarkupParser parser = new MarkupParser(configuration);
+
+            for (final String document : DOCUMENTS) {
+
+                final TraceBuilderMarkupHandler traceHandler = new TraceBuilderMarkupHandler();
+                final List<String> expected = new ArrayList<String>();
+                try {
+                    parser.parse(document, traceHandler);
+                } catch (final ParseException e) {
+                    // Not well-formed XML: there is nothing to compare
+                    continue;
+                }
+                for (final MarkupTraceEvent event : traceHandler.getTrace()) {
+                    if (event.getEventType() == MarkupTraceEvent.EventType.ATTRIBUTE) {
+                        expected.add(event.toString());
+                    }
+                }
+
+                final CursorMarkupHandler handler = new CursorMarkupHandler(null);
+                parser.parse(document, handler);
+                assertEquals(document, expected, handler.attributes);
+
+            }
+
+        }
+
+    }
+
+
+
+    public void testFind() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final CursorMarkupHandler handler = new CursorMarkupHandler("href");
+        parser.parse(DOCUMENTS[4], handler);
+        assertEquals("[one.html, two.html, null]", handler.found.toString());
+
+        final AttributeCursor cursor = new AttributeCursor();
+        final char[] buffer = " a=1 b=\"2\" ".toCharArray();
+        cursor.reset(buffer, 0, buffer.length, 1, 1);
+        assertEquals(2, cursor.getAttributeCount());
+        assertTrue(cursor.find("B", false));
+        assertEquals("2", new String(buffer, cursor.getValueContentOffset(), cursor.getValueContentLen()));
+        assertEquals("\"2\"", new String(buffer, cursor.getValueOuterOffset(), cursor.getValueOuterLen()));
+        assertFalse(cursor.next());
+        assertFalse(cursor.find("B", true));
+        try {
+            cursor.getNameOffset();
+            fail();
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+
+        cursor.reset(buffer, 0, 0, -1, -1);
+        assertFalse(cursor.next());
+
+        try {
+            cursor.reset(buffer, new ParseStatus());
+            fail();
+        } catch (final IllegalStateException e) {
+            // Expected: no element is being reported
+        }
+
+    }
+
+
+
+    public void testAutoCloseEvents() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        // <p> is auto-closed while the start of <div> is being parsed, reporting its name in a buffer of its own
+        final List<String> failures = new ArrayList<String>();
+        parser.parse("<p>x<div class=\"c\">y</div>", new AbstractMarkupHandler() {
+
+            private ParseStatus status;
+
+            @Override
+            public void setParseStatus(final ParseStatus status) {
+                this.status = status;
+            }
+
+            @Override
+            public void handleAutoCloseElementStart(
+                    final char[] buffer, final int nameOffset, final int nameLen, final int line, final int col)
+                    throws ParseException {
+                try {
+                    new AttributeCursor().reset(buffer, this.status);
+                } catch (final IllegalStateException e) {
+                    failures.add(new String(buffer, nameOffset, nameLen));
+                }
+            }
+
+        });
+        assertEquals("[p]", failures.toString());
+
+    }
+
+
+
+
+    /*
+     * Does not consume attribute events, but obtains the attributes by means of a cursor instead
+     */
+    private static final class CursorMarkupHandler extends AbstractMarkupHandler implements IInterestAwareMarkupHandler {
+
+        private final String name;
+        private final AttributeCursor cursor = new AttributeCursor();
+        private ParseStatus status;
+
+        final List<String> attributes = new ArrayList<String>();
+        final List<String> found = new ArrayList<String>();
+
+        CursorMarkupHandler(final String name) {
+            super();
+            this.name = name;
+        }
+
+        public int getEventInterests() {
+            return TEXT_EVENTS;
+        }
+
+        @Override
+        public void setParseStatus(final ParseStatus status) {
+            this.status = status;
+        }
+
+        @Override
+        public void handleAttribute(
+                final char[] buffer,
+                final int nameOffset, final int nameLen, final int nameLine, final int nameCol,
+                final int operatorOffset, final int operatorLen, final int operatorLine, final int operatorCol,
+                final int valueContentOffset, final int valueContentLen,
+                final int valueOuterOffset, final int valueOuterLen,
+                final int valueLine, final int valueCol) {
+            // XML configurations validate attributes, so these events are still received
+        }
+
+        @Override
+        public void handleStandaloneElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen,
+                final boolean minimized, final int line, final int col)
+                throws ParseException {
+            read(buffer);
+        }
+
+        @Override
+        public void handleOpenElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen, final int line, final int col)
+                throws ParseException {
+            read(buffer);
+        }
+
+        private void read(final char[] buffer) throws ParseException {
+
+            this.cursor.reset(buffer, this.status);
+
+            if (this.name != null) {
+                this.found.add(
+                        this.cursor.find(this.name, false)?
+                                new String(buffer, this.cursor.getValueContentOffset(), this.cursor.getValueContentLen()) :
+                                null);
+                return;
+            }
+
+            while (this.cursor.next()) {
+                this.attributes.add(
+                        new MarkupTraceEvent.AttributeTraceEvent(
+                                new String(buffer, this.cursor.getNameOffset(), this.cursor.getNameLen()),
+                                this.cursor.getNameLine(), this.cursor.getNameCol(),
+                                new String(buffer, this.cursor.getOperatorOffset(), this.cursor.getOperatorLen()),
+                                this.cursor.getOperatorLine(), this.cursor.getOperatorCol(),
+                                new String(buffer, this.cursor.getValueOuterOffset(), this.cursor.getValueOuterLen()),
+                                this.cursor.getValueLine(), this.cursor.getValueCol()).toString());
+            }
+
+        }
+
+    }
+
+
+}
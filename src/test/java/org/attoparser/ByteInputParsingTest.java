@@ -0,0 +1,273 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ByteInputParsingTest extends TestCase {
+
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final Charset UTF_16BE = Charset.forName("UTF-16BE");
+    private static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+    private static final Charset ISO_8859_1 = Charset.forName("ISO-8859-1");
+
+    private static final byte[] UTF_8_BOM = new byte[] { (byte)0xEF, (byte)0xBB, (byte)0xBF };
+    private static final byte[] UTF_16BE_BOM = new byte[] { (byte)0xFE, (byte)0xFF };
+    private static final byte[] UTF_16LE_BOM = new byte[] { (byte)0xFF, (byte)0xFE };
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "Hello, world",
+                    "<p>Espa\u00F1a, \u00E1rbol</p>\n<!-- \u20AC -->",
+                    "<div title=\"\u65E5\u672C\u8A9E\">\uD83D\uDE00 text \uD834\uDD1E</div>",
+                    "<?xml version=\"1.0\"?>\n<root>\u00E1\u00E9\u00ED\u00F3\u00FA</root>"
+            };
+
+
+
+    public void testExplicitCharset() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        for (final String document : DOCUMENTS) {
+            final String expected = trace(parser, document);
+            check(parser, expected, document.getBytes("UTF-8"), UTF_8);
+            check(parser, expected, document.getBytes("UTF-16BE"), UTF_16BE);
+            check(parser, expected, document.getBytes("UTF-16LE"), UTF_16LE);
+        }
+
+    }
+
+
+
+    public void testDefaultCharset() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        for (final String document : DOCUMENTS) {
+            check(parser, trace(parser, document), document.getBytes("UTF-8"), null);
+        }
+
+    }
+
+
+
+    public void testByteOrderMark() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        for (final String document : DOCUMENTS) {
+
+            final String expected = trace(parser, document);
+
+            // BOMs take precedence over the specified charset, and are never reported as text
+            check(parser, expected, concat(UTF_8_BOM, document.getBytes("UTF-8")), null);
+            check(parser, expected, concat(UTF_8_BOM, document.getBytes("UTF-8")), ISO_8859_1);
+            check(parser, expected, concat(UTF_16BE_BOM, document.getBytes("UTF-16BE")), null);
+            check(parser, expected, concat(UTF_16LE_BOM, document.getBytes("UTF-16LE")), UTF_8);
+
+        }
+
+    }
+
+
+
+    public void testXmlDeclarationEncoding() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.xmlConfiguration());
+
+        final String document = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<root>Espa\u00F1a</root>";
+        final String expected = trace(parser, document);
+        final byte[] bytes = document.getBytes("ISO-8859-1");
+
+        check(parser, expected, bytes, null);
+
+        // An explicitly specified charset takes precedence over the XML Declaration
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(ByteBuffer.wrap(bytes), UTF_8, handler);
+        assertFalse(expected.equals(trace(handler)));
+
+        try {
+            parser.parse(
+                    ByteBuffer.wrap("<?xml version=\"1.0\" encoding=\"NON-EXISTING\"?><root/>".getBytes("US-ASCII")),
+                    null, new TraceBuilderMarkupHandler());
+            fail();
+        } catch (final ParseException e) {
+            // Expected
+        }
+
+    }
+
+
+
+    public void testBufferPositionIsKept() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final String document = "<p>\u00E1</p>";
+        final byte[] bytes = ("abc" + document).getBytes("UTF-8");
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        buffer.position(3);
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(buffer, UTF_8, handler);
+        assertEquals(trace(parser, document), trace(handler));
+        assertEquals(3, buffer.position());
+
+    }
+
+
+
+    public void testStreamIsClosed() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final ClosingCheckInputStream inputStream =
+                new ClosingCheckInputStream("<p>Hello</p>".getBytes("UTF-8"), 1024);
+        parser.parse(inputStream, null, new TraceBuilderMarkupHandler());
+        assertTrue(inputStream.closed);
+
+        final ClosingCheckInputStream invalidInputStream =
+                new ClosingCheckInputStream(
+                        "<?xml version=\"1.0\" encoding=\"NON-EXISTING\"?><root/>".getBytes("US-ASCII"), 1024);
+        try {
+            parser.parse(invalidInputStream, null, new TraceBuilderMarkupHandler());
+            fail();
+        } catch (final ParseException e) {
+            assertTrue(invalidInputStream.closed);
+        }
+
+    }
+
+
+
+
+    public void testReaderSingleCharReads() throws Exception {
+
+        for (final String document : DOCUMENTS) {
+            for (final Charset charset : new Charset[] { UTF_8, UTF_16BE, ISO_8859_1 }) {
+
+                final byte[] bytes = document.getBytes(charset.name());
+                final String expected = new String(bytes, charset.name());
+
+                final ByteDecodingReader reader =
+                        new ByteDecodingReader(new ClosingCheckInputStream(bytes, 3), charset, new byte[0], 0, 0);
+                final StringBuilder result = new StringBuilder();
+                final char[] c = new char[1];
+                while (reader.read(c, 0, 1) != -1) {
+                    result.append(c[0]);
+                }
+                assertEquals(expected, result.toString());
+
+            }
+        }
+
+    }
+
+
+
+    private static void check(
+            final MarkupParser parser, final String expected, final byte[] bytes, final Charset charset)
+            throws Exception {
+
+        TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(ByteBuffer.wrap(bytes), charset, handler);
+        assertEquals(expected, trace(handler));
+
+        final ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        direct.flip();
+        handler = new TraceBuilderMarkupHandler();
+        parser.parse(direct, charset, handler);
+        assertEquals(expected, trace(handler));
+
+        // Reading small chunks makes multi-byte sequences (and surrogate pairs) be split between reads
+        for (int chunkSize = 1; chunkSize <= 4; chunkSize++) {
+            handler = new TraceBuilderMarkupHandler();
+            parser.parse(new ClosingCheckInputStream(bytes, chunkSize), charset, handler);
+            assertEquals(expected, trace(handler));
+        }
+
+    }
+
+
+    private static String trace(final MarkupParser parser, final String document) throws ParseException {
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(document, handler);
+        return trace(handler);
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+    private static byte[] concat(final byte[] a, final byte[] b) {
+        final byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+
+
+
+    private static final class ClosingCheckInputStream extends ByteArrayInputStream {
+
+        private final int chunkSize;
+        boolean closed = false;
+
+        ClosingCheckInputStream(final byte[] bytes, final int chunkSize) {
+            super(bytes);
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public synchronized int read(final byte[] b, final int off, final int len) {
+            return super.read(b, off, Math.min(len, this.chunkSize));
+        }
+
+        @Override
+        public void close() throws IOException {
+            this.closed = true;
+            super.close();
+        }
+
+    }
+
+
+}
@@ -0,0 +1,164 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+import java.nio.CharBuffer;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class CharSequenceParsingTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "Hello, world",
+                    "<p>Espa\u00F1a, \u00E1rbol</p>\n<!-- \u20AC -->",
+                    "<div title=\"\u65E5\u672C\u8A9E\">\uD83D\uDE00 text</div>\n<br/><script>a < b</script>",
+                    "<?xml version=\"1.0\"?>\n<root><a href='x'/>text</root>"
+            };
+
+
+
+    public void testSequences() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final StringBuilder large = new StringBuilder();
+        while (large.length() <= parser.getBufferPool().getDefaultBufferSize() * 2) {
+            large.append("<div class=\"a\">some text</div>\n");
+        }
+
+        final String[] documents = new String[DOCUMENTS.length + 1];
+        System.arraycopy(DOCUMENTS, 0, documents, 0, DOCUMENTS.length);
+        documents[DOCUMENTS.length] = large.toString();
+
+        for (final String document : documents) {
+
+            final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+            parser.parse(new StringReader(document), expectedHandler);
+            final String expected = trace(expectedHandler);
+
+            check(parser, expected, document);
+            check(parser, expected, new StringBuilder(document));
+            check(parser, expected, new StringBuffer(document));
+            check(parser, expected, CharBuffer.wrap(document));
+            check(parser, expected, CharBuffer.wrap(document.toCharArray()));
+            check(parser, expected, CharBuffer.wrap(document.toCharArray()).asReadOnlyBuffer());
+            check(parser, expected, new SimpleCharSequence(document));
+
+        }
+
+    }
+
+
+
+    public void testCharBufferPositionIsKept() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final String document = "<p>\u00E1</p>";
+        final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+        parser.parse(document, expectedHandler);
+
+        final CharBuffer[] buffers =
+                new CharBuffer[] {
+                        CharBuffer.wrap(("abc" + document + "def").toCharArray()),
+                        CharBuffer.wrap(("abc" + document + "def").toCharArray()).asReadOnlyBuffer()
+                };
+        for (final CharBuffer buffer : buffers) {
+            buffer.position(3);
+            buffer.limit(3 + document.length());
+            final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+            parser.parse(buffer, handler);
+            assertEquals(trace(expectedHandler), trace(handler));
+            assertEquals(3, buffer.position());
+        }
+
+    }
+
+
+
+
+    private static void check(final MarkupParser parser, final String expected, final CharSequence document)
+            throws Exception {
+
+        TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(document, handler);
+        assertEquals(expected, trace(handler));
+
+        // Sessions parse with the same (pooled) buffers, one document after another
+        final MarkupParseSession session = parser.createSession();
+        for (int i = 0; i < 2; i++) {
+            handler = new TraceBuilderMarkupHandler();
+            session.parse(document, handler);
+            assertEquals(expected, trace(handler));
+        }
+
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+
+
+    private static final class SimpleCharSequence implements CharSequence {
+
+        private final String str;
+
+        SimpleCharSequence(final String str) {
+            super();
+            this.str = str;
+        }
+
+        public int length() {
+            return this.str.length();
+        }
+
+        public char charAt(final int index) {
+            return this.str.charAt(index);
+        }
+
+        public CharSequence subSequence(final int start, final int end) {
+            return this.str.subSequence(start, end);
+        }
+
+        @Override
+        public String toString() {
+            return this.str;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,219 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.MarkupTraceEvent;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class EventInterestsTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "Hello, world",
+                    "<?xml version=\"1.0\"?>\n<!DOCTYPE html>\n<html><body>\n<p class=\"a\" id='b'>One<br/>two</p>" +
+                            "<!-- a <p>comment</p> -->\n<![CDATA[ <p>cdata</p> ]]><?pi <p>x</p> ?>\n<ul><li>a<li>b</ul></body></html>",
+                    "<div\n  title=\"multi\nline\"\n  data-x=1\n>text\n<img src='a.png'\n/><table><tr><td>cell</table></div>\nend",
+                    "<p a=\"x>y\" b='<c>'>quoted</p><p\n>\n</p>",
+                    "<style>p > a { }</style><script>if (a < b) { }</script><textarea><b></textarea>"
+            };
+
+    private static final int[] INTERESTS =
+            new int[] {
+                    0,
+                    IInterestAwareMarkupHandler.TEXT_EVENTS,
+                    IInterestAwareMarkupHandler.COMMENT_EVENTS,
+                    IInterestAwareMarkupHandler.CDATA_SECTION_EVENTS,
+                    IInterestAwareMarkupHandler.DOCTYPE_EVENTS,
+                    IInterestAwareMarkupHandler.XML_DECLARATION_EVENTS,
+                    IInterestAwareMarkupHandler.PROCESSING_INSTRUCTION_EVENTS,
+                    IInterestAwareMarkupHandler.ATTRIBUTE_EVENTS,
+                    IInterestAwareMarkupHandler.TEXT_EVENTS | IInterestAwareMarkupHandler.ATTRIBUTE_EVENTS,
+                    IInterestAwareMarkupHandler.ALL_EVENTS
+            };
+
+
+
+    public void testInterests() throws Exception {
+
+        final ParseConfiguration lazyConfiguration = ParseConfiguration.htmlConfiguration();
+        lazyConfiguration.setLazyPositionTracking(true);
+        final ParseConfiguration splittableConfiguration = ParseConfiguration.htmlConfiguration();
+        splittableConfiguration.setTextSplittable(true);
+
+        final ParseConfiguration[] configurations =
+                new ParseConfiguration[] {
+                        ParseConfiguration.htmlConfiguration(), lazyConfiguration, splittableConfiguration };
+
+        for (final ParseConfiguration configuration : configurations) {
+
+            // Small buffers make structures be split between reads
+            final MarkupParser parser = new MarkupParser(configuration, 2, 16);
+
+            for (final String document : DOCUMENTS) {
+
+                final TraceBuilderMarkupHandler allHandler = new TraceBuilderMarkupHandler();
+                parser.parse(document, allHandler);
+
+                for (final int interests : INTERESTS) {
+                    final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+                    parser.parse(document, new InterestAwareHandler(handler, interests));
+                    assertEquals(
+                            document + " [" + interests + "]",
+                            trace(filter(allHandler.getTrace(), interests)), trace(handler.getTrace()));
+
+                    if (!configuration.isTextSplittable()) {
+                        // Split text would be reported differently when read in several chunks
+                        final TraceBuilderMarkupHandler readerHandler = new TraceBuilderMarkupHandler();
+                        parser.parse(new StringReader(document), new InterestAwareHandler(readerHandler, interests));
+                        assertEquals(trace(handler.getTrace()), trace(readerHandler.getTrace()));
+                    }
+                }
+
+            }
+
+        }
+
+    }
+
+
+
+    public void testScriptAttributes() throws Exception {
+
+        // The type of a <script> decides whether its contents are parsed as markup or not, so it is always parsed
+        final String document = "<script type=\"text/template\"><p>a</p></script><script><p>b</p></script>";
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(document, new InterestAwareHandler(handler, IInterestAwareMarkupHandler.TEXT_EVENTS));
+
+        assertEquals(
+                "[OES(script){1,1}, IWS( ){1,8}, A(type){1,9}(=){1,13}(\"text/template\"){1,14}, OEE(script){1,29}, " +
+                "OES(p){1,30}, OEE(p){1,32}, T(a){1,33}, CES(p){1,34}, CEE(p){1,37}, CES(script){1,38}, " +
+                "CEE(script){1,46}, OES(script){1,47}, OEE(script){1,54}, T(<p>b</p>){1,55}, CES(script){1,63}, " +
+                "CEE(script){1,71}]",
+                trace(handler.getTrace()));
+
+    }
+
+
+
+    public void testRequiredValidations() throws Exception {
+
+        // Structures needed for validating the document are parsed even if the handler is not interested in them
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.xmlConfiguration());
+
+        final String[] invalidDocuments =
+                new String[] {
+                        "<root a=\"1\" a=\"2\"/>",
+                        "<root a=1/>",
+                        "<root/><!DOCTYPE root>",
+                        "<!DOCTYPE root><other/>",
+                        "<root/><?xml version=\"1.0\"?>"
+                };
+
+        for (final String document : invalidDocuments) {
+            try {
+                parser.parse(document, new InterestAwareHandler(new TraceBuilderMarkupHandler(), 0));
+                fail(document);
+            } catch (final ParseException e) {
+                // Expected
+            }
+        }
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse("<!DOCTYPE root>\n<root a=\"1\">text</root>", new InterestAwareHandler(handler, 0));
+        assertEquals(
+                "[DT(DOCTYPE){1,3}(root){1,11}(){1,15}(){1,15}(){1,15}(){1,15}, OES(root){2,1}, IWS( ){2,6}, " +
+                "A(a){2,7}(=){2,8}(\"1\"){2,9}, OEE(root){2,12}, CES(root){2,17}, CEE(root){2,23}]",
+                trace(handler.getTrace()));
+
+    }
+
+
+
+
+    private static List<MarkupTraceEvent> filter(final List<MarkupTraceEvent> trace, final int interests) {
+        final List<MarkupTraceEvent> filtered = new ArrayList<MarkupTraceEvent>();
+        for (final MarkupTraceEvent event : trace) {
+            final int eventInterest = eventInterest(event.getEventType());
+            if (eventInterest == 0 || (interests & eventInterest) != 0) {
+                filtered.add(event);
+            }
+        }
+        return filtered;
+    }
+
+
+    private static int eventInterest(final MarkupTraceEvent.EventType eventType) {
+        switch (eventType) {
+            case TEXT: return IInterestAwareMarkupHandler.TEXT_EVENTS;
+            case COMMENT: return IInterestAwareMarkupHandler.COMMENT_EVENTS;
+            case CDATA_SECTION: return IInterestAwareMarkupHandler.CDATA_SECTION_EVENTS;
+            case DOC_TYPE: return IInterestAwareMarkupHandler.DOCTYPE_EVENTS;
+            case XML_DECLARATION: return IInterestAwareMarkupHandler.XML_DECLARATION_EVENTS;
+            case PROCESSING_INSTRUCTION: return IInterestAwareMarkupHandler.PROCESSING_INSTRUCTION_EVENTS;
+            case ATTRIBUTE: return IInterestAwareMarkupHandler.ATTRIBUTE_EVENTS;
+            case INNER_WHITE_SPACE: return IInterestAwareMarkupHandler.ATTRIBUTE_EVENTS;
+            default: return 0; // Document and element events are always reported
+        }
+    }
+
+
+    private static String trace(final List<MarkupTraceEvent> trace) {
+        // Document start and end events are left out, as they contain timing information
+        return trace.subList(1, trace.size() - 1).toString();
+    }
+
+
+
+
+    private static final class InterestAwareHandler
+            extends AbstractChainedMarkupHandler implements IInterestAwareMarkupHandler {
+
+        private final int interests;
+
+        InterestAwareHandler(final IMarkupHandler next, final int interests) {
+            super(next);
+            this.interests = interests;
+        }
+
+        public int getEventInterests() {
+            return this.interests;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,151 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.File;
+import java.io.StringReader;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.buffer.StripedBufferPool;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.discard.DiscardMarkupHandler;
+import org.attoparser.select.BlockSelectorMarkupHandler;
+
+
+/*
+ * JFR is accessed by means of reflection, as tests are compiled for the same Java version as the library.
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class FlightRecorderEventsTest extends TestCase {
+
+
+    private static final String[] EVENT_NAMES =
+            new String[] {
+                    FlightRecorderEvents.DOCUMENT_PARSE_EVENT_NAME,
+                    FlightRecorderEvents.BUFFER_GROWTH_EVENT_NAME,
+                    FlightRecorderEvents.SELECTOR_COMPILATION_EVENT_NAME,
+                    FlightRecorderEvents.HTML_ELEMENT_REPOSITORY_MISS_EVENT_NAME
+            };
+
+
+
+    public void testEvents() throws Exception {
+
+        assertFalse(FlightRecorderEvents.isEnabled());
+
+        if (!FlightRecorderEvents.isAvailable()) {
+            // Nothing to be recorded in this JVM, but enabling must not fail
+            assertFalse(FlightRecorderEvents.enable());
+            assertFalse(FlightRecorderEvents.isEnabled());
+            return;
+        }
+
+        // Events produced while disabled are never recorded
+        List<String> recorded = record(-1L, "disabled-element");
+        assertTrue(recorded.isEmpty());
+
+        recorded = record(0L, "enabled-element");
+        for (final String eventName : EVENT_NAMES) {
+            assertTrue(eventName, recorded.contains(eventName));
+        }
+
+        // Documents parsed faster than the threshold are not reported
+        recorded = record(Long.MAX_VALUE, "threshold-element");
+        assertFalse(recorded.contains(FlightRecorderEvents.DOCUMENT_PARSE_EVENT_NAME));
+        assertTrue(recorded.contains(FlightRecorderEvents.BUFFER_GROWTH_EVENT_NAME));
+
+        assertFalse(FlightRecorderEvents.isEnabled());
+
+    }
+
+
+
+
+    /*
+     * Parses a document inside a flight recording and returns the names of the events recorded. A negative
+     * threshold means events are not enabled.
+     */
+    private static List<String> record(final long threshold, final String elementName) throws Exception {
+
+        final Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        final Object recording = recordingClass.newInstance();
+        for (final String eventName : EVENT_NAMES) {
+            recordingClass.getMethod("enable", String.class).invoke(recording, eventName);
+        }
+
+        final File file = File.createTempFile("attoparser", ".jfr");
+        try {
+
+            recordingClass.getMethod("start").invoke(recording);
+            try {
+                if (threshold >= 0L) {
+                    assertTrue(FlightRecorderEvents.enable(threshold));
+                }
+                parse(elementName);
+            } finally {
+                FlightRecorderEvents.disable();
+                recordingClass.getMethod("stop").invoke(recording);
+            }
+
+            final Object path = File.class.getMethod("toPath").invoke(file);
+            final Class<?> pathClass = Class.forName("java.nio.file.Path");
+            recordingClass.getMethod("dump", pathClass).invoke(recording, path);
+
+            final Class<?> recordingFileClass = Class.forName("jdk.jfr.consumer.RecordingFile");
+            final List<?> events = (List<?>) recordingFileClass.getMethod("readAllEvents", pathClass).invoke(null, path);
+
+            final List<String> names = new ArrayList<String>();
+            for (final Object event : events) {
+                final Object eventType = event.getClass().getMethod("getEventType").invoke(event);
+                final Method getNameMethod = Class.forName("jdk.jfr.EventType").getMethod("getName");
+                names.add((String) getNameMethod.invoke(eventType));
+            }
+            return names;
+
+        } finally {
+            recordingClass.getMethod("close").invoke(recording);
+            file.delete();
+        }
+
+    }
+
+
+    private static void parse(final String elementName) throws Exception {
+
+        // A 16-char buffer will need to be grown for reading the text
+        final MarkupParser parser =
+                new MarkupParser(ParseConfiguration.htmlConfiguration(), new StripedBufferPool(16, 2));
+
+        final String document =
+                "<div class=\"a\"><" + elementName + ">some text longer than the buffer</" + elementName + "></div>";
+
+        parser.parse(new StringReader(document), new DiscardMarkupHandler());
+        // Selectors are compiled only once, so each recording needs a different one
+        parser.parse(document, new BlockSelectorMarkupHandler(new DiscardMarkupHandler(), "//" + elementName));
+
+    }
+
+
+}
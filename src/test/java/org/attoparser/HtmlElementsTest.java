@@ -19,6 +19,8 @@
  */
 package org.attoparser;
 
+import java.util.concurrent.atomic.AtomicReference;
+
 import junit.framework.TestCase;
 
 
@@ -72,5 +74,111 @@ public void test() throws Exception {
 
     }
 
+
+
+    public void testRepositoryBounds() throws Exception {
+
+        final HtmlElements.HtmlElementRepository repository = new HtmlElements.HtmlElementRepository(16);
+
+        final HtmlElement element1 = getElement(repository, "custom-element");
+        assertSame(element1, getElement(repository, "CUSTOM-Element"));
+        assertEquals(1, repository.getSize());
+        assertEquals(1L, repository.getHits());
+        assertEquals(1L, repository.getMisses());
+        assertEquals(0L, repository.getEvictions());
+
+        for (int i = 0; i < 1000; i++) {
+            final HtmlElement element = getElement(repository, "random-" + i);
+            assertEquals("random-" + i, new String(element.name));
+            assertTrue(repository.getSize() <= 16);
+        }
+
+        assertEquals(16, repository.getSize());
+        assertEquals(1001L, repository.getMisses());
+        assertTrue(repository.getEvictions() > 0L);
+
+        // Evicted elements are simply created again
+        final HtmlElement element2 = getElement(repository, "custom-element");
+        assertEquals("custom-element", new String(element2.name));
+        assertSame(element2, getElement(repository, "Custom-Element"));
+
+    }
+
+
+
+    public void testRepositoryWithoutCache() throws Exception {
+
+        final HtmlElements.HtmlElementRepository repository = new HtmlElements.HtmlElementRepository(0);
+
+        final HtmlElement element1 = getElement(repository, "custom-element");
+        final HtmlElement element2 = getElement(repository, "custom-element");
+        assertNotSame(element1, element2);
+        assertEquals("custom-element", new String(element2.name));
+        assertEquals(0, repository.getSize());
+        assertEquals(0L, repository.getHits());
+        assertEquals(2L, repository.getMisses());
+
+    }
+
+
+
+    public void testRepositoryConcurrency() throws Exception {
+
+        final HtmlElements.HtmlElementRepository repository = new HtmlElements.HtmlElementRepository(64);
+        final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+
+        final Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int threadNum = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 20000; i++) {
+                            final String name = "element-" + ((i * 7 + threadNum) % 200);
+                            final HtmlElement element = getElement(repository, name.toUpperCase());
+                            if (!name.equals(new String(element.name))) {
+                                throw new AssertionError("Wrong element " + new String(element.name));
+                            }
+                        }
+                    } catch (final Throwable e) {
+                        failure.compareAndSet(null, e);
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(failure.get());
+        assertTrue(repository.getSize() <= 64);
+        assertEquals(8L * 20000L, repository.getHits() + repository.getMisses());
+
+    }
+
+
+
+    public void testStatistics() throws Exception {
+
+        final HtmlElementRepositoryStatistics before = MarkupParser.getHtmlElementRepositoryStatistics();
+        HtmlElements.forName("statistics-element".toCharArray(), 0, "statistics-element".length());
+        HtmlElements.forName("div".toCharArray(), 0, "div".length());
+        final HtmlElementRepositoryStatistics after = MarkupParser.getHtmlElementRepositoryStatistics();
+
+        assertEquals(HtmlElements.DEFAULT_MAX_UNKNOWN_ELEMENTS, after.getMaxSize());
+        assertTrue(after.getSize() <= after.getMaxSize());
+        // Standard elements are not counted
+        assertEquals(1L, (after.getHits() + after.getMisses()) - (before.getHits() + before.getMisses()));
+
+    }
+
+
+
+    private static HtmlElement getElement(final HtmlElements.HtmlElementRepository repository, final String name) {
+        return repository.getElement(name.toCharArray(), 0, name.length());
+    }
+
     
 }
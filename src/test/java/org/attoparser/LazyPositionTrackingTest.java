@@ -0,0 +1,300 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.select.ParseSelection;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class LazyPositionTrackingTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "Hello, world",
+                    "<p>Some\ntext spanning several\nlines</p>\n<!-- a\ncomment -->",
+                    "<div class=\"a > b\"\n     data-x='<'>text with > and < chars</div>\n\n",
+                    "<!DOCTYPE root>\n<root><![CDATA[\nif (a < b) { }\n]]><?pi some\ncontent ?>\n</root>",
+                    "<ul>\n  <li>one</li>\n  <li>two<br/></li>\n</ul>\n<table><tr><td>a</td></tr></table>\nend",
+                    "\n\n\n<a\n\nhref=\"x\"\n>\n\n</a\n>\n"
+            };
+
+    private static final String[] HTML_DOCUMENTS =
+            new String[] {
+                    "<html><head><script>\nif (a < b && c > d) { x = '</p>'; }\n</script></head><body>\n</body></html>",
+                    "<ul>\n  <li>one\n  <li>two<br>\n</ul>\n<table><tr><td>a<td>b</table>\n<p>\ntext",
+                    "<!DOCTYPE html>\n<style>\np > a { }\n</style>\n<textarea>\n<b>\n</textarea>"
+            };
+
+    private static final String[] ERROR_DOCUMENTS =
+            new String[] {
+                    "<div>\n  <p>\n  </div>",
+                    "<div>\n\n   </div a>",
+                    "<div>\n  text\n  <p>\n  more text",
+                    "<div>\n  text\n  <p"
+            };
+
+
+
+    public void testEventPositions() throws Exception {
+        checkEventPositions(ParseConfiguration.xmlConfiguration(), false);
+        checkEventPositions(ParseConfiguration.xmlConfiguration(), true);
+        checkEventPositions(ParseConfiguration.htmlConfiguration(), false);
+        checkEventPositions(ParseConfiguration.htmlConfiguration(), true);
+    }
+
+
+
+    private static void checkEventPositions(final ParseConfiguration eagerConfig, final boolean bulkScanning)
+            throws Exception {
+
+        final ParseConfiguration lazyConfig = eagerConfig.clone();
+        lazyConfig.setLazyPositionTracking(true);
+        lazyConfig.setBulkScanning(bulkScanning);
+
+        final MarkupParser eagerParser = new MarkupParser(eagerConfig);
+        final MarkupParser lazyParser = new MarkupParser(lazyConfig);
+
+        final boolean html = ParseConfiguration.ParsingMode.HTML.equals(eagerConfig.getMode());
+
+        final List<String> documents = new ArrayList<String>(Arrays.asList(DOCUMENTS));
+        if (html) {
+            documents.addAll(Arrays.asList(HTML_DOCUMENTS));
+        }
+
+        for (final String document : documents) {
+
+            final PositionMarkupHandler expectedHandler = new PositionMarkupHandler(false);
+            eagerParser.parse(document, expectedHandler);
+            final String expected = expectedHandler.getPositions().toString();
+
+            final PositionMarkupHandler eagerOnDemandHandler = new PositionMarkupHandler(true);
+            eagerParser.parse(document, eagerOnDemandHandler);
+            assertEquals(expected, eagerOnDemandHandler.getPositions().toString());
+
+            final PositionMarkupHandler stringHandler = new PositionMarkupHandler(true);
+            lazyParser.parse(document, stringHandler);
+            assertEquals(expected, stringHandler.getPositions().toString());
+
+            final char[] documentWithOffset = ("abc" + document + "def").toCharArray();
+            final PositionMarkupHandler charArrayHandler = new PositionMarkupHandler(true);
+            lazyParser.parse(documentWithOffset, 3, document.length(), charArrayHandler);
+            assertEquals(expected, charArrayHandler.getPositions().toString());
+
+            for (int bufferSize = 1; bufferSize <= document.length() + 1; bufferSize++) {
+                final PositionMarkupHandler readerHandler = new PositionMarkupHandler(true);
+                final IMarkupHandler handler = (html? new HtmlMarkupHandler(readerHandler) : readerHandler);
+                parseWithBufferSize(lazyParser, lazyConfig, document, bufferSize, handler);
+                assertEquals(expected, readerHandler.getPositions().toString());
+            }
+
+        }
+
+    }
+
+
+
+    public void testExceptionPositions() throws Exception {
+
+        final ParseConfiguration eagerConfig = ParseConfiguration.xmlConfiguration();
+        final ParseConfiguration lazyConfig = ParseConfiguration.xmlConfiguration();
+        lazyConfig.setLazyPositionTracking(true);
+
+        final MarkupParser eagerParser = new MarkupParser(eagerConfig);
+        final MarkupParser lazyParser = new MarkupParser(lazyConfig);
+
+        for (final String document : ERROR_DOCUMENTS) {
+
+            final ParseException expected = parseForException(eagerParser, eagerConfig, document, -1);
+
+            final ParseException lazy = parseForException(lazyParser, lazyConfig, document, -1);
+            assertEquals(expected.getMessage(), lazy.getMessage());
+            assertEquals(expected.getLine(), lazy.getLine());
+            assertEquals(expected.getCol(), lazy.getCol());
+
+            for (int bufferSize = 1; bufferSize <= document.length() + 1; bufferSize++) {
+                final ParseException lazyReader = parseForException(lazyParser, lazyConfig, document, bufferSize);
+                assertEquals(expected.getLine(), lazyReader.getLine());
+                assertEquals(expected.getCol(), lazyReader.getCol());
+            }
+
+        }
+
+    }
+
+
+
+    public void testExceptionPositionsInsideStructure() throws Exception {
+
+        final ParseConfiguration lazyConfig = ParseConfiguration.xmlConfiguration();
+        lazyConfig.setLazyPositionTracking(true);
+
+        // Positions not tracked are computed for the structure being processed, not for the attribute
+        final ParseException e =
+                parseForException(new MarkupParser(lazyConfig), lazyConfig, "\n\n  <p id=\"a\" id=\"b\">text</p>", -1);
+        assertEquals(Integer.valueOf(3), e.getLine());
+        assertEquals(Integer.valueOf(3), e.getCol());
+
+    }
+
+
+
+    public void testUnknownPositionInException() throws Exception {
+
+        final ParseException e = new ParseException("Some message", -1, -1);
+        assertNull(e.getLine());
+        assertNull(e.getCol());
+        assertEquals("Some message", e.getMessage());
+
+        final ParseException e2 = new ParseException("Some message", 3, 4);
+        assertEquals(Integer.valueOf(3), e2.getLine());
+        assertEquals(Integer.valueOf(4), e2.getCol());
+        assertEquals("(Line = 3, Column = 4) Some message", e2.getMessage());
+
+    }
+
+
+
+
+    private static void parseWithBufferSize(
+            final MarkupParser parser, final ParseConfiguration configuration,
+            final String document, final int bufferSize, final IMarkupHandler markupHandler)
+            throws ParseException {
+        final IMarkupHandler handler = new MarkupEventProcessorHandler(markupHandler);
+        final ParseStatus status = new ParseStatus();
+        handler.setParseConfiguration(configuration);
+        handler.setParseStatus(status);
+        handler.setParseSelection(new ParseSelection());
+        parser.parseDocument(new StringReader(document), bufferSize, handler, status);
+    }
+
+
+    private static ParseException parseForException(
+            final MarkupParser parser, final ParseConfiguration configuration,
+            final String document, final int bufferSize) {
+        try {
+            if (bufferSize < 0) {
+                parser.parse(document, new AbstractMarkupHandler() {});
+            } else {
+                parseWithBufferSize(parser, configuration, document, bufferSize, new AbstractMarkupHandler() {});
+            }
+        } catch (final ParseException e) {
+            return e;
+        }
+        fail("No exception thrown for document: " + document);
+        return null;
+    }
+
+
+
+
+    /*
+     * Records the positions of the events, either as reported by the parser or computed on demand
+     * from their offsets by means of the ParseStatus.
+     */
+    private static final class PositionMarkupHandler extends AbstractMarkupHandler {
+
+        private final boolean onDemand;
+        private final List<String> positions = new ArrayList<String>();
+        private ParseStatus status;
+
+        PositionMarkupHandler(final boolean onDemand) {
+            super();
+            this.onDemand = onDemand;
+        }
+
+        List<String> getPositions() {
+            return this.positions;
+        }
+
+        @Override
+        public void setParseStatus(final ParseStatus status) {
+            this.status = status;
+        }
+
+        @Override
+        public void handleText(
+                final char[] buffer, final int offset, final int len, final int line, final int col)
+                throws ParseException {
+            add("T", new String(buffer, offset, len), offset, line, col);
+        }
+
+        @Override
+        public void handleComment(
+                final char[] buffer,
+                final int contentOffset, final int contentLen,
+                final int outerOffset, final int outerLen,
+                final int line, final int col)
+                throws ParseException {
+            add("C", new String(buffer, contentOffset, contentLen), outerOffset, line, col);
+        }
+
+        @Override
+        public void handleStandaloneElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen,
+                final boolean minimized, final int line, final int col)
+                throws ParseException {
+            add("SE", new String(buffer, nameOffset, nameLen), nameOffset - 1, line, col);
+        }
+
+        @Override
+        public void handleOpenElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen, final int line, final int col)
+                throws ParseException {
+            add("OE", new String(buffer, nameOffset, nameLen), nameOffset - 1, line, col);
+        }
+
+        @Override
+        public void handleCloseElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen, final int line, final int col)
+                throws ParseException {
+            add("CE", new String(buffer, nameOffset, nameLen), nameOffset - 2, line, col);
+        }
+
+        private void add(final String type, final String content, final int offset, final int line, final int col) {
+            if (this.onDemand) {
+                if (this.status.getLine() == -1) {
+                    // Positions are not being tracked, so events should not be reporting them
+                    assertEquals(-1, line);
+                    assertEquals(-1, col);
+                }
+                this.positions.add(
+                        type + "(" + content + "){" + this.status.getLine(offset) + "," + this.status.getCol(offset) + "}");
+            } else {
+                this.positions.add(type + "(" + content + "){" + line + "," + col + "}");
+            }
+        }
+
+    }
+
+
+}
@@ -0,0 +1,165 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class MappedFileParsingTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "Hello, world",
+                    "<p>Espa\u00F1a, \u00E1rbol</p>\n<!-- \u20AC -->",
+                    "<div title=\"\u65E5\u672C\u8A9E\">\uD83D\uDE00 text \uD834\uDD1E</div>\n<p>more text</p>",
+                    "<?xml version=\"1.0\"?>\n<root>\u00E1\u00E9\u00ED\u00F3\u00FA<a href='x'/></root>"
+            };
+
+    private static final String[] CHARSETS = new String[] { "UTF-8", "UTF-16BE", "ISO-8859-1" };
+
+
+
+    public void testWindows() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        for (final String document : DOCUMENTS) {
+
+            final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+            parser.parse(document, expectedHandler);
+            final String expected = trace(expectedHandler);
+
+            for (final String charsetName : CHARSETS) {
+
+                final Charset charset = Charset.forName(charsetName);
+                if (!charset.newEncoder().canEncode(document)) {
+                    continue;
+                }
+
+                final File file = createFile(document.getBytes(charsetName));
+                try {
+
+                    TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+                    parser.parse(file, charset, handler);
+                    assertEquals(expected, trace(handler));
+
+                    // Small windows make multi-byte sequences be split between windows
+                    for (int windowSize = 8; windowSize <= 24; windowSize++) {
+                        handler = new TraceBuilderMarkupHandler();
+                        parser.parse(file, windowSize, charset, handler);
+                        assertEquals(expected, trace(handler));
+                    }
+
+                } finally {
+                    file.delete();
+                }
+
+            }
+
+        }
+
+    }
+
+
+
+    public void testEncodingDetection() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.xmlConfiguration());
+
+        final String document = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n<root>Espa\u00F1a</root>";
+        final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+        parser.parse(document, expectedHandler);
+
+        final File file = createFile(document.getBytes("ISO-8859-1"));
+        try {
+            final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+            parser.parse(file, 8, null, handler);
+            assertEquals(trace(expectedHandler), trace(handler));
+        } finally {
+            file.delete();
+        }
+
+        final byte[] utf8 = "<root>\u00E1</root>".getBytes("UTF-8");
+        final byte[] bom = new byte[utf8.length + 3];
+        bom[0] = (byte)0xEF; bom[1] = (byte)0xBB; bom[2] = (byte)0xBF;
+        System.arraycopy(utf8, 0, bom, 3, utf8.length);
+
+        final TraceBuilderMarkupHandler expectedBomHandler = new TraceBuilderMarkupHandler();
+        parser.parse("<root>\u00E1</root>", expectedBomHandler);
+
+        final File bomFile = createFile(bom);
+        try {
+            final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+            parser.parse(bomFile, Charset.forName("ISO-8859-1"), handler);
+            assertEquals(trace(expectedBomHandler), trace(handler));
+        } finally {
+            bomFile.delete();
+        }
+
+    }
+
+
+
+    public void testNonExistingFile() throws Exception {
+        try {
+            new MarkupParser(ParseConfiguration.xmlConfiguration()).parse(
+                    new File("non-existing-file.xml"), null, new TraceBuilderMarkupHandler());
+            fail();
+        } catch (final ParseException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+    }
+
+
+
+
+    private static File createFile(final byte[] contents) throws IOException {
+        final File file = File.createTempFile("attoparser", ".xml");
+        final FileOutputStream outputStream = new FileOutputStream(file);
+        try {
+            outputStream.write(contents);
+        } finally {
+            outputStream.close();
+        }
+        return file;
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+}
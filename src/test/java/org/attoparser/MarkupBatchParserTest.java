@@ -0,0 +1,174 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import junit.framework.TestCase;
+import org.attoparser.buffer.StripedBufferPool;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class MarkupBatchParserTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "<div id=\"a\" class='b'>\n  <p>Some <b>text</b></p>\n</div>",
+                    "<!DOCTYPE html>\n<html><head><title>T</title></head><body><p>one<p>two</body></html>",
+                    "<ul><li>one<li>two<li>three</ul><table><tr><td>a<td>b</table>",
+                    "<p>unclosed <b>elements",
+                    "<?xml version=\"1.0\"?>\n<root><a x=\"1\"/><![CDATA[ x ]]><!-- c --></root>",
+                    "<script>if (a < b) { }</script><style>p > a { }</style>"
+            };
+
+
+    private static final IMarkupHandlerFactory<TraceBuilderMarkupHandler> TRACE_HANDLER_FACTORY =
+            new IMarkupHandlerFactory<TraceBuilderMarkupHandler>() {
+                public TraceBuilderMarkupHandler createHandler(final int index) {
+                    return new TraceBuilderMarkupHandler();
+                }
+            };
+
+
+
+    public void testOrderedResults() throws Exception {
+
+        final ParseConfiguration configuration = ParseConfiguration.htmlConfiguration();
+        final MarkupParser parser = new MarkupParser(configuration);
+
+        // Enough documents for all threads to be parsing at the same time
+        final List<String> documents = new ArrayList<String>();
+        final List<String> expected = new ArrayList<String>();
+        for (int i = 0; i < 50; i++) {
+            for (final String document : DOCUMENTS) {
+                documents.add(document);
+                final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+                parser.parse(document, handler);
+                expected.add(trace(handler));
+            }
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+
+            final MarkupBatchParser batchParser = new MarkupBatchParser(configuration, executor);
+            // Parsing twice checks parse sessions are correctly reused among batches
+            for (int i = 0; i < 2; i++) {
+                final List<MarkupBatchResult<TraceBuilderMarkupHandler>> results =
+                        batchParser.parse(documents, TRACE_HANDLER_FACTORY);
+                checkResults(expected, results);
+            }
+
+            final List<Reader> readers = new ArrayList<Reader>();
+            for (final String document : documents) {
+                readers.add(new StringReader(document));
+            }
+            checkResults(expected, batchParser.parseReaders(readers, TRACE_HANDLER_FACTORY));
+
+            final MarkupBatchParser stripedBatchParser =
+                    new MarkupBatchParser(
+                            new MarkupParser(configuration, new StripedBufferPool(16, 2)), executor);
+            checkResults(expected, stripedBatchParser.parse(documents, TRACE_HANDLER_FACTORY));
+
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+
+
+    public void testErrorsPerDocument() throws Exception {
+
+        final ParseConfiguration configuration = ParseConfiguration.xmlConfiguration();
+
+        final List<String> documents = new ArrayList<String>();
+        documents.add("<root><a/></root>");
+        documents.add("<root><a></root>");
+        documents.add("<root>text</root>");
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+
+            final List<MarkupBatchResult<TraceBuilderMarkupHandler>> results =
+                    new MarkupBatchParser(configuration, executor).parse(documents, TRACE_HANDLER_FACTORY);
+
+            assertEquals(3, results.size());
+            assertTrue(results.get(0).isSuccessful());
+            assertFalse(results.get(1).isSuccessful());
+            assertNotNull(results.get(1).getException());
+            assertNotNull(results.get(1).getHandler());
+            assertTrue(results.get(2).isSuccessful());
+            assertNull(results.get(2).getException());
+
+        } finally {
+            executor.shutdown();
+        }
+
+    }
+
+
+
+    public void testEmptyBatch() throws Exception {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            final MarkupBatchParser batchParser =
+                    new MarkupBatchParser(ParseConfiguration.htmlConfiguration(), executor);
+            assertTrue(batchParser.parse(new ArrayList<String>(), TRACE_HANDLER_FACTORY).isEmpty());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+
+
+    private static void checkResults(
+            final List<String> expected, final List<MarkupBatchResult<TraceBuilderMarkupHandler>> results) {
+        assertEquals(expected.size(), results.size());
+        for (int i = 0; i < expected.size(); i++) {
+            final MarkupBatchResult<TraceBuilderMarkupHandler> result = results.get(i);
+            assertEquals(i, result.getIndex());
+            assertTrue(result.isSuccessful());
+            assertEquals(expected.get(i), trace(result.getHandler()));
+        }
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+}
@@ -0,0 +1,154 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class MarkupParseSessionTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "<div id=\"a\" class='b'>\n  <p>Some <b>text</b></p>\n</div>",
+                    "<!DOCTYPE html>\n<html><head><title>T</title></head><body><p>one<p>two</body></html>",
+                    "<ul><li>one<li>two<li>three</ul><table><tr><td>a<td>b</table>",
+                    "<div id=\"a\" id=\"b\">duplicate attributes</div>",
+                    "<p>unclosed <b>elements",
+                    "</p>unmatched close",
+                    "<?xml version=\"1.0\"?>\n<root><a x=\"1\"/><![CDATA[ x ]]><!-- c --></root>",
+                    "<script>if (a < b) { }</script><style>p > a { }</style>"
+            };
+
+
+
+    public void testSessionReuse() throws Exception {
+        checkSessionReuse(ParseConfiguration.htmlConfiguration());
+        checkSessionReuse(ParseConfiguration.xmlConfiguration());
+    }
+
+
+    private static void checkSessionReuse(final ParseConfiguration configuration) throws Exception {
+
+        final MarkupParser parser = new MarkupParser(configuration);
+        final MarkupParseSession session = parser.createSession();
+
+        // Every document is parsed twice with the same session, and in between every other one, so that any
+        // state left from a previous document (including failed ones) would be noticed.
+        for (int n = 0; n < 2; n++) {
+            for (final String document : DOCUMENTS) {
+
+                final String expected = trace(parser, document);
+
+                final TraceBuilderMarkupHandler stringHandler = new TraceBuilderMarkupHandler();
+                final String string = parse(session, document, stringHandler, 0);
+                assertEquals(expected, (string != null ? string : trace(stringHandler)));
+
+                final TraceBuilderMarkupHandler charArrayHandler = new TraceBuilderMarkupHandler();
+                final String charArray = parse(session, document, charArrayHandler, 1);
+                assertEquals(expected, (charArray != null ? charArray : trace(charArrayHandler)));
+
+                final TraceBuilderMarkupHandler readerHandler = new TraceBuilderMarkupHandler();
+                final String reader = parse(session, document, readerHandler, 2);
+                assertEquals(expected, (reader != null ? reader : trace(readerHandler)));
+
+            }
+        }
+
+    }
+
+
+
+    public void testNoConcurrentUse() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+        final MarkupParseSession session = parser.createSession();
+
+        try {
+            session.parse("<p>text</p>", new AbstractMarkupHandler() {
+                @Override
+                public void handleText(
+                        final char[] buffer, final int offset, final int len, final int line, final int col)
+                        throws ParseException {
+                    session.parse("<b>nested</b>", new AbstractMarkupHandler() {});
+                }
+            });
+            fail();
+        } catch (final ParseException e) {
+            // Exceptions thrown by handlers are wrapped by the parser
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+
+        // After the failed use, the session can be used again
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        session.parse("<p>text</p>", handler);
+        assertEquals(trace(parser, "<p>text</p>"), trace(handler));
+
+    }
+
+
+
+
+    private static String parse(
+            final MarkupParseSession session, final String document,
+            final TraceBuilderMarkupHandler handler, final int mode) {
+        try {
+            if (mode == 0) {
+                session.parse(document, handler);
+            } else if (mode == 1) {
+                session.parse(("abc" + document).toCharArray(), 3, document.length(), handler);
+            } else {
+                session.parse(new StringReader(document), handler);
+            }
+            return null;
+        } catch (final ParseException e) {
+            return e.getMessage();
+        }
+    }
+
+
+    private static String trace(final MarkupParser parser, final String document) {
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        try {
+            parser.parse(document, handler);
+        } catch (final ParseException e) {
+            return e.getMessage();
+        }
+        return trace(handler);
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+}
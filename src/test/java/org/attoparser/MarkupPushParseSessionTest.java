@@ -0,0 +1,206 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.nio.CharBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class MarkupPushParseSessionTest extends TestCase {
+
+
+    private static final String[] DOCUMENTS =
+            new String[] {
+                    "",
+                    "Hello, world",
+                    "<p>Hello</p>\n<!-- a comment -->\n<br/>",
+                    "<!DOCTYPE html>\n<html><head><title>T</title></head>\n<body class=\"a b\">\n" +
+                    "<div id='x' title=\"t\">some text\n<span>more</span></div>\n" +
+                    "<script>if (a < b) { x(); }</script><![CDATA[ cdata ]]>\n<?pi something?></body></html>",
+                    "<?xml version=\"1.0\"?>\n<root><a href='x'/>text<b>bold</b></root>\n"
+            };
+
+
+
+    public void testChunks() throws Exception {
+
+        for (final ParseConfiguration configuration : configurations()) {
+
+            final MarkupParser parser = new MarkupParser(configuration);
+
+            for (final String document : DOCUMENTS) {
+
+                final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+                parser.parse(document, expectedHandler);
+                final String expected = trace(expectedHandler);
+
+                final char[] chars = document.toCharArray();
+                for (int chunkSize = 1; chunkSize <= chars.length + 1; chunkSize++) {
+
+                    TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+                    MarkupPushParseSession session = parser.createPushSession(handler);
+                    for (int i = 0; i < chars.length; i += chunkSize) {
+                        session.feed(chars, i, Math.min(chunkSize, chars.length - i));
+                    }
+                    session.finish();
+                    assertTrue(session.isFinished());
+                    assertEquals(expected, trace(handler));
+
+                    handler = new TraceBuilderMarkupHandler();
+                    session = parser.createPushSession(handler);
+                    for (int i = 0; i < chars.length; i += chunkSize) {
+                        // Non-array-backed buffers are read directly into the parser's buffer
+                        session.feed(CharBuffer.wrap(document, i, Math.min(i + chunkSize, chars.length)));
+                    }
+                    session.finish();
+                    assertEquals(expected, trace(handler));
+
+                }
+
+            }
+
+        }
+
+    }
+
+
+
+    public void testBufferGrowth() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final StringBuilder strBuilder = new StringBuilder();
+        strBuilder.append("<div title=\"");
+        for (int i = 0; i < parser.getBufferPool().getDefaultBufferSize() * 3; i++) {
+            strBuilder.append((char)('a' + (i % 26)));
+        }
+        strBuilder.append("\">text</div>");
+        final String document = strBuilder.toString();
+
+        final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+        parser.parse(document, expectedHandler);
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        final MarkupPushParseSession session = parser.createPushSession(handler);
+        final char[] chars = document.toCharArray();
+        for (int i = 0; i < chars.length; i += 1000) {
+            session.feed(chars, i, Math.min(1000, chars.length - i));
+        }
+        session.finish();
+
+        assertEquals(trace(expectedHandler), trace(handler));
+
+    }
+
+
+
+    public void testEventsBeforeFinish() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        final MarkupPushParseSession session = parser.createPushSession(handler);
+
+        session.feed("<div><p cla".toCharArray());
+        final int size = handler.getTrace().size();
+        assertTrue(size > 1);
+        assertTrue(handler.getTrace().toString().indexOf("div") >= 0);
+        assertTrue(handler.getTrace().toString().indexOf("cla") < 0);
+
+        session.feed("ss=\"a\">".toCharArray());
+        assertTrue(handler.getTrace().size() > size);
+        assertTrue(handler.getTrace().toString().indexOf("class") >= 0);
+
+        session.feed("text</p></div>".toCharArray());
+        session.finish();
+
+        final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+        parser.parse("<div><p class=\"a\">text</p></div>", expectedHandler);
+        assertEquals(trace(expectedHandler), trace(handler));
+
+    }
+
+
+
+    public void testErrors() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.xmlConfiguration());
+
+        MarkupPushParseSession session = parser.createPushSession(new TraceBuilderMarkupHandler());
+        session.feed("<root>\n<a hre".toCharArray());
+        try {
+            session.finish();
+            fail();
+        } catch (final ParseException e) {
+            assertEquals(Integer.valueOf(2), e.getLine());
+            assertEquals(Integer.valueOf(1), e.getCol());
+        }
+        assertTrue(session.isFinished());
+
+        try {
+            session.feed("f='x'/></root>".toCharArray());
+            fail();
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+
+        session = parser.createPushSession(new TraceBuilderMarkupHandler());
+        session.feed("<root/>".toCharArray());
+        session.finish();
+        try {
+            session.finish();
+            fail();
+        } catch (final IllegalStateException e) {
+            // Expected
+        }
+
+    }
+
+
+
+
+    private static List<ParseConfiguration> configurations() {
+        final List<ParseConfiguration> configurations = new ArrayList<ParseConfiguration>();
+        configurations.add(ParseConfiguration.htmlConfiguration());
+        configurations.add(ParseConfiguration.xmlConfiguration());
+        final ParseConfiguration lazy = ParseConfiguration.htmlConfiguration();
+        lazy.setLazyPositionTracking(true);
+        configurations.add(lazy);
+        return configurations;
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+}
@@ -0,0 +1,121 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.MarkupTraceEvent;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class OpenElementCountsTest extends TestCase {
+
+
+
+    public void testCounts() throws Exception {
+
+        final MarkupEventProcessorHandler.OpenElementCounts caseInsensitive =
+                new MarkupEventProcessorHandler.OpenElementCounts(false);
+        final MarkupEventProcessorHandler.OpenElementCounts caseSensitive =
+                new MarkupEventProcessorHandler.OpenElementCounts(true);
+
+        for (final MarkupEventProcessorHandler.OpenElementCounts counts :
+                new MarkupEventProcessorHandler.OpenElementCounts[] { caseInsensitive, caseSensitive }) {
+            counts.increment("li".toCharArray());
+            counts.increment("LI".toCharArray());
+            counts.increment("\u00E1rbol".toCharArray());
+            counts.increment("\u00C1RBOL".toCharArray());
+        }
+
+        assertEquals(2, caseInsensitive.get("Li".toCharArray()));
+        assertEquals(2, caseInsensitive.get("\u00E1RBOL".toCharArray()));
+        assertEquals(0, caseInsensitive.get("ul".toCharArray()));
+        assertEquals(1, caseSensitive.get("li".toCharArray()));
+        assertEquals(1, caseSensitive.get("LI".toCharArray()));
+        assertEquals(0, caseSensitive.get("Li".toCharArray()));
+
+        caseInsensitive.decrement("LI".toCharArray());
+        assertEquals(1, caseInsensitive.get("li".toCharArray()));
+        caseInsensitive.decrement("li".toCharArray());
+        caseInsensitive.decrement("li".toCharArray());
+        assertEquals(0, caseInsensitive.get("li".toCharArray()));
+
+        // Enough names to make the table grow several times
+        for (int i = 0; i < 1000; i++) {
+            for (int j = 0; j <= (i % 3); j++) {
+                caseInsensitive.increment(("th:elem-" + i).toCharArray());
+            }
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals((i % 3) + 1, caseInsensitive.get(("TH:ELEM-" + i).toCharArray()));
+        }
+        assertEquals(2, caseInsensitive.get("\u00C1rbol".toCharArray()));
+
+        caseInsensitive.clear();
+        assertEquals(0, caseInsensitive.get("\u00C1rbol".toCharArray()));
+        assertEquals(0, caseInsensitive.get("th:elem-999".toCharArray()));
+
+    }
+
+
+
+    public void testAutoCloseWithDeepStacks() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        // Nested lists, with auto-closed items (and names in different case) at every level
+        final StringBuilder document = new StringBuilder();
+        final int depth = 50;
+        for (int i = 0; i < depth; i++) {
+            document.append((i % 2 == 0)? "<ul><li>a<LI>b" : "<UL><LI>a<li>b");
+        }
+        for (int i = 0; i < depth; i++) {
+            document.append("</ul></LI>");
+        }
+        document.append("</p><div><p>text<div>x</div></DIV>");
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(document.toString(), handler);
+
+        int autoClose = 0;
+        int unmatched = 0;
+        for (final MarkupTraceEvent event : handler.getTrace()) {
+            if (MarkupTraceEvent.EventType.AUTO_CLOSE_ELEMENT_START.equals(event.getEventType())) {
+                autoClose++;
+            } else if (MarkupTraceEvent.EventType.UNMATCHED_CLOSE_ELEMENT_START.equals(event.getEventType())) {
+                unmatched++;
+            }
+        }
+
+        // The first <li> at each level (closed by the second one), the innermost second <li> (closed by </ul>)
+        // and the <p> closed by the inner <div>
+        assertEquals(depth + 2, autoClose);
+        // The last </LI> and the </p>, both at the root level
+        assertEquals(2, unmatched);
+
+    }
+
+
+}
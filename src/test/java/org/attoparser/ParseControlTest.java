@@ -0,0 +1,239 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ParseControlTest extends TestCase {
+
+
+    // Each document is followed by the one that should produce the same events once <skip> bodies are skipped
+    private static final String[] SKIP_DOCUMENTS =
+            new String[] {
+                    "<p>a<skip>x<b>y</b>z</skip>b</p>",
+                    "<p>a<skip></skip>b</p>",
+                    "<skip id=\"1\"><skip>in</skip><!-- </skip> --><![CDATA[</skip>]]></skip><i>after</i>",
+                    "<skip id=\"1\"></skip><i>after</i>",
+                    "<skip>a<skip/>b<skip title='>' /><skipped>c</skipped></skip>c",
+                    "<skip></skip>c",
+                    "<SKIP>a\n<p>b</Skip >b",
+                    "<SKIP></Skip >b",
+                    "<div>\n<skip>\n<script>if (a < b) { x(); }</script>\n</skip>\n<p>text</p></div>",
+                    "<div>\n<skip></skip>\n<p>text</p></div>",
+                    "<skip>a<skip title=\"</skip>\">b</skip>c</skip>d",
+                    "<skip></skip>d",
+                    "<skip>never closed <b>bold</b>",
+                    "<skip>"
+            };
+
+    private static final String DOCUMENT =
+            "<!DOCTYPE html>\n<html><head><title>T</title></head>\n<body>\n<p>text</p></body></html>";
+
+
+
+    public void testSkipElementBody() throws Exception {
+
+        final ParseConfiguration configuration = ParseConfiguration.htmlConfiguration();
+        configuration.setLazyPositionTracking(true);
+        final MarkupParser parser = new MarkupParser(configuration, 2, 16);
+
+        for (int i = 0; i < SKIP_DOCUMENTS.length; i += 2) {
+
+            final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+            parser.parse(SKIP_DOCUMENTS[i + 1], expectedHandler);
+            final String expected = trace(expectedHandler);
+
+            for (final String result : parseAll(parser, SKIP_DOCUMENTS[i], null, "skip")) {
+                assertEquals(SKIP_DOCUMENTS[i], expected, result);
+            }
+
+        }
+
+    }
+
+
+
+    public void testSkipElementBodyPositions() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.xmlConfiguration());
+
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(
+                "<root>\n<skip>\n<a>\n</a>\n</skip>\n<b/></root>", new SkippingMarkupHandler(handler, null, "skip"));
+        assertEquals(
+                "[OES(root){1,1}, OEE(root){1,6}, T(\n){1,7}, OES(skip){2,1}, OEE(skip){2,6}, " +
+                "CES(skip){5,1}, CEE(skip){5,7}, T(\n){5,8}, SES(b){6,1}, SEE(b){6,3}, CES(root){6,5}, CEE(root){6,11}]",
+                trace(handler));
+
+    }
+
+
+
+    public void testSkipVoidElementBody() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration(), 2, 16);
+
+        // HTML void elements are reported as standalone, so skip requests for them are not honored
+        final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+        parser.parse("<div><img src=x><p>hello</p></div>", expectedHandler);
+        final String expected = trace(expectedHandler);
+
+        for (final String result : parseAll(parser, "<div><img src=x><p>hello</p></div>", null, "img")) {
+            assertEquals(expected, result);
+        }
+
+    }
+
+
+
+    public void testStopParsing() throws Exception {
+
+        final MarkupParser htmlParser = new MarkupParser(ParseConfiguration.htmlConfiguration(), 2, 16);
+        final MarkupParser xmlParser = new MarkupParser(ParseConfiguration.xmlConfiguration(), 2, 16);
+
+        final String expected =
+                "[DT(DOCTYPE){1,3}(html){1,11}(){1,15}(){1,15}(){1,15}(){1,15}, T(\n){1,16}, OES(html){2,1}, " +
+                "OEE(html){2,6}, OES(head){2,7}, OEE(head){2,12}, OES(title){2,13}, OEE(title){2,19}, T(T){2,20}, " +
+                "CES(title){2,21}, CEE(title){2,28}, CES(head){2,29}, CEE(head){2,35}]";
+
+        for (final MarkupParser parser : new MarkupParser[] { htmlParser, xmlParser }) {
+            // Unclosed elements are not checked (the XML parser would complain about <html>)
+            for (final String result : parseAll(parser, DOCUMENT, "head", null)) {
+                assertEquals(expected, result);
+            }
+        }
+
+        // The document end event is still reported
+        final TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        htmlParser.parse(DOCUMENT, new SkippingMarkupHandler(handler, "head", null));
+        assertEquals("DE", handler.getTrace().get(handler.getTrace().size() - 1).getEventType().toString());
+
+    }
+
+
+
+
+    /*
+     * Parses the document from a String, a Reader and a push session fed one char at a time
+     */
+    private static String[] parseAll(
+            final MarkupParser parser, final String document, final String stopAfter, final String skip)
+            throws ParseException {
+
+        final String[] results = new String[3];
+
+        TraceBuilderMarkupHandler handler = new TraceBuilderMarkupHandler();
+        parser.parse(document, new SkippingMarkupHandler(handler, stopAfter, skip));
+        results[0] = trace(handler);
+
+        handler = new TraceBuilderMarkupHandler();
+        parser.parse(new StringReader(document), new SkippingMarkupHandler(handler, stopAfter, skip));
+        results[1] = trace(handler);
+
+        handler = new TraceBuilderMarkupHandler();
+        final MarkupPushParseSession session =
+                parser.createPushSession(new SkippingMarkupHandler(handler, stopAfter, skip));
+        final char[] chars = document.toCharArray();
+        for (int i = 0; i < chars.length; i++) {
+            session.feed(chars, i, 1);
+        }
+        session.finish();
+        results[2] = trace(handler);
+
+        return results;
+
+    }
+
+
+    private static String trace(final TraceBuilderMarkupHandler handler) {
+        // Document start and end events are left out, as they contain timing information
+        return handler.getTrace().subList(1, handler.getTrace().size() - 1).toString();
+    }
+
+
+
+
+    /*
+     * Stops parsing after the close tag of an element with the specified name, and skips the bodies of the
+     * elements with the other specified name
+     */
+    private static final class SkippingMarkupHandler extends AbstractChainedMarkupHandler {
+
+        private final String stopAfter;
+        private final String skip;
+        private ParseStatus status;
+
+        SkippingMarkupHandler(final IMarkupHandler next, final String stopAfter, final String skip) {
+            super(next);
+            this.stopAfter = stopAfter;
+            this.skip = skip;
+        }
+
+        @Override
+        public void setParseStatus(final ParseStatus status) {
+            this.status = status;
+            super.setParseStatus(status);
+        }
+
+        @Override
+        public void handleOpenElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen, final int line, final int col)
+                throws ParseException {
+            if (this.skip != null && this.skip.equalsIgnoreCase(new String(buffer, nameOffset, nameLen))) {
+                this.status.skipElementBody();
+            }
+            super.handleOpenElementStart(buffer, nameOffset, nameLen, line, col);
+        }
+
+        @Override
+        public void handleStandaloneElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen,
+                final boolean minimized, final int line, final int col)
+                throws ParseException {
+            if (this.skip != null && this.skip.equalsIgnoreCase(new String(buffer, nameOffset, nameLen))) {
+                this.status.skipElementBody();
+            }
+            super.handleStandaloneElementStart(buffer, nameOffset, nameLen, minimized, line, col);
+        }
+
+        @Override
+        public void handleCloseElementEnd(
+                final char[] buffer, final int nameOffset, final int nameLen, final int line, final int col)
+                throws ParseException {
+            super.handleCloseElementEnd(buffer, nameOffset, nameLen, line, col);
+            if (this.stopAfter != null && this.stopAfter.equals(new String(buffer, nameOffset, nameLen))) {
+                this.status.stopParsing();
+            }
+        }
+
+    }
+
+
+}
@@ -0,0 +1,205 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.buffer.StripedBufferPool;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.discard.DiscardMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ParseMetricsTest extends TestCase {
+
+
+    private static final String DOCUMENT =
+            "<!DOCTYPE html>\n<html><head><title>T</title></head><body>" +
+            "<!-- a comment --><div id=\"a\" class='b'><p>one<p>two <br> three</div>" +
+            "<ul><li>one<li>two</ul></span></body></html>";
+
+
+
+    public void testEventCounts() throws Exception {
+
+        final RecordingMetricsListener listener = new RecordingMetricsListener();
+        final MarkupParser parser =
+                new MarkupParser(ParseConfiguration.htmlConfiguration(), new StripedBufferPool(4096, 2), listener);
+
+        parser.parse(DOCUMENT, new DiscardMarkupHandler());
+        assertEquals(1, listener.metrics.size());
+
+        final ParseMetrics metrics = listener.metrics.get(0);
+        assertEquals(1L, metrics.getDocumentCount());
+        assertEquals(0L, metrics.getFailedDocumentCount());
+        assertEquals(DOCUMENT.length(), metrics.getCharCount());
+        assertEquals(1L, metrics.getDocTypeCount());
+        assertEquals(1L, metrics.getCommentCount());
+        assertEquals(0L, metrics.getCDATASectionCount());
+        assertEquals(0L, metrics.getXmlDeclarationCount());
+        assertEquals(0L, metrics.getProcessingInstructionCount());
+        assertEquals(2L, metrics.getAttributeCount());
+        // br is a void element, so it is reported as a standalone element
+        assertEquals(1L, metrics.getStandaloneElementCount());
+        assertEquals(10L, metrics.getOpenElementCount());
+        assertEquals(6L, metrics.getCloseElementCount());
+        // The first p and li are closed by the second ones, and the second ones by the div and ul close elements
+        assertEquals(4L, metrics.getAutoCloseElementCount());
+        assertEquals(1L, metrics.getUnmatchedCloseElementCount());
+        assertEquals(0L, metrics.getAutoOpenElementCount());
+        // html > body > div > p
+        assertEquals(4L, metrics.getMaxDepth());
+        assertTrue(metrics.getDurationNanos() > 0L);
+
+        // Parsing from a Reader reports the same events
+        parser.parse(new StringReader(DOCUMENT), new DiscardMarkupHandler());
+        final ParseMetrics readerMetrics = listener.metrics.get(1);
+        assertEquals(eventCounts(metrics), eventCounts(readerMetrics));
+        assertEquals(DOCUMENT.length(), readerMetrics.getCharCount());
+
+    }
+
+
+
+    public void testBufferCounters() throws Exception {
+
+        final RecordingMetricsListener listener = new RecordingMetricsListener();
+        final MarkupParser parser =
+                new MarkupParser(ParseConfiguration.htmlConfiguration(), new StripedBufferPool(16, 2), listener);
+
+        // The comment does not fit in the 16-char buffer, so it has to be grown
+        final String document = "<p>a</p><!-- a comment longer than the buffer --><p>b</p><p>c</p>";
+        parser.parse(new StringReader(document), new DiscardMarkupHandler());
+
+        final ParseMetrics metrics = listener.metrics.get(0);
+        assertEquals(document.length(), metrics.getCharCount());
+        assertTrue(metrics.getBufferGrowthCount() > 0L);
+        assertTrue(metrics.getBufferCompactionCount() > 0L);
+
+        // char[] documents are parsed directly, without any buffers
+        parser.parse(document.toCharArray(), new DiscardMarkupHandler());
+        assertEquals(0L, listener.metrics.get(1).getBufferGrowthCount());
+        assertEquals(0L, listener.metrics.get(1).getBufferCompactionCount());
+
+        // Push sessions also count the chars fed to them
+        final MarkupPushParseSession session = parser.createPushSession(new DiscardMarkupHandler());
+        session.feed(document.substring(0, 10).toCharArray());
+        session.feed(document.substring(10).toCharArray());
+        session.finish();
+        assertEquals(eventCounts(metrics), eventCounts(listener.metrics.get(2)));
+        assertEquals(document.length(), listener.metrics.get(2).getCharCount());
+
+    }
+
+
+
+    public void testCollector() throws Exception {
+
+        final ParseMetricsCollector collector = new ParseMetricsCollector();
+        final ParseConfiguration configuration = ParseConfiguration.xmlConfiguration();
+        final MarkupParser parser = new MarkupParser(configuration, new StripedBufferPool(4096, 2), collector);
+
+        parser.parse("<a><b><c/></b></a>", new DiscardMarkupHandler());
+        parser.parse("<a>text</a>", new DiscardMarkupHandler());
+        try {
+            // XML configuration requires balanced elements
+            parser.parse("<a><b></a>", new DiscardMarkupHandler());
+            fail();
+        } catch (final ParseException e) {
+            // Expected
+        }
+
+        final ParseMetrics metrics = collector.getMetrics();
+        assertEquals(3L, metrics.getDocumentCount());
+        assertEquals(1L, metrics.getFailedDocumentCount());
+        assertEquals(18L + 11L + 10L, metrics.getCharCount());
+        assertEquals(1L, metrics.getStandaloneElementCount());
+        assertEquals(1L, metrics.getTextCount());
+        assertEquals(2L, metrics.getMaxDepth());
+
+        collector.reset();
+        assertEquals(0L, collector.getMetrics().getDocumentCount());
+
+    }
+
+
+
+    public void testFailingListener() throws Exception {
+
+        final IParseMetricsListener listener =
+                new IParseMetricsListener() {
+                    public void handleParseMetrics(final ParseMetrics metrics) {
+                        throw new IllegalStateException();
+                    }
+                };
+        final MarkupParser parser =
+                new MarkupParser(ParseConfiguration.htmlConfiguration(), new StripedBufferPool(4096, 2), listener);
+
+        parser.parse(DOCUMENT, new DiscardMarkupHandler());
+
+    }
+
+
+
+
+    private static List<Long> eventCounts(final ParseMetrics metrics) {
+        final List<Long> counts = new ArrayList<Long>();
+        counts.add(Long.valueOf(metrics.getXmlDeclarationCount()));
+        counts.add(Long.valueOf(metrics.getDocTypeCount()));
+        counts.add(Long.valueOf(metrics.getCDATASectionCount()));
+        counts.add(Long.valueOf(metrics.getCommentCount()));
+        counts.add(Long.valueOf(metrics.getStandaloneElementCount()));
+        counts.add(Long.valueOf(metrics.getOpenElementCount()));
+        counts.add(Long.valueOf(metrics.getCloseElementCount()));
+        counts.add(Long.valueOf(metrics.getAutoOpenElementCount()));
+        counts.add(Long.valueOf(metrics.getAutoCloseElementCount()));
+        counts.add(Long.valueOf(metrics.getUnmatchedCloseElementCount()));
+        counts.add(Long.valueOf(metrics.getAttributeCount()));
+        counts.add(Long.valueOf(metrics.getProcessingInstructionCount()));
+        counts.add(Long.valueOf(metrics.getMaxDepth()));
+        return counts;
+    }
+
+
+
+
+    private static final class RecordingMetricsListener implements IParseMetricsListener {
+
+        final List<ParseMetrics> metrics = new ArrayList<ParseMetrics>();
+
+        RecordingMetricsListener() {
+            super();
+        }
+
+        public void handleParseMetrics(final ParseMetrics metrics) {
+            this.metrics.add(metrics);
+        }
+
+    }
+
+
+}
@@ -0,0 +1,154 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.select.ParseSelection;
+import org.attoparser.trace.TraceBuilderMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ParsingBulkScanUtilTest extends TestCase {
+
+
+    private static final char[] ALPHABET =
+            new char[] { 'a', 'b', ' ', '\n', '<', '>', '"', '\'', '/', '-', '!', '?', '[', ']', '=', '\u00E1', '\u8000', '\uFFFF' };
+
+
+
+    public void testScanMethods() throws Exception {
+
+        final Random random = new Random(2014L);
+        final char[] limitSequence = "</script>".toCharArray();
+
+        for (int n = 0; n < 20000; n++) {
+
+            final char[] text = randomText(random, random.nextInt(60));
+            final int offset = (text.length == 0 ? 0 : random.nextInt(text.length));
+            final int maxi = offset + (text.length == offset ? 0 : random.nextInt(text.length - offset + 1));
+            final int line = 1 + random.nextInt(5);
+            final int col = 1 + random.nextInt(5);
+
+            int[] expectedLocator = new int[] { line, col };
+            int[] locator = new int[] { line, col };
+            assertEquals(
+                    ParsingMarkupUtil.findNextStructureStart(text, offset, maxi, expectedLocator),
+                    ParsingBulkScanUtil.findNextStructureStart(text, offset, maxi, locator));
+            assertTrue(Arrays.equals(expectedLocator, locator));
+
+            expectedLocator = new int[] { line, col };
+            locator = new int[] { line, col };
+            assertEquals(
+                    ParsingMarkupUtil.findNextStructureEndAvoidQuotes(text, offset, maxi, expectedLocator),
+                    ParsingBulkScanUtil.findNextStructureEndAvoidQuotes(text, offset, maxi, locator));
+            assertTrue(Arrays.equals(expectedLocator, locator));
+
+            expectedLocator = new int[] { line, col };
+            locator = new int[] { line, col };
+            assertEquals(
+                    ParsingMarkupUtil.findNextStructureEndDontAvoidQuotes(text, offset, maxi, expectedLocator),
+                    ParsingBulkScanUtil.findNextStructureEndDontAvoidQuotes(text, offset, maxi, locator));
+            assertTrue(Arrays.equals(expectedLocator, locator));
+
+            expectedLocator = new int[] { line, col };
+            locator = new int[] { line, col };
+            assertEquals(
+                    ParsingMarkupUtil.findCharacterSequence(text, offset, maxi, expectedLocator, limitSequence),
+                    ParsingBulkScanUtil.findCharacterSequence(text, offset, maxi, locator, limitSequence));
+            assertTrue(Arrays.equals(expectedLocator, locator));
+
+        }
+
+    }
+
+
+
+    public void testParse() throws Exception {
+
+        final String[] documents =
+                new String[] {
+                        "",
+                        "Hello, world",
+                        "<p>Some\ntext spanning several\nlines</p>\n<!-- a\ncomment -->",
+                        "<div class=\"a > b\" data-x='<'>text with > and < chars</div>",
+                        "<html><head><script>\nif (a < b && c > d) { x = '</p>'; }\n</script></head><body></body></html>",
+                        "<?xml version=\"1.0\"?>\n<!DOCTYPE html>\n<![CDATA[ a < b ]]><?pi something > else ?>",
+                        "<ul>\n  <li>one\n  <li>two\n</ul>\n<table><tr><td>a<td>b</table>"
+                };
+
+        final ParseConfiguration scalarConfig = ParseConfiguration.htmlConfiguration();
+        final ParseConfiguration bulkConfig = ParseConfiguration.htmlConfiguration();
+        bulkConfig.setBulkScanning(true);
+
+        final MarkupParser scalarParser = new MarkupParser(scalarConfig);
+        final MarkupParser bulkParser = new MarkupParser(bulkConfig);
+
+        for (final String document : documents) {
+
+            final TraceBuilderMarkupHandler expectedHandler = new TraceBuilderMarkupHandler();
+            scalarParser.parse(document, expectedHandler);
+            final String expected = expectedHandler.getTrace().subList(1, expectedHandler.getTrace().size() - 1).toString();
+
+            final TraceBuilderMarkupHandler charArrayHandler = new TraceBuilderMarkupHandler();
+            bulkParser.parse(document.toCharArray(), charArrayHandler);
+            assertEquals(expected, charArrayHandler.getTrace().subList(1, charArrayHandler.getTrace().size() - 1).toString());
+
+            for (int bufferSize = 1; bufferSize <= document.length() + 1; bufferSize++) {
+
+                final TraceBuilderMarkupHandler readerHandler = new TraceBuilderMarkupHandler();
+                IMarkupHandler handler = new HtmlMarkupHandler(readerHandler);
+                handler = new MarkupEventProcessorHandler(handler);
+                final ParseStatus status = new ParseStatus();
+                handler.setParseConfiguration(bulkConfig);
+                handler.setParseStatus(status);
+                handler.setParseSelection(new ParseSelection());
+                bulkParser.parseDocument(new StringReader(document), bufferSize, handler, status);
+
+                assertEquals(expected, readerHandler.getTrace().subList(1, readerHandler.getTrace().size() - 1).toString());
+
+            }
+
+        }
+
+    }
+
+
+
+
+    private static char[] randomText(final Random random, final int len) {
+        final char[] text = new char[len];
+        for (int i = 0; i < len; i++) {
+            // Make plain text much more frequent than delimiters, so that words are skipped often
+            text[i] = (random.nextInt(3) == 0 ? ALPHABET[random.nextInt(ALPHABET.length)] : 'x');
+        }
+        return text;
+    }
+
+
+}
@@ -0,0 +1,85 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser;
+
+import junit.framework.TestCase;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ParsingStructureClassifierTest extends TestCase {
+
+
+
+    public void testClassify() throws Exception {
+
+        check(ParsingStructureClassifier.OPEN_ELEMENT, "<div>");
+        check(ParsingStructureClassifier.OPEN_ELEMENT, "<th:block>");
+        check(ParsingStructureClassifier.OPEN_ELEMENT, "<\u00E1rbol>");
+        check(ParsingStructureClassifier.OPEN_ELEMENT, "<!element>");
+        check(ParsingStructureClassifier.CLOSE_ELEMENT, "</div>");
+        check(ParsingStructureClassifier.COMMENT, "<!-- comment -->");
+        check(ParsingStructureClassifier.CDATA_SECTION, "<![CDATA[ x ]]>");
+        check(ParsingStructureClassifier.CDATA_SECTION, "<![cdata[ x ]]>");
+        check(ParsingStructureClassifier.DOCTYPE, "<!DOCTYPE html>");
+        check(ParsingStructureClassifier.DOCTYPE, "<!doctype>");
+        check(ParsingStructureClassifier.XML_DECLARATION, "<?xml version=\"1.0\"?>");
+        check(ParsingStructureClassifier.XML_DECLARATION, "<?xml?>");
+        check(ParsingStructureClassifier.PROCESSING_INSTRUCTION, "<?php echo 1; ?>");
+        check(ParsingStructureClassifier.PROCESSING_INSTRUCTION, "<?xml-stylesheet href=\"a.css\"?>");
+
+        check(ParsingStructureClassifier.NONE, "< div>");
+        check(ParsingStructureClassifier.NONE, "<\u3000div>");
+        check(ParsingStructureClassifier.NONE, "<-div>");
+        check(ParsingStructureClassifier.NONE, "<[div>");
+        check(ParsingStructureClassifier.NONE, "</ div>");
+        check(ParsingStructureClassifier.NONE, "<!-x>");
+        check(ParsingStructureClassifier.NONE, "<![CDAT");
+        check(ParsingStructureClassifier.NONE, "<? php ?>");
+
+    }
+
+
+
+    public void testBufferLimits() throws Exception {
+
+        // Structures are only recognized with the chars available before the limit
+        final char[] buffer = "<!-- comment --><a>".toCharArray();
+        assertEquals(ParsingStructureClassifier.COMMENT, ParsingStructureClassifier.classify(buffer, 0, 4));
+        assertEquals(ParsingStructureClassifier.NONE, ParsingStructureClassifier.classify(buffer, 0, 3));
+        assertEquals(ParsingStructureClassifier.OPEN_ELEMENT, ParsingStructureClassifier.classify(buffer, 16, 18));
+        assertEquals(ParsingStructureClassifier.NONE, ParsingStructureClassifier.classify(buffer, 16, 17));
+
+    }
+
+
+
+
+    private static void check(final int expected, final String structure) {
+        // Structures are classified at an offset, with some more markup after them
+        final char[] buffer = ("text" + structure + "<p>").toCharArray();
+        assertEquals(structure, expected, ParsingStructureClassifier.classify(buffer, 4, buffer.length));
+    }
+
+
+}
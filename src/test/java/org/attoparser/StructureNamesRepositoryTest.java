@@ -66,4 +66,69 @@ public void test() throws Exception {
 
 
 
+    public void testNonStandardNames() throws Exception {
+
+        final MarkupEventProcessorHandler.StructureNamesRepository structureNamesRepository = new MarkupEventProcessorHandler.StructureNamesRepository();
+
+        // Enough names to make the repository grow several times
+        final char[][] structureNamesArr = new char[5000][];
+        for (int i = 0; i < structureNamesArr.length; i++) {
+            final char[] name = ("abc" + "th:attr-" + i + "xyz").toCharArray();
+            structureNamesArr[i] = structureNamesRepository.getStructureName(name, 3, name.length - 6);
+            assertEquals("th:attr-" + i, new String(structureNamesArr[i]));
+        }
+        assertEquals(structureNamesArr.length, structureNamesRepository.getSize());
+
+        for (int i = 0; i < structureNamesArr.length; i++) {
+            final char[] name = ("th:attr-" + i).toCharArray();
+            assertSame(structureNamesArr[i], structureNamesRepository.getStructureName(name, 0, name.length));
+        }
+
+        // "Aa" and "BB" have the same hash code
+        final char[] aa = structureNamesRepository.getStructureName("Aa".toCharArray(), 0, 2);
+        final char[] bb = structureNamesRepository.getStructureName("BB".toCharArray(), 0, 2);
+        assertNotSame(aa, bb);
+        assertEquals("Aa", new String(aa));
+        assertEquals("BB", new String(bb));
+        assertSame(aa, structureNamesRepository.getStructureName("Aa".toCharArray(), 0, 2));
+        assertSame(bb, structureNamesRepository.getStructureName("BB".toCharArray(), 0, 2));
+
+        // Names differing only in case are different names
+        final char[] lower = structureNamesRepository.getStructureName("my-element".toCharArray(), 0, 10);
+        final char[] upper = structureNamesRepository.getStructureName("MY-ELEMENT".toCharArray(), 0, 10);
+        assertNotSame(lower, upper);
+
+    }
+
+
+
+    public void testStandardNames() throws Exception {
+
+        final MarkupEventProcessorHandler.StructureNamesRepository structureNamesRepository = new MarkupEventProcessorHandler.StructureNamesRepository();
+
+        for (final String elementName : HtmlNames.ALL_STANDARD_ELEMENT_NAMES) {
+            final char[] name = elementName.toCharArray();
+            final char[] standardName =
+                    MarkupEventProcessorHandler.StandardNamesRepository.getStructureName(name, 0, name.length);
+            assertNotSame(name, standardName);
+            assertSame(standardName, structureNamesRepository.getStructureName(name, 0, name.length));
+            final char[] upperName = elementName.toUpperCase().toCharArray();
+            assertSame(
+                    MarkupEventProcessorHandler.StandardNamesRepository.getStructureName(upperName, 0, upperName.length),
+                    structureNamesRepository.getStructureName(upperName, 0, upperName.length));
+        }
+
+        // Standard names are never stored in the in-instance repository
+        assertEquals(0, structureNamesRepository.getSize());
+
+        // Non-standard names are always returned as new objects by the standard repository
+        final char[] name = "not-standard".toCharArray();
+        assertNotSame(
+                MarkupEventProcessorHandler.StandardNamesRepository.getStructureName(name, 0, name.length),
+                MarkupEventProcessorHandler.StandardNamesRepository.getStructureName(name, 0, name.length));
+
+    }
+
+
+
 }
@@ -0,0 +1,268 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.buffer;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+
+import junit.framework.TestCase;
+import org.attoparser.AbstractMarkupHandler;
+import org.attoparser.MarkupParser;
+import org.attoparser.config.ParseConfiguration;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class BufferPoolTest extends TestCase {
+
+
+
+    public void testSizeClasses() throws Exception {
+        checkSizeClasses(new StripedBufferPool(16, 2, 3));
+        checkSizeClasses(new ThreadLocalBufferPool(16, 2, 3));
+    }
+
+
+    private static void checkSizeClasses(final AbstractBufferPool pool) {
+
+        final char[] b16 = pool.allocateBuffer(16);
+        final char[] b32 = pool.allocateBuffer(32);
+        final char[] b64 = pool.allocateBuffer(64);
+        final char[] b128 = pool.allocateBuffer(128); // bigger than the biggest size class
+        final char[] b20 = pool.allocateBuffer(20); // not a size class
+        assertEquals(16, b16.length);
+        assertEquals(32, b32.length);
+        assertEquals(64, b64.length);
+        assertEquals(128, b128.length);
+        assertEquals(20, b20.length);
+
+        assertStatistics(pool, 0, 5, 4, 0, 0);
+
+        pool.releaseBuffer(b16);
+        pool.releaseBuffer(b32);
+        pool.releaseBuffer(b64);
+        pool.releaseBuffer(b128);
+        pool.releaseBuffer(b20);
+        pool.releaseBuffer(null);
+
+        assertStatistics(pool, 0, 5, 4, 3, 2);
+
+        // Each size class gets its own buffer back
+        assertSame(b32, pool.allocateBuffer(32));
+        assertSame(b16, pool.allocateBuffer(16));
+        assertSame(b64, pool.allocateBuffer(64));
+        assertNotSame(b128, pool.allocateBuffer(128));
+
+        assertStatistics(pool, 3, 6, 7, 3, 2);
+
+    }
+
+
+
+    public void testPoolLimits() throws Exception {
+        checkPoolLimits(new StripedBufferPool(16, 2));
+        checkPoolLimits(new ThreadLocalBufferPool(16, 2, AbstractBufferPool.DEFAULT_SIZE_CLASSES));
+    }
+
+
+    private static void checkPoolLimits(final AbstractBufferPool pool) {
+
+        final char[] b1 = pool.allocateBuffer(16);
+        final char[] b2 = pool.allocateBuffer(16);
+        final char[] b3 = pool.allocateBuffer(16);
+
+        pool.releaseBuffer(b1);
+        pool.releaseBuffer(b2);
+        pool.releaseBuffer(b3); // Pool is already full
+
+        assertStatistics(pool, 0, 3, 0, 2, 1);
+
+        final char[] r1 = pool.allocateBuffer(16);
+        final char[] r2 = pool.allocateBuffer(16);
+        final char[] r3 = pool.allocateBuffer(16);
+        assertTrue((r1 == b1 && r2 == b2) || (r1 == b2 && r2 == b1));
+        assertNotSame(b3, r3);
+
+        assertStatistics(pool, 2, 4, 0, 2, 1);
+
+    }
+
+
+
+    public void testEmptyPool() throws Exception {
+        final StripedBufferPool pool = new StripedBufferPool(16, 0);
+        final char[] buffer = pool.allocateBuffer(16);
+        pool.releaseBuffer(buffer);
+        assertNotSame(buffer, pool.allocateBuffer(16));
+        assertStatistics(pool, 0, 2, 0, 0, 1);
+    }
+
+
+
+    public void testThreadLocality() throws Exception {
+
+        final ThreadLocalBufferPool pool = new ThreadLocalBufferPool(16);
+
+        final char[] buffer = pool.allocateBuffer(16);
+        pool.releaseBuffer(buffer);
+
+        final AtomicReference<char[]> otherThreadBuffer = new AtomicReference<char[]>();
+        final Thread thread = new Thread() {
+            @Override
+            public void run() {
+                otherThreadBuffer.set(pool.allocateBuffer(16));
+            }
+        };
+        thread.start();
+        thread.join();
+
+        assertNotSame(buffer, otherThreadBuffer.get());
+        assertSame(buffer, pool.allocateBuffer(16));
+
+    }
+
+
+
+    public void testConcurrentUse() throws Exception {
+
+        final StripedBufferPool pool = new StripedBufferPool(16, 4);
+        final AtomicReference<String> error = new AtomicReference<String>();
+
+        final Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            final char mark = (char) ('a' + i);
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 10000; j++) {
+                        final char[] buffer = pool.allocateBuffer(16 << (j % 3));
+                        Arrays.fill(buffer, mark);
+                        Thread.yield();
+                        for (int k = 0; k < buffer.length; k++) {
+                            if (buffer[k] != mark) {
+                                error.set("Buffer used by two threads at the same time");
+                            }
+                        }
+                        pool.releaseBuffer(buffer);
+                    }
+                }
+            };
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(error.get());
+
+        final BufferPoolStatistics statistics = pool.getStatistics();
+        assertEquals(80000L, statistics.getHits() + statistics.getMisses());
+        assertEquals(80000L, statistics.getReleases() + statistics.getDiscards());
+        assertTrue(statistics.getHits() > 0L);
+
+    }
+
+
+
+    public void testDefaultPoolUnderConcurrentParsers() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+        assertTrue(MarkupParser.DEFAULT_POOL_SIZE >= Runtime.getRuntime().availableProcessors());
+
+        // As many threads as buffers per size class: a miss only happens when every buffer in circulation is
+        // being used by another thread, so no more buffers than threads are ever created, and none discarded
+        final int parsers = MarkupParser.DEFAULT_POOL_SIZE;
+        final int parsesPerThread = 500;
+        final AtomicReference<Exception> error = new AtomicReference<Exception>();
+
+        final Thread[] threads = new Thread[parsers];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < parsesPerThread; j++) {
+                            parser.parse(new StringReader("<p class=\"a\">text</p>"), new AbstractMarkupHandler() {});
+                        }
+                    } catch (final Exception e) {
+                        error.set(e);
+                    }
+                }
+            };
+        }
+        for (final Thread thread : threads) {
+            thread.start();
+        }
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        assertNull(error.get());
+
+        final BufferPoolStatistics statistics = parser.getBufferPool().getStatistics();
+        assertEquals((long) parsers * parsesPerThread, statistics.getHits() + statistics.getMisses());
+        assertTrue(statistics.toString(), statistics.getMisses() <= parsers);
+        assertEquals(0L, statistics.getDiscards());
+
+    }
+
+
+
+    public void testParserGrowsAndReusesBuffers() throws Exception {
+
+        final StripedBufferPool pool = new StripedBufferPool(16, 2);
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration(), pool);
+        assertSame(pool, parser.getBufferPool());
+
+        // A text of 50 chars does not fit in a 16-char buffer, so it will be grown twice (16 -> 32 -> 64)
+        final StringBuilder document = new StringBuilder("<p>");
+        for (int i = 0; i < 50; i++) {
+            document.append('x');
+        }
+        document.append("</p>");
+
+        parser.parse(new StringReader(document.toString()), new AbstractMarkupHandler() {});
+        assertStatistics(pool, 0, 3, 2, 3, 0);
+
+        // The second time, all three buffers (including the grown ones) are already pooled
+        parser.parse(new StringReader(document.toString()), new AbstractMarkupHandler() {});
+        assertStatistics(pool, 3, 3, 4, 6, 0);
+
+    }
+
+
+
+
+    private static void assertStatistics(
+            final IBufferPool pool,
+            final long hits, final long misses, final long grows, final long releases, final long discards) {
+        final BufferPoolStatistics statistics = pool.getStatistics();
+        assertEquals("[hits=" + hits + ", misses=" + misses + ", grows=" + grows +
+                ", releases=" + releases + ", discards=" + discards + "]", statistics.toString());
+    }
+
+
+}
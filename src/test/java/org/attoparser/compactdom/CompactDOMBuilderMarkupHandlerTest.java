@@ -0,0 +1,245 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.compactdom;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.IMarkupParser;
+import org.attoparser.MarkupParser;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.dom.CDATASection;
+import org.attoparser.dom.Comment;
+import org.attoparser.dom.DOMBuilderMarkupHandler;
+import org.attoparser.dom.DocType;
+import org.attoparser.dom.Element;
+import org.attoparser.dom.INestableNode;
+import org.attoparser.dom.INode;
+import org.attoparser.dom.ProcessingInstruction;
+import org.attoparser.dom.Text;
+import org.attoparser.dom.XmlDeclaration;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class CompactDOMBuilderMarkupHandlerTest extends TestCase {
+
+
+    public void testSameTreeAsDOM() throws Exception {
+
+        final ParseConfiguration xmlConfig = ParseConfiguration.xmlConfiguration();
+        final ParseConfiguration htmlConfig = ParseConfiguration.htmlConfiguration();
+
+        check(xmlConfig, "");
+        check(xmlConfig, "<div>hello</div>");
+        check(xmlConfig, "<div>\n<div class=\"a\" id='b'>hello</div>\n</div>");
+        check(htmlConfig, "<div>\n<div class=\"a\" id='b' hidden>hello</div>\n</div>");
+        check(xmlConfig, "<?xml version=\"1.0\"?>\n<!DOCTYPE root SYSTEM \"x.dtd\">\n<root><?pi some content?><?pi?></root>");
+        check(xmlConfig, "one<!-- hello! -->two<![CDATA[ <three> ]]>");
+        check(htmlConfig, "<!DOCTYPE html>\n<html><head><title>T</title></head><body><p>a<br>b<img src=x></p></body></html>");
+        check(htmlConfig, "<ul><li>hello<li>goodbye</ul>");
+        check(htmlConfig, "<table><tr><td>1<td>2</table></div>after");
+        check(htmlConfig, "<p><span>unclosed<p>next");
+
+    }
+
+
+
+    public void testNavigation() throws Exception {
+
+        final CompactDocument document =
+                parse(ParseConfiguration.htmlConfiguration(),
+                        "<ul id=\"list\"><li>one</li><!-- c --><li class=\"x\">two <b>2</b></li></ul><p>end</p>");
+
+        assertEquals("test", document.getDocumentName());
+        assertEquals(CompactDocument.TYPE_DOCUMENT, document.getType(CompactDocument.DOCUMENT_NODE));
+        assertEquals(CompactDocument.NO_NODE, document.getParent(CompactDocument.DOCUMENT_NODE));
+
+        final int ul = document.getFirstChild(CompactDocument.DOCUMENT_NODE);
+        assertTrue(document.isElement(ul, "ul"));
+        assertEquals("list", document.getAttributeValue(ul, "id"));
+        assertNull(document.getAttributeValue(ul, "class"));
+        assertEquals(3, document.getChildCount(ul));
+
+        final int[] lis = document.getElements("li");
+        assertEquals(2, lis.length);
+        assertEquals(lis[0], document.getFirstChildElement(ul));
+        assertEquals(lis[1], document.getNextSiblingElement(lis[0]));
+        assertEquals(CompactDocument.TYPE_COMMENT, document.getType(document.getNextSibling(lis[0])));
+        assertEquals(" c ", document.getValue(document.getNextSibling(lis[0])));
+        assertEquals(ul, document.getParent(lis[1]));
+        assertEquals(CompactDocument.NO_NODE, document.getNextSibling(lis[1]));
+
+        assertEquals(1, document.getAttributeCount(lis[1]));
+        assertEquals("class", document.getAttributeName(lis[1], 0));
+        assertEquals("x", document.getAttributeValue(lis[1], 0));
+        assertEquals("two 2", document.getTextContent(lis[1]));
+        assertEquals("onetwo 2end", document.getTextContent(CompactDocument.DOCUMENT_NODE));
+
+        // Descendants have consecutive node numbers
+        final int p = document.getNextSibling(ul);
+        assertTrue(document.isElement(p, "p"));
+        assertEquals(p, document.getSubtreeEnd(ul));
+        assertEquals(document.getNodeCount(), document.getSubtreeEnd(p));
+
+        assertEquals(document.getNodeNameId(lis[0]), document.getNameId("li"));
+        assertEquals(-1, document.getNameId("table"));
+        assertEquals(0, document.getElements("table").length);
+
+        final StringWriter writer = new StringWriter();
+        document.writeValue(document.getFirstChild(p), writer);
+        assertEquals("end", writer.toString());
+        assertEquals(3, document.getValueLength(document.getFirstChild(p)));
+
+        try {
+            document.getAttributeName(ul, 1);
+            fail();
+        } catch (final IndexOutOfBoundsException e) {
+            // Expected
+        }
+
+    }
+
+
+
+    public void testNonLatin1Chars() throws Exception {
+
+        // Documents with only ISO-8859-1 chars are stored with one byte per char, the rest with two
+        for (final String value : new String[] { "Espa\u00F1a", "\u20AC 10", "\uD83D\uDE00" }) {
+
+            check(ParseConfiguration.htmlConfiguration(), "<p title=\"" + value + "\">" + value + "</p>");
+
+            final CompactDocument document =
+                    parse(ParseConfiguration.htmlConfiguration(), "<p title=\"" + value + "\">" + value + "</p>");
+            final int p = document.getFirstChild(CompactDocument.DOCUMENT_NODE);
+            assertEquals(value, document.getAttributeValue(p, "title"));
+            assertEquals(value, document.getTextContent(p));
+
+            final StringWriter writer = new StringWriter();
+            document.writeValue(document.getFirstChild(p), writer);
+            assertEquals(value, writer.toString());
+
+        }
+
+    }
+
+
+
+    public void testSplitTextsAreMerged() throws Exception {
+
+        final ParseConfiguration config = ParseConfiguration.htmlConfiguration();
+        config.setTextSplittable(true);
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("word ");
+        }
+
+        final IMarkupParser parser = new MarkupParser(config, 2, 4096);
+        final CompactDOMBuilderMarkupHandler handler = new CompactDOMBuilderMarkupHandler();
+        parser.parse(new StringReader("<p>" + text + "</p>"), handler);
+
+        final CompactDocument document = handler.getDocument();
+        final int p = document.getFirstChild(CompactDocument.DOCUMENT_NODE);
+        assertEquals(1, document.getChildCount(p));
+        assertEquals(text.toString(), document.getValue(document.getFirstChild(p)));
+
+    }
+
+
+
+
+    private static CompactDocument parse(final ParseConfiguration configuration, final String input) throws Exception {
+        final CompactDOMBuilderMarkupHandler handler = new CompactDOMBuilderMarkupHandler("test");
+        new MarkupParser(configuration).parse(input, handler);
+        assertTrue(handler.isParsingFinished());
+        return handler.getDocument();
+    }
+
+
+    private static void check(final ParseConfiguration configuration, final String input) throws Exception {
+
+        final DOMBuilderMarkupHandler domHandler = new DOMBuilderMarkupHandler("test");
+        new MarkupParser(configuration).parse(input, domHandler);
+
+        final CompactDocument document = parse(configuration, input);
+        checkChildren(domHandler.getDocument(), document, CompactDocument.DOCUMENT_NODE);
+
+    }
+
+
+    private static void checkChildren(final INestableNode expected, final CompactDocument document, final int node) {
+
+        final List<INode> expectedChildren = expected.getChildren();
+        final int[] children = document.getChildren(node);
+        assertEquals(expectedChildren.size(), children.length);
+
+        for (int i = 0; i < children.length; i++) {
+
+            final INode expectedChild = expectedChildren.get(i);
+            final int child = children[i];
+            assertEquals(node, document.getParent(child));
+
+            if (expectedChild instanceof Element) {
+                final Element element = (Element) expectedChild;
+                assertEquals(CompactDocument.TYPE_ELEMENT, document.getType(child));
+                assertEquals(element.getElementName(), document.getName(child));
+                assertEquals(element.numAttributes(), document.getAttributeCount(child));
+                for (int j = 0; j < document.getAttributeCount(child); j++) {
+                    assertEquals(
+                            element.getAttributeValue(document.getAttributeName(child, j)),
+                            document.getAttributeValue(child, j));
+                }
+                checkChildren(element, document, child);
+            } else if (expectedChild instanceof CDATASection) {
+                assertEquals(CompactDocument.TYPE_CDATA_SECTION, document.getType(child));
+                assertEquals(((CDATASection) expectedChild).getContent(), document.getValue(child));
+            } else if (expectedChild instanceof Text) {
+                assertEquals(CompactDocument.TYPE_TEXT, document.getType(child));
+                assertEquals(((Text) expectedChild).getContent(), document.getValue(child));
+            } else if (expectedChild instanceof Comment) {
+                assertEquals(CompactDocument.TYPE_COMMENT, document.getType(child));
+                assertEquals(((Comment) expectedChild).getContent(), document.getValue(child));
+            } else if (expectedChild instanceof DocType) {
+                assertEquals(CompactDocument.TYPE_DOCTYPE, document.getType(child));
+                assertEquals(((DocType) expectedChild).getRootElementName(), document.getName(child));
+                assertTrue(document.getValue(child).startsWith("<!DOCTYPE"));
+            } else if (expectedChild instanceof XmlDeclaration) {
+                assertEquals(CompactDocument.TYPE_XML_DECLARATION, document.getType(child));
+                assertTrue(document.getValue(child).contains(((XmlDeclaration) expectedChild).getVersion()));
+            } else if (expectedChild instanceof ProcessingInstruction) {
+                final ProcessingInstruction processingInstruction = (ProcessingInstruction) expectedChild;
+                assertEquals(CompactDocument.TYPE_PROCESSING_INSTRUCTION, document.getType(child));
+                assertEquals(processingInstruction.getTarget(), document.getName(child));
+                assertEquals(processingInstruction.getContent(), document.getValue(child));
+            } else {
+                fail("Unexpected node: " + expectedChild);
+            }
+
+        }
+
+    }
+
+
+}
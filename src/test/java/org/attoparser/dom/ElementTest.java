@@ -0,0 +1,254 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.dom;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ElementTest extends TestCase {
+
+
+    public void testAttributes() throws Exception {
+
+        final Element element = new Element("div");
+        assertFalse(element.hasAttributes());
+        assertTrue(element.getAttributeMap().isEmpty());
+
+        element.addAttribute("id", "one");
+        element.addAttribute("class", "two");
+        element.addAttribute("title", "three");
+        element.addAttribute("data-x", null);
+        assertEquals(4, element.numAttributes());
+        assertEquals("two", element.getAttributeValue("class"));
+        assertTrue(element.hasAttribute("data-x"));
+        assertNull(element.getAttributeValue("data-x"));
+        assertNull(element.getAttributeValue("style"));
+
+        // A new value for an existing attribute keeps its position (as in a LinkedHashMap)
+        element.addAttribute("class", "four");
+        assertEquals(4, element.numAttributes());
+        assertEquals(Arrays.asList("id", "class", "title", "data-x"), names(element));
+        assertEquals("four", element.getAttributeValue("class"));
+
+        final Map<String,String> map = element.getAttributeMap();
+        element.removeAttribute("class");
+        element.removeAttribute("non-existing");
+        assertEquals(3, element.numAttributes());
+        assertEquals(Arrays.asList("id", "title", "data-x"), names(element));
+        // Attribute maps are views, so they reflect changes
+        assertEquals(3, map.size());
+        assertFalse(map.containsKey("class"));
+        assertEquals("three", map.get("title"));
+
+        final Map<String,String> expected = new LinkedHashMap<String,String>();
+        expected.put("id", "one");
+        expected.put("title", "three");
+        expected.put("data-x", null);
+        assertEquals(expected, map);
+
+        try {
+            map.put("style", "x");
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            // Expected
+        }
+
+        final Map<String,String> newAttributes = new LinkedHashMap<String,String>();
+        newAttributes.put("title", "five");
+        newAttributes.put("lang", "en");
+        element.addAttributes(newAttributes);
+        assertEquals(Arrays.asList("id", "title", "data-x", "lang"), names(element));
+        assertEquals("five", element.getAttributeValue("title"));
+
+        element.removeAttribute("lang");
+        element.removeAttribute("id");
+        element.removeAttribute("title");
+        element.removeAttribute("data-x");
+        assertFalse(element.hasAttributes());
+
+        element.addAttribute("a", "b");
+        element.clearAttributes();
+        assertEquals(0, element.numAttributes());
+        assertFalse(element.hasAttribute("a"));
+
+    }
+
+
+
+    public void testChildren() throws Exception {
+
+        final Element parent = new Element("ul");
+        assertFalse(parent.hasChildren());
+        assertNull(parent.getFirstChild());
+
+        final Element one = new Element("li");
+        final Text two = new Text("two");
+        final Element three = new Element("li");
+        final Comment four = new Comment("four");
+        final Element five = new Element("li");
+
+        parent.addChild(one);
+        parent.addChild(three);
+        parent.addChild(null);
+        final List<INode> children = parent.getChildren();
+        parent.insertChildBefore(three, two);
+        parent.insertChildAfter(three, five);
+        parent.insertChild(3, four);
+        parent.insertChild(10, new Text("ignored"));
+
+        assertEquals(Arrays.asList(one, two, three, four, five), parent.getChildren());
+        // Children lists are views, so they reflect changes
+        assertEquals(5, children.size());
+        assertSame(parent, two.getParent());
+        assertSame(one, parent.getFirstChild());
+        assertSame(four, parent.getFirstChildOfType(Comment.class));
+        assertEquals(Arrays.asList(one, three, five), parent.getChildrenOfType(Element.class));
+
+        parent.removeChild(three);
+        parent.removeChild(new Element("li"));
+        assertEquals(Arrays.asList(one, two, four, five), parent.getChildren());
+        parent.removeChild(five);
+        parent.removeChild(one);
+        assertEquals(Arrays.asList(two, four), parent.getChildren());
+
+        try {
+            children.add(one);
+            fail();
+        } catch (final UnsupportedOperationException e) {
+            // Expected
+        }
+        try {
+            children.get(2);
+            fail();
+        } catch (final IndexOutOfBoundsException e) {
+            // Expected
+        }
+
+        parent.removeChild(two);
+        parent.removeChild(four);
+        assertFalse(parent.hasChildren());
+        assertTrue(parent.getChildren().isEmpty());
+
+        parent.addChild(one);
+        parent.clearChildren();
+        assertEquals(0, parent.numChildren());
+
+    }
+
+
+
+    public void testClone() throws Exception {
+
+        final Element element = new Element("div");
+        element.addAttribute("id", "one");
+        element.addAttribute("class", "two");
+        final Element child = new Element("p");
+        child.addChild(new Text("hello"));
+        element.addChild(child);
+
+        final Element clone = element.cloneNode(null);
+        assertEquals(element.getAttributeMap(), clone.getAttributeMap());
+        assertEquals(1, clone.numChildren());
+        assertNotSame(child, clone.getFirstChild());
+        assertEquals("hello", ((Text) ((Element) clone.getFirstChild()).getFirstChild()).getContent());
+
+        // Clones do not share attributes
+        clone.addAttribute("title", "three");
+        assertFalse(element.hasAttribute("title"));
+
+    }
+
+
+
+
+    public void testSerialization() throws Exception {
+
+        // Attributes must keep being serialized as a Map, as in previous versions
+        assertEquals(Map.class, ObjectStreamClass.lookup(Element.class).getField("attributes").getType());
+
+        final Element element = new Element("div");
+        element.addAttribute("id", "one");
+        element.addAttribute("class", "two");
+        element.addAttribute("data-x", null);
+
+        final Element deserialized = (Element) deserialize(serialize(element));
+        assertEquals("div", deserialized.getElementName());
+        assertEquals(3, deserialized.numAttributes());
+        assertEquals(Arrays.asList("id", "class", "data-x"), names(deserialized));
+        assertEquals(element.getAttributeMap(), deserialized.getAttributeMap());
+
+        // Attribute entries follow the Map.Entry contract
+        final Map<String,String> copy = new LinkedHashMap<String,String>(deserialized.getAttributeMap());
+        assertEquals(copy.hashCode(), deserialized.getAttributeMap().hashCode());
+        assertEquals(copy.entrySet(), deserialized.getAttributeMap().entrySet());
+        assertEquals(deserialized.getAttributeMap().entrySet(), copy.entrySet());
+
+        final Element empty = (Element) deserialize(serialize(new Element("br")));
+        assertEquals("br", empty.getElementName());
+        assertFalse(empty.hasAttributes());
+        empty.addAttribute("id", "one");
+        assertEquals("one", empty.getAttributeValue("id"));
+
+    }
+
+
+
+
+    private static byte[] serialize(final Object object) throws Exception {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(object);
+        out.close();
+        return bytes.toByteArray();
+    }
+
+
+    private static Object deserialize(final byte[] bytes) throws Exception {
+        final ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes));
+        try {
+            return in.readObject();
+        } finally {
+            in.close();
+        }
+    }
+
+
+    private static List<String> names(final Element element) {
+        return new ArrayList<String>(element.getAttributeMap().keySet());
+    }
+
+
+}
@@ -0,0 +1,197 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.profile;
+
+import java.io.StringWriter;
+
+import junit.framework.TestCase;
+import org.attoparser.AbstractChainedMarkupHandler;
+import org.attoparser.AbstractMarkupHandler;
+import org.attoparser.IInterestAwareMarkupHandler;
+import org.attoparser.IMarkupHandler;
+import org.attoparser.MarkupParser;
+import org.attoparser.ParseException;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.discard.DiscardMarkupHandler;
+import org.attoparser.output.OutputMarkupHandler;
+import org.attoparser.select.BlockSelectorMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class ProfilingMarkupHandlerTest extends TestCase {
+
+
+    private static final String DOCUMENT =
+            "<div class=\"a\"><p>one <b>two</b></p><!-- c --><p id=\"x\">three</p></div><span>four</span>";
+
+
+
+    public void testOutputIsNotModified() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final StringWriter expected = new StringWriter();
+        parser.parse(DOCUMENT, new BlockSelectorMarkupHandler(new OutputMarkupHandler(expected), "p"));
+
+        final MarkupHandlerProfiler profiler = new MarkupHandlerProfiler();
+        final StringWriter writer = new StringWriter();
+        IMarkupHandler handler = new ProfilingMarkupHandler(profiler, "output", new OutputMarkupHandler(writer));
+        handler = new ProfilingMarkupHandler(profiler, "selector", new BlockSelectorMarkupHandler(handler, "p"));
+        parser.parse(DOCUMENT, handler);
+
+        assertEquals(expected.toString(), writer.toString());
+
+        final MarkupProfile profile = profiler.getProfile();
+        assertEquals(2, profile.getStages().size());
+
+        final MarkupStageProfile selector = profile.getStage("selector");
+        final MarkupStageProfile output = profile.getStage("output");
+        assertEquals(2L, selector.getEventCount(MarkupEventType.ATTRIBUTE));
+        assertEquals(4L, selector.getEventCount(MarkupEventType.TEXT));
+        assertEquals(1L, selector.getEventCount(MarkupEventType.COMMENT));
+        // Only the selected p elements (and their contents) reach the output stage
+        assertEquals(1L, output.getEventCount(MarkupEventType.ATTRIBUTE));
+        assertEquals(3L, output.getEventCount(MarkupEventType.TEXT));
+        assertEquals(0L, output.getEventCount(MarkupEventType.COMMENT));
+
+        // All events enter the chain through the selector stage
+        assertEquals(selector.getEventCount(), profile.getEventCount());
+
+    }
+
+
+
+    public void testExclusiveTimes() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        // Sampling every event, so that times are not estimated
+        final MarkupHandlerProfiler profiler = new MarkupHandlerProfiler(1);
+        IMarkupHandler handler = new ProfilingMarkupHandler(profiler, "last", new DiscardMarkupHandler());
+        handler = new ProfilingMarkupHandler(profiler, "slow", new SlowTextMarkupHandler(handler));
+        handler = new ProfilingMarkupHandler(profiler, "first", new BlockSelectorMarkupHandler(handler, "div"));
+        parser.parse(DOCUMENT, handler);
+
+        final MarkupProfile profile = profiler.getProfile();
+        assertEquals(profile.getEventCount(), profile.getSampledEventCount());
+        assertEquals("slow", profile.getHottestStage().getName());
+
+        final MarkupStageProfile first = profile.getStage("first");
+        final MarkupStageProfile slow = profile.getStage("slow");
+        final MarkupStageProfile last = profile.getStage("last");
+        assertTrue(first.getInclusiveTimeNanos() >= slow.getInclusiveTimeNanos());
+        assertTrue(slow.getInclusiveTimeNanos() >= last.getInclusiveTimeNanos());
+        assertEquals(last.getInclusiveTimeNanos(), last.getExclusiveTimeNanos());
+        assertTrue(slow.getExclusiveTimeNanos(MarkupEventType.TEXT) >= 3L * SlowTextMarkupHandler.DELAY_NANOS);
+        assertTrue(first.getExclusiveTimeNanos(MarkupEventType.TEXT) < SlowTextMarkupHandler.DELAY_NANOS);
+
+    }
+
+
+
+    public void testAggregation() throws Exception {
+
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final MarkupHandlerProfiler profiler = new MarkupHandlerProfiler(3);
+        final IMarkupHandler handler = new ProfilingMarkupHandler(profiler, "discard", new DiscardMarkupHandler());
+
+        parser.parse(DOCUMENT, handler);
+        final MarkupProfile one = profiler.getProfile();
+        parser.parse(DOCUMENT, handler);
+        final MarkupProfile two = profiler.getProfile();
+
+        assertEquals(2L * one.getEventCount(), two.getEventCount());
+        assertEquals(two.getEventCount(), one.add(one).getEventCount());
+        assertEquals(
+                two.getStage("discard").getEventCount(), one.add(one).getStage("discard").getEventCount());
+
+        profiler.reset();
+        assertEquals(0L, profiler.getProfile().getEventCount());
+        assertEquals(0L, profiler.getProfile().getStage("discard").getEventCount());
+
+        try {
+            new ProfilingMarkupHandler(profiler, "discard", new DiscardMarkupHandler());
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // Expected: stage names must be unique
+        }
+
+    }
+
+
+
+    public void testEventInterests() throws Exception {
+
+        final MarkupHandlerProfiler profiler = new MarkupHandlerProfiler();
+
+        final IInterestAwareMarkupHandler textOnly = new TextOnlyMarkupHandler();
+        assertEquals(
+                IInterestAwareMarkupHandler.TEXT_EVENTS,
+                new ProfilingMarkupHandler(profiler, "text", textOnly).getEventInterests());
+        assertEquals(
+                IInterestAwareMarkupHandler.ALL_EVENTS,
+                new ProfilingMarkupHandler(profiler, "discard", new DiscardMarkupHandler()).getEventInterests());
+
+    }
+
+
+
+
+    private static final class SlowTextMarkupHandler extends AbstractChainedMarkupHandler {
+
+        static final long DELAY_NANOS = 200000L;
+
+        SlowTextMarkupHandler(final IMarkupHandler next) {
+            super(next);
+        }
+
+        @Override
+        public void handleText(final char[] buffer, final int offset, final int len, final int line, final int col)
+                throws ParseException {
+            final long start = System.nanoTime();
+            while (System.nanoTime() - start < DELAY_NANOS) {
+                // Busy waiting, so that this stage is clearly the hottest one
+            }
+            super.handleText(buffer, offset, len, line, col);
+        }
+
+    }
+
+
+    private static final class TextOnlyMarkupHandler
+            extends AbstractMarkupHandler implements IInterestAwareMarkupHandler {
+
+        TextOnlyMarkupHandler() {
+            super();
+        }
+
+        public int getEventInterests() {
+            return TEXT_EVENTS;
+        }
+
+    }
+
+
+}
@@ -0,0 +1,237 @@
+/*
+ * =============================================================================
+ *
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ *
+ * =============================================================================
+ */
+package org.attoparser.select;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.attoparser.AbstractMarkupHandler;
+import org.attoparser.MarkupParser;
+import org.attoparser.ParseException;
+import org.attoparser.config.ParseConfiguration;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class MarkupSelectorIndexTest extends TestCase {
+
+
+    private static final String HTML_DOCUMENT =
+            "<!DOCTYPE html>\n" +
+            "<html><head><title>Title</title></head>\n" +
+            "<body>\n" +
+            "  <div id=\"main\" class=\"container wide\">\n" +
+            "    <p title=\"t\">one <span>a</span><span>b</span><span>c</span></p>\n" +
+            "    <!-- a comment -->\n" +
+            "    <ul><li class=\"item\">1</li><li class=\" item  first\">2</li><li class=\"a b\">3</li>" +
+            "<li class=\"item\">4</li><li>5</li></ul>\n" +
+            "    <DIV Class=\"Item\" ID=\"other\"><p>two</p><img src=\"x\" class=\"item\"/></DIV>\n" +
+            "    <section id=\"s1\" class=\"c\"><div th:fragment=\"frag\"><a href=\"#\">link</a></div></section>\n" +
+            "    <custom-element data-th-fragment=\"other\"><p id=\"main\">three</p></custom-element>\n" +
+            "  </div>\n" +
+            "  <![CDATA[ cdata ]]>\n" +
+            "  <?pi content?>\n" +
+            "</body></html>";
+
+    private static final String[] HTML_SELECTORS =
+            new String[] {
+                    "html", "//p", "//P", "//span[2]", "//span[odd()]", "#main", "//#main", "//.item", "//li.item[1]",
+                    "//li[class='a b']", "//li[class='item']", "//[class='container wide']", "//text()", "//comment()",
+                    "//doctype()", "//cdata()", "//procinstr()", "//div/p", "//ul//li[0]", "//ul/li[>1]",
+                    "//frag", "//other", "//div%frag", "//p[@title]", "//DIV", "//section[@id='s1' and @class='c']",
+                    "//[id='other' or class='c']", "//content()", "//div//content()", "//img[class='item']",
+                    "body/div/ul", "//*", "//[ID='other']", "//div[@id!='main']"
+            };
+
+
+    private static final String XML_DOCUMENT =
+            "<?xml version=\"1.0\"?>\n" +
+            "<root><item id=\"a\" class=\"x\">1</item><Item id=\"b\">2</Item><other><item class=\"x y\"/></other>" +
+            "<!-- c --><item ID=\"a\">3</item></root>";
+
+    private static final String[] XML_SELECTORS =
+            new String[] {
+                    "root", "//item", "//Item", "//item[0]", "//[id='a']", "//[ID='a']", "//[class='x']",
+                    "//other/item", "//xmldecl()", "//comment()", "//text()", "//item[class='x y']"
+            };
+
+
+
+
+    public void testHtmlSelectors() throws Exception {
+        check(ParseConfiguration.htmlConfiguration(), HTML_DOCUMENT, HTML_SELECTORS);
+    }
+
+
+    public void testXmlSelectors() throws Exception {
+        check(ParseConfiguration.xmlConfiguration(), XML_DOCUMENT, XML_SELECTORS);
+    }
+
+
+
+
+    /*
+     * Matching all selectors at the same time (which uses MarkupSelectorIndex) must produce, for each event and
+     * selector, the same results as matching each selector on its own (which does not).
+     */
+    private static void check(
+            final ParseConfiguration configuration, final String document, final String[] selectors)
+            throws Exception {
+
+        final MarkupParser parser = new MarkupParser(configuration);
+        final IMarkupSelectorReferenceResolver referenceResolver =
+                new HtmlMultipleSelectorWithAttributeMarkupHandlerTest.TestingFragmentReferenceResolver();
+
+        final SelectionRecordingMarkupHandler allHandler = new SelectionRecordingMarkupHandler();
+        parser.parse(document, new BlockSelectorMarkupHandler(allHandler, allHandler, selectors, referenceResolver));
+
+        boolean someMatch = false;
+        for (final String selector : selectors) {
+
+            final SelectionRecordingMarkupHandler singleHandler = new SelectionRecordingMarkupHandler();
+            parser.parse(
+                    document,
+                    new BlockSelectorMarkupHandler(singleHandler, singleHandler, new String[] { selector }, referenceResolver));
+
+            assertEquals(singleHandler.events, allHandler.events);
+            assertEquals(singleHandler.selections.size(), allHandler.selections.size());
+
+            for (int i = 0; i < singleHandler.selections.size(); i++) {
+                final boolean singleMatch = singleHandler.selections.get(i).contains(selector);
+                final boolean allMatch = allHandler.selections.get(i).contains(selector);
+                assertEquals(
+                        "Selector \"" + selector + "\" at event " + singleHandler.events.get(i), singleMatch, allMatch);
+                someMatch |= singleMatch;
+            }
+
+        }
+        assertTrue(someMatch);
+
+    }
+
+
+
+
+    private static final class SelectionRecordingMarkupHandler extends AbstractMarkupHandler {
+
+        final List<String> events = new ArrayList<String>();
+        final List<List<String>> selections = new ArrayList<List<String>>();
+        private ParseSelection selection;
+
+        SelectionRecordingMarkupHandler() {
+            super();
+        }
+
+        @Override
+        public void setParseSelection(final ParseSelection selection) {
+            this.selection = selection;
+        }
+
+        private void record(final String event, final char[] buffer, final int offset, final int len) {
+            this.events.add(event + "(" + new String(buffer, offset, len) + ")");
+            final String[] currentSelection = this.selection.getCurrentSelection(0);
+            this.selections.add(
+                    currentSelection == null ? new ArrayList<String>() : Arrays.asList(currentSelection));
+        }
+
+        @Override
+        public void handleStandaloneElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen, final boolean minimized,
+                final int line, final int col) throws ParseException {
+            record("SES", buffer, nameOffset, nameLen);
+        }
+
+        @Override
+        public void handleOpenElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen,
+                final int line, final int col) throws ParseException {
+            record("OES", buffer, nameOffset, nameLen);
+        }
+
+        @Override
+        public void handleCloseElementStart(
+                final char[] buffer, final int nameOffset, final int nameLen,
+                final int line, final int col) throws ParseException {
+            record("CES", buffer, nameOffset, nameLen);
+        }
+
+        @Override
+        public void handleText(
+                final char[] buffer, final int offset, final int len,
+                final int line, final int col) throws ParseException {
+            record("T", buffer, offset, len);
+        }
+
+        @Override
+        public void handleComment(
+                final char[] buffer, final int contentOffset, final int contentLen,
+                final int outerOffset, final int outerLen, final int line, final int col) throws ParseException {
+            record("C", buffer, contentOffset, contentLen);
+        }
+
+        @Override
+        public void handleCDATASection(
+                final char[] buffer, final int contentOffset, final int contentLen,
+                final int outerOffset, final int outerLen, final int line, final int col) throws ParseException {
+            record("CD", buffer, contentOffset, contentLen);
+        }
+
+        @Override
+        public void handleDocType(
+                final char[] buffer,
+                final int keywordOffset, final int keywordLen, final int keywordLine, final int keywordCol,
+                final int elementNameOffset, final int elementNameLen, final int elementNameLine, final int elementNameCol,
+                final int typeOffset, final int typeLen, final int typeLine, final int typeCol,
+                final int publicIdOffset, final int publicIdLen, final int publicIdLine, final int publicIdCol,
+                final int systemIdOffset, final int systemIdLen, final int systemIdLine, final int systemIdCol,
+                final int internalSubsetOffset, final int internalSubsetLen, final int internalSubsetLine, final int internalSubsetCol,
+                final int outerOffset, final int outerLen, final int outerLine, final int outerCol) throws ParseException {
+            record("DT", buffer, outerOffset, outerLen);
+        }
+
+        @Override
+        public void handleXmlDeclaration(
+                final char[] buffer,
+                final int keywordOffset, final int keywordLen, final int keywordLine, final int keywordCol,
+                final int versionOffset, final int versionLen, final int versionLine, final int versionCol,
+                final int encodingOffset, final int encodingLen, final int encodingLine, final int encodingCol,
+                final int standaloneOffset, final int standaloneLen, final int standaloneLine, final int standaloneCol,
+                final int outerOffset, final int outerLen, final int line, final int col) throws ParseException {
+            record("XD", buffer, outerOffset, outerLen);
+        }
+
+        @Override
+        public void handleProcessingInstruction(
+                final char[] buffer,
+                final int targetOffset, final int targetLen, final int targetLine, final int targetCol,
+                final int contentOffset, final int contentLen, final int contentLine, final int contentCol,
+                final int outerOffset, final int outerLen, final int line, final int col) throws ParseException {
+            record("PI", buffer, outerOffset, outerLen);
+        }
+
+    }
+
+
+}
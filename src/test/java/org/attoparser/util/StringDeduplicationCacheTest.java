@@ -0,0 +1,204 @@
+/*
+ * =============================================================================
+ * 
+ *   Copyright (c) 2012-2014, The ATTOPARSER team (http://www.attoparser.org)
+ * 
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ * 
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ * 
+ * =============================================================================
+ */
+package org.attoparser.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.attoparser.MarkupParser;
+import org.attoparser.ParseException;
+import org.attoparser.config.ParseConfiguration;
+import org.attoparser.dom.DOMBuilderMarkupHandler;
+import org.attoparser.dom.Element;
+import org.attoparser.dom.Text;
+import org.attoparser.simple.AbstractSimpleMarkupHandler;
+import org.attoparser.simple.SimplifierMarkupHandler;
+
+
+/*
+ *
+ * @author Daniel Fernandez
+ * @since 2.0.6
+ */
+public class StringDeduplicationCacheTest extends TestCase {
+
+
+    public void testCanonicalStrings() throws Exception {
+
+        final StringDeduplicationCache cache = new StringDeduplicationCache(16, 8, 32);
+        final char[] buffer = "btn btn-primary button button      \n      x".toCharArray();
+
+        final String button1 = cache.getString(buffer, 16, 6);
+        final String button2 = cache.getString(buffer, 23, 6);
+        assertEquals("button", button1);
+        assertSame(button1, button2);
+        assertEquals(1L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+        assertEquals(0.5, cache.getHitRate(), 0.0001);
+
+        // Longer than maximum length: not cached nor counted
+        final String btn1 = cache.getString(buffer, 0, 15);
+        final String btn2 = cache.getString(buffer, 0, 15);
+        assertEquals("btn btn-primary", btn1);
+        assertNotSame(btn1, btn2);
+        assertEquals(2L, cache.getHits() + cache.getMisses());
+
+        // Whitespace-only texts have their own (larger) maximum length
+        final String whitespace1 = cache.getString(buffer, 29, 13);
+        final String whitespace2 = cache.getString(buffer, 29, 13);
+        assertEquals("      \n      ", whitespace1);
+        assertSame(whitespace1, whitespace2);
+        assertNotSame(cache.getString(buffer, 29, 14), cache.getString(buffer, 29, 14));
+
+        assertSame("", cache.getString(buffer, 3, 0));
+        assertEquals(2, cache.getSize());
+
+        cache.clear();
+        assertEquals(0, cache.getSize());
+        assertEquals(0L, cache.getHits());
+        assertEquals(0.0, cache.getHitRate(), 0.0);
+        assertNotSame(button1, cache.getString(buffer, 16, 6));
+
+    }
+
+
+
+    public void testEviction() throws Exception {
+
+        final StringDeduplicationCache cache = new StringDeduplicationCache(4);
+        assertEquals(4, cache.getCapacity());
+
+        final List<String> texts = new ArrayList<String>();
+        for (int i = 0; i < 100; i++) {
+            final char[] buffer = ("value" + i).toCharArray();
+            texts.add(cache.getString(buffer, 0, buffer.length));
+        }
+
+        assertEquals(100L, cache.getMisses());
+        assertEquals(4, cache.getSize());
+        assertEquals(96L, cache.getEvictions());
+
+        // Whatever has been kept, it is always the right text
+        for (int i = 0; i < 100; i++) {
+            final char[] buffer = ("value" + i).toCharArray();
+            assertEquals(texts.get(i), cache.getString(buffer, 0, buffer.length));
+        }
+
+        try {
+            new StringDeduplicationCache(0);
+            fail();
+        } catch (final IllegalArgumentException e) {
+            // Expected
+        }
+
+    }
+
+
+
+    public void testConcurrentUse() throws Exception {
+
+        final StringDeduplicationCache cache = new StringDeduplicationCache(64);
+        final Thread[] threads = new Thread[4];
+        final Throwable[] errors = new Throwable[threads.length];
+
+        for (int t = 0; t < threads.length; t++) {
+            final int thread = t;
+            threads[t] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        for (int i = 0; i < 100000; i++) {
+                            final char[] buffer = ("v" + ((i * 7 + thread) % 200)).toCharArray();
+                            assertEquals(new String(buffer), cache.getString(buffer, 0, buffer.length));
+                        }
+                    } catch (final Throwable e) {
+                        errors[thread] = e;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+        for (int t = 0; t < threads.length; t++) {
+            threads[t].join();
+            assertNull(errors[t]);
+        }
+
+        assertTrue(cache.getSize() <= cache.getCapacity());
+        assertTrue(cache.getHits() + cache.getMisses() == 400000L);
+
+    }
+
+
+
+    public void testHandlers() throws Exception {
+
+        final String document =
+                "<div>\n    <a class=\"btn\">one</a>\n    <a class=\"btn\">one</a>\n    <b class=\"btn\">two</b>\n</div>";
+        final MarkupParser parser = new MarkupParser(ParseConfiguration.htmlConfiguration());
+
+        final DOMBuilderMarkupHandler domHandler =
+                new DOMBuilderMarkupHandler("test", new StringDeduplicationCache(256));
+        parser.parse(document, domHandler);
+
+        final Element div = (Element) domHandler.getDocument().getFirstChild();
+        final Element a1 = (Element) div.getChildren().get(1);
+        final Element a2 = (Element) div.getChildren().get(3);
+        assertSame(a1.getAttributeValue("class"), a2.getAttributeValue("class"));
+        assertSame(((Text) a1.getFirstChild()).getContent(), ((Text) a2.getFirstChild()).getContent());
+        assertSame(((Text) div.getChildren().get(0)).getContent(), ((Text) div.getChildren().get(2)).getContent());
+        assertTrue(domHandler.getStringCache().getHits() > 0L);
+
+        // No deduplication is performed by default
+        final DOMBuilderMarkupHandler noCacheHandler = new DOMBuilderMarkupHandler("test");
+        parser.parse(document, noCacheHandler);
+        final Element noCacheDiv = (Element) noCacheHandler.getDocument().getFirstChild();
+        assertNull(noCacheHandler.getStringCache());
+        assertNotSame(
+                ((Element) noCacheDiv.getChildren().get(1)).getAttributeValue("class"),
+                ((Element) noCacheDiv.getChildren().get(3)).getAttributeValue("class"));
+
+        // A cache shared by both handlers makes them share texts
+        final StringDeduplicationCache sharedCache = new StringDeduplicationCache();
+        final DOMBuilderMarkupHandler sharedHandler = new DOMBuilderMarkupHandler("test", sharedCache);
+        parser.parse(document, sharedHandler);
+        final List<String> classes = new ArrayList<String>();
+        parser.parse(document, new SimplifierMarkupHandler(new AbstractSimpleMarkupHandler() {
+            @Override
+            public void handleOpenElement(
+                    final String elementName, final Map<String, String> attributes, final int line, final int col)
+                    throws ParseException {
+                if (attributes != null && attributes.containsKey("class")) {
+                    classes.add(attributes.get("class"));
+                }
+            }
+        }, sharedCache));
+
+        assertEquals(3, classes.size());
+        final Element sharedDiv = (Element) sharedHandler.getDocument().getFirstChild();
+        for (final String value : classes) {
+            assertSame(((Element) sharedDiv.getChildren().get(1)).getAttributeValue("class"), value);
+        }
+
+    }
+
+
+}